@@ -18,6 +18,7 @@ import com.application.areca.filter.FilterGroup;
 import com.application.areca.impl.AbstractFileSystemMedium;
 import com.application.areca.impl.AbstractIncrementalFileSystemMedium;
 import com.application.areca.impl.FileSystemRecoveryEntry;
+import com.application.areca.impl.StorePipeline;
 import com.application.areca.impl.copypolicy.AbstractCopyPolicy;
 import com.application.areca.indicator.IndicatorMap;
 import com.application.areca.metadata.manifest.Manifest;
@@ -31,6 +32,7 @@ import com.application.areca.search.SearchCriteria;
 import com.application.areca.search.TargetSearchResult;
 import com.application.areca.version.VersionInfos;
 import com.myJava.file.FileSystemManager;
+import com.myJava.file.iterator.FileSystemIterator;
 import com.myJava.object.Duplicable;
 import com.myJava.object.EqualsHelper;
 import com.myJava.object.HashHelper;
@@ -389,21 +391,59 @@ implements HistoryEntryTypes, Duplicable, TargetActions {
 				}
 				context.setChecked(checkParams.isCheck());
 
-				RecoveryEntry entry = new FileSystemRecoveryEntry();
-				while (this.nextElement(context, entry)) {
-					context.getInfoChannel().getTaskMonitor().checkTaskState();
-					if (this.filterEntryBeforeStore(entry)) {
-						try {
-							medium.handleTransactionPoint(context);
+				// Directories are read in advance if prefetch threads have been configured
+				// (the prefetch state is not serialized in transaction points, so it is started here in both cases)
+				FileSystemIterator fsIterator = context.getFileSystemIterator();
+				if (fsIterator != null) {
+					fsIterator.startPrefetch(ArecaConfiguration.get().getBackupPrefetchThreads());
+				}
+
+				// Files are stored sequentially unless several backup workers have been configured
+				StorePipeline pipeline = ((AbstractIncrementalFileSystemMedium)medium).buildStorePipeline(context);
+				try {
+					RecoveryEntry entry = new FileSystemRecoveryEntry();
+					while (this.nextElement(context, entry)) {
+						context.getInfoChannel().getTaskMonitor().checkTaskState();
+						if (this.filterEntryBeforeStore(entry)) {
+							try {
+								if (pipeline == null) {
+									medium.handleTransactionPoint(context);
+								} else {
+									pipeline.handleTransactionPoint();
+								}
+
+								context.incrementEntryIndex();
+								context.getInfoChannel().updateCurrentTask(context.getEntryIndex(), 0, entry.toString());
+								if (pipeline == null) {
+									this.medium.store(entry, context);
+								} else {
+									pipeline.store(entry);
+
+									// The entry is still referenced by the pipeline : it can't be reused
+									entry = new FileSystemRecoveryEntry();
+								}
+							} catch (StoreException e) {
+								throw new ApplicationException(e);
+							}
+						} 
+					}
 
-							context.incrementEntryIndex();
-							context.getInfoChannel().updateCurrentTask(context.getEntryIndex(), 0, entry.toString());
-							this.medium.store(entry, context);
+					if (pipeline != null) {
+						try {
+							pipeline.drain();
 						} catch (StoreException e) {
 							throw new ApplicationException(e);
 						}
-					} 
+					}
+				} finally {
+					if (pipeline != null) {
+						pipeline.close();
+					}
+					if (fsIterator != null) {
+						fsIterator.stopPrefetch();
+					}
 				}
+
 				if (
 						(context.getReport().getDeletedFiles() == 0 || ArecaConfiguration.get().isPreventEmptyArchives())
 						&& context.getReport().getSavedFiles() == 0 
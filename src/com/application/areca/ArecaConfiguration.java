@@ -103,6 +103,13 @@ extends FrameworkConfiguration {
      */
     public static String KEY_REPOSITORYACCESS_FTP_CACHE_DEPTH = "repository.access.ftp.cache.depth";
     
+    /**
+     * Delay (in milliseconds) after which a cached archive data (manifest, ...) is checked against its archive's size and date.
+     * <BR>Within this delay, the cached data are returned without accessing the archive (they are invalidated by the repository's own
+     * commits and deletions). 0 = checked at each access ; -1 = never checked.
+     */
+    public static String KEY_CACHE_REVALIDATION_DELAY = "cache.revalidation.delay";
+    
     /**
      * Tells whether Areca will do some checks (for instance check that the storage location is not a subdirectory of the sources directories)
      */
@@ -128,6 +135,54 @@ extends FrameworkConfiguration {
      */
     public static String KEY_DELTA_TARGET_BUCKER_NUMBER = "delta.target.bucket.number";
 
+    /**
+     * Use content-defined chunks instead of fixed-size blocks for delta storage
+     */
+    public static String KEY_DELTA_CDC = "delta.cdc.enabled";
+    
+    /**
+     * Average chunk size for content-defined delta storage (chunks are between 1/4 and 8 times this size)
+     */
+    public static String KEY_DELTA_CDC_AVERAGE_SIZE = "delta.cdc.average.chunk.size";
+    
+    /**
+     * Minimum number of layers above which a delta file is restored through a flattened extent map (0 = disabled).
+     * <BR>Only used if the archives are neither compressed nor encrypted.
+     */
+    public static String KEY_DELTA_FLATTEN_MIN_LAYERS = "delta.flatten.min.layers";
+
+    /**
+     * Number of threads that restore the files during recoveries and archive merges.
+     * <BR>The archives are still processed one after the other (newest entries overwrite older ones) ; 1 = sequential recovery
+     */
+    public static String KEY_RECOVERY_WORKERS = "recovery.workers";
+
+    /**
+     * Tells whether the zip archives are merged directly into the merged archive (without recovering them in a working directory first)
+     */
+    public static String KEY_MERGE_STREAMING = "merge.streaming";
+
+    /**
+     * Number of threads that read and encode (delta, compression, encryption) the files during backups.
+     * <BR>The metadata are still written in the files' order. Only used for non-zip storage ; 1 = sequential backup
+     */
+    public static String KEY_BACKUP_WORKERS = "backup.workers";
+
+    /**
+     * Number of threads that list the source directories and read their files' attributes in advance during backups (0 = disabled)
+     */
+    public static String KEY_BACKUP_PREFETCH_THREADS = "backup.prefetch.threads";
+
+    /**
+     * Number of entries between two keys of the metadata files' sparse index (0 = no index)
+     */
+    public static String KEY_METADATA_INDEX_INTERVAL = "metadata.index.interval";
+
+    /**
+     * Codec used to compress the metadata files (gzip or lz4) when compression is enabled - can be overridden for each target
+     */
+    public static String KEY_METADATA_CODEC = "metadata.codec";
+
     /**
      * Log location (set this property if you want to force this location)
      */
@@ -196,10 +251,20 @@ extends FrameworkConfiguration {
     public static boolean DEF_REPOSITORYACCESS_FTP_CACHE = true;
     public static int DEF_REPOSITORYACCESS_HD_CACHE_DEPTH = 2;
     public static int DEF_REPOSITORYACCESS_FTP_CACHE_DEPTH = 3;
+    public static long DEF_CACHE_REVALIDATION_DELAY = 60000;
     public static boolean DEF_CHECK_DIRECTORY_CONSISTENCY = true;
     public static int DEF_DELTA_MIN_BUCKETSIZE = 1 * 1024;
     public static int DEF_DELTA_MAX_BUCKETSIZE = 1 * 1024 * 1024;
     public static int DEF_DELTA_TARGET_BUCKER_NUMBER = 100;
+    public static boolean DEF_DELTA_CDC = false;
+    public static int DEF_DELTA_CDC_AVERAGE_SIZE = 64 * 1024;
+    public static int DEF_DELTA_FLATTEN_MIN_LAYERS = 0;
+    public static int DEF_RECOVERY_WORKERS = 1;
+    public static boolean DEF_MERGE_STREAMING = true;
+    public static int DEF_BACKUP_WORKERS = 1;
+    public static int DEF_BACKUP_PREFETCH_THREADS = 0;
+    public static int DEF_METADATA_INDEX_INTERVAL = 1000;
+    public static String DEF_METADATA_CODEC = "gzip";
     public static String DEF_FORCED_LOG_LOCATION = null;
     public static String DEF_FORCED_BIN_LOCATION = null;
     public static String DEF_FORCED_PLUGIN_LOCATION = null;
@@ -307,6 +372,42 @@ extends FrameworkConfiguration {
         return getProperty(KEY_DELTA_TARGET_BUCKER_NUMBER, DEF_DELTA_TARGET_BUCKER_NUMBER);
     }
     
+    public boolean isDeltaContentDefinedChunking() {
+        return getProperty(KEY_DELTA_CDC, DEF_DELTA_CDC);
+    }
+    
+    public int getDeltaAverageChunkSize() {
+        return getProperty(KEY_DELTA_CDC_AVERAGE_SIZE, DEF_DELTA_CDC_AVERAGE_SIZE);
+    }
+    
+    public int getDeltaFlattenMinLayers() {
+        return getProperty(KEY_DELTA_FLATTEN_MIN_LAYERS, DEF_DELTA_FLATTEN_MIN_LAYERS);
+    }
+    
+    public int getRecoveryWorkers() {
+        return getProperty(KEY_RECOVERY_WORKERS, DEF_RECOVERY_WORKERS);
+    }
+    
+    public boolean isMergeStreaming() {
+        return getProperty(KEY_MERGE_STREAMING, DEF_MERGE_STREAMING);
+    }
+    
+    public int getBackupWorkers() {
+        return getProperty(KEY_BACKUP_WORKERS, DEF_BACKUP_WORKERS);
+    }
+    
+    public int getBackupPrefetchThreads() {
+        return getProperty(KEY_BACKUP_PREFETCH_THREADS, DEF_BACKUP_PREFETCH_THREADS);
+    }
+    
+    public int getMetadataIndexInterval() {
+        return getProperty(KEY_METADATA_INDEX_INTERVAL, DEF_METADATA_INDEX_INTERVAL);
+    }
+    
+    public String getMetadataCodec() {
+        return getProperty(KEY_METADATA_CODEC, DEF_METADATA_CODEC);
+    }
+    
     public int getRepositoryHDCacheDepth() {
         return getProperty(KEY_REPOSITORYACCESS_HD_CACHE_DEPTH, DEF_REPOSITORYACCESS_HD_CACHE_DEPTH);
     }
@@ -315,6 +416,10 @@ extends FrameworkConfiguration {
         return getProperty(KEY_REPOSITORYACCESS_FTP_CACHE_DEPTH, DEF_REPOSITORYACCESS_FTP_CACHE_DEPTH);
     }
     
+    public long getCacheRevalidationDelay() {
+        return getProperty(KEY_CACHE_REVALIDATION_DELAY, DEF_CACHE_REVALIDATION_DELAY);
+    }
+    
     public long getMemoryBaseKb() {
         return getProperty(KEY_MEMORY_BASE_KB, DEF_MEMORY_BASE_KB);
     }
@@ -104,6 +104,9 @@ public interface XMLTags {
     public static final String XML_MEDIUM_FILECOMPRESSION = "file_compression";
     public static final String XML_MEDIUM_Z64 = "zip64";
     public static final String XML_MEDIUM_ZIP_LEVEL = "zip_level";
+    public static final String XML_MEDIUM_ZIP_THREADS = "zip_threads";
+    public static final String XML_MEDIUM_COMPRESSION_CODEC = "compression_codec";
+    public static final String XML_MEDIUM_METADATA_CODEC = "metadata_codec";
     public static final String XML_MEDIUM_INSPECT_FILE_CONTENT = "inspect_file_content";
     public static final String XML_MEDIUM_ENCRYPTED = "encrypted";
     public static final String XML_MEDIUM_ENCRYPTIONKEY = "encryption_key";
@@ -57,6 +57,7 @@ import com.application.areca.processor.ShellScriptProcessor;
 import com.application.areca.version.VersionInfos;
 import com.myJava.configuration.FrameworkConfiguration;
 import com.myJava.file.CompressionArguments;
+import com.myJava.file.codec.CodecRegistry;
 import com.myJava.file.driver.EncryptedFileSystemDriver;
 import com.myJava.util.log.Logger;
 import com.myJava.util.xml.AdapterException;
@@ -632,6 +633,21 @@ public class TargetXMLReader implements XMLTags {
 			compression.setLevel(Integer.parseInt(levelNode.getNodeValue()));
 		}
 
+		Node threadsNode = mediumNode.getAttributes().getNamedItem(XML_MEDIUM_ZIP_THREADS);
+		if (threadsNode != null) {
+			compression.setThreads(Integer.parseInt(threadsNode.getNodeValue()));
+		}
+
+		Node codecNode = mediumNode.getAttributes().getNamedItem(XML_MEDIUM_COMPRESSION_CODEC);
+		if (codecNode != null) {
+			compression.setCodec(CodecRegistry.getCodec(codecNode.getNodeValue()).getName());
+		}
+
+		Node metadataCodecNode = mediumNode.getAttributes().getNamedItem(XML_MEDIUM_METADATA_CODEC);
+		if (metadataCodecNode != null) {
+			compression.setMetadataCodec(CodecRegistry.getCodec(metadataCodecNode.getNodeValue()).getName());
+		}
+
 		Node addExtensionNode = mediumNode.getAttributes().getNamedItem(XML_MEDIUM_ZIP_EXTENSION);
 		if (addExtensionNode != null) {
 			compression.setAddExtension(Boolean.valueOf(addExtensionNode.getNodeValue()).booleanValue());
@@ -412,6 +412,10 @@ public class TargetXMLWriter extends AbstractXMLWriter {
         sb.append(XMLTool.encodeProperty(XML_MEDIUM_OVERWRITE, medium.isImage()));  
         sb.append(XMLTool.encodeProperty(XML_MEDIUM_INSPECT_FILE_CONTENT, medium.isInspectFileContent()));  
         
+        if (medium.getCompressionArguments().getMetadataCodec() != null) {
+            sb.append(XMLTool.encodeProperty(XML_MEDIUM_METADATA_CODEC, medium.getCompressionArguments().getMetadataCodec()));  
+        }
+        
         if (medium.getCompressionArguments().isCompressed()) {
             if (medium.getCompressionArguments().isMultiVolumes()) {
                 sb.append(XMLTool.encodeProperty(XML_MEDIUM_VOLUME_SIZE, medium.getCompressionArguments().getVolumeSize()));  
@@ -425,6 +429,14 @@ public class TargetXMLWriter extends AbstractXMLWriter {
             if (medium.getCompressionArguments().getLevel() >= 0) {
                 sb.append(XMLTool.encodeProperty(XML_MEDIUM_ZIP_LEVEL, medium.getCompressionArguments().getLevel()));  
             }
+            
+            if (medium.getCompressionArguments().getThreads() > 1) {
+                sb.append(XMLTool.encodeProperty(XML_MEDIUM_ZIP_THREADS, medium.getCompressionArguments().getThreads()));  
+            }
+            
+            if (medium.getCompressionArguments().getCodec() != null) {
+                sb.append(XMLTool.encodeProperty(XML_MEDIUM_COMPRESSION_CODEC, medium.getCompressionArguments().getCodec()));  
+            }
 
             sb.append(XMLTool.encodeProperty(XML_MEDIUM_ZIP_EXTENSION, medium.getCompressionArguments().isAddExtension())); 
             
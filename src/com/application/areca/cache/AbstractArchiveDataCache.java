@@ -13,6 +13,10 @@ import com.application.areca.impl.AbstractFileSystemMedium;
  * <BR>- FileSystemArchiveMedium
  * <BR>- File
  * <BR>
+ * <BR>Each invalidation (removal of an entry or of a medium's data) increments the cache's generation : the data read by a caller are only
+ * stored if no invalidation occurred since the caller started reading them (see getGeneration()). This allows the data to be read
+ * without holding the cache's lock.
+ * <BR>
  * @author Olivier PETRUCCI
  * <BR>
  *
@@ -43,6 +47,11 @@ public abstract class AbstractArchiveDataCache {
     
     private EvictionManager evictor;
     
+    /**
+     * Incremented each time some data are invalidated
+     */
+    private long generation = 0;
+    
     public AbstractArchiveDataCache(EvictionManager evictor) {
         evictor.registerCache(this);
         this.evictor = evictor;
@@ -72,13 +81,17 @@ public abstract class AbstractArchiveDataCache {
         if (map != null) {
             returned = map.get(key);
         }
-        
-        // Once the object has been retrieved in the cache, check that the memory is OK
-        evictor.gcIfNeeded();
-        
         return returned;
     }
     
+    /**
+     * Return the current generation of the cache, which must be read before reading the data that will be stored in the cache
+     * (see put(AbstractFileSystemMedium, File, Object, long, long))
+     */
+    public synchronized long getGeneration() {
+        return generation;
+    }
+    
     /**
      * This method registers the object passed as argument in the cache associated to
      * the medium.
@@ -88,10 +101,25 @@ public abstract class AbstractArchiveDataCache {
      * <BR>
      * <BR>Note that, in both cases, the reference is added to the cache before GC is called.
      */
-    public synchronized boolean put(AbstractFileSystemMedium medium, File key, Object data, long approximateDataSize) {
-        this.findOrCreateArchiveDataMap(medium).put(key, data, approximateDataSize);
+    public boolean put(AbstractFileSystemMedium medium, File key, Object data, long approximateDataSize) {
+        return put(medium, key, data, approximateDataSize, -1);
+    }
+    
+    /**
+     * Same as put(AbstractFileSystemMedium, File, Object, long), but the data are ignored if the cache's generation is not the one
+     * passed as argument (which means that they may have been invalidated while they were read).
+     * <BR>The generation is not checked if it is negative.
+     */
+    public boolean put(AbstractFileSystemMedium medium, File key, Object data, long approximateDataSize, long dataGeneration) {
+        synchronized (this) {
+            if (dataGeneration >= 0 && dataGeneration != generation) {
+                return true;
+            }
+            this.findOrCreateArchiveDataMap(medium).put(key, data, approximateDataSize);
+        }
         
         // Once the object has been referenced in the cache, check that the memory is OK
+        // (outside the cache's lock : the evictor locks the caches it cleans)
         return evictor.gcIfNeeded();
     }
     
@@ -100,6 +128,7 @@ public abstract class AbstractArchiveDataCache {
      * <BR>Return the removed entry
      */    
     public synchronized Object remove(AbstractFileSystemMedium medium, File key) {
+        this.generation++;
         ArchiveDataMap map = this.findArchiveDataMap(medium);
         if (map == null) {
             return null;
@@ -112,6 +141,7 @@ public abstract class AbstractArchiveDataCache {
      * Clear the cache
      */
     public synchronized void removeAllArchiveData() {
+        this.generation++;
         this.dataByArchiveMedium.clear();
     }
     
@@ -119,9 +149,31 @@ public abstract class AbstractArchiveDataCache {
      * Clear all data for the medium passed as argument
      */
     public synchronized void removeAllArchiveData(AbstractFileSystemMedium medium) {
+        this.generation++;
         this.dataByArchiveMedium.remove(medium);
     }
     
+    /**
+     * Return the eviction score of the data of the medium passed as argument (see ArchiveDataMap.computeScore())
+     */
+    protected synchronized double computeScore(AbstractFileSystemMedium medium) {
+        ArchiveDataMap map = (ArchiveDataMap)this.dataByArchiveMedium.get(medium);
+        return map == null ? Double.MAX_VALUE : map.computeScore();
+    }
+    
+    /**
+     * Evict the least recently used data of the medium passed as argument, until "ratio" of its size has been freed
+     * <BR>Returns the size that has been freed.
+     */
+    protected synchronized long evict(AbstractFileSystemMedium medium, double ratio) {
+        ArchiveDataMap map = (ArchiveDataMap)this.dataByArchiveMedium.get(medium);
+        if (map == null) {
+            return 0;
+        } else {
+            return map.evict(Math.max(1, (long)(ratio * map.getSizeApproximation())));
+        }
+    }
+    
     /**
      * Return the medium that has been the least accessed ...
      */
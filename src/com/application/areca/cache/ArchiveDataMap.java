@@ -1,17 +1,21 @@
 package com.application.areca.cache;
 
 import java.io.File;
-import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
+import com.application.areca.ArecaConfiguration;
 import com.myJava.file.FileSystemManager;
 
 /**
  * Sorted cache of data for a given FileSystemArchiveMedium.
  * <BR>These data are indexed by File.
  * <BR>It counts the usage of each file and build an eviction strategy upon these statistics.
- * <BR>It checks that the underlying file key hasn't been modified since the caching of the data and refreshes its content if needed.
+ * <BR>The entries are kept in access order, so that the least recently used entries are evicted first (see evict()).
+ * <BR>The cached data are invalidated by the repository when it modifies or deletes an archive ; besides, they are checked against
+ * the archive's size and date once the revalidation delay has expired (see ArecaConfiguration.getCacheRevalidationDelay()), which avoids
+ * accessing the archive for each cache hit.
  * <BR>
  * <BR>This class is not synchronized. The caller must manage concurrent accesses.
  * <BR>
@@ -41,9 +45,10 @@ This file is part of Areca.
 
  */
 public class ArchiveDataMap {
+    private static final long REVALIDATION_DELAY = ArecaConfiguration.get().getCacheRevalidationDelay();
     
     /**
-     * <BR>Contains instances of CachedData indexed by File
+     * <BR>Contains instances of CachedData indexed by File (least recently used first)
      */
     private Map content;
     
@@ -58,7 +63,7 @@ public class ArchiveDataMap {
     private long sizeApproximation = 0;
 
     public ArchiveDataMap() {
-        this.content = new HashMap();
+        this.content = new LinkedHashMap(16, 0.75f, true);
     }
     
     public Object get(File key) {
@@ -66,12 +71,17 @@ public class ArchiveDataMap {
         if (data == null) {
             return null;
         } else {
-	        String currentHash = computeHash(key);
-	        if (currentHash.equals(data.getHash())) {
-	            return data.getData();
-	        } else {
-	            return null;
-	        }
+            if (REVALIDATION_DELAY >= 0) {
+                long now = System.currentTimeMillis();
+                if (now - data.getValidationDate() >= REVALIDATION_DELAY) {
+                    if (! data.isUpToDate(computeHash(key))) {
+                        this.remove(key);
+                        return null;
+                    }
+                    data.setValidationDate(now);
+                }
+            }
+            return data.getData();
         }
     }
     
@@ -87,8 +97,11 @@ public class ArchiveDataMap {
     }
     
     public void put(File key, Object data, long approximateSize) {
-        this.content.put(key, new CachedData(computeHash(key), data, approximateSize));
+        CachedData previous = (CachedData)this.content.put(key, new CachedData(computeHash(key), data, approximateSize));
         this.sizeApproximation += approximateSize;
+        if (previous != null) {
+            this.sizeApproximation -= previous.getApproximateSize();
+        }
     }
     
     public Object remove(File key) {
@@ -101,6 +114,22 @@ public class ArchiveDataMap {
         }
     }
     
+    /**
+     * Removes the least recently used entries until "size" bytes (approximately) have been freed, or until the map is empty.
+     * <BR>Returns the size that has been freed.
+     */
+    public long evict(long size) {
+        long freed = 0;
+        Iterator iter = this.content.values().iterator();
+        while (freed < size && iter.hasNext()) {
+            CachedData data = (CachedData)iter.next();
+            iter.remove();
+            freed += data.getApproximateSize();
+        }
+        this.sizeApproximation -= freed;
+        return freed;
+    }
+    
     public Iterator keyIterator() {
         return this.content.keySet().iterator();
     } 
@@ -117,6 +146,10 @@ public class ArchiveDataMap {
         return content.isEmpty();
     }
     
+    public long getSizeApproximation() {
+        return sizeApproximation;
+    }
+    
     /**
      * Registers that the cache has been used
      */
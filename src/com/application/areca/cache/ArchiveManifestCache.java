@@ -10,6 +10,7 @@ import com.application.areca.metadata.manifest.ManifestManager;
 
 /**
  * Cache of Manifests
+ * <BR>The manifests are read outside the cache's lock ; they are only stored if they haven't been invalidated meanwhile.
  * <BR>
  * @author Olivier PETRUCCI
  * <BR>
@@ -51,16 +52,17 @@ public class ArchiveManifestCache extends AbstractArchiveDataCache {
     /**
      * Returns the requested manifest
      */    
-    public synchronized Manifest getManifest(AbstractFileSystemMedium medium, File key) throws ApplicationException {
+    public Manifest getManifest(AbstractFileSystemMedium medium, File key) throws ApplicationException {
         if (medium == null || key == null) {
             return null;
         }
         
+        long generation = this.getGeneration();
         Manifest mf = (Manifest)this.get(medium, key);
         if (mf == null) {
             mf = ManifestManager.readManifestForArchive(medium, key);
             if (mf != null) {
-                this.put(medium, key, mf, computeApproximateManifestSize(mf));
+                this.put(medium, key, mf, computeApproximateManifestSize(mf), generation);
             }
         }
         
@@ -75,21 +77,22 @@ public class ArchiveManifestCache extends AbstractArchiveDataCache {
      * Init the data in cache.
      * <BR>Returns true if the cache still can grow (ie if no gc has been required after having added the data)
      */
-    public synchronized boolean init(AbstractFileSystemMedium medium, File key) throws ApplicationException {
+    public boolean init(AbstractFileSystemMedium medium, File key) throws ApplicationException {
         if (medium == null || key == null) {
             return true;
         }
         
+        long generation = this.getGeneration();
         Manifest mf = (Manifest)this.get(medium, key);
         if (mf == null) {
             mf = ManifestManager.readManifestForArchive((AbstractIncrementalFileSystemMedium)medium, key);
-            return this.put(medium, key, mf, computeApproximateManifestSize(mf));
+            return this.put(medium, key, mf, computeApproximateManifestSize(mf), generation);
         } else {
             return true;
         }
     }
     
-    public synchronized Manifest removeManifest(AbstractFileSystemMedium medium, File key) {
+    public Manifest removeManifest(AbstractFileSystemMedium medium, File key) {
         return (Manifest)this.remove(medium, key);
     } 
 }
\ No newline at end of file
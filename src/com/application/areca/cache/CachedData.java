@@ -33,10 +33,17 @@ public class CachedData {
     private String hash;
     private Object data;
     private long approximateSize = 0;
+    
+    /**
+     * Last time the hash has been checked against the archive
+     */
+    private long validationDate;
 
     public CachedData(String hash, Object data, long approximateSize) {
         this.hash = hash;
         this.data = data;
+        this.approximateSize = approximateSize;
+        this.validationDate = System.currentTimeMillis();
     }
     
     public Object getData() {
@@ -54,4 +61,12 @@ public class CachedData {
     public long getApproximateSize() {
         return approximateSize;
     }
+
+    public long getValidationDate() {
+        return validationDate;
+    }
+
+    public void setValidationDate(long validationDate) {
+        this.validationDate = validationDate;
+    }
 }
@@ -41,6 +41,11 @@ This file is part of Areca.
 public class EvictionManager {
     private static final double TARGET_CACHE_MEMORY_USAGE_RATIO = 0.5;
     
+    /**
+     * Part of the least valuable {cache, medium} data which is evicted at each eviction step (least recently used entries first)
+     */
+    private static final double EVICTION_RATIO = 0.5;
+    
     private static EvictionManager instance = new EvictionManager();
     
     private List caches = new ArrayList();
@@ -94,7 +99,7 @@ public class EvictionManager {
     }
     
     /**
-     * Frees memory by destroying some cached data
+     * Frees memory by destroying some cached data : the least recently used entries of the {cache, medium} pair with the least score are evicted
      * <BR>Returns :
      * <BR>- True if data has been successfully destroyed
      * <BR>- False if no destroyable data has been found
@@ -111,7 +116,7 @@ public class EvictionManager {
             AbstractFileSystemMedium medium = cache.getLeastAccessedNonEmptyMapMedium();
             
             if (medium != null) {
-	            double score = cache.findArchiveDataMap(medium).computeScore();
+	            double score = cache.computeScore(medium);
 	            //Logger.defaultLogger().info("      > candidate cache : " + cache.getClass().getName() + " - medium : " + medium.getDescription() + " - Score = " + score);
 	            if (score < candidateScore) {
 	                candidateScore = score;
@@ -123,11 +128,10 @@ public class EvictionManager {
             }
         }
 
-        // Clear this {cache, medium} pair
+        // Evict some data of this {cache, medium} pair
         if (candidateMedium != null) {
-            Logger.defaultLogger().info("Cleaning the cache : " + candidateCache.getClass().getName() + " - for medium : " + candidateMedium.getDescription() + " - Score = " + candidateScore);
-            ArchiveDataMap mapToClear = candidateCache.findArchiveDataMap(candidateMedium);
-            mapToClear.clear();
+            long freed = candidateCache.evict(candidateMedium, EVICTION_RATIO);
+            Logger.defaultLogger().info("Cleaning the cache : " + candidateCache.getClass().getName() + " - for medium : " + candidateMedium.getDescription() + " - Score = " + candidateScore + " - " + freed + " bytes evicted");
             return true;
         } else {
             Logger.defaultLogger().info("No more data to clean in caches.");
@@ -15,6 +15,8 @@ import com.application.areca.metadata.content.ArchiveContentAdapter;
 import com.application.areca.metadata.content.ContentFileIterator;
 import com.application.areca.metadata.manifest.Manifest;
 import com.application.areca.metadata.trace.ArchiveTraceAdapter;
+import com.application.areca.metadata.trace.BinaryTraceIterator;
+import com.application.areca.metadata.trace.BinaryTraceWriter;
 import com.application.areca.metadata.trace.TraceFileIterator;
 import com.application.areca.metadata.transaction.TransactionPoint;
 import com.myJava.file.FileSystemManager;
@@ -83,6 +85,16 @@ public class ProcessContext implements Externalizable {
      */
     protected TraceFileIterator referenceTrace;
     
+    /**
+     * Binary version of the reference trace (null if not available) - used to detect unchanged files
+     */
+    protected BinaryTraceIterator referenceBinaryTrace;
+    
+    /**
+     * Writer of the binary version of the trace (null if not written)
+     */
+    protected BinaryTraceWriter binaryTraceWriter;
+    
     /**
      * Archive writer
      */
@@ -166,9 +178,9 @@ public class ProcessContext implements Externalizable {
     protected FileSystemIterator fileSystemIterator;  
     
     /**
-     * Iterator used by delta handlers to locate the HashSequence
+     * Sequence stores used by delta handlers to locate the HashSequence
      */
-    protected ArrayList contentIterators = new ArrayList();
+    protected ArrayList sequenceStores = new ArrayList();
 
     protected MeteredOutputStreamListener outputStreamListener = new MeteredOutputStreamListener();
 
@@ -213,7 +225,7 @@ public class ProcessContext implements Externalizable {
 		//List invalidRecoveredFiles = new ArrayList(); -> Not used during backup
 		//List uncheckedRecoveredFiles = new ArrayList(); -> Not used during backup
 		//List unrecoveredFiles = new ArrayList(); -> Not used during backup
-		//out.writeObject(contentIterators);  -> Ignored because these iterators are already closed by the "rollback" method
+		//out.writeObject(sequenceStores);  -> Ignored because these stores are already closed by the "rollback" method
 		//out.writeObject(recoveryDestination); -> Not used during backup
 		//filesByArchive
 		//detailedRecoveryErrors
@@ -269,8 +281,10 @@ public class ProcessContext implements Externalizable {
         this.sequenceAdapter = null;
         this.isInitialized = false;
         this.referenceTrace = null;
+        this.referenceBinaryTrace = null;
         this.traceAdapter = null;
-        this.contentIterators.clear();
+        this.binaryTraceWriter = null;
+        this.sequenceStores.clear();
         this.previousHashIterator = null;
         this.detailedRecoveryErrors = 0;
         this.traceFile = null;
@@ -375,8 +389,8 @@ public class ProcessContext implements Externalizable {
 		return this.outputStreamListener;
 	}
 
-    public ArrayList getContentIterators() {
-		return contentIterators;
+    public ArrayList getSequenceStores() {
+		return sequenceStores;
 	}
 
 	public String getBackupScheme() {
@@ -415,6 +429,22 @@ public class ProcessContext implements Externalizable {
 		this.referenceTrace = referenceTrace;
 	}
 
+	public BinaryTraceIterator getReferenceBinaryTrace() {
+		return referenceBinaryTrace;
+	}
+
+	public void setReferenceBinaryTrace(BinaryTraceIterator referenceBinaryTrace) {
+		this.referenceBinaryTrace = referenceBinaryTrace;
+	}
+
+	public BinaryTraceWriter getBinaryTraceWriter() {
+		return binaryTraceWriter;
+	}
+
+	public void setBinaryTraceWriter(BinaryTraceWriter binaryTraceWriter) {
+		this.binaryTraceWriter = binaryTraceWriter;
+	}
+
 	public ArchiveContentAdapter getHashAdapter() {
 		return hashAdapter;
 	}
@@ -206,15 +206,25 @@ implements TargetActions, IndicatorTypes {
 	 * Save a temporary transaction point
 	 */
 	public void handleTransactionPoint(ProcessContext context) throws ApplicationException {
-		if (
-				this.checkResumeSupported() == null
-				&& (context.getOutputBytesInKB() - context.getTransactionBound()) >= getTransactionSize()
-		) {
-			context.setTransactionBound(context.getOutputBytesInKB());
-			initTransactionPoint(context);
+		if (isTransactionPointRequired(context)) {
+			saveTransactionPoint(context);
 		}
 	}
 
+	/**
+	 * Tell whether enough data have been written since the last transaction point to save a new one
+	 */
+	public boolean isTransactionPointRequired(ProcessContext context) {
+		return 
+				this.checkResumeSupported() == null
+				&& (context.getOutputBytesInKB() - context.getTransactionBound()) >= getTransactionSize();
+	}
+
+	public void saveTransactionPoint(ProcessContext context) throws ApplicationException {
+		context.setTransactionBound(context.getOutputBytesInKB());
+		initTransactionPoint(context);
+	}
+
 	/**
 	 * Checks "stupid" configurations .... typically, checks that the user
 	 * didn't use the target's storage subdirectory as main storage directory.
@@ -43,7 +43,9 @@ import com.application.areca.impl.tools.ArchiveNameFilter;
 import com.application.areca.impl.tools.RecoveryFilterMap;
 import com.application.areca.metadata.AbstractMetaDataEntry;
 import com.application.areca.metadata.AbstractMetaDataFileIterator;
+import com.application.areca.metadata.AbstractMetadataAdapter;
 import com.application.areca.metadata.FileList;
+import com.application.areca.metadata.MetaDataIteratorHeap;
 import com.application.areca.metadata.MetadataConstants;
 import com.application.areca.metadata.content.ArchiveContentAdapter;
 import com.application.areca.metadata.content.ArchiveContentManager;
@@ -56,6 +58,8 @@ import com.application.areca.metadata.manifest.ManifestManager;
 import com.application.areca.metadata.trace.ArchiveTraceAdapter;
 import com.application.areca.metadata.trace.ArchiveTraceManager;
 import com.application.areca.metadata.trace.ArchiveTraceParser;
+import com.application.areca.metadata.trace.BinaryTraceIterator;
+import com.application.areca.metadata.trace.BinaryTraceWriter;
 import com.application.areca.metadata.trace.EntrySetTraceHandler;
 import com.application.areca.metadata.trace.RebuildOtherFilesTraceHandler;
 import com.application.areca.metadata.trace.TraceEntry;
@@ -76,6 +80,7 @@ import com.myJava.file.FileTool;
 import com.myJava.file.HashInputStreamListener;
 import com.myJava.file.archive.ArchiveWriter;
 import com.myJava.file.archive.zip64.ZipArchiveAdapter;
+import com.myJava.file.codec.CodecRegistry;
 import com.myJava.file.driver.FileSystemDriver;
 import com.myJava.file.driver.contenthash.ContentHashFileSystemDriver;
 import com.myJava.file.iterator.FilePathComparator;
@@ -133,6 +138,17 @@ implements TargetActions {
 	protected static final long TH_MON_DELAY = ArecaConfiguration.get().getThreadMonitorDelay();
 	protected static final int MAX_DETAILED_ERRORS = 50;
 
+	/**
+	 * Temporary directory where local copies of the archives' data are stored (sequences, binary traces)
+	 * <BR>This allows quicker data retrieval and limits bandwidth usage
+	 */
+	private static final File LOCAL_DATA_DIRECTORY = new File(OSTool.getTempDirectory(), "areca");
+
+	/**
+	 * Binary version of the trace, stored in the archive's local data directory
+	 */
+	private static final String BINARY_TRACE_FILE = "trc" + File.separator + "trace.bin";
+
 	/**
 	 * Filenames reserved by Areca
 	 */
@@ -169,6 +185,36 @@ implements TargetActions {
 		this.inspectFileContent = inspectFileContent;
 	}
 
+	/**
+	 * Apply the target's metadata codec (if any) to the adapter passed as argument.
+	 * <BR>Must be called before any entry is written. Uncompressed adapters are not modified.
+	 */
+	public void configureMetadataAdapter(AbstractMetadataAdapter adapter) {
+		if (adapter.getCodec() != null && compressionArguments.getMetadataCodec() != null) {
+			adapter.setCodec(CodecRegistry.getCodec(compressionArguments.getMetadataCodec()));
+		}
+	}
+
+	/**
+	 * Return the name of the codec used to compress the metadata files (recorded in the manifest) - null if they are not compressed
+	 */
+	protected String getMetadataCodec() {
+		if (! ArecaConfiguration.get().useGzip()) {
+			return null;
+		} else if (compressionArguments.getMetadataCodec() != null) {
+			return compressionArguments.getMetadataCodec();
+		} else {
+			return CodecRegistry.getCodec(ArecaConfiguration.get().getMetadataCodec()).getName();
+		}
+	}
+
+	/**
+	 * Return the name of the codec used to compress the stored data (recorded in the manifest) - null if the data are not compressed
+	 */
+	protected String getDataCodec() {
+		return compressionArguments.isCompressed() ? "zip" : null;
+	}
+
 	public Manifest buildDefaultBackupManifest() throws ApplicationException {
 		Manifest manifest = new Manifest(Manifest.TYPE_BACKUP);
 
@@ -437,6 +483,8 @@ implements TargetActions {
 		} catch (IOException e) {
 			Logger.defaultLogger().error(e);
 			throw new ApplicationException(e);
+		} finally {
+			closeBinaryTraces(false, context);
 		}
 	}
 
@@ -478,6 +526,12 @@ implements TargetActions {
 			}
 			context.getManifest().addProperty(ManifestKeys.STORED_FILES, context.getReport().getSavedFiles());
 			context.getManifest().addProperty(ManifestKeys.ARCHIVE_NAME, FileSystemManager.getName(context.getCurrentArchiveFile()));
+			if (getMetadataCodec() != null) {
+				context.getManifest().addProperty(ManifestKeys.METADATA_CODEC, getMetadataCodec());
+			}
+			if (getDataCodec() != null) {
+				context.getManifest().addProperty(ManifestKeys.DATA_CODEC, getDataCodec());
+			}
 
 			// Check archive size
 			FileSystemManager.getInstance().clearCachedData(context.getCurrentArchiveFile());
@@ -499,6 +553,9 @@ implements TargetActions {
 			// Convert the archive : commit
 			this.convertArchiveToFinal(context);
 
+			// Register the binary version of the trace
+			closeBinaryTraces(true, context);
+
 			// Once the archive is committed, we can do all the cleaning.
 
 			// Create a copy of the target's XML configuration
@@ -947,23 +1004,28 @@ implements TargetActions {
 					traceFile = ArchiveTraceManager.resolveTraceFileForArchive(this, getLastArchive(null, toDate));
 				}
 
+				// Merge the archives directly into the merged archive if the medium supports it
+				boolean streamed = streamMerge(new DateArchiveScope(fromDate, toDate), traceFile, params.isKeepDeletedEntries(), context);
+
 				// Recover
-				recover(
-						null, 
-						params.isUseSpecificLocation() ? new File(params.getSpecificLocation()) : null,
-								null, 
-								null,
-								2,
-								new DateArchiveScope(fromDate, toDate),
-								traceFile, 
-								ArchiveMedium.RECOVER_MODE_MERGE,
-								params.isKeepDeletedEntries(),
-								false,
-								false,
-								context
-				);
+				if (! streamed) {
+					recover(
+							null, 
+							params.isUseSpecificLocation() ? new File(params.getSpecificLocation()) : null,
+									null, 
+									null,
+									2,
+									new DateArchiveScope(fromDate, toDate),
+									traceFile, 
+									ArchiveMedium.RECOVER_MODE_MERGE,
+									params.isKeepDeletedEntries(),
+									false,
+									false,
+									context
+					);
 
-				context.getInfoChannel().print("Recovery completed - Merged archive creation ...");     
+					context.getInfoChannel().print("Recovery completed - Merged archive creation ...");     
+				}
 				context.getInfoChannel().updateCurrentTask(0, 0, "merge");
 
 				context.getTaskMonitor().checkTaskState();
@@ -974,7 +1036,9 @@ implements TargetActions {
 					GregorianCalendar lastArchiveDate = ArchiveManifestCache.getInstance().getManifest(this, recoveredFiles[recoveredFiles.length - 1]).getDate();
 
 					// Rebuild the merged archive - set the context.currentArchiveFile field.
-					buildMergedArchiveFromDirectory(context);
+					if (! streamed) {
+						buildMergedArchiveFromDirectory(context);
+					}
 
 					// Build the new manifest
 					if (mfToInsert == null) {
@@ -1057,6 +1121,7 @@ implements TargetActions {
 						// Resolve trace file
 						Logger.defaultLogger().info("Using the following archive as reference : " + FileSystemManager.getDisplayPath(lastArchive) + ".");
 						File trcFile = ArchiveTraceManager.resolveTraceFileForArchive(this, lastArchive);
+						context.setReferenceBinaryTrace(openBinaryTrace(lastArchive, trcFile));
 						File f;
 						if (image) {
 							// In case of image backups, we need to duplicate the trace file in order to read it during the backup process.
@@ -1112,19 +1177,31 @@ implements TargetActions {
 			// Create trace, content, hash, ...
 			File traceFile = new File(getDataDirectory(context.getCurrentArchiveFile()), getTraceFileName());
 			context.setTraceAdapter(new ArchiveTraceAdapter(traceFile, target.getSourceDirectory(), target.isTrackSymlinks()));
+			context.getTraceAdapter().setIndexed(true);
+			configureMetadataAdapter(context.getTraceAdapter());
 
 			File contentFile = new File(getDataDirectory(context.getCurrentArchiveFile()), getContentFileName());
 			context.setContentAdapter(new ArchiveContentAdapter(contentFile, target.getSourceDirectory()));      
+			context.getContentAdapter().setIndexed(true);
+			configureMetadataAdapter(context.getContentAdapter());
 
 			File hashFile = new File(getDataDirectory(context.getCurrentArchiveFile()), getHashFileName());
 			context.setHashAdapter(new ArchiveContentAdapter(hashFile, target.getSourceDirectory()));  
+			context.getHashAdapter().setIndexed(true);
+			configureMetadataAdapter(context.getHashAdapter());
 			//CHelper.handle(context);
 
+			// Write the binary version of the trace (not for resumed backups : the trace is partly copied from the transaction point)
+			if (transactionPoint == null) {
+				context.setBinaryTraceWriter(createBinaryTraceWriter(context.getCurrentArchiveFile()));
+				context.getTraceAdapter().setBinaryWriter(context.getBinaryTraceWriter());
+			}
+
 			// Read transaction point 
 			if (transactionPoint != null) {
-				context.getTraceAdapter().bulkInit(transactionPoint.getTraceFile());
-				context.getHashAdapter().bulkInit(transactionPoint.getHashFile());
-				context.getContentAdapter().bulkInit(transactionPoint.getContentFile());
+				context.getTraceAdapter().bulkInit(transactionPoint.getTraceFiles());
+				context.getHashAdapter().bulkInit(transactionPoint.getHashFiles());
+				context.getContentAdapter().bulkInit(transactionPoint.getContentFiles());
 			}
 
 			// Call handler-specific initializations
@@ -1273,8 +1350,12 @@ implements TargetActions {
 							} finally {
 								try {
 									// Close the trace iterator
-									if (context.getReferenceTrace() != null) {
-										context.getReferenceTrace().close();
+									try {
+										if (context.getReferenceTrace() != null) {
+											context.getReferenceTrace().close();
+										}
+									} finally {
+										closeBinaryTraces(false, context);
 									}
 								} finally {
 									try {
@@ -1464,77 +1545,153 @@ implements TargetActions {
 	public void store(RecoveryEntry entry, final ProcessContext context) 
 	throws StoreException, ApplicationException, TaskCancelledException {
 		//Chronometer.instance().start("store");
-		
+		StoreTask task = prepareStore(entry, context);
+		if (task != null) {
+			if (task.getAction() == StoreTask.ACTION_STORE) {
+				encode(task, context);
+			}
+			commitStore(task, context);
+		}
+		//Chronometer.instance().stop("store");
+	}
+
+	/**
+	 * Build a pipeline that encodes several entries concurrently, or return null if entries must be stored sequentially
+	 * <BR>(zip archives are written in a single stream)
+	 */
+	public StorePipeline buildStorePipeline(ProcessContext context) {
+		int workers = ArecaConfiguration.get().getBackupWorkers();
+		if (workers > 1 && supportsConcurrentStorage()) {
+			return new StorePipeline(this, context, workers);
+		} else {
+			return null;
+		}
+	}
+
+	/**
+	 * Build the pool used to restore several entries of an archive concurrently.
+	 * <BR>With one worker (default), the tasks are run by the caller's thread.
+	 */
+	public IOTaskPool buildRecoveryPool() {
+		return new IOTaskPool("Recovery Worker", ArecaConfiguration.get().getRecoveryWorkers());
+	}
+
+	/**
+	 * Tell whether several files can be written at the same time in the archive
+	 */
+	protected boolean supportsConcurrentStorage() {
+		return false;
+	}
+
+	/**
+	 * First storage step, processed in the entries' order : check whether the entry has to be stored.
+	 */
+	public StoreTask prepareStore(RecoveryEntry entry, ProcessContext context) 
+	throws StoreException, ApplicationException, TaskCancelledException {
 		if (TH_MON_ENABLED) {
 			ThreadMonitor.getInstance().notify(this.getTarget().getUid());
 		}
 
-		if (entry != null) {
-			final FileSystemRecoveryEntry fEntry = (FileSystemRecoveryEntry)entry;
-			String shaBase64 = null;
-			try {
-				short type = FileSystemManager.getType(fEntry.getFile());
-				if (
-						FileSystemManager.isFile(fEntry.getFile()) && (
-								(FileMetaDataAccessor.TYPE_LINK != type)
-								|| (! ((FileSystemTarget)this.target).isTrackSymlinks())
-						) && (FileMetaDataAccessor.TYPE_PIPE != type)
-				) {
-					// The entry is stored if it has been modified	
-					if (this.checkModified(fEntry, context)) {
-						if (DEBUG_MODE) {
-							Logger.defaultLogger().fine("[" + FileSystemManager.getDisplayPath(fEntry.getFile()) + "] : Backup in progress ...");
-						}
+		if (entry == null) {
+			return null;
+		}
 
-						// Add a listener to the inputStream
-						final HashInputStreamListener listener = new HashInputStreamListener();
+		FileSystemRecoveryEntry fEntry = (FileSystemRecoveryEntry)entry;
+		StoreTask task = new StoreTask(fEntry);
+		try {
+			short type = FileSystemManager.getType(fEntry.getFile());
+			if (
+					FileSystemManager.isFile(fEntry.getFile()) && (
+							(FileMetaDataAccessor.TYPE_LINK != type)
+							|| (! ((FileSystemTarget)this.target).isTrackSymlinks())
+					) && (FileMetaDataAccessor.TYPE_PIPE != type)
+			) {
+				// The entry is stored if it has been modified	
+				if (this.checkModified(fEntry, context)) {
+					task.setAction(StoreTask.ACTION_STORE);
+				} else {
+					task.setAction(StoreTask.ACTION_UNCHANGED);
+					if (inspectFileContent) {
+						// Read now : the reference trace will have moved when the entry is committed
+						task.setShaBase64(getReferenceSha(context));
+					}
+				}
+			}
+		} catch (IOException e) {
+			Logger.defaultLogger().error(e);
+			throw new StoreException("Error during storage of " + entry.getKey() + " : " + e.getMessage(), e);
+		} catch (NoSuchAlgorithmException e) {
+			Logger.defaultLogger().error(e);
+			throw new StoreException("Error during storage of " + entry.getKey() + " : " + e.getMessage(), e);
+		} catch (FileMetaDataSerializationException e) {
+			Logger.defaultLogger().error(e);
+			throw new StoreException("Error during storage of " + entry.getKey() + " : " + e.getMessage(), e);
+		}
+		return task;
+	}
 
-						this.doAndRetry(new IOTask() {
-							public void run() throws IOException, TaskCancelledException, ApplicationException {
-								InputStream in = FileSystemManager.getFileInputStream(fEntry.getFile());
-								in = new EventInputStream(in, listener);
-								listener.reset();
+	/**
+	 * Second storage step : read the file and store its data in the archive.
+	 * <BR>This step may be processed concurrently for several entries (see StorePipeline).
+	 */
+	public void encode(StoreTask task, final ProcessContext context) 
+	throws StoreException, ApplicationException, TaskCancelledException {
+		final FileSystemRecoveryEntry fEntry = task.getEntry();
+		if (DEBUG_MODE) {
+			Logger.defaultLogger().fine("[" + FileSystemManager.getDisplayPath(fEntry.getFile()) + "] : Backup in progress ...");
+		}
 
-					    		//Chronometer.instance().start("storeImpl");
-								storeFileInArchive(fEntry, in, context);
-					    		//Chronometer.instance().stop("storeImpl");
-							}
-						}, "An error occurred while storing " + fEntry.getKey());
+		// Add a listener to the inputStream
+		final HashInputStreamListener listener = new HashInputStreamListener();
+		try {
+			this.doAndRetry(new IOTask() {
+				public void run() throws IOException, TaskCancelledException, ApplicationException {
+					InputStream in = FileSystemManager.getFileInputStream(fEntry.getFile());
+					in = new EventInputStream(in, listener);
+					listener.reset();
 
-						context.addInputBytes(FileSystemManager.length(fEntry.getFile()));
-						context.getContentAdapter().writeContentEntry(fEntry);
-						
-						shaBase64 = Util.base64Encode(listener.getHash());
-						
-						context.getHashAdapter().writeHashEntry(fEntry, shaBase64);
-						context.getReport().addSavedFile();
-					} else {
-						if (DEBUG_MODE) {
-							Logger.defaultLogger().fine("[" + FileSystemManager.getDisplayPath(fEntry.getFile()) + "] : Unchanged.");
-						}
-						this.registerUnstoredFile(fEntry, context);
-						context.getReport().addIgnoredFile();
-						
-						if (inspectFileContent) {
-							shaBase64 = ArchiveTraceParser.extractShaFromTrace(context.getReferenceTrace().current().getData());
-						}
-					}
+		    		//Chronometer.instance().start("storeImpl");
+					storeFileInArchive(fEntry, in, context);
+		    		//Chronometer.instance().stop("storeImpl");
 				}
+			}, "An error occurred while storing " + fEntry.getKey());
+		} catch (IOException e) {
+			Logger.defaultLogger().error(e);
+			throw new StoreException("Error during storage of " + fEntry.getKey() + " : " + e.getMessage(), e);
+		}
+		task.setShaBase64(Util.base64Encode(listener.getHash()));
+	}
 
-				// Register the entry
-				context.getTraceAdapter().writeEntry(fEntry, inspectFileContent ? shaBase64 : null);
-			} catch (IOException e) {
-				Logger.defaultLogger().error(e);
-				throw new StoreException("Error during storage of " + entry.getKey() + " : " + e.getMessage(), e);
-			} catch (NoSuchAlgorithmException e) {
-				Logger.defaultLogger().error(e);
-				throw new StoreException("Error during storage of " + entry.getKey() + " : " + e.getMessage(), e);
-			} catch (FileMetaDataSerializationException e) {
-				Logger.defaultLogger().error(e);
-				throw new StoreException("Error during storage of " + entry.getKey() + " : " + e.getMessage(), e);
-			}
+	/**
+	 * Last storage step, processed in the entries' order : write the entry's metadata.
+	 */
+	public void commitStore(StoreTask task, ProcessContext context) 
+	throws StoreException, ApplicationException, TaskCancelledException {
+		FileSystemRecoveryEntry fEntry = task.getEntry();
+		try {
+			if (task.getAction() == StoreTask.ACTION_STORE) {
+				context.addInputBytes(FileSystemManager.length(fEntry.getFile()));
+				context.getContentAdapter().writeContentEntry(fEntry);
+				context.getHashAdapter().writeHashEntry(fEntry, task.getShaBase64());
+				this.handler.commit(fEntry, context);
+				context.getReport().addSavedFile();
+			} else if (task.getAction() == StoreTask.ACTION_UNCHANGED) {
+				if (DEBUG_MODE) {
+					Logger.defaultLogger().fine("[" + FileSystemManager.getDisplayPath(fEntry.getFile()) + "] : Unchanged.");
+				}
+				this.registerUnstoredFile(fEntry, context);
+				context.getReport().addIgnoredFile();
+			}
+
+			// Register the entry
+			context.getTraceAdapter().writeEntry(fEntry, inspectFileContent ? task.getShaBase64() : null);
+		} catch (IOException e) {
+			Logger.defaultLogger().error(e);
+			throw new StoreException("Error during storage of " + fEntry.getKey() + " : " + e.getMessage(), e);
+		} catch (FileMetaDataSerializationException e) {
+			Logger.defaultLogger().error(e);
+			throw new StoreException("Error during storage of " + fEntry.getKey() + " : " + e.getMessage(), e);
 		}
-		//Chronometer.instance().stop("store");
 	}
 
 	public void doAndRetry(IOTask rn, String message) 
@@ -1598,6 +1755,23 @@ implements TargetActions {
 
 	protected abstract void buildMergedArchiveFromDirectory(ProcessContext context) throws ApplicationException;
 
+	/**
+	 * Tells whether the archives can be merged without being recovered first (see "buildMergedArchiveFromArchives")
+	 */
+	protected boolean supportsStreamingMerge() {
+		return false;
+	}
+
+	/**
+	 * Build the merged archive (context.currentArchiveFile) by reading the entries of "entriesByArchive" directly from the archives 
+	 * passed as argument (from the oldest to the most recent one).
+	 * <BR>Returns false if the archives can't be read directly (nothing has been written in this case).
+	 */
+	protected boolean buildMergedArchiveFromArchives(File[] archives, RecoveryFilterMap entriesByArchive, ProcessContext context) 
+	throws IOException, ApplicationException, TaskCancelledException {
+		return false;
+	}
+
 	/**
 	 * Check that we do not use a reserved name as archive name
 	 */
@@ -1679,6 +1853,7 @@ implements TargetActions {
 	public void deleteArchive(File archive) throws IOException {
 		AbstractFileSystemMedium.tool.delete(archive);
 		AbstractFileSystemMedium.tool.delete(getDataDirectory(archive));
+		AbstractFileSystemMedium.tool.delete(getLocalDataDirectory(archive));
 		handler.archiveDeleted(archive);
 		ArchiveManifestCache.getInstance().removeManifest(this, archive);
 	}
@@ -1865,6 +2040,53 @@ implements TargetActions {
 		}
 	}
 
+	/**
+	 * Merge the archives of the scope passed as argument without recovering them in a working directory (see "buildMergedArchiveFromArchives").
+	 * <BR>The recovery result is set in the context's report, as a recovery would do.
+	 * <BR>Returns false if the archives must be recovered first (see "recover" and "buildMergedArchiveFromDirectory").
+	 */
+	private boolean streamMerge(
+			ArchiveScope perimeter, 
+			File traceFile, 
+			boolean keepDeletedEntries, 
+			ProcessContext context
+	) throws ApplicationException, TaskCancelledException {
+		if (! supportsStreamingMerge()) {
+			return false;
+		}
+		
+		RecoveryResult result = new RecoveryResult();
+		context.getReport().setRecoveryResult(result);
+
+		Logger.defaultLogger().info("Merging " + perimeter.displayScope() + ".");
+		buildArchiveListToRecover(result, perimeter, keepDeletedEntries);
+		File[] optimizedArchives = result.getRecoveredArchivesAsArray();
+		if (optimizedArchives.length < 2) {
+			return true;
+		}
+		checkArchivesEncoding(optimizedArchives);
+
+		try {
+			ArecaRawFileList filters = new ArecaRawFileList("/");
+			logRecoveryParameters(keepDeletedEntries, filters, optimizedArchives);
+			context.setTraceFile(traceFile);
+			computeMergedArchiveFile(context);
+
+			RecoveryFilterMap entriesByArchive = buildEntriesMap(optimizedArchives, filters, traceFile, context);
+			if (entriesByArchive == null) {
+				return false;
+			}
+			return buildMergedArchiveFromArchives(optimizedArchives, entriesByArchive, context);
+		} catch (TaskCancelledException e) {
+			throw e;
+		} catch (ApplicationException e) {
+			throw e;
+		} catch (Throwable e) {
+			Logger.defaultLogger().error(e);
+			throw new ApplicationException(e);
+		}
+	}
+
 	/**
 	 * Recovers the files at the requested recovery location, according to the recovery dates passed as argument.
 	 * <BR>'filters' may be null ...
@@ -2169,6 +2391,7 @@ implements TargetActions {
 				iters[i] = ArchiveContentAdapter.buildIterator(hashFile);
 			}
 
+			MetaDataIteratorHeap hashes = new MetaDataIteratorHeap(iters);
 			while (referenceIterator.hasNext()) {
 				AbstractMetaDataEntry entry = referenceIterator.nextEntry();
 
@@ -2195,24 +2418,16 @@ implements TargetActions {
 								Logger.defaultLogger().fine(entry.getKey() + " is a file ... checking its hash ...");
 							}
 
-							// Iterate among the hash files
-							boolean found = false;
-							for (int i=archives.length-1; i>=0; i--) {
+							// Look for the most recent hash
+							int index = hashes.fetch(entry.getKey());
+							if (index != -1) {
 								if (CHECK_DEBUG_MODE) {
-									Logger.defaultLogger().fine("Looking for hash in " + archives[i].getAbsolutePath());
-								}
-								found = iters[i].fetch(entry.getKey());
-								if (found) {
-									if (CHECK_DEBUG_MODE) {
-										Logger.defaultLogger().fine("Hash found ! Verifying ...");
-									}
-									// The entry has been found --> check the hash
-									checkHash(target, iters[i].current(), simulatedRecovery, context);
-									context.getReport().addChecked();
-									break;
+									Logger.defaultLogger().fine("Hash found in " + archives[index].getAbsolutePath() + " ! Verifying ...");
 								}
-							}
-							if (! found) {
+								// The entry has been found --> check the hash
+								checkHash(target, iters[index].current(), simulatedRecovery, context);
+								context.getReport().addChecked();
+							} else {
 								context.getInfoChannel().warn("No reference hash could be found for " + entry.getKey());
 								context.getReport().getUncheckedRecoveredFiles().add(entry.getKey());
 								String info = getRecoveryInformations(entry.getKey(), context);
@@ -2340,6 +2555,9 @@ implements TargetActions {
 		if (iter == null) {
 			return true;		// No iterator -> Full backup
 		}
+		if (context.getReferenceBinaryTrace() != null) {
+			return checkModified(context.getReferenceBinaryTrace(), entry, context);
+		}
 		String shortPath = entry.getKey();
 
 		while (true) {
@@ -2364,6 +2582,131 @@ implements TargetActions {
 	}
 
 
+	/**
+	 * Same as checkModified(entry, context), using the binary version of the reference trace
+	 */
+	private boolean checkModified(BinaryTraceIterator iter, FileSystemRecoveryEntry entry, ProcessContext context) 
+	throws IOException, TaskCancelledException, NoSuchAlgorithmException {
+		String shortPath = entry.getKey();
+
+		while (true) {
+			// Compare the file paths
+			int result = iter.hasCurrent() ? iter.compareKey(shortPath) : -1;
+
+			if (result == 0) {
+				// Found among source files and in trace -> ok : check size and date
+				if (iter.isUnchanged(entry.getSize(), FileSystemManager.lastModified(entry.getFile()))) {
+					if (inspectFileContent) {
+						String newSha = Util.base64Encode(FileTool.getInstance().hashFileContent(entry.getFile(), context.getTaskMonitor()));
+						if (newSha.equals(iter.getSha())) {
+							entry.setStatus(EntryStatus.STATUS_NOT_STORED);
+							return false;
+						} else {
+							entry.setStatus(EntryStatus.STATUS_MODIFIED);
+							return true;
+						}
+					} else {
+						entry.setStatus(EntryStatus.STATUS_NOT_STORED);
+						return false;
+					}
+				} else {
+					entry.setStatus(EntryStatus.STATUS_MODIFIED);
+					return true;
+				}
+			} else if (result < 0) {
+				// File found in source files but not found in trace -> new File
+				entry.setStatus(EntryStatus.STATUS_CREATED);
+				return true;
+			} else {
+				// File found in trace but not among source files -> deleted file
+				context.getReport().addDeletedFile();
+				iter.next();
+			}
+		}
+	}
+
+	/**
+	 * Return the SHA hash of the current reference trace entry
+	 */
+	private String getReferenceSha(ProcessContext context) throws FileMetaDataSerializationException {
+		if (context.getReferenceBinaryTrace() != null) {
+			return context.getReferenceBinaryTrace().getSha();
+		} else {
+			return ArchiveTraceParser.extractShaFromTrace(context.getReferenceTrace().current().getData());
+		}
+	}
+
+	/**
+	 * Return the local folder where temporary data of the archive are stored.
+	 * <BR>These data are rebuilt if they are missing.
+	 */
+	public File getLocalDataDirectory(File archive) {
+		return new File(
+				new File(LOCAL_DATA_DIRECTORY, getTarget().getUid()),
+				FileSystemManager.getName(archive)
+		);
+	}
+
+	/**
+	 * Open the binary version of the archive's trace, or return null if it is not available (or outdated)
+	 */
+	private BinaryTraceIterator openBinaryTrace(File archive, File traceFile) {
+		File f = new File(getLocalDataDirectory(archive), BINARY_TRACE_FILE);
+		try {
+			BinaryTraceIterator iter = BinaryTraceIterator.open(f, FileSystemManager.length(traceFile), FileSystemManager.lastModified(traceFile));
+			if (iter == null) {
+				Logger.defaultLogger().fine("No binary trace available for " + FileSystemManager.getDisplayPath(archive) + ".");
+			} 
+			return iter;
+		} catch (IOException e) {
+			Logger.defaultLogger().warn("Unable to read the binary trace : " + f.getAbsolutePath() + ". The text trace will be used.", e);
+			return null;
+		}
+	}
+
+	private BinaryTraceWriter createBinaryTraceWriter(File archive) {
+		File f = new File(getLocalDataDirectory(archive), BINARY_TRACE_FILE);
+		try {
+			FileTool.getInstance().createDir(f.getParentFile());
+			return new BinaryTraceWriter(f);
+		} catch (IOException e) {
+			Logger.defaultLogger().warn("Unable to create the binary trace : " + f.getAbsolutePath() + ".", e);
+			return null;
+		}
+	}
+
+	/**
+	 * Close the binary version of the reference trace, and close (if the backup is committed) or discard the binary version
+	 * of the current trace.
+	 * <BR>Binary traces are only used as an optimization : errors are logged but not thrown.
+	 */
+	private void closeBinaryTraces(boolean commit, ProcessContext context) {
+		try {
+			if (context.getReferenceBinaryTrace() != null) {
+				context.getReferenceBinaryTrace().close();
+			}
+		} catch (IOException e) {
+			Logger.defaultLogger().warn("Error closing the binary trace.", e);
+		} finally {
+			context.setReferenceBinaryTrace(null);
+		}
+
+		BinaryTraceWriter writer = context.getBinaryTraceWriter();
+		context.setBinaryTraceWriter(null);
+		if (writer != null) {
+			try {
+				if (commit) {
+					File traceFile = new File(getDataDirectory(context.getCurrentArchiveFile()), getTraceFileName());
+					writer.close(FileSystemManager.length(traceFile), FileSystemManager.lastModified(traceFile));
+				} else {
+					writer.discard();
+				}
+			} catch (IOException e) {
+				Logger.defaultLogger().warn("Error closing the binary trace.", e);
+			}
+		}
+	}
+
 	private List getAggregatedView(AggregatedViewContext context, String root, GregorianCalendar date, boolean aggregated) throws ApplicationException {
 		try {	
 			Map directories = new HashMap();
@@ -2592,9 +2935,15 @@ implements TargetActions {
 
 			// Build the writers
 			contentWriter = new ArchiveContentAdapter(contentTarget, target.getSourceDirectory());
+			contentWriter.setIndexed(true);
+			configureMetadataAdapter(contentWriter);
 			hashWriter = new ArchiveContentAdapter(hashTarget, target.getSourceDirectory());
+			hashWriter.setIndexed(true);
+			configureMetadataAdapter(hashWriter);
 			if (handlerTarget != null) {
 				handlerWriter = new ArchiveContentAdapter(handlerTarget, target.getSourceDirectory());
+				handlerWriter.setIndexed(true);
+				configureMetadataAdapter(handlerWriter);
 			}
 
 			// Build trace Iterator
@@ -2619,20 +2968,13 @@ implements TargetActions {
 				}
 			}
 
+			MetaDataIteratorHeap contents = new MetaDataIteratorHeap(contentIters);
 			String previousKey = null;
 			boolean shallStop = false;
 			while (! shallStop) {
 
 				// Look for minimum key
-				int minIndex = -1;
-				for (int i=recoveredFiles.length-1; i>=0; i--) {
-					if (contentIters[i].current() != null) {
-						int result = minIndex == -1 ? -1 : FilePathComparator.instance().compare(contentIters[i].current().getKey(), contentIters[minIndex].current().getKey());
-						if (result < 0) {
-							minIndex = i;
-						}
-					}
-				}
+				int minIndex = contents.current();
 
 				// Nothing more to read
 				if (minIndex == -1) {
@@ -2678,7 +3020,7 @@ implements TargetActions {
 				}
 
 				// Fetch next entry
-				contentIters[minIndex].next();
+				contents.next();
 				hashIters[minIndex].next();
 				if (handlerTarget != null) {
 					handlerIters[minIndex].next();					
@@ -0,0 +1,199 @@
+package com.application.areca.impl;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+import com.application.areca.ApplicationException;
+import com.myJava.util.taskmonitor.TaskCancelledException;
+
+/**
+ * Runs IOTasks on a pool of worker threads.
+ * <BR>The number of tasks waiting for a worker is bounded : the caller blocks when too many tasks are pending.
+ * <BR>The first error raised by a task is thrown to the caller by the next call to "submit" or "drain" ; the tasks that are still waiting
+ * are then discarded.
+ * <BR>"drain" waits for all the submitted tasks : it is used as a barrier between tasks that depend on each other.
+ * <BR>With only one worker, the tasks are run by the calling thread (no worker thread is created).
+ * <BR>
+ * <BR>This class is not thread-safe : "submit", "drain" and "close" must be called by the same thread.
+ * <BR>
+ * @author Olivier PETRUCCI
+ * <BR>
+ *
+ */
+
+ /*
+ Copyright 2005-2015, Olivier PETRUCCI.
+
+This file is part of Areca.
+
+    Areca is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    Areca is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Areca; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+ */
+public class IOTaskPool {
+	private static final long WAIT = 5000;
+
+	/**
+	 * Maximum number of pending tasks per worker
+	 */
+	private static final int PENDING_BY_WORKER = 4;
+
+	private LinkedList queue = new LinkedList();
+	private List workers = new ArrayList();
+	private int maxPending;
+	private int pending = 0;		// Submitted tasks that are not completed yet
+	private int completed = 0;
+	private Throwable error;
+	private boolean closed = false;
+
+	public IOTaskPool(String name, int nbWorkers) {
+		this.maxPending = nbWorkers * PENDING_BY_WORKER;
+		if (nbWorkers > 1) {
+			for (int i=0; i<nbWorkers; i++) {
+				Thread th = new Thread(new Worker(), name + "-" + i);
+				th.setDaemon(true);
+				workers.add(th);
+				th.start();
+			}
+		}
+	}
+
+	public boolean isParallel() {
+		return ! workers.isEmpty();
+	}
+
+	/**
+	 * Number of tasks that have been completed successfully
+	 */
+	public synchronized int getCompleted() {
+		return completed;
+	}
+
+	public void submit(IOTask task)
+	throws IOException, TaskCancelledException, ApplicationException {
+		if (workers.isEmpty()) {
+			task.run();
+			synchronized (this) {
+				completed++;
+			}
+			return;
+		}
+
+		synchronized (this) {
+			while (pending >= maxPending && error == null) {
+				waitForWorkers();
+			}
+			checkError();
+			queue.addLast(task);
+			pending++;
+			this.notifyAll();
+		}
+	}
+
+	/**
+	 * Wait until all the submitted tasks are completed
+	 */
+	public void drain()
+	throws IOException, TaskCancelledException, ApplicationException {
+		synchronized (this) {
+			while (pending != 0 && error == null) {
+				waitForWorkers();
+			}
+			checkError();
+		}
+	}
+
+	/**
+	 * Stop the workers. Tasks that have not been started are discarded.
+	 */
+	public void close() {
+		synchronized (this) {
+			closed = true;
+			pending -= queue.size();
+			queue.clear();
+			this.notifyAll();
+		}
+		for (int i=0; i<workers.size(); i++) {
+			try {
+				((Thread)workers.get(i)).join();
+			} catch (InterruptedException ignored) {
+			}
+		}
+	}
+
+	private void waitForWorkers() {
+		try {
+			this.wait(WAIT);
+		} catch (InterruptedException ignored) {
+		}
+	}
+
+	private void checkError()
+	throws IOException, TaskCancelledException, ApplicationException {
+		if (error == null) {
+			return;
+		} else if (error instanceof IOException) {
+			throw (IOException)error;
+		} else if (error instanceof TaskCancelledException) {
+			throw (TaskCancelledException)error;
+		} else if (error instanceof ApplicationException) {
+			throw (ApplicationException)error;
+		} else if (error instanceof RuntimeException) {
+			throw (RuntimeException)error;
+		} else if (error instanceof Error) {
+			throw (Error)error;
+		} else {
+			throw new ApplicationException(error);
+		}
+	}
+
+	private synchronized IOTask nextTask() {
+		while (! closed) {
+			if (! queue.isEmpty()) {
+				return (IOTask)queue.removeFirst();
+			}
+			waitForWorkers();
+		}
+		return null;
+	}
+
+	private class Worker implements Runnable {
+		public void run() {
+			IOTask task;
+			while ((task = nextTask()) != null) {
+				Throwable e = null;
+				try {
+					task.run();
+				} catch (Throwable ex) {
+					e = ex;
+				} finally {
+					synchronized (IOTaskPool.this) {
+						pending--;
+						if (e == null) {
+							completed++;
+						} else if (error == null) {
+							// Discard the waiting tasks
+							error = e;
+							pending -= queue.size();
+							queue.clear();
+						}
+						IOTaskPool.this.notifyAll();
+					}
+				}
+			}
+		}
+	}
+}
@@ -18,6 +18,8 @@ import com.myJava.file.FileList.FileListIterator;
 import com.myJava.file.FileSystemManager;
 import com.myJava.file.FileTool;
 import com.myJava.file.InvalidPathException;
+import com.myJava.file.codec.CodecRegistry;
+import com.myJava.file.driver.CodecFileSystemDriver;
 import com.myJava.file.driver.CompressedFileSystemDriver;
 import com.myJava.file.driver.FileSystemDriver;
 import com.myJava.file.iterator.FileNameComparator;
@@ -67,12 +69,25 @@ public class IncrementalDirectoryMedium extends AbstractIncrementalFileSystemMed
 		FileSystemDriver driver = super.buildStorageDriver(storageDir);
 
 		if (this.compressionArguments.isCompressed()) {
-			driver = new CompressedFileSystemDriver(storageDir, driver, compressionArguments);
+			if (this.compressionArguments.getCodec() != null) {
+				// Archives written before the codec was set are still read in the zip format
+				driver = new CodecFileSystemDriver(storageDir, driver, CodecRegistry.getCodec(compressionArguments.getCodec()), compressionArguments);
+			} else {
+				driver = new CompressedFileSystemDriver(storageDir, driver, compressionArguments);
+			}
 		}
 
 		return driver;
 	}
 
+	protected String getDataCodec() {
+		if (this.compressionArguments.isCompressed() && this.compressionArguments.getCodec() != null) {
+			return this.compressionArguments.getCodec();
+		} else {
+			return super.getDataCodec();
+		}
+	}
+
 	protected String getSubDescription() {
 		return "Uncompressed";
 	}
@@ -184,6 +199,13 @@ public class IncrementalDirectoryMedium extends AbstractIncrementalFileSystemMed
 		//Chronometer.instance().stop("storeImpl");
 	}
 
+	/**
+	 * Each file is written in its own output stream
+	 */
+	protected boolean supportsConcurrentStorage() {
+		return true;
+	}
+
 	public void completeLocalCopyCleaning(File copy, ProcessContext context) throws IOException, ApplicationException {
 	}
 
@@ -199,6 +221,9 @@ public class IncrementalDirectoryMedium extends AbstractIncrementalFileSystemMed
 			ProcessContext context
 	) throws IOException, ApplicationException, TaskCancelledException {
 		if (mergeRecoveredFiles) {
+			// The entries of an archive are copied concurrently ; the archives are processed one after the other
+			// so that the entries of the most recent archives overwrite the older ones.
+			IOTaskPool pool = buildRecoveryPool();
 			try {
 				context.getInfoChannel().print("Data recovery ...");
 
@@ -215,16 +240,30 @@ public class IncrementalDirectoryMedium extends AbstractIncrementalFileSystemMed
 						FileListIterator entries = files.iterator();
 						try {
 							while (entries.hasNext()) {
+								context.getTaskMonitor().checkTaskState();
 								String entry = (String)entries.next();
-								File sourceFile = new File(archivesToProcess[i], entry);
+								final File sourceFile = new File(archivesToProcess[i], entry);
 								if (FileSystemManager.exists(sourceFile)) {
 									File targetDirectory = FileSystemManager.getParentFile(new File(destination, entry));
-									doAndRetry(new EnsureLocalCopyTask(sourceFile, targetDirectory, policy, context), "An error was detected during recovery of " + archivesToProcess[i].getAbsolutePath());
+									final IOTask task = new EnsureLocalCopyTask(sourceFile, targetDirectory, policy, context);
+									final String message = "An error was detected during recovery of " + archivesToProcess[i].getAbsolutePath();
+									if (FileSystemManager.isFile(sourceFile)) {
+										pool.submit(new IOTask() {
+											public void run() throws IOException, TaskCancelledException, ApplicationException {
+												doAndRetry(task, message);
+											}
+										});
+									} else {
+										// Directories may contain other entries of the list : they are copied sequentially
+										pool.drain();
+										doAndRetry(task, message);
+									}
 								}
 							}
 						} finally {
 							entries.close();
 						}
+						pool.drain();
 					}
 
 					context.getTaskMonitor().getCurrentActiveSubTask().setCurrentCompletion(i+1, archivesToProcess.length);
@@ -239,6 +278,8 @@ public class IncrementalDirectoryMedium extends AbstractIncrementalFileSystemMed
 			} catch (Throwable e) {
 				Logger.defaultLogger().error(e);
 				throw new ApplicationException(e);
+			} finally {
+				pool.close();
 			}
 		} else {
 			Logger.defaultLogger().info("No archive pre-processing needed.");
@@ -1,5 +1,7 @@
 package com.application.areca.impl;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
@@ -8,9 +10,11 @@ import java.io.OutputStream;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.zip.ZipException;
 
 import com.application.areca.AbstractTarget;
 import com.application.areca.ApplicationException;
+import com.application.areca.ArecaConfiguration;
 import com.application.areca.context.ProcessContext;
 import com.application.areca.impl.copypolicy.AbstractCopyPolicy;
 import com.application.areca.impl.tools.ArchiveReader;
@@ -26,10 +30,17 @@ import com.myJava.file.archive.ArchiveAdapter;
 import com.myJava.file.archive.ArchiveWriter;
 import com.myJava.file.archive.zip64.ZipArchiveAdapter;
 import com.myJava.file.archive.zip64.ZipConstants;
+import com.myJava.file.archive.zip64.ZipEntry;
+import com.myJava.file.archive.zip64.ZipRandomAccessReader;
 import com.myJava.file.archive.zip64.ZipVolumeStrategy;
+import com.myJava.file.delta.DeltaMerger;
+import com.myJava.file.delta.DeltaProcessorException;
+import com.myJava.file.delta.LayerWriterDeltaProcessor;
 import com.myJava.file.iterator.FileNameComparator;
+import com.myJava.file.iterator.FilePathComparator;
 import com.myJava.file.multivolumes.VolumeStrategy;
 import com.myJava.object.Duplicable;
+import com.myJava.util.Util;
 import com.myJava.util.log.Logger;
 import com.myJava.util.taskmonitor.TaskCancelledException;
 
@@ -64,6 +75,11 @@ This file is part of Areca.
 public class IncrementalZipMedium extends AbstractIncrementalFileSystemMedium {
 	private static String MV_ARCHIVE_NAME = "archive";
 
+	/**
+	 * Central directories that are not larger than this size are loaded in memory during a merge, so that they are read only once
+	 */
+	private static final long MAX_BUFFERED_DIRECTORY_SIZE = 16 * 1024 * 1024;
+
 	protected String getSubDescription() {
 		return "Compressed";
 	}  
@@ -163,7 +179,8 @@ public class IncrementalZipMedium extends AbstractIncrementalFileSystemMedium {
 						buildVolumeStrategy(f, write, context), 
 						compressionArguments.getVolumeSize() * 1024 * 1024, 
 						compressionArguments.isUseZip64(),
-						compressionArguments.getLevel()
+						compressionArguments.getLevel(),
+						compressionArguments.getThreads()
 				);   
 
 			} else {
@@ -171,7 +188,8 @@ public class IncrementalZipMedium extends AbstractIncrementalFileSystemMedium {
 				adapter =  new ZipArchiveAdapter(
 						FileSystemManager.getFileOutputStream(f, false, context.getOutputStreamListener()), 
 						compressionArguments.isUseZip64(),
-						compressionArguments.getLevel()
+						compressionArguments.getLevel(),
+						compressionArguments.getThreads()
 				);   
 			}
 			if (compressionArguments.getComment()!= null) {
@@ -189,13 +207,72 @@ public class IncrementalZipMedium extends AbstractIncrementalFileSystemMedium {
 			}        
 		}
 
-		if (compressionArguments.getCharset() != null) {
-			adapter.setCharset(compressionArguments.getCharset());
+		initCharset(adapter);
+		return adapter;
+	}
+	
+	/**
+	 * Builds an ArchiveAdapter which only reads the entries passed as argument, using the archive's central directory
+	 * instead of reading the whole archive.
+	 * <BR>The standard (sequential) adapter is returned if the archives can't be read randomly (see "supportsRandomAccess")
+	 * or if the central directory can't be read.
+	 */
+	protected ArchiveAdapter buildArchiveAdapter(File f, FileList entries, ProcessContext context) throws IOException, ApplicationException {
+		if (! supportsRandomAccess()) {
+			return buildArchiveAdapter(f, false, context);
+		}
+		
+		ZipRandomAccessReader reader = null;
+		try {
+			reader = buildRandomAccessReader(f, context);
+		} catch (IOException e) {
+			Logger.defaultLogger().warn("Unable to read the central directory of " + FileSystemManager.getDisplayPath(f) + " (" + e.getMessage() + "). The whole archive will be read.");
+		}
+		
+		if (reader == null) {
+			return buildArchiveAdapter(f, false, context);
 		} else {
-			adapter.setCharset(Charset.forName(ZipConstants.DEFAULT_CHARSET));
+			ArchiveAdapter adapter = new ZipArchiveAdapter(reader, entries);
+			initCharset(adapter);
+			return adapter;
 		}
+	}
+	
+	/**
+	 * Tells whether the ZipRandomAccessReader can be used : it "seeks" by skipping the bytes of the archive's stream, which
+	 * doesn't avoid reading (and decrypting) them when the archives are encrypted.
+	 * <BR>In this case, reading the whole archive once is cheaper than reading its end, its central directory and its entries.
+	 */
+	private boolean supportsRandomAccess() {
+		return ! getEncryptionPolicy().isEncrypted();
+	}
 
-		return adapter;
+	/**
+	 * Open the archive's central directory. Returns null if the archive doesn't exist or is empty.
+	 */
+	private ZipRandomAccessReader buildRandomAccessReader(File f, ProcessContext context) throws IOException {
+		ZipRandomAccessReader reader = null;
+		if (compressionArguments.isMultiVolumes()) {
+			ZipVolumeStrategy strategy = (ZipVolumeStrategy)buildVolumeStrategy(f, false, context);
+			if (FileSystemManager.exists(strategy.getFinalArchive())) {
+				reader = new ZipRandomAccessReader(strategy);
+			}
+		} else if (FileSystemManager.exists(f) && FileSystemManager.length(f) != 0) {
+			reader = new ZipRandomAccessReader(f);
+		}
+		return reader;
+	}
+	
+	private void initCharset(ArchiveAdapter adapter) {
+		adapter.setCharset(getCharset());
+	}
+	
+	private Charset getCharset() {
+		if (compressionArguments.getCharset() != null) {
+			return compressionArguments.getCharset();
+		} else {
+			return Charset.forName(ZipConstants.DEFAULT_CHARSET);
+		}
 	}
 
 	private VolumeStrategy buildVolumeStrategy(File f, boolean write, ProcessContext context) throws IOException {       
@@ -226,18 +303,22 @@ public class IncrementalZipMedium extends AbstractIncrementalFileSystemMedium {
 			final boolean mergeRecoveredFiles, 
 			final File destination, 
 			RecoveryFilterMap filesByArchive, 
-			AbstractCopyPolicy policy,
+			final AbstractCopyPolicy policy,
 			final ProcessContext context
 	) throws IOException, ApplicationException, TaskCancelledException {
+		// Without merge, each archive is extracted in its own directory : the archives are extracted concurrently.
+		// With merge, they are extracted one after the other so that the most recent entries overwrite the older ones.
+		IOTaskPool pool = mergeRecoveredFiles ? new IOTaskPool("Recovery Worker", 1) : buildRecoveryPool();
 		try {
 			context.getInfoChannel().print("Data recovery ...");   
 			final List ret = new ArrayList();
 			if (mergeRecoveredFiles) {
 				ret.add(destination);
 			}
+			final int[] completed = new int[] {0};
 
 			for (int i=0; i<archivesToProcess.length; i++) {
-				com.application.areca.metadata.FileList files;
+				final com.application.areca.metadata.FileList files;
 				if (filesByArchive != null) {
 					files = (com.application.areca.metadata.FileList)filesByArchive.get(archivesToProcess[i]);
 				} else {
@@ -247,12 +328,35 @@ public class IncrementalZipMedium extends AbstractIncrementalFileSystemMedium {
 				logRecoveryStep(filesByArchive, files, archivesToProcess[i], context);
 
 				if (filesByArchive == null || (files != null && files.size() != 0)) {
-					ensureLocalCopy(archivesToProcess[i], mergeRecoveredFiles, destination, files, policy, ret, context);
+					final File archiveToProcess = archivesToProcess[i];
+					final File realDestination;
+					if (mergeRecoveredFiles) {
+						realDestination = destination;
+					} else {
+						realDestination = new File(destination, FileSystemManager.getName(archiveToProcess));
+						if (! ret.contains(realDestination)) {
+							ret.add(realDestination);
+						}
+					}
+
+					pool.submit(new IOTask() {
+						public void run() throws IOException, TaskCancelledException, ApplicationException {
+							ensureLocalCopy(archiveToProcess, realDestination, files, policy, context);
+							synchronized (completed) {
+								completed[0]++;
+								context.getTaskMonitor().getCurrentActiveSubTask().setCurrentCompletion(completed[0], archivesToProcess.length);
+							}
+						}
+					});
 				} else {
 					ret.add(null);
+					synchronized (completed) {
+						completed[0]++;
+						context.getTaskMonitor().getCurrentActiveSubTask().setCurrentCompletion(completed[0], archivesToProcess.length);
+					}
 				}
-				context.getTaskMonitor().getCurrentActiveSubTask().setCurrentCompletion(i+1, archivesToProcess.length);  
 			}
+			pool.drain();
 
 			return (File[])ret.toArray(new File[ret.size()]);       
 		} catch (TaskCancelledException e) {
@@ -261,29 +365,21 @@ public class IncrementalZipMedium extends AbstractIncrementalFileSystemMedium {
 			throw e;        	
 		} catch (Exception e) {
 			throw new ApplicationException(e);
+		} finally {
+			pool.close();
 		}
 	}
 
 	private void ensureLocalCopy(
 			File archiveToProcess, 
-			boolean mergeRecoveredFiles, 
-			File destination, 
+			File realDestination, 
 			FileList files,
 			AbstractCopyPolicy policy,
-			List ret, 
 			ProcessContext context
 	) throws IOException, ApplicationException, TaskCancelledException {
-		ArchiveReader zrElement = new ArchiveReader(buildArchiveAdapter(archiveToProcess, false, context));
-
-		File realDestination;
-		if (mergeRecoveredFiles) {
-			realDestination = destination;
-		} else {
-			realDestination = new File(destination, FileSystemManager.getName(archiveToProcess));
-			if (! ret.contains(realDestination)) {
-				ret.add(realDestination);
-			}
-		}
+		// Only the requested entries are read if a filter is set
+		ArchiveAdapter adapter = files == null ? buildArchiveAdapter(archiveToProcess, false, context) : buildArchiveAdapter(archiveToProcess, files, context);
+		ArchiveReader zrElement = new ArchiveReader(adapter);
 
 		zrElement.injectIntoDirectory(realDestination, files, policy, context.getTaskMonitor(), context.getOutputStreamListener());
 		zrElement.close();
@@ -303,6 +399,219 @@ public class IncrementalZipMedium extends AbstractIncrementalFileSystemMedium {
 	protected void registerUnstoredFile(FileSystemRecoveryEntry entry, ProcessContext context) {
 	}
 
+	/**
+	 * The archives are merged directly only if they can be read randomly : otherwise, recovering them first is cheaper.
+	 */
+	protected boolean supportsStreamingMerge() {
+		return ArecaConfiguration.get().isMergeStreaming() && supportsRandomAccess();
+	}
+
+	/**
+	 * Build the merged archive by reading the entries directly from the merged archives :
+	 * <BR>- the central directories of the archives are read in parallel (their entries are sorted the same way), so that the
+	 * entries of the merged archive are written in the same order,
+	 * <BR>- standard storage : the entry is copied from the archive it was dispatched to, without being decompressed / recompressed,
+	 * <BR>- delta storage : the layers of the entry (from the archive it was dispatched to up to the most recent one) are merged
+	 * on the fly by a DeltaMerger. Entries made of a single layer are copied as is.
+	 */
+	protected boolean buildMergedArchiveFromArchives(File[] archives, RecoveryFilterMap entriesByArchive, ProcessContext context) 
+	throws IOException, ApplicationException, TaskCancelledException {
+		MergeSource[] sources = new MergeSource[archives.length];
+		try {
+			long total = 0;
+			for (int i=0; i<archives.length; i++) {
+				ZipRandomAccessReader reader = null;
+				try {
+					reader = buildRandomAccessReader(archives[i], context);
+				} catch (IOException e) {
+					Logger.defaultLogger().warn("Unable to read the central directory of " + FileSystemManager.getDisplayPath(archives[i]) + " (" + e.getMessage() + ").");
+				}
+				if (reader == null) {
+					Logger.defaultLogger().warn("The archives can't be merged directly : they will be recovered first.");
+					return false;
+				}
+				reader.setCharset(getCharset());
+
+				if (! isDirectorySorted(reader, context)) {
+					reader.close();
+					Logger.defaultLogger().warn("The entries of " + FileSystemManager.getDisplayPath(archives[i]) + " are not sorted : the archives can't be merged directly and will be recovered first.");
+					return false;
+				}
+
+				com.application.areca.metadata.FileList files = entriesByArchive.get(archives[i]);
+				sources[i] = new MergeSource(reader, files == null ? null : files.iterator());
+				if (files != null) {
+					total += files.size();
+				}
+			}
+
+			context.getOutputStreamListener().reset();
+			AbstractFileSystemMedium.tool.createDir(FileSystemManager.getParentFile(context.getCurrentArchiveFile()));
+			ZipArchiveAdapter adapter = (ZipArchiveAdapter)buildArchiveAdapter(context.getCurrentArchiveFile(), true, context);
+			context.setArchiveWriter(new ArchiveWriter(adapter));
+			context.getInfoChannel().print("Merging " + archives.length + " archives (" + total + " files) ...");
+
+			for (int i=0; i<sources.length; i++) {
+				sources[i].next();
+			}
+			List layers = new ArrayList();
+			long processed = 0;
+			while (true) {
+				context.getTaskMonitor().checkTaskState();
+
+				// Lowest entry
+				String key = null;
+				for (int i=0; i<sources.length; i++) {
+					if (sources[i].entry != null && (key == null || FilePathComparator.instance().compare(sources[i].key, key) < 0)) {
+						key = sources[i].key;
+					}
+				}
+				if (key == null) {
+					break;
+				}
+
+				// Archives containing the entry (from the oldest to the most recent one)
+				layers.clear();
+				int first = -1;
+				for (int i=0; i<sources.length; i++) {
+					if (sources[i].entry != null && FilePathComparator.instance().compare(sources[i].key, key) == 0) {
+						// As for a recovery, the oldest archive the entry has been dispatched to is used (with the more recent layers)
+						if (sources[i].accept() && first == -1) {
+							first = layers.size();
+						}
+						layers.add(sources[i]);
+					}
+				}
+
+				if (first != -1) {
+					if (handler.autonomousArchives() || first == layers.size() - 1) {
+						copyEntry((MergeSource)layers.get(first), adapter, context);
+					} else {
+						mergeLayers(layers, first, adapter, context);
+					}
+					processed++;
+					context.getTaskMonitor().getCurrentActiveSubTask().setCurrentCompletion(processed, total);
+				}
+
+				for (int i=0; i<layers.size(); i++) {
+					((MergeSource)layers.get(i)).next();
+				}
+			}
+			return true;
+		} finally {
+			for (int i=0; i<sources.length; i++) {
+				if (sources[i] != null) {
+					sources[i].close();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Tells whether the entries of the archive's central directory are sorted (strictly increasing, according to the FilePathComparator).
+	 * <BR>The archives are merged by reading their central directories in parallel, which requires this order.
+	 * <BR>The central directory is loaded in memory (unless it is too large) so that the merge doesn't read it again from the archive ;
+	 * the reader is then rewound.
+	 */
+	private boolean isDirectorySorted(ZipRandomAccessReader reader, ProcessContext context) throws IOException, TaskCancelledException {
+		if (reader.getDirectorySize() <= MAX_BUFFERED_DIRECTORY_SIZE) {
+			reader.bufferDirectory();
+		}
+		String previous = null;
+		ZipEntry entry;
+		while ((entry = reader.nextDirectoryEntry()) != null) {
+			String key = Util.trimSlashes(entry.getName());
+			if (previous != null && FilePathComparator.instance().compare(previous, key) >= 0) {
+				return false;
+			}
+			previous = key;
+			context.getTaskMonitor().checkTaskState();
+		}
+		reader.rewindDirectory();
+		return true;
+	}
+
+	private void copyEntry(MergeSource source, ZipArchiveAdapter adapter, ProcessContext context) 
+	throws IOException, TaskCancelledException {
+		ZipEntry entry = source.entry;
+		if (entry.getMethod() == ZipEntry.DEFLATED) {
+			adapter.copyRawEntry(source.reader, entry, entry.getName());
+		} else {
+			// The entry is compressed the same way as the other entries of the merged archive
+			adapter.addEntry(entry.getName(), entry.getSize());
+			FileTool.getInstance().copy(source.reader.openEntry(entry), adapter.getArchiveOutputStream(), false, false, context.getTaskMonitor());
+			adapter.closeEntry();
+		}
+	}
+
+	private void mergeLayers(List layers, int first, ZipArchiveAdapter adapter, ProcessContext context) 
+	throws IOException, ApplicationException, TaskCancelledException {
+		DeltaMerger merger = new DeltaMerger();
+		try {
+			for (int i=first; i<layers.size(); i++) {
+				MergeSource layer = (MergeSource)layers.get(i);
+				merger.addInputStream(new BufferedInputStream(layer.reader.openEntry(layer.entry)), layer.key);
+			}
+
+			MergeSource last = (MergeSource)layers.get(layers.size() - 1);
+			adapter.addEntry(last.entry.getName(), last.entry.getSize());
+			OutputStream out = new BufferedOutputStream(adapter.getArchiveOutputStream());
+			merger.setProc(new LayerWriterDeltaProcessor(out));
+			try {
+				merger.merge(context.getTaskMonitor());
+			} catch (DeltaProcessorException e) {
+				Logger.defaultLogger().error(e);
+				throw new ApplicationException("Error during merge.", e);
+			}
+			out.flush();
+			adapter.closeEntry();
+		} finally {
+			merger.close();
+		}
+	}
+
+	/**
+	 * Archive read during a merge : current entry of the central directory, and entries to read from this archive
+	 */
+	private static class MergeSource {
+		private ZipRandomAccessReader reader;
+		private FileList.FileListIterator filter;
+		private ZipEntry entry;
+		private String key;
+
+		private MergeSource(ZipRandomAccessReader reader, FileList.FileListIterator filter) {
+			this.reader = reader;
+			this.filter = filter;
+		}
+
+		private void next() throws IOException {
+			String previous = key;
+			entry = reader.nextDirectoryEntry();
+			key = entry == null ? null : Util.trimSlashes(entry.getName());
+			if (previous != null && key != null && FilePathComparator.instance().compare(previous, key) >= 0) {
+				// Should not happen : the order has been checked before the merge (see "isDirectorySorted")
+				throw new ZipException("Unsorted central directory : " + key + " found after " + previous + ".");
+			}
+		}
+
+		/**
+		 * Tells whether the current entry has been dispatched to this archive
+		 */
+		private boolean accept() throws IOException {
+			return filter != null && filter.fetch(key);
+		}
+
+		private void close() throws IOException {
+			try {
+				reader.close();
+			} finally {
+				if (filter != null) {
+					filter.close();
+				}
+			}
+		}
+	}
+
 	protected void buildMergedArchiveFromDirectory(ProcessContext context) 
 	throws ApplicationException {		
 		try {			
@@ -0,0 +1,223 @@
+package com.application.areca.impl;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+import com.application.areca.ApplicationException;
+import com.application.areca.RecoveryEntry;
+import com.application.areca.StoreException;
+import com.application.areca.context.ProcessContext;
+import com.myJava.util.log.Logger;
+import com.myJava.util.taskmonitor.TaskCancelledException;
+
+/**
+ * Stores entries using several threads.
+ * <BR>The change detection ("prepare") and the metadata writing ("commit") are processed by the calling thread, in the
+ * entries' order, so the archive's trace, content and hash files are identical to those of a sequential backup.
+ * <BR>The files' data are read, encoded and written by a pool of worker threads. The number of entries that are
+ * waiting to be committed is bounded : the caller blocks when the oldest pending entry is not yet encoded.
+ * <BR>
+ * <BR>This class is not thread-safe : "store", "drain", "handleTransactionPoint" and "close" must be called by the same thread.
+ * <BR>
+ * @author Olivier PETRUCCI
+ * <BR>
+ *
+ */
+
+ /*
+ Copyright 2005-2015, Olivier PETRUCCI.
+
+This file is part of Areca.
+
+    Areca is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    Areca is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Areca; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+ */
+public class StorePipeline {
+	private static final long WAIT = 5000;
+
+	/**
+	 * Maximum number of pending entries per worker
+	 */
+	private static final int PENDING_BY_WORKER = 8;
+
+	private AbstractIncrementalFileSystemMedium medium;
+	private ProcessContext context;
+	private int maxPending;
+
+	/**
+	 * Entries that have not been committed yet, in the backup order
+	 */
+	private LinkedList pending = new LinkedList();
+
+	/**
+	 * Entries waiting for a worker
+	 */
+	private LinkedList queue = new LinkedList();
+
+	private List workers = new ArrayList();
+	private boolean closed = false;
+
+	public StorePipeline(AbstractIncrementalFileSystemMedium medium, ProcessContext context, int nbWorkers) {
+		this.medium = medium;
+		this.context = context;
+		this.maxPending = nbWorkers * PENDING_BY_WORKER;
+
+		Logger.defaultLogger().info("Files will be stored using " + nbWorkers + " threads.");
+		for (int i=0; i<nbWorkers; i++) {
+			Thread th = new Thread(new Worker(), "Store-" + medium.getTarget().getUid() + "-" + i);
+			th.setDaemon(true);
+			workers.add(th);
+			th.start();
+		}
+	}
+
+	/**
+	 * Submit an entry, and commit the entries that have been encoded
+	 */
+	public void store(RecoveryEntry entry)
+	throws StoreException, ApplicationException, TaskCancelledException {
+		StoreTask task = medium.prepareStore(entry, context);
+		if (task != null) {
+			synchronized (this) {
+				pending.addLast(task);
+				if (task.getAction() == StoreTask.ACTION_STORE) {
+					queue.addLast(task);
+				} else {
+					task.setCompleted(true);
+				}
+				this.notifyAll();
+			}
+		}
+		commitCompleted(maxPending);
+	}
+
+	/**
+	 * Wait for all pending entries and commit them
+	 */
+	public void drain()
+	throws StoreException, ApplicationException, TaskCancelledException {
+		commitCompleted(0);
+	}
+
+	/**
+	 * Drain the pipeline and save a transaction point if needed
+	 * <BR>(the transaction point must only reference committed entries)
+	 */
+	public void handleTransactionPoint()
+	throws StoreException, ApplicationException, TaskCancelledException {
+		if (medium.isTransactionPointRequired(context)) {
+			drain();
+			medium.saveTransactionPoint(context);
+		}
+	}
+
+	/**
+	 * Commit the completed entries in the backup order, until at most "max" entries are pending
+	 */
+	private void commitCompleted(int max)
+	throws StoreException, ApplicationException, TaskCancelledException {
+		while (true) {
+			StoreTask head;
+			synchronized (this) {
+				if (pending.isEmpty()) {
+					return;
+				}
+				head = (StoreTask)pending.getFirst();
+				if (! head.isCompleted()) {
+					if (pending.size() <= max) {
+						return;
+					}
+					try {
+						this.wait(WAIT);
+					} catch (InterruptedException ignored) {
+					}
+					continue;
+				}
+				pending.removeFirst();
+			}
+
+			if (head.getError() != null) {
+				throwError(head.getError());
+			}
+			medium.commitStore(head, context);
+		}
+	}
+
+	private void throwError(Throwable e)
+	throws StoreException, ApplicationException, TaskCancelledException {
+		if (e instanceof StoreException) {
+			throw (StoreException)e;
+		} else if (e instanceof ApplicationException) {
+			throw (ApplicationException)e;
+		} else if (e instanceof TaskCancelledException) {
+			throw (TaskCancelledException)e;
+		} else if (e instanceof RuntimeException) {
+			throw (RuntimeException)e;
+		} else if (e instanceof Error) {
+			throw (Error)e;
+		} else {
+			throw new ApplicationException(e);
+		}
+	}
+
+	/**
+	 * Stop the workers. Entries that have not been committed are discarded.
+	 */
+	public void close() {
+		synchronized (this) {
+			closed = true;
+			queue.clear();
+			this.notifyAll();
+		}
+		for (int i=0; i<workers.size(); i++) {
+			try {
+				((Thread)workers.get(i)).join();
+			} catch (InterruptedException ignored) {
+			}
+		}
+	}
+
+	private synchronized StoreTask nextTask() {
+		while (! closed) {
+			if (! queue.isEmpty()) {
+				return (StoreTask)queue.removeFirst();
+			}
+			try {
+				this.wait(WAIT);
+			} catch (InterruptedException ignored) {
+			}
+		}
+		return null;
+	}
+
+	private class Worker implements Runnable {
+		public void run() {
+			StoreTask task;
+			while ((task = nextTask()) != null) {
+				try {
+					medium.encode(task, context);
+				} catch (Throwable e) {
+					task.setError(e);
+				} finally {
+					synchronized (StorePipeline.this) {
+						task.setCompleted(true);
+						StorePipeline.this.notifyAll();
+					}
+				}
+			}
+		}
+	}
+}
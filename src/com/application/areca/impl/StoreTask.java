@@ -0,0 +1,104 @@
+package com.application.areca.impl;
+
+/**
+ * Entry being stored during a backup.
+ * <BR>The storage is split in three steps : "prepare" (change detection) and "commit" (metadata writing), which are
+ * processed in the entries' order, and "encode" (reading, hashing and writing of the file's data), which may be
+ * processed by a worker thread (see StorePipeline).
+ * <BR>
+ * @author Olivier PETRUCCI
+ * <BR>
+ *
+ */
+
+ /*
+ Copyright 2005-2015, Olivier PETRUCCI.
+
+This file is part of Areca.
+
+    Areca is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    Areca is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Areca; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+ */
+public class StoreTask {
+	/**
+	 * Not a file (or not handled as a file) : the entry is only registered in the trace
+	 */
+	public static final short ACTION_NONE = 0;
+
+	/**
+	 * Modified file : its data are stored
+	 */
+	public static final short ACTION_STORE = 1;
+
+	/**
+	 * Unchanged file
+	 */
+	public static final short ACTION_UNCHANGED = 2;
+
+	private FileSystemRecoveryEntry entry;
+	private short action = ACTION_NONE;
+	private String shaBase64;
+	private Throwable error;
+	private boolean completed;
+
+	public StoreTask(FileSystemRecoveryEntry entry) {
+		this.entry = entry;
+	}
+
+	public FileSystemRecoveryEntry getEntry() {
+		return entry;
+	}
+
+	public short getAction() {
+		return action;
+	}
+
+	public void setAction(short action) {
+		this.action = action;
+	}
+
+	/**
+	 * Content hash of the file (null if not computed)
+	 */
+	public String getShaBase64() {
+		return shaBase64;
+	}
+
+	public void setShaBase64(String shaBase64) {
+		this.shaBase64 = shaBase64;
+	}
+
+	/**
+	 * Error raised while encoding the entry
+	 */
+	public Throwable getError() {
+		return error;
+	}
+
+	public void setError(Throwable error) {
+		this.error = error;
+	}
+
+	/**
+	 * Tell whether the entry is ready to be committed
+	 */
+	public boolean isCompleted() {
+		return completed;
+	}
+
+	public void setCompleted(boolean completed) {
+		this.completed = completed;
+	}
+}
@@ -68,6 +68,14 @@ public interface ArchiveHandler extends Duplicable {
     public void store(FileSystemRecoveryEntry entry, InputStream in, OutputStream out, ProcessContext context) 
     throws ApplicationException, IOException, TaskCancelledException;
     
+    /**
+     * Writes the handler's metadata for an entry that has been stored by the "store" method.
+     * <BR>Entries are committed in the order of the backup, whereas "store" may be invoked concurrently
+     * by several threads (see StorePipeline).
+     */
+    public void commit(FileSystemRecoveryEntry entry, ProcessContext context) 
+    throws ApplicationException, IOException;
+    
     /**
      * Restore the data
      */
@@ -53,6 +53,10 @@ extends AbstractArchiveHandler {
 		FileTool.getInstance().copy(in, out, true, false, context.getTaskMonitor());
 	}
 
+	public void commit(FileSystemRecoveryEntry entry, ProcessContext context) 
+	throws ApplicationException, IOException {
+	}
+
 	public void recoverRawData(
 			File[] archivesToRecover, 
 			RecoveryFilterMap filtersByArchive,
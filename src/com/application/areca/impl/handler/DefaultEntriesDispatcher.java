@@ -4,6 +4,7 @@ import java.io.File;
 import java.io.IOException;
 
 import com.application.areca.impl.AbstractIncrementalFileSystemMedium;
+import com.application.areca.metadata.MetaDataIteratorHeap;
 import com.application.areca.metadata.content.ArchiveContentAdapter;
 import com.application.areca.metadata.content.ArchiveContentManager;
 import com.application.areca.metadata.content.ContentFileIterator;
@@ -40,6 +41,7 @@ This file is part of Areca.
  */
 public class DefaultEntriesDispatcher extends AbstractEntriesDispatcher {
 	protected ContentFileIterator[] iters;
+	protected MetaDataIteratorHeap heap;
 	protected boolean initialized = false;
 	
 	public DefaultEntriesDispatcher(File[] archives, AbstractIncrementalFileSystemMedium medium) {
@@ -58,19 +60,13 @@ public class DefaultEntriesDispatcher extends AbstractEntriesDispatcher {
 						ArchiveContentManager.resolveContentFileForArchive(medium, archives[i])
 				);
 			}
+			heap = new MetaDataIteratorHeap(iters);
 		}
 	}
 	
 	public void dispatchEntry(String entry) throws IOException {
 		initialize();
-		int index = -1;
-		for (int i=archives.length-1; i>=0; i--) {
-			boolean found = iters[i].fetch(entry);
-			if (found) {
-				index = i;
-				break;
-			}
-		}
+		int index = heap.fetch(entry);
 		
 		if (index == -1) {
 			// This can happen if the user tries to recover a symbolic link
@@ -7,7 +7,9 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.GregorianCalendar;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.Map;
 import java.util.zip.GZIPInputStream;
 
 import com.application.areca.AbstractTarget;
@@ -20,6 +22,7 @@ import com.application.areca.context.ProcessContext;
 import com.application.areca.impl.FileSystemRecoveryEntry;
 import com.application.areca.impl.FileSystemTarget;
 import com.application.areca.impl.IOTask;
+import com.application.areca.impl.IOTaskPool;
 import com.application.areca.impl.copypolicy.AbstractCopyPolicy;
 import com.application.areca.impl.tools.RecoveryFilterMap;
 import com.application.areca.metadata.content.ArchiveContentAdapter;
@@ -34,6 +37,7 @@ import com.myJava.file.FileList;
 import com.myJava.file.FileList.FileListIterator;
 import com.myJava.file.FileSystemManager;
 import com.myJava.file.FileTool;
+import com.myJava.file.delta.DeltaExtentMap;
 import com.myJava.file.delta.DeltaInputStream;
 import com.myJava.file.delta.DeltaMerger;
 import com.myJava.file.delta.DeltaProcessor;
@@ -44,11 +48,12 @@ import com.myJava.file.delta.LayerWriterDeltaProcessor;
 import com.myJava.file.delta.sequence.ByteProcessorException;
 import com.myJava.file.delta.sequence.FileSequencerByteProcessor;
 import com.myJava.file.delta.sequence.HashSequence;
-import com.myJava.file.delta.sequence.SequenceAdapter;
+import com.myJava.file.delta.sequence.SequenceStore;
+import com.myJava.file.delta.sequence.SequenceStoreWriter;
+import com.myJava.file.delta.tools.ContentDefinedChunker;
 import com.myJava.file.driver.DriverAlreadySetException;
 import com.myJava.file.driver.FileSystemDriver;
 import com.myJava.object.Duplicable;
-import com.myJava.system.OSTool;
 import com.myJava.util.Util;
 import com.myJava.util.log.Logger;
 import com.myJava.util.taskmonitor.TaskCancelledException;
@@ -87,15 +92,19 @@ extends AbstractArchiveHandler {
 	private static final int MIN_BLOCK_SIZE_BYTE = ArecaConfiguration.get().getDeltaMinBucketSize();
 	private static final int MAX_BLOCK_SIZE_BYTE = ArecaConfiguration.get().getDeltaMaxBucketSize();
 	private static final int TARGET_BUCKET_NUMBER = ArecaConfiguration.get().getDeltaTargetBucketNumber();
+	private static final boolean CONTENT_DEFINED_CHUNKING = ArecaConfiguration.get().isDeltaContentDefinedChunking();
+	private static final int AVERAGE_CHUNK_SIZE = ArecaConfiguration.get().getDeltaAverageChunkSize();
+	private static final int FLATTEN_MIN_LAYERS = ArecaConfiguration.get().getDeltaFlattenMinLayers();
 
 	private static final String LOCAL_COPY_SUFFIX = "lcpy0";
 	private static final String SEQUENCE_FOLDER = "seq";
+	private static final String SEQUENCE_STORE_FILE = "sequence.bin";
+	private static final int SEQUENCE_BUFFER_SIZE = 64 * 1024;
 
 	/**
-	 * Temporary directory where all sequence files are stored
-	 * <BR>This allows quicker sequence retrieval and limits bandwidth usage
+	 * Sequences of the entries that have been stored but not committed yet
 	 */
-	private static final File LOCAL_DATA_DIRECTORY = new File(OSTool.getTempDirectory(), "areca");
+	private Map pendingSequences = new HashMap();
 
 	/**
 	 * Return the final sequence file name
@@ -104,18 +113,34 @@ extends AbstractArchiveHandler {
 		return ArecaFileConstants.SEQUENCE_FILE;
 	}
 
+	/**
+	 * Add sequence data
+	 */
+	public void commit(FileSystemRecoveryEntry entry, ProcessContext context) 
+	throws ApplicationException, IOException {
+		HashSequence sequence;
+		synchronized (pendingSequences) {
+			sequence = (HashSequence)pendingSequences.remove(entry.getKey());
+		}
+		context.getSequenceAdapter().writeSequenceEntry(entry, sequence);
+	}
+
 	public void close(ProcessContext context) 
 	throws IOException, ApplicationException {
+		pendingSequences.clear();
 		try {
 			context.getSequenceAdapter().close();
 			context.setSequenceAdapter(null);
 		} finally {
-			Iterator iter = context.getContentIterators().iterator();
-			while (iter.hasNext()) {
-				ContentFileIterator ctnIter = (ContentFileIterator)iter.next();
-				ctnIter.close();
+			// Closing a store releases its mapped buffers : no lookup must be in progress
+			synchronized (context.getSequenceStores()) {
+				Iterator iter = context.getSequenceStores().iterator();
+				while (iter.hasNext()) {
+					SequenceStore store = (SequenceStore)iter.next();
+					store.close();
+				}
+				context.getSequenceStores().clear();
 			}
-			context.getContentIterators().clear();
 		}
 	}
 
@@ -124,9 +149,11 @@ extends AbstractArchiveHandler {
 		FileSystemTarget target = (FileSystemTarget)medium.getTarget();
 		File file = new File(medium.getDataDirectory(context.getCurrentArchiveFile()), getSequenceFileName());
 		context.setSequenceAdapter(new ArchiveContentAdapter(file, target.getSourceDirectory()));  
+		context.getSequenceAdapter().setIndexed(true);
+		medium.configureMetadataAdapter(context.getSequenceAdapter());
 
 		if (transactionPoint != null) {
-			context.getSequenceAdapter().bulkInit(transactionPoint.getSequenceFile());
+			context.getSequenceAdapter().bulkInit(transactionPoint.getSequenceFiles());
 		}
 	}
 
@@ -134,13 +161,7 @@ extends AbstractArchiveHandler {
 	 * Return the local folder where sequence data are temporarily stored.
 	 */
 	private File getLocalSequenceDirectory(File archive) {
-		return new File(
-				new File(
-						new File(LOCAL_DATA_DIRECTORY, medium.getTarget().getUid()),
-						FileSystemManager.getName(archive)
-				), 
-				SEQUENCE_FOLDER
-		);
+		return new File(medium.getLocalDataDirectory(archive), SEQUENCE_FOLDER);
 	}
 
 	/**
@@ -153,23 +174,33 @@ extends AbstractArchiveHandler {
 			return null;
 		}
 
-		Iterator contents = context.getContentIterators().iterator();
-		ContentFileIterator ctnIter = null;
+		// The sequence stores are shared by the threads that store entries
+		synchronized (context.getSequenceStores()) {
+			return lookupSequenceForEntryImpl(entry, context);
+		}
+	}
 
-		// Look among the already initialized iterators
+	private HashSequence lookupSequenceForEntryImpl(FileSystemRecoveryEntry entry, ProcessContext context)
+	throws ApplicationException, IOException, TaskCancelledException {
+
+		Iterator contents = context.getSequenceStores().iterator();
+		SequenceStore store = null;
+		int record = -1;
+
+		// Look among the already opened stores
 		File lastArchive = null;
 		while (contents.hasNext()) {
-			ContentFileIterator currentCtnIter = (ContentFileIterator)contents.next();
-			lastArchive = currentCtnIter.getReferenceArchive();
+			SequenceStore currentStore = (SequenceStore)contents.next();
+			lastArchive = currentStore.getReferenceArchive();
 			if (DEBUG) {
-				Logger.defaultLogger().fine("Entry " + entry.getKey() + " : checking sequence file contained in " + FileSystemManager.getDisplayPath(currentCtnIter.getReferenceArchive()));
+				Logger.defaultLogger().fine("Entry " + entry.getKey() + " : checking sequence file contained in " + FileSystemManager.getDisplayPath(currentStore.getReferenceArchive()));
 			}
-			boolean found = currentCtnIter.fetch(entry.getKey());
-			if (found) {
+			record = currentStore.lookup(entry.getKey());
+			if (record != -1) {
 				if (DEBUG) {
 					Logger.defaultLogger().fine("Entry " + entry.getKey() + " : OK ");
 				}
-				ctnIter = currentCtnIter;
+				store = currentStore;
 				break;
 			} else {
 				if (DEBUG) {
@@ -181,7 +212,7 @@ extends AbstractArchiveHandler {
 		// Not found -> search among older archives
 		boolean ignoreIncrementalAndDifferentialArchives = context.getBackupScheme().equals(AbstractTarget.BACKUP_SCHEME_DIFFERENTIAL);
 		boolean lastPossibleCandidate = false;
-		while (ctnIter == null) {
+		while (store == null) {
 			GregorianCalendar toDate = null;
 			if (lastArchive != null) {
 				toDate = (GregorianCalendar)ArchiveManifestCache.getInstance().getManifest(medium, lastArchive).getDate().clone();
@@ -225,48 +256,104 @@ extends AbstractArchiveHandler {
 				return null;
 			}
 
-			// Build an iterator
+			// Open the archive's sequence store
 			if (DEBUG) {
 				Logger.defaultLogger().fine("Opening hash file for : " + FileSystemManager.getDisplayPath(lastArchive));
 			}
-			File sequenceFile = ArchiveContentManager.resolveSequenceFileForArchive(medium, lastArchive);
-			ctnIter = ArchiveContentAdapter.buildIterator(sequenceFile);
-			ctnIter.setReferenceArchive(lastArchive);
+			store = openSequenceStore(lastArchive, context);
 
-			// Add the new iterator to the collection of already loaded iterators
-			context.getContentIterators().add(ctnIter);
+			// Add the new store to the collection of already loaded stores
+			context.getSequenceStores().add(store);
 
 			// Check whether the entry can be found
-			boolean found = ctnIter.fetch(entry.getKey());
-			if (! found) {
+			record = store.lookup(entry.getKey());
+			if (record == -1) {
 				if (lastPossibleCandidate) {
 					// The last possible candidate has been reached (it was a full backup) -> ignore previous archives and return null (new entry)
 					return null;
 				} else {
-					ctnIter = null;
+					store = null;
 				}
 			}
 		}
 
-		// Once a suitable iterator has bee found, extract the raw hash data
+		// Once a suitable store has been found, read the sequence
 		if (DEBUG) {
-			Logger.defaultLogger().fine("Entry " + entry.getKey() + " : using sequence file contained in " + FileSystemManager.getDisplayPath(ctnIter.getReferenceArchive()));
+			Logger.defaultLogger().fine("Entry " + entry.getKey() + " : using sequence file contained in " + FileSystemManager.getDisplayPath(store.getReferenceArchive()));
 		}
-		ContentEntry hashEntry = ctnIter.current();
-		byte[] rawData = Util.base64Decode(hashEntry.getData());
+		return store.getSequence(record);
+	}
 
-		// Deserialize the hashSequence
-		SequenceAdapter adapter = new SequenceAdapter();
-		InputStream in = new GZIPInputStream(new ByteArrayInputStream(rawData));
-		HashSequence seq = null;
+	/**
+	 * Open the binary sequence store of the archive.
+	 * <BR>The store is a local copy of the archive's sequence file, which is built on first use and kept
+	 * in the local sequence directory as long as the sequence file is unchanged.
+	 */
+	private SequenceStore openSequenceStore(File archive, ProcessContext context) 
+	throws IOException, TaskCancelledException {
+		File sequenceFile = ArchiveContentManager.resolveSequenceFileForArchive(medium, archive);
+		long length = FileSystemManager.length(sequenceFile);
+		long lastModified = FileSystemManager.lastModified(sequenceFile);
+		File storeFile = new File(getLocalSequenceDirectory(archive), SEQUENCE_STORE_FILE);
+
+		SequenceStore store = SequenceStore.open(storeFile, length, lastModified);
+		if (store == null) {
+			buildSequenceStore(sequenceFile, storeFile, length, lastModified, context);
+			store = SequenceStore.open(storeFile, length, lastModified);
+			if (store == null) {
+				throw new IOException("Unable to open sequence store : " + storeFile.getAbsolutePath());
+			}
+		}
+		store.setReferenceArchive(archive);
+		return store;
+	}
+
+	/**
+	 * Convert the sequence file (base64 + gzip text entries) into a binary sequence store
+	 */
+	private void buildSequenceStore(File sequenceFile, File storeFile, long length, long lastModified, ProcessContext context) 
+	throws IOException, TaskCancelledException {
+		if (DEBUG) {
+			Logger.defaultLogger().fine("Building sequence store : " + storeFile.getAbsolutePath());
+		}
+		FileTool.getInstance().createDir(storeFile.getParentFile());
+		SequenceStoreWriter writer = new SequenceStoreWriter(storeFile, length, lastModified);
+		ContentFileIterator ctnIter = ArchiveContentAdapter.buildIterator(sequenceFile);
+		boolean completed = false;
 		try {
-			seq = adapter.deserialize(in);
+			byte[] buffer = new byte[SEQUENCE_BUFFER_SIZE];
+			while (ctnIter.hasNext()) {
+				context.getTaskMonitor().checkTaskState();
+				ContentEntry hashEntry = ctnIter.next();
+				byte[] rawData = Util.base64Decode(hashEntry.getData());
+				int len = 0;
+				if (rawData != null) {
+					InputStream in = new GZIPInputStream(new ByteArrayInputStream(rawData));
+					try {
+						int read;
+						while ((read = in.read(buffer, len, buffer.length - len)) != -1) {
+							len += read;
+							if (len == buffer.length) {
+								byte[] tmp = new byte[buffer.length * 2];
+								System.arraycopy(buffer, 0, tmp, 0, len);
+								buffer = tmp;
+							}
+						}
+					} finally {
+						in.close();
+					}
+				}
+				writer.add(hashEntry.getKey(), buffer, len);
+			}
+			completed = true;
 		} finally {
-			if (in != null) {
-				in.close();
+			ctnIter.close();
+			if (completed) {
+				writer.close();
+			} else {
+				writer.discard();
 			}
 		}
-		return seq;
 	}
 
 	private File[] listCandidatesForSequenceLookup(GregorianCalendar date, String backupScheme) throws ApplicationException {
@@ -274,8 +361,7 @@ extends AbstractArchiveHandler {
 		return files;
 	}
 
-	private int computeBlockSize(File file) {
-		long bs = FileSystemManager.length(file);
+	private int computeBlockSize(long bs) {
 		return (int)Math.min(MAX_BLOCK_SIZE_BYTE, Math.max(MIN_BLOCK_SIZE_BYTE, bs / TARGET_BUCKET_NUMBER));
 	}
 
@@ -285,16 +371,24 @@ extends AbstractArchiveHandler {
 
 		try {
 			DeltaProcessor[] proc = new DeltaProcessor[] {new LayerWriterDeltaProcessor(out)};
-			int blockSize = seq ==null ? computeBlockSize(entry.getFile()) : (int)seq.getBlockSize();
+			long length = FileSystemManager.length(entry.getFile());
+			int blockSize = seq ==null ? computeBlockSize(length) : (int)seq.getBlockSize();
 			if (DEBUG) {
 				Logger.defaultLogger().fine("Entry : " + entry.getFile() + " - BlockSize = " + blockSize + (seq == null ? "C" : "R"));
 			}
-			FileSequencerByteProcessor sequencer = new FileSequencerByteProcessor(blockSize);
+			FileSequencerByteProcessor sequencer;
+			if (CONTENT_DEFINED_CHUNKING) {
+				// Chunk boundaries don't depend on the file size : the sequence remains usable if the file grows
+				sequencer = new FileSequencerByteProcessor(new ContentDefinedChunker(AVERAGE_CHUNK_SIZE));
+			} else {
+				sequencer = new FileSequencerByteProcessor(blockSize);
+			}
+			sequencer.setExpectedLength(length);
 			DeltaReader reader;
 
 			if (seq == null) {
 				reader = new DeltaReader(
-						computeBlockSize(entry.getFile()),
+						computeBlockSize(length),
 						in,
 						proc,
 						sequencer
@@ -310,9 +404,10 @@ extends AbstractArchiveHandler {
 
 			reader.read(context.getTaskMonitor());
 
-			// Add sequence data
-			HashSequence returnedSequence = sequencer.getSequence();
-			context.getSequenceAdapter().writeSequenceEntry(entry, returnedSequence);
+			// Keep the sequence until the entry is committed
+			synchronized (pendingSequences) {
+				pendingSequences.put(entry.getKey(), sequencer.getSequence());
+			}
 		} catch (DeltaProcessorException e) {
 			Logger.defaultLogger().error(e);
 			throw new ApplicationException("Error storing " + entry.getKey() + ".", e);
@@ -371,66 +466,78 @@ extends AbstractArchiveHandler {
 		final File[] localFiles = medium.ensureLocalCopy(archivesToRecover, false, buildRecoveryFile(context.getRecoveryDestination()), filtersByArchive, policy, context);
 
 		// 2 : Process the files to recover
-		for (int i=0; i<localFiles.length; i++) {
-			File localArchive = localFiles[i];
+		// The entries of an archive are restored concurrently, but the archives are processed one after the other :
+		// restoring an entry consumes (and cleans) its layers in the following archives.
+		IOTaskPool pool = medium.buildRecoveryPool();
+		try {
+			for (int i=0; i<localFiles.length; i++) {
+				File localArchive = localFiles[i];
 
-			String msg = "Processing archive " + i;
-			if (localArchive != null) {
-				msg += " (" + localArchive.getAbsolutePath() + ")";
-			}
-			FileList list = filtersByArchive.get(archivesToRecover[i]);
-			if (list != null) {
-				msg += " - " + list.size() + " entr" + (list.size() <= 1 ? "y" : "ies");
-			} else {
-				msg += " - No filter";
-			}
-			msg += " ...";
-			Logger.defaultLogger().info(msg);
-			if (localArchive != null && list != null) {
-				FileListIterator iter = list.iterator();
+				String msg = "Processing archive " + i;
+				if (localArchive != null) {
+					msg += " (" + localArchive.getAbsolutePath() + ")";
+				}
+				FileList list = filtersByArchive.get(archivesToRecover[i]);
+				if (list != null) {
+					msg += " - " + list.size() + " entr" + (list.size() <= 1 ? "y" : "ies");
+				} else {
+					msg += " - No filter";
+				}
+				msg += " ...";
+				Logger.defaultLogger().info(msg);
+				if (localArchive != null && list != null) {
+					FileListIterator iter = list.iterator();
 
-				try {
-					while (iter.hasNext()) {
-						context.getTaskMonitor().checkTaskState();
-						final String localPath = iter.next();
-						final File f = new File(localArchive, localPath);
-						if (DEBUG) {
-							Logger.defaultLogger().fine("Processing entry : " + f.getAbsolutePath());
-						}
-						if (FileSystemManager.exists(f)) {
-							if (FileSystemManager.isFile(f)) {
-								final File target = new File(context.getRecoveryDestination(), localPath);
-
-								if (policy == null || policy.accept(target)) {
-									final int index = i;
-									this.medium.doAndRetry(new IOTask() {
-										public void run() throws IOException,TaskCancelledException,ApplicationException {
-											recoverRawFile(f, target, localFiles, index, localPath, mode, context);
+					try {
+						while (iter.hasNext()) {
+							context.getTaskMonitor().checkTaskState();
+							final String localPath = iter.next();
+							final File f = new File(localArchive, localPath);
+							if (DEBUG) {
+								Logger.defaultLogger().fine("Processing entry : " + f.getAbsolutePath());
+							}
+							if (FileSystemManager.exists(f)) {
+								if (FileSystemManager.isFile(f)) {
+									final File target = new File(context.getRecoveryDestination(), localPath);
+
+									if (policy == null || policy.accept(target)) {
+										final int index = i;
+										pool.submit(new IOTask() {
+											public void run() throws IOException,TaskCancelledException,ApplicationException {
+												medium.doAndRetry(new IOTask() {
+													public void run() throws IOException,TaskCancelledException,ApplicationException {
+														recoverRawFile(f, target, localFiles, index, localPath, mode, context);
+													}
+												}, "Error while recovering " + target.getAbsolutePath());
+											}
+										});
+									} else {
+										if (DEBUG) {
+											Logger.defaultLogger().fine(f.getAbsolutePath() + " : File refused by policy object.");
 										}
-									}, "Error while recovering " + target.getAbsolutePath());
+									}
 								} else {
 									if (DEBUG) {
-										Logger.defaultLogger().fine(f.getAbsolutePath() + " : File refused by policy object.");
+										Logger.defaultLogger().fine(f.getAbsolutePath() + " : Nothing to do (not a file)");
 									}
 								}
 							} else {
 								if (DEBUG) {
-									Logger.defaultLogger().fine(f.getAbsolutePath() + " : Nothing to do (not a file)");
+									Logger.defaultLogger().fine(f.getAbsolutePath() + " : Nothing to do (already processed)");
 								}
 							}
-						} else {
-							if (DEBUG) {
-								Logger.defaultLogger().fine(f.getAbsolutePath() + " : Nothing to do (already processed)");
-							}
 						}
+					} finally {
+						iter.close();
 					}
-				} finally {
-					iter.close();
-				}
+					pool.drain();
 
-				// Destroy the local archive
-				medium.completeLocalCopyCleaning(localArchive, context);
+					// Destroy the local archive
+					medium.completeLocalCopyCleaning(localArchive, context);
+				}
 			}
+		} finally {
+			pool.close();
 		}
 	}
 	
@@ -481,6 +588,15 @@ extends AbstractArchiveHandler {
 			OutputStream out = FileSystemManager.getFileOutputStream(target, false, context.getOutputStreamListener());
 
 			if (mode == ArchiveMedium.RECOVER_MODE_RECOVER) {
+				// The extent map is only built when the layers can be skipped cheaply (no decompression / decryption)
+				if (
+						FLATTEN_MIN_LAYERS > 0 
+						&& localCopies.size() >= FLATTEN_MIN_LAYERS 
+						&& ! medium.getCompressionArguments().isCompressed()
+						&& ! medium.getEncryptionPolicy().isEncrypted()
+				) {
+					((DeltaInputStream)in).setExtentMap(buildExtentMap(localCopies, localPath));
+				}
 				if (DEBUG) {
 					Logger.defaultLogger().fine("Recovering ...");
 				}
@@ -526,6 +642,31 @@ extends AbstractArchiveHandler {
 		}
 	}
 
+	/**
+	 * Build the extent map of the layers passed as argument, which avoids traversing all the layers for each read.
+	 * <BR>The layers are read once more, but their new bytes are skipped.
+	 * <BR>Returns null if the layers can't be flattened.
+	 */
+	private DeltaExtentMap buildExtentMap(ArrayList layers, String localPath) throws IOException {
+		InputStream[] streams = new InputStream[layers.size()];
+		try {
+			for (int i=0; i<streams.length; i++) {
+				streams[i] = FileSystemManager.getCachedFileInputStream((File)layers.get(i));
+			}
+			DeltaExtentMap map = DeltaExtentMap.build(streams);
+			if (DEBUG) {
+				Logger.defaultLogger().fine("   Extent map of " + localPath + " : " + map);
+			}
+			return map;
+		} finally {
+			for (int i=0; i<streams.length; i++) {
+				if (streams[i] != null) {
+					streams[i].close();
+				}
+			}
+		}
+	}
+
 	public EntriesDispatcher buildEntriesDispatcher(File[] archives) {
 		return new DeltaEntriesDispatcher(archives, medium);
 	}
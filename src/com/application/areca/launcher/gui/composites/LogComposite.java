@@ -217,9 +217,17 @@ implements LogProcessor, Refreshable {
 	}
 
 	private void setCurrentLevel(final int l) {
+		if (isDisposed()) {
+			return;
+		}
 
-		SecuredRunner.execute(this, new Runnable() {
+		// Asynchronous : this method is called by the logger's thread, which must never wait for the display thread
+		// (the display thread may itself be waiting for the logger's queue)
+		SecuredRunner.execute(getDisplay(), new Runnable() {
 			public void run() {
+				if (isDisposed()) {
+					return;
+				}
 				if (l <= Logger.LOG_LEVEL_WARNING) {
 					if (! hasFocus()) {
 						getTab().setFont(deriveWarningFont());
@@ -239,7 +247,7 @@ implements LogProcessor, Refreshable {
 					getTab().setImage(ArecaImages.ICO_TAB_LOG);
 					//Application.setTabLabel(getTab(), RM.getLabel("mainpanel.log.label"));
 				}
-			}});
+			}}, true);
 		currentMinLevel = l;
 	}
 
@@ -283,8 +291,16 @@ implements LogProcessor, Refreshable {
 				}
 				txt.append("\n");
 				final String fTxt = txt.toString();
-				SecuredRunner.execute(this, new Runnable() {
+				
+				// Asynchronous : see setCurrentLevel()
+				if (isDisposed()) {
+					return;
+				}
+				SecuredRunner.execute(getDisplay(), new Runnable() {
 					public void run() {
+						if (txtLog.isDisposed()) {
+							return;
+						}
 						int l = fTxt.length();
 						txtLog.append(fTxt);
 						StyleRange rg = resolveStyle(level);
@@ -304,7 +320,7 @@ implements LogProcessor, Refreshable {
 							log(Logger.LOG_LEVEL_WARNING, "Log memory limit reached : the log has been cleared.", null, null);
 						}
 					}
-				});
+				}, true);
 			}
 		} catch (Throwable ignored) {
 			ignored.printStackTrace();
@@ -5,7 +5,9 @@ import java.io.File;
 import java.io.IOException;
 
 import com.application.areca.metadata.AbstractMetadataAdapter.MetadataHeader;
+import com.myJava.file.FileSystemManager;
 import com.myJava.file.iterator.FilePathComparator;
+import com.myJava.util.log.Logger;
 
 /**
  * 
@@ -53,6 +55,12 @@ public abstract class AbstractMetaDataFileIterator {
 	
 	protected boolean closed = false;
 
+	/**
+	 * Sparse index of the file - loaded on the first lookup
+	 */
+	private MetadataIndex index;
+	private boolean indexLoaded = false;
+
 	protected AbstractMetaDataFileIterator(BufferedReader reader, AbstractMetadataAdapter adapter) throws IOException {
 		this.in = reader;
 		this.adapter = adapter;
@@ -99,8 +107,12 @@ public abstract class AbstractMetaDataFileIterator {
 	
 	/**
 	 * Iterates until the key provided as argument is found or passed
+	 * <BR>If the file is indexed, the blocks that are located before the key's block are skipped without being read.
 	 */
 	public boolean fetch(String key) throws IOException {
+		if (this.pointer != null && key != null && key.length() != 0) {
+			seek(key);
+		}
 		while (true) {
 			if (this.pointer == null) {
 				// End of file
@@ -123,6 +135,35 @@ public abstract class AbstractMetaDataFileIterator {
 		}
 	}
 	
+	/**
+	 * Move to the block that contains the key if at least one block can be skipped
+	 */
+	private void seek(String key) throws IOException {
+		if (! indexLoaded) {
+			index = adapter.getIndex();
+			indexLoaded = true;
+		}
+		if (index == null) {
+			return;
+		}
+
+		int block = index.locate(key);
+		if (block > index.locate(this.pointer.getKey()) + 1) {
+			in.close();
+			in = adapter.openReader(index.getPosition(block));
+			fetchNext();
+
+			if (this.pointer == null || FilePathComparator.instance().compare(this.pointer.getKey(), index.getKey(block)) != 0) {
+				// Should not happen : the index doesn't match the file -> read the file from its beginning
+				Logger.defaultLogger().warn("Inconsistent metadata index for " + FileSystemManager.getDisplayPath(adapter.file) + ". It will be ignored.");
+				index = null;
+				in.close();
+				in = adapter.openReader(0);
+				fetchNext();
+			}
+		}
+	}
+	
 	public AbstractMetaDataEntry nextEntry() throws IOException {
 		AbstractMetaDataEntry ret = this.pointer;
 		fetchNext();
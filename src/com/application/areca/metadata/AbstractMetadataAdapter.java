@@ -8,17 +8,19 @@ import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
-import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
 
 import com.application.areca.ArecaConfiguration;
 import com.application.areca.version.VersionInfos;
 import com.myJava.file.FileSystemManager;
 import com.myJava.file.FileTool;
+import com.myJava.file.codec.CodecRegistry;
+import com.myJava.file.codec.CompressionCodec;
 import com.myJava.util.log.Logger;
 
 /**
  * Abstract implementation for metada adapters
+ * <BR>Metadata files are compressed with a CompressionCodec (see setCodec()). Compressed files are self-describing :
+ * the decoder is selected according to the first bytes of the file (or of the block, for indexed files).
  * <BR>
  * @author Olivier PETRUCCI
  * <BR>
@@ -72,9 +74,9 @@ public abstract class AbstractMetadataAdapter {
 	private OutputStream outputStream;
 
 	/**
-	 * Tells wether the content is compressed or not
+	 * Codec used to compress the content - null if the content is not compressed
 	 */
-	private boolean isCompressed = true;
+	private CompressionCodec codec;
 
 	/**
 	 * Global prefix of the metadata file. All names are considered relative to this prefix
@@ -98,10 +100,28 @@ public abstract class AbstractMetadataAdapter {
 	 */
 	protected AbstractMetadataAdapter secondaryAdapter;
 
+	/**
+	 * Number of entries between two keys of the sparse index (0 = the file is not indexed)
+	 */
+	private int indexInterval = 0;
+
+	/**
+	 * Sparse index - built while the file is written ("write" mode)
+	 */
+	private MetadataIndex writtenIndex;
+	private BlockOutputStream blockStream;
+	private long writtenEntries = 0;
+
+	/**
+	 * Sparse index in "read" mode
+	 */
+	private MetadataIndex index;
+	private boolean indexRead = false;
+
 	public AbstractMetadataAdapter(File file, String globalPrefix, boolean compressed) {
 		this.file = file;
 		this.globalPrefix = globalPrefix;
-		this.isCompressed = compressed;
+		this.codec = compressed ? CodecRegistry.getCodec(ArecaConfiguration.get().getMetadataCodec()) : null;
 	}
 
 	private void initOutputStream() throws IOException {
@@ -111,9 +131,18 @@ public abstract class AbstractMetadataAdapter {
 				TOOL.createDir(parent);
 			}
 
-			if (isCompressed) {
+			if (indexInterval > 0) {
+				// Indexed file : written by blocks
+				MetadataIndex.delete(file);
+				this.blockStream = new BlockOutputStream(
+						FileSystemManager.getCachedFileOutputStream(file), // METADATA are written in "cached" mode
+						codec
+				);
+				this.outputStream = blockStream;
+				this.writtenIndex = new MetadataIndex();
+			} else if (codec != null) {
 				// Metadata are compressed
-				this.outputStream = new GZIPOutputStream(
+				this.outputStream = codec.getOutputStream(
 						FileSystemManager.getCachedFileOutputStream(file) // METADATA are written in "cached" mode
 				);
 			} else {
@@ -125,6 +154,26 @@ public abstract class AbstractMetadataAdapter {
 	public File getFile() {
 		return file;
 	}
+
+	/**
+	 * Set the codec used to compress the file (null for no compression).
+	 * <BR>Must be called before any entry is written.
+	 */
+	public void setCodec(CompressionCodec codec) {
+		this.codec = codec;
+	}
+
+	public CompressionCodec getCodec() {
+		return codec;
+	}
+
+	/**
+	 * Write a sparse index of the file's keys, which allows random access lookups (see AbstractMetaDataFileIterator.fetch()).
+	 * <BR>Must be called before any entry is written.
+	 */
+	public void setIndexed(boolean indexed) {
+		this.indexInterval = indexed ? ArecaConfiguration.get().getMetadataIndexInterval() : 0;
+	}
 	
 	private void initWriter() throws IOException {
 		if (writer == null) {
@@ -136,7 +185,13 @@ public abstract class AbstractMetadataAdapter {
 
 	protected void write(String content) throws IOException {
 		this.initWriter();
-		this.writer.write("\r\n" + content);
+		if (writtenIndex != null && writtenEntries++ % indexInterval == 0) {
+			// Start a new block
+			this.writer.flush();
+			writtenIndex.add(blockStream.newBlock(), decodeEntry(content).getKey());
+		}
+		this.writer.write("\r\n");
+		this.writer.write(content);
 
 		// Write in secondary Adapter
 		if (this.secondaryAdapter != null) {
@@ -172,6 +227,16 @@ public abstract class AbstractMetadataAdapter {
 				}
 			}
 
+			if (writtenIndex != null) {
+				try {
+					writtenIndex.write(file);
+				} catch (IOException e) {
+					// The index is only an optimization : the file can be read without it
+					Logger.defaultLogger().warn("Error writing the index of " + FileSystemManager.getDisplayPath(file) + ".", e);
+					MetadataIndex.delete(file);
+				}
+			}
+
 			/*
 			if (! FileSystemManager.exists(file)) {
 				TOOL.createDir(FileSystemManager.getParentFile(file));
@@ -187,13 +252,61 @@ public abstract class AbstractMetadataAdapter {
 	}
 
 	protected InputStream buildInputStream() throws IOException {
-		if (isCompressed && FileSystemManager.length(file) != 0) {
-			return new GZIPInputStream(FileSystemManager.getCachedFileInputStream(file));
+		if (FileSystemManager.length(file) != 0) {
+			return CodecRegistry.getInputStream(new BlockInputStream(FileSystemManager.getCachedFileInputStream(file)));
 		} else {
 			return FileSystemManager.getCachedFileInputStream(file);
 		}
 	}
 
+	/**
+	 * Open a reader on the file's entries, starting at the position provided as argument (block position - see MetadataIndex)
+	 * <BR>The file's header is skipped if the position is 0.
+	 */
+	protected BufferedReader openReader(long position) throws IOException {
+		String encoding = getMetaData().getEncoding();
+		InputStream in;
+		if (position == 0) {
+			in = buildInputStream();
+		} else {
+			InputStream raw = FileSystemManager.getCachedFileInputStream(file);
+			try {
+				long remaining = position;
+				while (remaining > 0) {
+					long skipped = raw.skip(remaining);
+					if (skipped <= 0) {
+						if (raw.read() == -1) {
+							throw new IOException("Unexpected end of file : " + FileSystemManager.getDisplayPath(file));
+						}
+						skipped = 1;
+					}
+					remaining -= skipped;
+				}
+			} catch (IOException e) {
+				raw.close();
+				throw e;
+			}
+			in = CodecRegistry.getInputStream(new BlockInputStream(raw));
+		}
+
+		BufferedReader reader = new BufferedReader(encoding == null ? new InputStreamReader(in) : new InputStreamReader(in, encoding));
+		if (position == 0) {
+			skipHeader(reader);
+		}
+		return reader;
+	}
+
+	/**
+	 * Return the file's sparse index, or null if the file is not indexed
+	 */
+	public MetadataIndex getIndex() {
+		if (! indexRead) {
+			index = MetadataIndex.read(file);
+			indexRead = true;
+		}
+		return index;
+	}
+
 	protected MetadataHeader getMetaData() throws IOException {
 		if (this.header == null) {
 			long version = 0L;
@@ -245,6 +358,16 @@ public abstract class AbstractMetadataAdapter {
 	
 	protected abstract AbstractMetadataAdapter buildReader(File sourceFile) throws IOException;
 	
+	/**
+	 * Copy the content of the files passed as argument (in this order) to the destination adapter.
+	 * <BR>The destination adapter is not closed - further data can be happened
+	 */
+	public void bulkInit(File[] sourceFiles) throws IOException {
+		for (int i=0; i<sourceFiles.length; i++) {
+			bulkInit(sourceFiles[i]);
+		}
+	}
+	
 	/**
 	 * Copy the content to the destination adapter.
 	 * <BR>The destination adapter is not closed - further data can be happened
@@ -0,0 +1,58 @@
+package com.application.areca.metadata;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+
+/**
+ * InputStream used to read compressed metadata files, which may contain several GZIP members (see BlockOutputStream).
+ * <BR>The GZIPInputStream only reads the next member if the underlying stream reports available data : this stream makes
+ * sure that available() doesn't return 0 before the end of the stream (which is not guaranteed by some streams, such as
+ * cipher streams).
+ * <BR>
+ * @author Olivier PETRUCCI
+ * <BR>
+ *
+ */
+
+ /*
+ Copyright 2005-2015, Olivier PETRUCCI.
+
+This file is part of Areca.
+
+    Areca is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    Areca is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Areca; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+ */
+public class BlockInputStream extends FilterInputStream {
+	public BlockInputStream(InputStream in) {
+		super(new PushbackInputStream(in));
+	}
+
+	public int available() throws IOException {
+		int available = in.available();
+		if (available > 0) {
+			return available;
+		}
+
+		int b = in.read();
+		if (b == -1) {
+			return 0;
+		} else {
+			((PushbackInputStream)in).unread(b);
+			return 1;
+		}
+	}
+}
@@ -0,0 +1,123 @@
+package com.application.areca.metadata;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import com.myJava.file.codec.CompressionCodec;
+
+/**
+ * OutputStream used to write indexed metadata files.
+ * <BR>The data are split in blocks that can be read independently : if the stream is compressed, each block is written
+ * as a distinct compressed stream, starting with the codec's header (the codecs read concatenated streams as a single stream :
+ * with GZIP, the resulting file is still a standard GZIP file).
+ * <BR>The position of each block in the underlying stream is returned by the newBlock() method.
+ * <BR>
+ * @author Olivier PETRUCCI
+ * <BR>
+ *
+ */
+
+ /*
+ Copyright 2005-2015, Olivier PETRUCCI.
+
+This file is part of Areca.
+
+    Areca is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    Areca is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Areca; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+ */
+public class BlockOutputStream extends OutputStream {
+	private OutputStream out;
+	private long position = 0;
+	private OutputStream counter;
+	private CompressionCodec codec;
+	private OutputStream block;
+
+	/**
+	 * @param out Underlying stream
+	 * @param codec Codec used to compress the blocks - null if the stream is not compressed
+	 */
+	public BlockOutputStream(OutputStream out, CompressionCodec codec) throws IOException {
+		this.out = out;
+		this.codec = codec;
+		this.counter = new CountingOutputStream();
+		if (codec != null) {
+			this.block = codec.getOutputStream(counter);
+		}
+	}
+
+	/**
+	 * Terminate the current block and start a new one
+	 * @return The position of the new block in the underlying stream
+	 */
+	public long newBlock() throws IOException {
+		if (block != null) {
+			block.close(); // doesn't close the underlying stream
+			long blockPosition = position;
+			block = codec.getOutputStream(counter);
+			return blockPosition;
+		} else {
+			return position;
+		}
+	}
+
+	public void write(int b) throws IOException {
+		getStream().write(b);
+	}
+
+	public void write(byte[] b, int off, int len) throws IOException {
+		getStream().write(b, off, len);
+	}
+
+	public void write(byte[] b) throws IOException {
+		getStream().write(b, 0, b.length);
+	}
+
+	public void flush() throws IOException {
+		getStream().flush();
+	}
+
+	public void close() throws IOException {
+		try {
+			if (block != null) {
+				block.close();
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	private OutputStream getStream() {
+		return block == null ? counter : block;
+	}
+
+	/**
+	 * Counts the bytes written in the underlying stream - doesn't close it
+	 */
+	private class CountingOutputStream extends OutputStream {
+		public void write(int b) throws IOException {
+			out.write(b);
+			position++;
+		}
+
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+			position += len;
+		}
+
+		public void flush() throws IOException {
+			out.flush();
+		}
+	}
+}
@@ -0,0 +1,175 @@
+package com.application.areca.metadata;
+
+import java.io.IOException;
+
+import com.myJava.file.iterator.FilePathComparator;
+import com.myJava.object.ToStringHelper;
+
+/**
+ * Merges several sorted metadata iterators (typically : one per archive).
+ * <BR>The iterators are stored in a binary heap ordered by current key ; when several iterators are positioned on the same key,
+ * the one with the highest index (the most recent archive) comes first.
+ * <BR>Finding the next key costs O(log(number of iterators)) comparisons instead of a comparison with each iterator.
+ * <BR>The iterators are not closed by this class.
+ * <BR>
+ * @author Olivier PETRUCCI
+ * <BR>
+ *
+ */
+
+ /*
+ Copyright 2005-2015, Olivier PETRUCCI.
+
+This file is part of Areca.
+
+    Areca is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    Areca is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Areca; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+ */
+public class MetaDataIteratorHeap {
+	private static final FilePathComparator COMPARATOR = FilePathComparator.instance();
+
+	private AbstractMetaDataFileIterator[] iters;
+
+	/**
+	 * Current key of each iterator (by iterator index)
+	 */
+	private String[] keys;
+
+	/**
+	 * Heap of iterator indexes - only contains the iterators that have not been fully read
+	 */
+	private int[] heap;
+	private int size = 0;
+
+	public MetaDataIteratorHeap(AbstractMetaDataFileIterator[] iters) {
+		this.iters = iters;
+		this.keys = new String[iters.length];
+		this.heap = new int[iters.length];
+
+		for (int i=0; i<iters.length; i++) {
+			if (iters[i] != null && iters[i].currentEntry() != null) {
+				keys[i] = iters[i].currentEntry().getKey();
+				heap[size++] = i;
+			}
+		}
+		for (int i=size/2 - 1; i>=0; i--) {
+			siftDown(i);
+		}
+	}
+
+	/**
+	 * Return the index of the iterator that is positioned on the lowest key, or -1 if all iterators have been read.
+	 */
+	public int current() {
+		return size == 0 ? -1 : heap[0];
+	}
+
+	/**
+	 * Return the lowest current entry, or null if all iterators have been read
+	 */
+	public AbstractMetaDataEntry currentEntry() {
+		return size == 0 ? null : iters[heap[0]].currentEntry();
+	}
+
+	/**
+	 * Move the iterator returned by current() to its next entry
+	 */
+	public void next() throws IOException {
+		if (size != 0) {
+			iters[heap[0]].nextEntry();
+			update();
+		}
+	}
+
+	/**
+	 * Move the iterators until the key provided as argument is found or passed (see AbstractMetaDataFileIterator.fetch())
+	 * <BR>Return the highest index of the iterators that contain the key, or -1 if no iterator contains it.
+	 */
+	public int fetch(String key) throws IOException {
+		if (key != null && key.length() == 0) {
+			// Same behavior as AbstractMetaDataFileIterator.fetch()
+			for (int i=iters.length-1; i>=0; i--) {
+				if (iters[i] != null && iters[i].currentEntry() != null) {
+					return i;
+				}
+			}
+			return -1;
+		}
+
+		while (size != 0) {
+			int top = heap[0];
+			int result = COMPARATOR.compare(keys[top], key);
+			if (result == 0) {
+				return top;
+			} else if (result > 0) {
+				return -1;
+			} else {
+				iters[top].fetch(key);
+				update();
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Restore the heap after the first iterator was moved
+	 */
+	private void update() {
+		int top = heap[0];
+		AbstractMetaDataEntry entry = iters[top].currentEntry();
+		if (entry == null) {
+			heap[0] = heap[--size];
+		} else {
+			keys[top] = entry.getKey();
+		}
+		if (size != 0) {
+			siftDown(0);
+		}
+	}
+
+	private void siftDown(int position) {
+		int value = heap[position];
+		while (true) {
+			int child = 2 * position + 1;
+			if (child >= size) {
+				break;
+			}
+			if (child + 1 < size && lower(heap[child + 1], heap[child])) {
+				child++;
+			}
+			if (! lower(heap[child], value)) {
+				break;
+			}
+			heap[position] = heap[child];
+			position = child;
+		}
+		heap[position] = value;
+	}
+
+	/**
+	 * Tell whether the current entry of the i1 iterator comes before the current entry of the i2 iterator
+	 */
+	private boolean lower(int i1, int i2) {
+		int result = COMPARATOR.compare(keys[i1], keys[i2]);
+		return result < 0 || (result == 0 && i1 > i2);
+	}
+
+	public String toString() {
+		StringBuffer sb = ToStringHelper.init(this);
+		ToStringHelper.append("Iterators", iters.length, sb);
+		ToStringHelper.append("Remaining", size, sb);
+		return ToStringHelper.close(sb);
+	}
+}
@@ -1,7 +1,5 @@
 package com.application.areca.metadata;
 
-import com.myJava.util.Util;
-
 /**
  * <BR>
  * @author Olivier PETRUCCI
@@ -36,29 +34,123 @@ public class MetadataEncoder implements MetadataConstants {
 		return INSTANCE;
 	}
 	
-    private static final String SPEC_CHAR = "@";
-    private static final String SC_AROBASE = "@@";
-    private static final String SC_R = "@R";
-    private static final String SC_N = "@N";
-    private static final String SC_RESERVED = "@>";
+	/*
+	 * Escape sequences :
+	 * '@'  -> "@@"
+	 * ';'  -> "@P" (SC_SEMICOLON)
+	 * '\r' -> "@R"
+	 * '\n' -> "@N"
+	 * 
+	 * Strings are encoded and decoded in a single pass ; they are returned as is if they don't contain any character
+	 * to escape (or any escape sequence)
+	 */
+    private static final char SPEC_CHAR = '@';
+    private static final char SC_AROBASE = '@';
+    private static final char SC_SEMICOLON_CHAR = SC_SEMICOLON.charAt(1);
+    private static final char SC_R = 'R';
+    private static final char SC_N = 'N';
+    private static final char SC_RESERVED = '>';
+    private static final char SEPARATOR_CHAR = SEPARATOR.charAt(0);
 
-    
     public String encode(String in) {
-    	String out = in;
-    	out = Util.replace(out, SPEC_CHAR, SC_AROBASE);
-    	out = Util.replace(out, SEPARATOR, SC_SEMICOLON);
-    	out = Util.replace(out, "\r", SC_R);
-    	out = Util.replace(out, "\n", SC_N);
-    	return out;
+    	if (in == null) {
+    		return null;
+    	}
+    	int len = in.length();
+    	int i = 0;
+    	while (i < len && ! isSpecial(in.charAt(i))) {
+    		i++;
+    	}
+    	if (i == len) {
+    		return in;
+    	}
+
+    	char[] out = new char[2 * len];
+    	in.getChars(0, i, out, 0);
+    	int o = i;
+    	for (; i<len; i++) {
+    		char c = in.charAt(i);
+    		if (isSpecial(c)) {
+    			out[o++] = SPEC_CHAR;
+    			out[o++] = escape(c);
+    		} else {
+    			out[o++] = c;
+    		}
+    	}
+    	return new String(out, 0, o);
+    }
+    
+    /**
+     * Encode the String and append the result to the buffer
+     */
+    public void encode(String in, StringBuffer out) {
+    	int len = in.length();
+    	for (int i=0; i<len; i++) {
+    		char c = in.charAt(i);
+    		if (isSpecial(c)) {
+    			out.append(SPEC_CHAR).append(escape(c));
+    		} else {
+    			out.append(c);
+    		}
+    	}
     }
     
     public String decode(String in) {
-    	String out = in;
-    	out = Util.replace(out, SC_AROBASE, SC_RESERVED);
-    	out = Util.replace(out, SC_SEMICOLON, SEPARATOR);
-    	out = Util.replace(out, SC_R, "\r");
-    	out = Util.replace(out, SC_N, "\n");
-    	out = Util.replace(out, SC_RESERVED, SPEC_CHAR);
-    	return out;
+    	if (in == null) {
+    		return null;
+    	}
+    	return decode(in, 0, in.length());
+    }
+    
+    /**
+     * Decode the substring located between the "begin" (inclusive) and "end" (exclusive) indexes
+     */
+    public String decode(String in, int begin, int end) {
+    	int i = in.indexOf(SPEC_CHAR, begin);
+    	if (i == -1 || i >= end) {
+    		return in.substring(begin, end);
+    	}
+
+    	char[] out = new char[end - begin];
+    	in.getChars(begin, i, out, 0);
+    	int o = i - begin;
+    	while (i < end) {
+    		char c = in.charAt(i++);
+    		if (c != SPEC_CHAR || i == end) {
+    			out[o++] = c;
+    		} else {
+    			char n = in.charAt(i);
+    			if (n == SC_AROBASE || n == SC_RESERVED) {
+    				out[o++] = SPEC_CHAR;
+    				i++;
+    			} else if (n == SC_SEMICOLON_CHAR) {
+    				out[o++] = SEPARATOR_CHAR;
+    				i++;
+    			} else if (n == SC_R) {
+    				out[o++] = '\r';
+    				i++;
+    			} else if (n == SC_N) {
+    				out[o++] = '\n';
+    				i++;
+    			} else {
+    				// Not an escape sequence
+    				out[o++] = c;
+    			}
+    		}
+    	}
+    	return new String(out, 0, o);
+    }
+    
+    private static boolean isSpecial(char c) {
+    	return c == SPEC_CHAR || c == SEPARATOR_CHAR || c == '\r' || c == '\n';
+    }
+    
+    private static char escape(char c) {
+    	switch (c) {
+    	case SPEC_CHAR: return SC_AROBASE;
+    	case '\r': return SC_R;
+    	case '\n': return SC_N;
+    	default: return SC_SEMICOLON_CHAR;
+    	}
     }
 }
@@ -0,0 +1,185 @@
+package com.application.areca.metadata;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import com.myJava.file.FileSystemManager;
+import com.myJava.file.iterator.FilePathComparator;
+import com.myJava.object.ToStringHelper;
+import com.myJava.util.log.Logger;
+
+/**
+ * Sparse index of a metadata file : first key and position of each block of the file (see BlockOutputStream).
+ * <BR>It is stored in a sidecar file, which also contains the length and last modification date of the indexed file ;
+ * the index is ignored if they don't match.
+ * <BR>
+ * <BR>Format :
+ * <BR>#### MDT_INDEX_VERSION=1
+ * <BR>[metadata file length];[metadata file last modification date]
+ * <BR>[block position];[encoded key]
+ * <BR>...
+ * <BR>
+ * @author Olivier PETRUCCI
+ * <BR>
+ *
+ */
+
+ /*
+ Copyright 2005-2015, Olivier PETRUCCI.
+
+This file is part of Areca.
+
+    Areca is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    Areca is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Areca; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+ */
+public class MetadataIndex implements MetadataConstants {
+	private static final String VERSION_HEADER = "#### MDT_INDEX_VERSION=";
+	private static final String VERSION = VERSION_HEADER + "1";
+	private static final String DATA_CHARSET = "UTF-8";
+	private static final String SUFFIX = ".idx";
+
+	private long[] positions = new long[64];
+	private String[] keys = new String[64];
+	private int size = 0;
+
+	public static File getIndexFile(File file) {
+		return new File(FileSystemManager.getParentFile(file), FileSystemManager.getName(file) + SUFFIX);
+	}
+
+	public void add(long position, String key) {
+		if (size == positions.length) {
+			long[] p = new long[2 * size];
+			String[] k = new String[2 * size];
+			System.arraycopy(positions, 0, p, 0, size);
+			System.arraycopy(keys, 0, k, 0, size);
+			positions = p;
+			keys = k;
+		}
+		positions[size] = position;
+		keys[size] = key;
+		size++;
+	}
+
+	public int getSize() {
+		return size;
+	}
+
+	public long getPosition(int block) {
+		return positions[block];
+	}
+
+	public String getKey(int block) {
+		return keys[block];
+	}
+
+	/**
+	 * Return the last block whose first key is lower or equal to the key provided as argument (-1 if there is no such block)
+	 */
+	public int locate(String key) {
+		FilePathComparator comparator = FilePathComparator.instance();
+		int low = 0;
+		int high = size - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			if (comparator.compare(keys[mid], key) <= 0) {
+				low = mid + 1;
+			} else {
+				high = mid - 1;
+			}
+		}
+		return high;
+	}
+
+	/**
+	 * Write the index of the metadata file provided as argument (which must be closed)
+	 */
+	public void write(File file) throws IOException {
+		Writer writer = new OutputStreamWriter(FileSystemManager.getCachedFileOutputStream(getIndexFile(file)), DATA_CHARSET);
+		try {
+			writer.write(VERSION + "\n" + FileSystemManager.length(file) + SEPARATOR + FileSystemManager.lastModified(file) + "\n");
+			for (int i=0; i<size; i++) {
+				writer.write(positions[i] + SEPARATOR + MetadataEncoder.getInstance().encode(keys[i]) + "\n");
+			}
+		} finally {
+			writer.close();
+		}
+	}
+
+	/**
+	 * Delete the index of the metadata file provided as argument
+	 */
+	public static void delete(File file) {
+		File indexFile = getIndexFile(file);
+		if (FileSystemManager.exists(indexFile)) {
+			FileSystemManager.delete(indexFile);
+		}
+	}
+
+	/**
+	 * Read the index of the metadata file provided as argument.
+	 * <BR>Return null if there is no index, or if it doesn't match the metadata file.
+	 */
+	public static MetadataIndex read(File file) {
+		File indexFile = getIndexFile(file);
+		try {
+			if (! FileSystemManager.exists(indexFile)) {
+				return null;
+			}
+
+			BufferedReader reader = new BufferedReader(new InputStreamReader(FileSystemManager.getCachedFileInputStream(indexFile), DATA_CHARSET));
+			try {
+				String line = reader.readLine();
+				if (line == null || ! line.equals(VERSION)) {
+					Logger.defaultLogger().warn("Unsupported metadata index : " + FileSystemManager.getDisplayPath(indexFile) + ". It will be ignored.");
+					return null;
+				}
+
+				line = reader.readLine();
+				String expected = "" + FileSystemManager.length(file) + SEPARATOR + FileSystemManager.lastModified(file);
+				if (line == null || ! line.equals(expected)) {
+					Logger.defaultLogger().fine("Outdated metadata index : " + FileSystemManager.getDisplayPath(indexFile) + ". It will be ignored.");
+					return null;
+				}
+
+				MetadataIndex index = new MetadataIndex();
+				while ((line = reader.readLine()) != null) {
+					if (line.length() != 0) {
+						int idx = line.indexOf(SEPARATOR);
+						index.add(
+								Long.parseLong(line.substring(0, idx)), 
+								MetadataEncoder.getInstance().decode(line, idx + SEPARATOR.length(), line.length())
+						);
+					}
+				}
+				return index;
+			} finally {
+				reader.close();
+			}
+		} catch (Exception e) {
+			Logger.defaultLogger().warn("Error reading metadata index : " + FileSystemManager.getDisplayPath(indexFile) + ". It will be ignored.", e);
+			return null;
+		}
+	}
+
+	public String toString() {
+		StringBuffer sb = ToStringHelper.init(this);
+		ToStringHelper.append("Blocks", size, sb);
+		return ToStringHelper.close(sb);
+	}
+}
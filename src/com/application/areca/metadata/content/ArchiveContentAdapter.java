@@ -114,7 +114,7 @@ public class ArchiveContentAdapter extends AbstractMetadataAdapter {
 			key = MetadataEncoder.getInstance().decode(serialized);
 			data = null;
 		} else {
-			key = MetadataEncoder.getInstance().decode(serialized.substring(0, index));
+			key = MetadataEncoder.getInstance().decode(serialized, 0, index);
 			data = serialized.substring(index + MetadataConstants.SEPARATOR.length());
 		} 
 
@@ -53,6 +53,8 @@ public interface ManifestKeys {
     public static final String IS_RESUMED = "Resumed";
     public static final String JRE = "JRE";
     public static final String ARECA_HOME = "Areca Home";
+    public static final String METADATA_CODEC = "Metadata compression codec";
+    public static final String DATA_CODEC = "Data compression codec";
     
     public static final String OPTION_PREFIX = "Option [";
     public static final String OPTION_SUFFIX = "]";
@@ -6,6 +6,7 @@ import java.util.zip.GZIPInputStream;
 
 import com.application.areca.ApplicationException;
 import com.application.areca.ArecaConfiguration;
+import com.application.areca.cache.ArchiveManifestCache;
 import com.application.areca.impl.AbstractFileSystemMedium;
 import com.myJava.file.FileSystemManager;
 import com.myJava.file.FileTool;
@@ -75,6 +76,9 @@ public class ManifestManager {
             File manifestFile = new File(metadataDir, medium.getManifestName());
             XMLManifestAdapter adapter = new XMLManifestAdapter(ArecaConfiguration.get().useGzip());
             adapter.write(mf, manifestFile);
+            
+            // The cached manifest (if any) is no longer valid
+            ArchiveManifestCache.getInstance().removeManifest(medium, archive);
         } catch (AdapterException e) {
             Logger.defaultLogger().error("An error occurred while writing the manifest file for the following archive : " + FileSystemManager.getDisplayPath(archive), e);
             throw new ApplicationException("An error occurred while writing the manifest file for the following archive : " + FileSystemManager.getDisplayPath(archive), e);    
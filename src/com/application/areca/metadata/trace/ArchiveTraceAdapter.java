@@ -48,6 +48,11 @@ This file is part of Areca.
 public class ArchiveTraceAdapter extends AbstractMetadataAdapter {
 	protected boolean trackSymlinks;
 
+	/**
+	 * Optional writer of the trace's binary version
+	 */
+	protected BinaryTraceWriter binaryWriter;
+
 	private ArchiveTraceAdapter(File traceFile) throws IOException {
 		this(traceFile, null, false);
 	}
@@ -57,13 +62,26 @@ public class ArchiveTraceAdapter extends AbstractMetadataAdapter {
 		this.trackSymlinks = trackSymlinks;
 	}
 
+	public void setBinaryWriter(BinaryTraceWriter binaryWriter) {
+		this.binaryWriter = binaryWriter;
+	}
+
 	public void writeEntry(FileSystemRecoveryEntry entry, String shaBase64) 
 	throws IOException, FileMetaDataSerializationException {
-		write(ArchiveTraceParser.serialize(entry, trackSymlinks, shaBase64));
+		String serialized = ArchiveTraceParser.serialize(entry, trackSymlinks, shaBase64);
+		write(serialized);
+		if (binaryWriter != null) {
+			// The encoded key doesn't contain any separator
+			int idx = serialized.indexOf(MetadataConstants.SEPARATOR);
+			binaryWriter.add(serialized.charAt(0), entry.getKey(), serialized.substring(idx + MetadataConstants.SEPARATOR.length()));
+		}
 	}
 
 	public void writeEntry(char type, String key, String data) throws IOException {
 		write(type + MetadataEncoder.getInstance().encode(key) + MetadataConstants.SEPARATOR + data);
+		if (binaryWriter != null) {
+			binaryWriter.add(type, key, data);
+		}
 	}
 
 	/**
@@ -124,7 +142,7 @@ public class ArchiveTraceAdapter extends AbstractMetadataAdapter {
 			key = MetadataEncoder.getInstance().decode(serialized);
 			hash = null;
 		} else {
-			key = MetadataEncoder.getInstance().decode(serialized.substring(0, index));
+			key = MetadataEncoder.getInstance().decode(serialized, 0, index);
 			hash = serialized.substring(index + MetadataConstants.SEPARATOR.length());
 		}
 		//handle current directory
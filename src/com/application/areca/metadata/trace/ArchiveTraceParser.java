@@ -228,13 +228,11 @@ public class ArchiveTraceParser {
 	public static String extractSymLinkPathFromTrace(String trace) {
 		try {
 			int idx = trace.indexOf(MetadataConstants.SEPARATOR);
-			String p;
 			if (idx == -1) {
-				p = trace.substring(1);
+				return MetadataEncoder.getInstance().decode(trace, 1, trace.length());
 			} else {
-				p = trace.substring(1, idx);
+				return MetadataEncoder.getInstance().decode(trace, 1, idx);
 			}
-			return MetadataEncoder.getInstance().decode(p);
 		} catch (RuntimeException e) {
 			processException(trace, e);
 			throw e;
@@ -268,23 +266,23 @@ public class ArchiveTraceParser {
 		StringBuffer sb = new StringBuffer();
 		short type = FileSystemManager.getType(entry.getFile());
 		if (trackSymlinks && FileMetaDataAccessor.TYPE_LINK == type) {      
+			sb.append(MetadataConstants.T_SYMLINK);
+			MetadataEncoder.getInstance().encode(entry.getKey(), sb);
 			sb
-			.append(MetadataConstants.T_SYMLINK)                
-			.append(MetadataEncoder.getInstance().encode(entry.getKey()))
 			.append(MetadataConstants.SEPARATOR)
 			.append(hash(entry, true))
 			.append(MetadataConstants.SEPARATOR)
 			.append(FileSystemManager.lastModified(entry.getFile()));
 		} else if (trackSymlinks && FileMetaDataAccessor.TYPE_PIPE == type) {      
+			sb.append(MetadataConstants.T_PIPE);
+			MetadataEncoder.getInstance().encode(entry.getKey(), sb);
 			sb
-			.append(MetadataConstants.T_PIPE)                
-			.append(MetadataEncoder.getInstance().encode(entry.getKey()))
 			.append(MetadataConstants.SEPARATOR)
 			.append(FileSystemManager.lastModified(entry.getFile())); 
 		} else if (FileSystemManager.isFile(entry.getFile())) {
+			sb.append(MetadataConstants.T_FILE);
+			MetadataEncoder.getInstance().encode(entry.getKey(), sb);
 			sb
-			.append(MetadataConstants.T_FILE)
-			.append(MetadataEncoder.getInstance().encode(entry.getKey()))
 			.append(MetadataConstants.SEPARATOR)
 			.append(hash(entry, false)) 
 			.append(MetadataConstants.SEPARATOR);
@@ -293,9 +291,9 @@ public class ArchiveTraceParser {
 				sb.append(shaBase64);
 			}
 		} else {
+			sb.append(MetadataConstants.T_DIR);
+			MetadataEncoder.getInstance().encode(entry.getKey(), sb);
 			sb
-			.append(MetadataConstants.T_DIR)
-			.append(MetadataEncoder.getInstance().encode(entry.getKey()))
 			.append(MetadataConstants.SEPARATOR)
 			.append(FileSystemManager.lastModified(entry.getFile())); 
 		}
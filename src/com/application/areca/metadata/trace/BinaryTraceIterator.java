@@ -0,0 +1,260 @@
+package com.application.areca.metadata.trace;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.application.areca.metadata.MetadataConstants;
+import com.myJava.file.delta.tools.IOHelper;
+import com.myJava.file.iterator.FilePathComparator;
+import com.myJava.object.ToStringHelper;
+
+/**
+ * Reads the binary version of a trace file, written by a BinaryTraceWriter.
+ * <BR>It is a local copy of the text trace, which remains the reference format. It is used by the backup process
+ * to detect unchanged files : keys and file attributes are compared with the current entry without decoding any String.
+ * <BR>
+ * <BR>File layout (little endian, as IOHelper) :
+ * <BR>- header : magic (int), version (short), reserved (short), text trace length (long), text trace last modification date (long)
+ * <BR>- entries : type marker (byte), key length (int), key chars (2 bytes each), size (long), last modification date (long),
+ * sha length (short - NO_SHA if the trace doesn't contain any sha), sha (base64 - ASCII characters)
+ * <BR>Size and date are set to -1 for entries that are not files.
+ * <BR>
+ * <BR>This class is not thread-safe.
+ * <BR>
+ * @author Olivier PETRUCCI
+ * <BR>
+ *
+ */
+
+ /*
+ Copyright 2005-2015, Olivier PETRUCCI.
+
+This file is part of Areca.
+
+    Areca is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    Areca is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Areca; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+ */
+public class BinaryTraceIterator implements MetadataConstants {
+	public static final int MAGIC = 0x43525441; // "ATRC"
+	public static final short VERSION = 1;
+	public static final int HEADER_SIZE = 24;
+	public static final int NO_SHA = 0xFFFF;
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+	private static final int FIXED_SIZE = 1 + 4; // type + key length
+	private static final int ATTRIBUTES_SIZE = 8 + 8 + 2; // size + date + sha length
+
+	private File file;
+	private InputStream in;
+	private byte[] buffer = new byte[BUFFER_SIZE];
+	private int bufferPosition = 0;
+	private int bufferLength = 0;
+
+	// Current entry
+	private boolean hasCurrent = false;
+	private char type;
+	private char[] key = new char[256];
+	private int keyLength;
+	private long size;
+	private long lastModified;
+	private byte[] sha = new byte[64];
+	private int shaLength;
+
+	private BinaryTraceIterator(File file) {
+		this.file = file;
+	}
+
+	/**
+	 * Open the binary trace.
+	 * <BR>Return null if it doesn't exist or if it was not built from the text trace described by the arguments.
+	 */
+	public static BinaryTraceIterator open(File file, long sourceLength, long sourceLastModified) throws IOException {
+		if (! file.exists()) {
+			return null;
+		}
+
+		BinaryTraceIterator iter = new BinaryTraceIterator(file);
+		iter.in = new FileInputStream(file);
+		boolean ok = false;
+		try {
+			if (iter.fill(HEADER_SIZE)) {
+				byte[] b = iter.buffer;
+				ok =
+					(int)IOHelper.get32(b, 0) == MAGIC
+					&& IOHelper.get16(b, 4) == VERSION
+					&& IOHelper.get64(b, 8) == sourceLength
+					&& IOHelper.get64(b, 16) == sourceLastModified;
+				iter.bufferPosition += HEADER_SIZE;
+			}
+			if (ok) {
+				iter.fetchNext();
+			}
+		} finally {
+			if (! ok) {
+				iter.close();
+			}
+		}
+		return ok ? iter : null;
+	}
+
+	/**
+	 * Make sure that at least "length" bytes are available in the buffer - return false if the end of the file is reached
+	 */
+	private boolean fill(int length) throws IOException {
+		if (bufferLength - bufferPosition >= length) {
+			return true;
+		}
+		if (length > buffer.length) {
+			byte[] tmp = new byte[Math.max(length, 2 * buffer.length)];
+			System.arraycopy(buffer, bufferPosition, tmp, 0, bufferLength - bufferPosition);
+			buffer = tmp;
+		} else {
+			System.arraycopy(buffer, bufferPosition, buffer, 0, bufferLength - bufferPosition);
+		}
+		bufferLength -= bufferPosition;
+		bufferPosition = 0;
+
+		while (bufferLength < length) {
+			int read = in.read(buffer, bufferLength, buffer.length - bufferLength);
+			if (read == -1) {
+				return false;
+			}
+			bufferLength += read;
+		}
+		return true;
+	}
+
+	private void fetchNext() throws IOException {
+		if (! fill(FIXED_SIZE)) {
+			if (bufferLength != bufferPosition) {
+				throw new IOException("Unexpected end of file : " + file.getAbsolutePath());
+			}
+			hasCurrent = false;
+			return;
+		}
+
+		type = (char)(buffer[bufferPosition] & 0xff);
+		keyLength = (int)IOHelper.get32(buffer, bufferPosition + 1);
+		bufferPosition += FIXED_SIZE;
+
+		// Key
+		if (keyLength > key.length) {
+			key = new char[Math.max(keyLength, 2 * key.length)];
+		}
+		ensureAvailable(2 * keyLength + ATTRIBUTES_SIZE);
+		for (int i=0; i<keyLength; i++) {
+			key[i] = (char)IOHelper.get16(buffer, bufferPosition);
+			bufferPosition += 2;
+		}
+
+		// Attributes
+		size = IOHelper.get64(buffer, bufferPosition);
+		lastModified = IOHelper.get64(buffer, bufferPosition + 8);
+		shaLength = IOHelper.get16(buffer, bufferPosition + 16);
+		bufferPosition += ATTRIBUTES_SIZE;
+
+		// Sha
+		if (shaLength != NO_SHA) {
+			if (shaLength > sha.length) {
+				sha = new byte[shaLength];
+			}
+			ensureAvailable(shaLength);
+			System.arraycopy(buffer, bufferPosition, sha, 0, shaLength);
+			bufferPosition += shaLength;
+		}
+		hasCurrent = true;
+	}
+
+	private void ensureAvailable(int length) throws IOException {
+		if (! fill(length)) {
+			throw new IOException("Unexpected end of file : " + file.getAbsolutePath());
+		}
+	}
+
+	public File getSource() {
+		return file;
+	}
+
+	/**
+	 * Tell whether the iterator is positioned on an entry
+	 */
+	public boolean hasCurrent() {
+		return hasCurrent;
+	}
+
+	/**
+	 * Move to the next entry
+	 */
+	public void next() throws IOException {
+		fetchNext();
+	}
+
+	/**
+	 * Compare the key provided as argument with the current entry's key (see FilePathComparator)
+	 */
+	public int compareKey(String other) {
+		return FilePathComparator.instance().compare(other, key, keyLength);
+	}
+
+	public char getType() {
+		return type;
+	}
+
+	/**
+	 * Tell whether the current entry is a file whose size and last modification date are those provided as argument
+	 * <BR>(same result as the comparison of the text traces' hash keys - see ArchiveTraceParser.hash())
+	 */
+	public boolean isUnchanged(long fileSize, long fileLastModified) {
+		return type == T_FILE && size == fileSize && lastModified == fileLastModified;
+	}
+
+	/**
+	 * Return the current entry's SHA hash (base64-encoded), or null if the trace doesn't contain it
+	 */
+	public String getSha() {
+		if (shaLength == NO_SHA) {
+			return null;
+		}
+		char[] c = new char[shaLength];
+		for (int i=0; i<shaLength; i++) {
+			c[i] = (char)(sha[i] & 0xff);
+		}
+		return new String(c);
+	}
+
+	/**
+	 * Return the current entry's key (for debugging purposes : this method allocates a new String)
+	 */
+	public String getKey() {
+		return new String(key, 0, keyLength);
+	}
+
+	public void close() throws IOException {
+		hasCurrent = false;
+		if (in != null) {
+			in.close();
+			in = null;
+		}
+	}
+
+	public String toString() {
+		StringBuffer sb = ToStringHelper.init(this);
+		ToStringHelper.append("File", file, sb);
+		ToStringHelper.append("Current", hasCurrent ? getKey() : null, sb);
+		return ToStringHelper.close(sb);
+	}
+}
@@ -0,0 +1,159 @@
+package com.application.areca.metadata.trace;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+
+import com.application.areca.metadata.MetadataConstants;
+import com.myJava.file.delta.tools.IOHelper;
+
+/**
+ * Writes the binary version of a trace file (see BinaryTraceIterator for the file layout).
+ * <BR>Entries are provided in their text form, in the trace's order.
+ * <BR>The data is written in a temporary file which replaces the target file once the header has been written.
+ * <BR>
+ * @author Olivier PETRUCCI
+ * <BR>
+ *
+ */
+
+ /*
+ Copyright 2005-2015, Olivier PETRUCCI.
+
+This file is part of Areca.
+
+    Areca is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    Areca is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Areca; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+ */
+public class BinaryTraceWriter implements MetadataConstants {
+	private static final String TMP_SUFFIX = ".tmp";
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private File file;
+	private File tmpFile;
+	private OutputStream out;
+
+	public BinaryTraceWriter(File file) throws IOException {
+		this.file = file;
+		this.tmpFile = new File(file.getParentFile(), file.getName() + TMP_SUFFIX);
+		this.out = new BufferedOutputStream(new FileOutputStream(tmpFile), BUFFER_SIZE);
+
+		// The header is written on close
+		out.write(new byte[BinaryTraceIterator.HEADER_SIZE]);
+	}
+
+	/**
+	 * Add an entry
+	 * @param type Type marker (see MetadataConstants)
+	 * @param key Decoded key
+	 * @param data Trace data - size;date[;hash;attributes] for files
+	 */
+	public void add(char type, String key, String data) throws IOException {
+		long size = -1;
+		long lastModified = -1;
+		String sha = null;
+		if (type == T_FILE) {
+			int idx1 = data.indexOf(SEPARATOR);					// size
+			int idx2 = data.indexOf(SEPARATOR, idx1 + 1);		// date
+			if (idx1 == -1) {
+				throw new IOException("Invalid trace data for " + key + " : [" + data + "]");
+			}
+			size = Long.parseLong(data.substring(0, idx1));
+			if (idx2 == -1) {
+				lastModified = Long.parseLong(data.substring(idx1 + 1));
+			} else {
+				lastModified = Long.parseLong(data.substring(idx1 + 1, idx2));
+				int idx3 = data.indexOf(SEPARATOR, idx2 + 1);		// hash
+				sha = idx3 == -1 ? null : data.substring(idx2 + 1, idx3);
+			}
+		}
+
+		out.write(type);
+		IOHelper.writeInt(key.length(), out);
+		for (int i=0; i<key.length(); i++) {
+			IOHelper.writeShort(key.charAt(i), out);
+		}
+		IOHelper.writeLong(size, out);
+		IOHelper.writeLong(lastModified, out);
+		if (sha == null) {
+			IOHelper.writeShort(BinaryTraceIterator.NO_SHA, out);
+		} else {
+			IOHelper.writeShort(sha.length(), out);
+			for (int i=0; i<sha.length(); i++) {
+				out.write(sha.charAt(i)); // base64 : ASCII characters only
+			}
+		}
+	}
+
+	/**
+	 * Write the header and move the temporary file to its final location
+	 * @param sourceLength Length of the text trace
+	 * @param sourceLastModified Last modification date of the text trace
+	 */
+	public void close(long sourceLength, long sourceLastModified) throws IOException {
+		try {
+			out.close();
+			out = null;
+
+			byte[] header = new byte[BinaryTraceIterator.HEADER_SIZE];
+			put(header, 0, BinaryTraceIterator.MAGIC, 4);
+			put(header, 4, BinaryTraceIterator.VERSION, 2);
+			put(header, 8, sourceLength, 8);
+			put(header, 16, sourceLastModified, 8);
+
+			RandomAccessFile raf = new RandomAccessFile(tmpFile, "rw");
+			try {
+				raf.write(header);
+			} finally {
+				raf.close();
+			}
+		} catch (IOException e) {
+			discard();
+			throw e;
+		}
+
+		if (file.exists() && ! file.delete()) {
+			discard();
+			throw new IOException("Unable to delete " + file.getAbsolutePath());
+		}
+		if (! tmpFile.renameTo(file)) {
+			discard();
+			throw new IOException("Unable to rename " + tmpFile.getAbsolutePath() + " to " + file.getAbsolutePath());
+		}
+	}
+
+	/**
+	 * Close the writer and destroy the temporary file
+	 */
+	public void discard() throws IOException {
+		try {
+			if (out != null) {
+				out.close();
+				out = null;
+			}
+		} finally {
+			tmpFile.delete();
+		}
+	}
+
+	private static void put(byte[] b, int off, long v, int len) {
+		for (int i=0; i<len; i++) {
+			b[off + i] = (byte)(v >>> (8 * i));
+		}
+	}
+}
@@ -6,6 +6,7 @@ import java.io.IOException;
 import com.application.areca.impl.AbstractIncrementalFileSystemMedium;
 import com.application.areca.impl.FileSystemTarget;
 import com.application.areca.metadata.AbstractMetaDataFileIterator;
+import com.application.areca.metadata.MetaDataIteratorHeap;
 import com.application.areca.metadata.MetadataConstants;
 import com.myJava.file.FileTool;
 import com.myJava.file.iterator.FilePathComparator;
@@ -67,6 +68,7 @@ public class TraceMerger {
 
 		File tmpFile = FileTool.getInstance().generateNewWorkingFile(null, "areca", "mtrc", true);
 		ArchiveTraceAdapter writer = new ArchiveTraceAdapter(tmpFile, ((FileSystemTarget)medium.getTarget()).getSourceDirectory(), false);
+		medium.configureMetadataAdapter(writer);
 		TraceMerger merger = new TraceMerger(medium, writer, archives, referenceIterator);
 		merger.merge();
 		
@@ -113,18 +115,11 @@ public class TraceMerger {
 				iters[i] = ArchiveTraceAdapter.buildIterator(traceFile);
 			}
 
+			MetaDataIteratorHeap heap = new MetaDataIteratorHeap(iters);
 			String previousKey = null;
 			while (true) {
 				// Look for minimum key
-				int minIndex = -1;
-				for (int i=iters.length-1; i>=0; i--) {
-					if (iters[i].current() != null) {
-						int result = minIndex == -1 ? -1 : FilePathComparator.instance().compare(iters[i].current().getKey(), iters[minIndex].current().getKey());
-						if (result < 0) {
-							minIndex = i;
-						}
-					}
-				}
+				int minIndex = heap.current();
 
 				// Nothing more to read
 				if (minIndex == -1) {
@@ -161,7 +156,7 @@ public class TraceMerger {
 				}
 
 				// Fetch next entry
-				iters[minIndex].next();
+				heap.next();
 			}
 		} finally {
 			try {
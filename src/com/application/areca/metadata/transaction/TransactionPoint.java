@@ -8,8 +8,10 @@ import java.io.ObjectOutputStream;
 import java.io.ObjectStreamClass;
 import java.io.OutputStream;
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
+import java.util.List;
 
 import com.application.areca.ArecaConfiguration;
 import com.application.areca.ArecaFileConstants;
@@ -58,6 +60,7 @@ This file is part of Areca.
 public class TransactionPoint implements Serializable {
 	private static final long serialVersionUID = 4126323377242827776L;
 	private static final String PROCESS_CONTEXT_FILE = "context.bin";
+	private static final String SEGMENTS_FILE = "segments";
 	private static final int DIGITS = (int)(16 - Math.log10(ArecaConfiguration.get().getTransactionSize()));
 
 	private File rootPath;
@@ -81,14 +84,25 @@ public class TransactionPoint implements Serializable {
 	private transient TransactionPoint previousTP;
 	private transient TransactionPointHeader header;
 
+	/**
+	 * Indexes of the transaction points (segments) whose files hold the data of this transaction point, in the order they were written.
+	 * <BR>Each transaction point only holds the entries written since the previous one : the data are the concatenation of the segments
+	 * (the last segment being this transaction point).
+	 * <BR>Read from the SEGMENTS_FILE when the transaction point is loaded.
+	 */
+	private transient List segments;
+
 	public TransactionPoint(File rootPath, TransactionPoint previousTP) {
 		this.previousTP = previousTP;
 
 		if (previousTP != null) {
 			initAttributes(rootPath, previousTP.index + 1);
+			this.segments = new ArrayList(previousTP.getSegments());
 		} else {
 			initAttributes(rootPath, 0);
+			this.segments = new ArrayList();
 		}
+		this.segments.add(new Integer(index));
 	}
 
 	private TransactionPoint(File rootPath, int index) {
@@ -102,12 +116,7 @@ public class TransactionPoint implements Serializable {
 	private void initAttributes(File rootPath, int index) {
 		this.rootPath = rootPath;
 		this.index = index;
-		
-		String nb = "" + index;
-		while (nb.length() < DIGITS) {
-			nb = "0" + nb;
-		}
-		this.computedPath = new File(new File(rootPath, ArecaFileConstants.TRANSACTION_FILE), nb);
+		this.computedPath = buildPath(rootPath, index);
 		
 		this.hashFile = new File(this.computedPath, ArecaFileConstants.HASH_FILE);
 		this.traceFile = new File(this.computedPath, ArecaFileConstants.TRACE_FILE);
@@ -116,10 +125,64 @@ public class TransactionPoint implements Serializable {
 
 	}
 
+	private static File buildPath(File rootPath, int index) {
+		String nb = "" + index;
+		while (nb.length() < DIGITS) {
+			nb = "0" + nb;
+		}
+		return new File(new File(rootPath, ArecaFileConstants.TRANSACTION_FILE), nb);
+	}
+
 	public int getIndex() {
 		return index;
 	}
 
+	/**
+	 * Return the indexes of the segments of this transaction point (see "segments")
+	 * <BR>Transaction points written by previous versions hold all their data : they are their own single segment.
+	 */
+	public List getSegments() {
+		if (segments == null) {
+			List ret = new ArrayList();
+			File file = new File(computedPath, SEGMENTS_FILE);
+			try {
+				if (FileSystemManager.exists(file)) {
+					String[] rows = FileTool.getInstance().getFileRows(file);
+					for (int i=0; i<rows.length; i++) {
+						if (rows[i].trim().length() != 0) {
+							ret.add(new Integer(rows[i].trim()));
+						}
+					}
+				}
+			} catch (IOException e) {
+				Logger.defaultLogger().error("Error while reading the segments of transaction point " + displayedName(), e);
+				ret.clear();
+			} catch (NumberFormatException e) {
+				Logger.defaultLogger().error("Error while reading the segments of transaction point " + displayedName(), e);
+				ret.clear();
+			}
+			if (ret.isEmpty() || ((Integer)ret.get(ret.size() - 1)).intValue() != index) {
+				ret.add(new Integer(index));
+			}
+			segments = ret;
+		}
+		return segments;
+	}
+
+	/**
+	 * Check that all the segments of the transaction point have been committed
+	 */
+	private boolean isComplete() {
+		List list = getSegments();
+		for (int i=0; i<list.size(); i++) {
+			File marker = new File(buildPath(rootPath, ((Integer)list.get(i)).intValue()), ArecaFileConstants.TRANSACTION_HEADER_FILE);
+			if (! FileSystemManager.exists(marker)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
 	/**
 	 * Find the last valid transaction point in the root directory
 	 */
@@ -137,7 +200,11 @@ public class TransactionPoint implements Serializable {
 				try {
 					TransactionPoint tp = new TransactionPoint(rootPath, Integer.parseInt(transactionPoints[i]));
 					if (tp.isCommitted()) {
-						return tp;
+						if (tp.isComplete()) {
+							return tp;
+						} else {
+							Logger.defaultLogger().warn("Ignoring transaction point " + tp.displayedName() + " : some of its segments are missing.");
+						}
 					}
 				} catch (NumberFormatException e) {
 					Logger.defaultLogger().info("Ignoring " + FileSystemManager.getDisplayPath(new File(dir, transactionPoints[i])));
@@ -153,14 +220,22 @@ public class TransactionPoint implements Serializable {
 	}
 
 	/**
-	 * Destroy all files related to the transaction point
+	 * Destroy all files related to the transaction point (including the previous segments)
 	 */
 	public void destroyTransactionFiles() throws IOException {
 		Logger.defaultLogger().info("Deleting transaction point " + displayedName() + " ...");
 
+		List list = getSegments();
+		for (int i=0; i<list.size(); i++) {
+			FileTool.getInstance().delete(buildPath(rootPath, ((Integer)list.get(i)).intValue()));
+		}
 		FileTool.getInstance().delete(computedPath);
 	}
 	
+	/**
+	 * Open the transaction point : the entries written in the context's adapters are copied in the transaction point's files
+	 * <BR>The entries of the previous transaction points are not copied (they are kept in their own segments).
+	 */
 	public void writeInit(ProcessContext context) throws IOException {
 		Logger.defaultLogger().info("Opening transaction point " + displayedName() + " ...");
 		
@@ -171,28 +246,22 @@ public class TransactionPoint implements Serializable {
 
 		// Build the adapters
 		hashAdapter = new ArchiveContentAdapter(hashFile, context.getHashAdapter().getGlobalPrefix());
+		hashAdapter.setCodec(context.getHashAdapter().getCodec());
 		context.getHashAdapter().setSecondaryAdapter(hashAdapter);
 
 		contentAdapter = new ArchiveContentAdapter(contentFile, context.getContentAdapter().getGlobalPrefix());
+		contentAdapter.setCodec(context.getContentAdapter().getCodec());
 		context.getContentAdapter().setSecondaryAdapter(contentAdapter);
 
 		if (context.getSequenceAdapter() != null) {
 			sequenceAdapter = new ArchiveContentAdapter(sequenceFile, context.getSequenceAdapter().getGlobalPrefix());
+			sequenceAdapter.setCodec(context.getSequenceAdapter().getCodec());
 			context.getSequenceAdapter().setSecondaryAdapter(sequenceAdapter);
 		}
 
 		traceAdapter = new ArchiveTraceAdapter(traceFile, context.getTraceAdapter().getGlobalPrefix(), context.getTraceAdapter().isTrackSymlinks());
+		traceAdapter.setCodec(context.getTraceAdapter().getCodec());
 		context.getTraceAdapter().setSecondaryAdapter(traceAdapter);
-
-		// Init the adapters' content
-		if (previousTP != null) {
-			hashAdapter.bulkInit(previousTP.hashFile);
-			contentAdapter.bulkInit(previousTP.contentFile);
-			if (context.getSequenceAdapter() != null) {
-				sequenceAdapter.bulkInit(previousTP.sequenceFile);
-			}
-			traceAdapter.bulkInit(previousTP.traceFile);
-		}
 	}
 
 	/**
@@ -222,6 +291,9 @@ public class TransactionPoint implements Serializable {
 			// Serialize the process context
 			serializeProcessContext(context);
 			
+			// List the segments
+			writeSegments();
+			
 			File marker = new File(computedPath, ArecaFileConstants.TRANSACTION_HEADER_FILE);
 			TransactionHeaderAdapter adapter = new TransactionHeaderAdapter();
 			TransactionPointHeader header = new TransactionPointHeader();
@@ -231,11 +303,8 @@ public class TransactionPoint implements Serializable {
 			header.setSourcesRoot(((FileSystemTarget)context.getReport().getTarget()).getSourcesRoot());
 			adapter.write(header, marker);
 			
-			// Once we are sure that all has been written, we can destroy the previous transaction point
-			if (this.previousTP != null) {
-				this.previousTP.destroyTransactionFiles();
-				this.previousTP = null;
-			}
+			// The previous transaction points are kept : they hold the previous segments
+			this.previousTP = null;
 		}
 	}
 
@@ -271,10 +340,48 @@ public class TransactionPoint implements Serializable {
 		return sequenceFile;
 	}
 
+	/**
+	 * Return the trace files of all the segments, in the order they must be read
+	 */
+	public File[] getTraceFiles() {
+		return getSegmentFiles(ArecaFileConstants.TRACE_FILE);
+	}
+
+	public File[] getHashFiles() {
+		return getSegmentFiles(ArecaFileConstants.HASH_FILE);
+	}
+
+	public File[] getContentFiles() {
+		return getSegmentFiles(ArecaFileConstants.CONTENT_FILE);
+	}
+
+	public File[] getSequenceFiles() {
+		return getSegmentFiles(ArecaFileConstants.SEQUENCE_FILE);
+	}
+
+	private File[] getSegmentFiles(String name) {
+		List list = getSegments();
+		File[] ret = new File[list.size()];
+		for (int i=0; i<ret.length; i++) {
+			ret[i] = new File(buildPath(rootPath, ((Integer)list.get(i)).intValue()), name);
+		}
+		return ret;
+	}
+
 	public File getRootPath() {
 		return rootPath;
 	}
 
+	private void writeSegments() throws IOException {
+		StringBuffer sb = new StringBuffer();
+		List list = getSegments();
+		for (int i=0; i<list.size(); i++) {
+			sb.append(list.get(i)).append("\n");
+		}
+		FileTool.getInstance().createDir(computedPath);
+		FileTool.getInstance().createFile(new File(computedPath, SEGMENTS_FILE), sb.toString());
+	}
+
 	private void serializeProcessContext(ProcessContext context) throws IOException {
 		ObjectOutputStream out = null;
 		try {
@@ -362,6 +469,7 @@ public class TransactionPoint implements Serializable {
 		ToStringHelper.append("RootPath", rootPath, sb);
 		ToStringHelper.append("Index", index, sb);
 		ToStringHelper.append("Previous TP", previousTP, sb);
+		ToStringHelper.append("Segments", segments, sb);
 		ToStringHelper.append("Path", computedPath, sb);
 		return ToStringHelper.close(sb);
 	}
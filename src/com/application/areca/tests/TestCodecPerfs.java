@@ -0,0 +1,133 @@
+package com.application.areca.tests;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+
+import com.myJava.file.codec.CodecRegistry;
+import com.myJava.file.codec.CompressionCodec;
+
+/**
+ * Compares the compression codecs on metadata files (traces, contents, ...) :
+ * <BR>- compression time and ratio
+ * <BR>- decompression time, with and without line parsing (as done by the metadata iterators)
+ * <BR>The files may be compressed or not (they are decoded first).
+ * <BR>
+ * <BR>Arguments : file1 [file2 ...]
+ * <BR>
+ * @author Olivier PETRUCCI
+ * <BR>
+ *
+ */
+
+ /*
+ Copyright 2005-2015, Olivier PETRUCCI.
+
+This file is part of Areca.
+
+    Areca is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    Areca is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Areca; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+ */
+public class TestCodecPerfs {
+	private static final int ITERATIONS = 5;
+
+	public static void main(String[] args) throws Exception {
+		String[] names = CodecRegistry.getCodecNames();
+		for (int f=0; f<args.length; f++) {
+			byte[] data = read(CodecRegistry.getInputStream(new FileInputStream(new File(args[f]))));
+			System.out.println(args[f] + " : " + data.length + " bytes");
+
+			for (int c=0; c<names.length; c++) {
+				CompressionCodec codec = CodecRegistry.getCodec(names[c]);
+
+				// Warm-up
+				byte[] compressed = compress(codec, data);
+				decompress(codec, compressed, false);
+
+				long start = System.nanoTime();
+				for (int i=0; i<ITERATIONS; i++) {
+					compressed = compress(codec, data);
+				}
+				long compression = (System.nanoTime() - start) / ITERATIONS;
+
+				start = System.nanoTime();
+				for (int i=0; i<ITERATIONS; i++) {
+					decompress(codec, compressed, false);
+				}
+				long decompression = (System.nanoTime() - start) / ITERATIONS;
+
+				start = System.nanoTime();
+				long lines = 0;
+				for (int i=0; i<ITERATIONS; i++) {
+					lines = decompress(codec, compressed, true);
+				}
+				long parsing = (System.nanoTime() - start) / ITERATIONS;
+
+				System.out.println("  " + codec.getName()
+						+ " : ratio=" + (100 * compressed.length / Math.max(1, data.length)) + "%"
+						+ " - compression=" + (compression / 1000000) + " ms (" + rate(data.length, compression) + " MB/s)"
+						+ " - decompression=" + (decompression / 1000000) + " ms (" + rate(data.length, decompression) + " MB/s)"
+						+ " - decompression + " + lines + " lines=" + (parsing / 1000000) + " ms");
+			}
+		}
+	}
+
+	private static long rate(long length, long nanos) {
+		return length * 1000 / Math.max(1, nanos);
+	}
+
+	private static byte[] compress(CompressionCodec codec, byte[] data) throws Exception {
+		ByteArrayOutputStream bout = new ByteArrayOutputStream(data.length / 2);
+		OutputStream out = codec.getOutputStream(bout);
+		out.write(data);
+		out.close();
+		return bout.toByteArray();
+	}
+
+	private static long decompress(CompressionCodec codec, byte[] compressed, boolean parse) throws Exception {
+		InputStream in = codec.getInputStream(new ByteArrayInputStream(compressed));
+		long count = 0;
+		if (parse) {
+			BufferedReader reader = new BufferedReader(new InputStreamReader(in, "UTF-8"));
+			while (reader.readLine() != null) {
+				count++;
+			}
+		} else {
+			byte[] buffer = new byte[64 * 1024];
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				count += read;
+			}
+		}
+		in.close();
+		return count;
+	}
+
+	private static byte[] read(InputStream in) throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[64 * 1024];
+		int read;
+		while ((read = in.read(buffer)) != -1) {
+			out.write(buffer, 0, read);
+		}
+		in.close();
+		return out.toByteArray();
+	}
+}
@@ -0,0 +1,200 @@
+package com.application.areca.tests;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.Random;
+
+import com.myJava.file.delta.DeltaExtentMap;
+import com.myJava.file.delta.DeltaInputStream;
+import com.myJava.file.delta.DeltaProcessor;
+import com.myJava.file.delta.DeltaReader;
+import com.myJava.file.delta.LayerWriterDeltaProcessor;
+import com.myJava.file.delta.sequence.FileSequencer;
+import com.myJava.file.delta.sequence.FileSequencerByteProcessor;
+import com.myJava.file.delta.sequence.HashSequence;
+import com.myJava.util.taskmonitor.TaskMonitor;
+
+/**
+ * Measures the throughput of the delta engine (sequence computation, first layer and differential layer)
+ * <BR>and checks that the resulting layers rebuild the original data.
+ * <BR>Then compares the restore of a file stored in many layers, with and without extent map.
+ * <BR>
+ * <BR>Arguments : [size in MB] [iterations] [layers]
+ * <BR>
+ * @author Olivier PETRUCCI
+ * <BR>
+ *
+ */
+
+ /*
+ Copyright 2005-2015, Olivier PETRUCCI.
+
+This file is part of Areca.
+
+    Areca is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    Areca is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Areca; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+ */
+public class TestDeltaPerfs {
+	private static final int BLOCK_SIZE = 16 * 1024;
+	
+	public static void main(String[] args) {
+		try {
+			int sizeMB = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+			int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+			int layers = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+			
+			Random rnd = new Random(0);
+			byte[] reference = new byte[sizeMB * 1024 * 1024];
+			rnd.nextBytes(reference);
+			byte[] modified = modify(reference, rnd);
+			
+			System.out.println("Data size : " + sizeMB + " MB - Block size : " + BLOCK_SIZE + " bytes.");
+			
+			for (int i=0; i<iterations; i++) {
+				// Sequence
+				long start = System.currentTimeMillis();
+				HashSequence seq = new FileSequencer(new ByteArrayInputStream(reference), BLOCK_SIZE).getHash();
+				long sequenceTime = System.currentTimeMillis() - start;
+				
+				// First layer (no sequence)
+				ByteArrayOutputStream layer0 = new ByteArrayOutputStream();
+				start = System.currentTimeMillis();
+				read(new DeltaReader(BLOCK_SIZE, new ByteArrayInputStream(reference), new DeltaProcessor[] {new LayerWriterDeltaProcessor(layer0)}, new FileSequencerByteProcessor(BLOCK_SIZE)));
+				long noSeqTime = System.currentTimeMillis() - start;
+				
+				// Differential layer
+				ByteArrayOutputStream layer1 = new ByteArrayOutputStream();
+				start = System.currentTimeMillis();
+				read(new DeltaReader(seq, new ByteArrayInputStream(modified), new DeltaProcessor[] {new LayerWriterDeltaProcessor(layer1)}, new FileSequencerByteProcessor(BLOCK_SIZE)));
+				long seqTime = System.currentTimeMillis() - start;
+				
+				check(layer0.toByteArray(), layer1.toByteArray(), modified);
+				
+				System.out.println("#" + i 
+						+ " - sequence : " + throughput(reference.length, sequenceTime) 
+						+ " - full layer : " + throughput(reference.length, noSeqTime) 
+						+ " - delta layer : " + throughput(modified.length, seqTime) + " (" + layer1.size() + " bytes)");
+			}
+			
+			chain(reference, layers, rnd);
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+	
+	/**
+	 * Build a file stored in "nbLayers" layers (each version slightly modifies the previous one) and restore it
+	 */
+	private static void chain(byte[] reference, int nbLayers, Random rnd) throws Exception {
+		byte[][] layers = new byte[nbLayers][];
+		ByteArrayOutputStream layer0 = new ByteArrayOutputStream();
+		read(new DeltaReader(BLOCK_SIZE, new ByteArrayInputStream(reference), new DeltaProcessor[] {new LayerWriterDeltaProcessor(layer0)}, new FileSequencerByteProcessor(BLOCK_SIZE)));
+		layers[0] = layer0.toByteArray();
+		
+		byte[] current = reference;
+		for (int l=1; l<nbLayers; l++) {
+			HashSequence seq = new FileSequencer(new ByteArrayInputStream(current), BLOCK_SIZE).getHash();
+			current = modify(current, rnd);
+			ByteArrayOutputStream layer = new ByteArrayOutputStream();
+			read(new DeltaReader(seq, new ByteArrayInputStream(current), new DeltaProcessor[] {new LayerWriterDeltaProcessor(layer)}, new FileSequencerByteProcessor(BLOCK_SIZE)));
+			layers[l] = layer.toByteArray();
+		}
+		
+		for (int i=0; i<3; i++) {
+			long start = System.currentTimeMillis();
+			DeltaInputStream in = buildInputStream(layers);
+			check(in, current);
+			long layeredTime = System.currentTimeMillis() - start;
+			
+			// Extent map computation included
+			start = System.currentTimeMillis();
+			InputStream[] streams = new InputStream[nbLayers];
+			for (int l=0; l<nbLayers; l++) {
+				streams[l] = new ByteArrayInputStream(layers[l]);
+			}
+			DeltaExtentMap map = DeltaExtentMap.build(streams);
+			in = buildInputStream(layers);
+			in.setExtentMap(map);
+			check(in, current);
+			long flattenedTime = System.currentTimeMillis() - start;
+			
+			System.out.println("#" + i + " - " + nbLayers + " layers - layered restore : " + throughput(current.length, layeredTime) 
+					+ " - flattened restore : " + throughput(current.length, flattenedTime) + " (" + map + ")");
+		}
+	}
+	
+	private static DeltaInputStream buildInputStream(byte[][] layers) {
+		DeltaInputStream in = new DeltaInputStream();
+		for (int l=0; l<layers.length; l++) {
+			in.addInputStream(new ByteArrayInputStream(layers[l]), "layer" + l);
+		}
+		return in;
+	}
+	
+	private static void read(DeltaReader reader) throws Exception {
+		reader.read(new TaskMonitor("delta-perfs"));
+	}
+	
+	/**
+	 * Insert, overwrite and remove some bytes
+	 */
+	private static byte[] modify(byte[] data, Random rnd) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		int third = data.length / 3;
+		out.write(data, 0, third);
+		
+		byte[] inserted = new byte[1234];
+		rnd.nextBytes(inserted);
+		out.write(inserted, 0, inserted.length);
+		
+		out.write(data, third, third);
+		out.write(data, 2 * third + 5000, data.length - 2 * third - 5000);
+		
+		byte[] ret = out.toByteArray();
+		for (int i=0; i<100; i++) {
+			ret[rnd.nextInt(ret.length)] ^= 0x5a;
+		}
+		return ret;
+	}
+	
+	private static void check(byte[] layer0, byte[] layer1, byte[] expected) throws Exception {
+		check(buildInputStream(new byte[][] {layer0, layer1}), expected);
+	}
+	
+	private static void check(DeltaInputStream in, byte[] expected) throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[64 * 1024];
+		int read;
+		while ((read = in.read(buffer)) != -1) {
+			out.write(buffer, 0, read);
+		}
+		in.close();
+		
+		byte[] rebuilt = out.toByteArray();
+		if (rebuilt.length != expected.length) {
+			throw new IllegalStateException("Invalid rebuilt data length : " + rebuilt.length + " - expected " + expected.length);
+		}
+		for (int i=0; i<rebuilt.length; i++) {
+			if (rebuilt[i] != expected[i]) {
+				throw new IllegalStateException("Invalid rebuilt data at position " + i);
+			}
+		}
+	}
+	
+	private static String throughput(long bytes, long ms) {
+		return (ms == 0 ? "-" : "" + (bytes * 1000 / 1024 / 1024 / ms)) + " MB/s";
+	}
+}
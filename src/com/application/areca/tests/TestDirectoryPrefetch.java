@@ -0,0 +1,130 @@
+package com.application.areca.tests;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import com.myJava.file.FileTool;
+import com.myJava.file.iterator.DirectoryPrefetcher;
+import com.myJava.file.iterator.FileSystemIterator;
+
+/**
+ * Checks that the directory prefetch follows the order of the walk in a directory that contains more subdirectories
+ * than the prefetch window : the first subdirectories (and their own subdirectories) must be prefetched.
+ * <BR>The iteration is slowed down so that the worker can keep up with it ; each directory starts with a file, so that its subdirectory
+ * is not entered as soon as it has been scheduled.
+ * <BR>
+ * <BR>Arguments : working directory (its content is destroyed)
+ * <BR>
+ * @author Olivier PETRUCCI
+ * <BR>
+ *
+ */
+
+ /*
+ Copyright 2005-2015, Olivier PETRUCCI.
+
+This file is part of Areca.
+
+    Areca is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    Areca is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Areca; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+ */
+public class TestDirectoryPrefetch {
+	private static final int THREADS = 1;
+	private static final int SUBDIRECTORIES = 100; // More than the prefetch window of one worker
+	private static final long PAUSE = 20;
+
+	public static void main(String[] args) {
+		if (args.length < 1) {
+			System.out.println("Usage : [working directory]");
+			System.exit(-1);
+		}
+
+		boolean success;
+		try {
+			success = test(new File(args[0]));
+		} catch (Exception e) {
+			e.printStackTrace();
+			success = false;
+		}
+
+		System.out.println("------------------------------");
+		System.out.println(success ? "Tests performed successfully." : "Errors while performing tests.");
+		System.exit(success ? 0 : 1);
+	}
+
+	private static boolean test(File ws) throws Exception {
+		FileTool.getInstance().delete(ws);
+
+		// ws/0.txt, ws/wide/0.txt, ws/wide/sub000/a.txt, ws/wide/sub000/deep/file.txt, ws/wide/sub000/z.txt, ...
+		File wide = new File(ws, "wide");
+		createFile(new File(ws, "0.txt"));
+		createFile(new File(wide, "0.txt"));
+		for (int i=0; i<SUBDIRECTORIES; i++) {
+			File sub = new File(wide, "sub" + (i < 10 ? "00" : i < 100 ? "0" : "") + i);
+			createFile(new File(sub, "a.txt"));
+			createFile(new File(sub, "deep/file.txt"));
+			createFile(new File(sub, "z.txt"));
+		}
+
+		FileSystemIterator iter = new FileSystemIterator(ws, false, true, false, true);
+		iter.startPrefetch(THREADS);
+		DirectoryPrefetcher prefetcher = iter.getPrefetcher();
+		int readDirectly = -1;
+		int files = 0;
+		try {
+			while (iter.hasNext()) {
+				File f = (File)iter.next();
+				if (f.isFile()) {
+					files++;
+				}
+				if (readDirectly == -1) {
+					// The source root's subdirectories are not prefetched : start counting once "wide" has been entered
+					if (f.getParentFile().equals(wide)) {
+						readDirectly = prefetcher.getReadDirectly();
+					}
+				} else if (prefetcher.getReadDirectly() != readDirectly) {
+					System.out.println("ERROR : " + f.getParentFile() + " has not been prefetched.");
+					return false;
+				}
+				Thread.sleep(PAUSE);
+			}
+		} finally {
+			iter.stopPrefetch();
+		}
+
+		int expectedFiles = 2 + 3 * SUBDIRECTORIES;
+		if (files != expectedFiles) {
+			System.out.println("ERROR : " + files + " files returned instead of " + expectedFiles);
+			return false;
+		}
+		if (prefetcher.getPrefetched() != 2 * SUBDIRECTORIES) {
+			System.out.println("ERROR : " + prefetcher.getPrefetched() + " directories prefetched instead of " + (2 * SUBDIRECTORIES));
+			return false;
+		}
+		System.out.println(prefetcher.getPrefetched() + " directories prefetched, " + prefetcher.getReadDirectly() + " read directly.");
+		return true;
+	}
+
+	private static void createFile(File f) throws IOException {
+		f.getParentFile().mkdirs();
+		FileOutputStream out = new FileOutputStream(f);
+		try {
+			out.write(f.getName().getBytes());
+		} finally {
+			out.close();
+		}
+	}
+}
@@ -0,0 +1,114 @@
+package com.application.areca.tests;
+
+import java.util.Random;
+
+import com.myJava.file.delta.Constants;
+import com.myJava.file.delta.sequence.HashSequence;
+
+/**
+ * Measures the memory footprint of a HashSequence and its probe latency (quick hash lookups, which are performed for each
+ * byte of the rolling window, and full lookups)
+ * <BR>
+ * @author Olivier PETRUCCI
+ * <BR>
+ *
+ */
+
+ /*
+ Copyright 2005-2015, Olivier PETRUCCI.
+
+This file is part of Areca.
+
+    Areca is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    Areca is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Areca; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+ */
+public class TestHashSequencePerfs implements Constants {
+	private static final int PROBES = 10 * 1000 * 1000;
+
+	public static void main(String[] args) {
+		try {
+			int blocks = args.length > 0 ? Integer.parseInt(args[0]) : 1000 * 1000;
+			int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+			Random rnd = new Random(0);
+			int[] quickHashes = new int[blocks];
+			byte[] fullHashes = new byte[blocks * HASH_ALG_KLENGTH];
+			for (int i=0; i<blocks; i++) {
+				quickHashes[i] = rnd.nextInt();
+			}
+			rnd.nextBytes(fullHashes);
+
+			// Probes : one hit out of 1000
+			int[] probes = new int[PROBES];
+			for (int i=0; i<PROBES; i++) {
+				probes[i] = (i % 1000 == 0) ? quickHashes[rnd.nextInt(blocks)] : rnd.nextInt();
+			}
+
+			System.out.println("Blocks : " + blocks + " - Probes : " + PROBES);
+
+			for (int it=0; it<iterations; it++) {
+				long before = usedMemory();
+				long start = System.currentTimeMillis();
+				HashSequence seq = new HashSequence(1024, HashSequence.FORMAT_FIXED, blocks);
+				for (int i=0; i<blocks; i++) {
+					seq.add(quickHashes[i], fullHashes, i * HASH_ALG_KLENGTH, i, 1024);
+				}
+				long buildTime = System.currentTimeMillis() - start;
+				long memory = usedMemory() - before;
+
+				// Quick hash probes
+				start = System.nanoTime();
+				int hits = 0;
+				for (int i=0; i<PROBES; i++) {
+					if (seq.contains(probes[i])) {
+						hits++;
+					}
+				}
+				long probeTime = System.nanoTime() - start;
+
+				// Full lookups
+				start = System.nanoTime();
+				int found = 0;
+				for (int i=0; i<blocks; i++) {
+					if (seq.find(quickHashes[i], fullHashes, i * HASH_ALG_KLENGTH, 0, 1024) == i) {
+						found++;
+					}
+				}
+				long findTime = System.nanoTime() - start;
+				if (found != blocks) {
+					throw new IllegalStateException("Invalid lookup results : " + found + " - expected " + blocks);
+				}
+
+				System.out.println("#" + it
+						+ " - build : " + buildTime + " ms"
+						+ " - memory : " + (memory / blocks) + " bytes/block"
+						+ " - probe : " + (probeTime / PROBES) + " ns (" + hits + " hits)"
+						+ " - lookup : " + (findTime / blocks) + " ns"
+						+ " (" + seq.getSize() + " entries)");
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+
+	private static long usedMemory() throws InterruptedException {
+		Runtime rt = Runtime.getRuntime();
+		for (int i=0; i<3; i++) {
+			System.gc();
+			Thread.sleep(50);
+		}
+		return rt.totalMemory() - rt.freeMemory();
+	}
+}
@@ -0,0 +1,344 @@
+package com.application.areca.tests;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.util.GregorianCalendar;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+
+import com.application.areca.ActionProxy;
+import com.application.areca.AbstractTarget;
+import com.application.areca.ArecaConfiguration;
+import com.application.areca.CheckParameters;
+import com.application.areca.MergeParameters;
+import com.application.areca.TargetGroup;
+import com.application.areca.adapters.XMLTags;
+import com.application.areca.context.ProcessContext;
+import com.application.areca.impl.EncryptionConfiguration;
+import com.application.areca.impl.AbstractIncrementalFileSystemMedium;
+import com.application.areca.impl.FileSystemTarget;
+import com.application.areca.impl.IncrementalZipMedium;
+import com.application.areca.impl.copypolicy.AlwaysOverwriteCopyPolicy;
+import com.application.areca.impl.handler.DefaultArchiveHandler;
+import com.application.areca.impl.handler.DeltaArchiveHandler;
+import com.application.areca.impl.policy.DefaultFileSystemPolicy;
+import com.application.areca.impl.policy.EncryptionPolicy;
+import com.application.areca.launcher.tui.LoggerUserInformationChannel;
+import com.application.areca.metadata.transaction.YesTransactionHandler;
+import com.myJava.file.CompressionArguments;
+import com.myJava.file.FileTool;
+import com.myJava.util.log.LogMessagesContainer;
+import com.myJava.util.log.Logger;
+import com.myJava.util.log.ThreadLocalLogProcessor;
+import com.myJava.util.taskmonitor.TaskMonitor;
+
+/**
+ * Checks that the archives merged without being recovered first ("merge.streaming") have the same content
+ * as the archives merged after a recovery in a working directory.
+ * <BR>For each zip configuration (standard and delta storage, single and multi-volume), the same backups are performed twice
+ * (once per merge mode), the archives are merged, and the merged archives are recovered and compared with the sources and with each other.
+ * <BR>Encrypted archives are always recovered before being merged : the encrypted configuration checks this fallback.
+ * <BR>
+ * <BR>Arguments : working directory (its content is destroyed)
+ * <BR>
+ * @author Olivier PETRUCCI
+ * <BR>
+ *
+ */
+
+ /*
+ Copyright 2005-2015, Olivier PETRUCCI.
+
+This file is part of Areca.
+
+    Areca is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    Areca is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Areca; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+ */
+public class TestMergeStreaming {
+	private static final String LARGE_FILE = "large/data.bin";
+	private static final int LARGE_FILE_SIZE = 3 * 1024 * 1024; // More than two 1 MB volumes (the data are not compressible)
+	private static final int LARGE_FILE_BLOCK = 64 * 1024;
+	private static final LoggerUserInformationChannel CHANNEL = new LoggerUserInformationChannel(false);
+
+	public static void main(String[] args) {
+		if (args.length < 1) {
+			System.out.println("Usage : [working directory]");
+			System.exit(-1);
+		}
+		String ws = args[0].replace('\\', '/');
+
+		boolean success = true;
+		try {
+			ArecaConfiguration.initialize();
+			Logger.defaultLogger().setTlLogProcessor(new ThreadLocalLogProcessor());
+			FileTool.getInstance().delete(new File(ws));
+
+			success &= test(ws, "zip", false, false, false);
+			success &= test(ws, "zip_mv", false, true, false);
+			success &= test(ws, "delta", true, false, false);
+			success &= test(ws, "delta_mv", true, true, false);
+			success &= test(ws, "zip_encrypted", false, false, true);
+		} catch (Exception e) {
+			e.printStackTrace();
+			success = false;
+		}
+
+		log("------------------------------");
+		log(success ? "Tests performed successfully." : "Errors while performing tests.");
+		System.exit(success ? 0 : 1);
+	}
+
+	private static boolean test(String ws, String name, boolean delta, boolean multiVolumes, boolean encrypted) throws Exception {
+		log("---------------------------------");
+		log("Testing \"" + name + "\" ...");
+		log("---------------------------------");
+
+		File[] recovered = new File[2];
+		for (int i=0; i<2; i++) {
+			boolean streaming = (i == 1);
+			ArecaConfiguration.get().getProperties().setProperty(ArecaConfiguration.KEY_MERGE_STREAMING, "" + streaming);
+			String prefix = ws + "/" + name + (streaming ? "_streaming" : "_recovery");
+			File sources = new File(prefix + Test.SOURCES_S);
+			recovered[i] = new File(prefix + Test.RECOVERY_DIR_S);
+
+			FileSystemTarget target = buildTarget(name, sources, new File(prefix + "_storage"), delta, multiVolumes, encrypted);
+
+			// Same data and backups for both merge modes
+			CreateData.create(sources.getAbsolutePath());
+			writeLargeFile(new File(sources, LARGE_FILE), 0);
+			doBackup(target);
+
+			CreateData.append(sources.getAbsolutePath());
+			CreateData.remove(sources.getAbsolutePath());
+			writeLargeFile(new File(sources, LARGE_FILE), 1);
+			doBackup(target);
+
+			CreateData.append2(sources.getAbsolutePath());
+			CreateData.remove2(sources.getAbsolutePath());
+			writeLargeFile(new File(sources, LARGE_FILE), 2);
+			doBackup(target);
+
+			long start = System.currentTimeMillis();
+			doMerge(target);
+			log("Merge (" + (streaming ? "streaming" : "recovery") + ") : " + (System.currentTimeMillis() - start) + " ms.");
+
+			File[] archives = ((AbstractIncrementalFileSystemMedium)target.getMedium()).listArchives(null, null, true);
+			if (archives == null || archives.length != 1) {
+				log("ERROR : " + (archives == null ? 0 : archives.length) + " archives found after merge.");
+				return false;
+			}
+
+			doRecover(target, recovered[i]);
+			if (! compare(sources, recovered[i])) {
+				log("ERROR : the recovered files differ from the sources (" + (streaming ? "streaming" : "recovery") + " merge).");
+				return false;
+			}
+		}
+
+		if (! compare(recovered[0], recovered[1])) {
+			log("ERROR : the merged archives have a different content.");
+			return false;
+		}
+		log("OK.");
+		return true;
+	}
+
+	private static FileSystemTarget buildTarget(String name, File sources, File storage, boolean delta, boolean multiVolumes, boolean encrypted) throws Exception {
+		FileSystemTarget target = new FileSystemTarget();
+		target.setTargetName(name);
+		target.setCreateSecurityCopyOnBackup(false);
+		target.setTrackSymlinks(false);
+		target.setTrackEmptyDirectories(true);
+		target.setFollowSubdirectories(true);
+
+		Set src = new HashSet();
+		src.add(sources);
+		target.setSources(src);
+
+		DefaultFileSystemPolicy policy = new DefaultFileSystemPolicy();
+		policy.setId(XMLTags.POLICY_HD);
+		policy.setArchivePath(storage.getAbsolutePath());
+		policy.setArchiveName("%YY%%MM%%DD%");
+
+		CompressionArguments compression = new CompressionArguments();
+		compression.setCompressed(true);
+		compression.setUseZip64(true);
+		if (multiVolumes) {
+			compression.setMultiVolumes(1, 3);
+		}
+
+		EncryptionPolicy encryption = new EncryptionPolicy();
+		encryption.setEncrypted(encrypted);
+		if (encrypted) {
+			encryption.setEncryptionAlgorithm(EncryptionConfiguration.AES_HASH);
+			encryption.setEncryptionKey("merge-test");
+			encryption.setEncryptNames(false);
+		}
+
+		IncrementalZipMedium medium = new IncrementalZipMedium();
+		medium.setCompressionArguments(compression);
+		medium.setFileSystemPolicy(policy);
+		medium.setEncryptionPolicy(encryption);
+		if (delta) {
+			medium.setHandler(new DeltaArchiveHandler());
+		} else {
+			medium.setHandler(new DefaultArchiveHandler());
+		}
+
+		target.setMedium(medium, false);
+		medium.install();
+
+		TargetGroup group = new TargetGroup(name);
+		group.linkChild(target);
+		return target;
+	}
+
+	/**
+	 * Write a file of random (not compressible) data.
+	 * <BR>Each version modifies one block of the previous one, so that delta storage creates several layers.
+	 */
+	private static void writeLargeFile(File f, int version) throws IOException {
+		f.getParentFile().mkdirs();
+		RandomAccessFile raf = new RandomAccessFile(f, "rw");
+		try {
+			byte[] data;
+			if (version == 0) {
+				data = new byte[LARGE_FILE_SIZE];
+				new Random(0).nextBytes(data);
+				raf.seek(0);
+			} else {
+				data = new byte[LARGE_FILE_BLOCK];
+				new Random(version).nextBytes(data);
+				raf.seek((long)version * (LARGE_FILE_SIZE / 3));
+			}
+			raf.write(data);
+		} finally {
+			raf.close();
+		}
+	}
+
+	private static ProcessContext buildContext(AbstractTarget target) {
+		LogMessagesContainer container = Logger.defaultLogger().getTlLogProcessor().activateMessageTracking();
+		ProcessContext context = new ProcessContext(target, CHANNEL, new TaskMonitor("merge-test"));
+		context.getReport().setLogMessagesContainer(container);
+		return context;
+	}
+
+	private static void doBackup(FileSystemTarget target) throws Exception {
+		ActionProxy.processBackupOnTarget(
+				target,
+				null,
+				AbstractTarget.BACKUP_SCHEME_INCREMENTAL,
+				new CheckParameters(true, true, true, false, null),
+				new YesTransactionHandler(),
+				buildContext(target)
+		);
+	}
+
+	private static void doMerge(FileSystemTarget target) throws Exception {
+		MergeParameters params = new MergeParameters(false, false, null);
+		CheckParameters cp = new CheckParameters(true, true, true, false, null);
+		ActionProxy.processMergeOnTarget(target, null, new GregorianCalendar(), null, params, cp, buildContext(target));
+	}
+
+	private static void doRecover(FileSystemTarget target, File dir) throws Exception {
+		FileTool.getInstance().delete(dir);
+		dir.mkdirs();
+		ActionProxy.processRecoverOnTarget(
+				target,
+				null,
+				new AlwaysOverwriteCopyPolicy(),
+				dir.getAbsolutePath(),
+				false,
+				new GregorianCalendar(),
+				false,
+				true,
+				buildContext(target));
+	}
+
+	/**
+	 * Compare the files (names and content) of both directories.
+	 * <BR>Directories are not compared : the delta recovery leaves an empty working directory in the recovery location.
+	 */
+	private static boolean compare(File dir1, File dir2) throws IOException {
+		Map files1 = new TreeMap();
+		Map files2 = new TreeMap();
+		listFiles(dir1, "", files1);
+		listFiles(dir2, "", files2);
+
+		boolean ok = true;
+		Iterator iter = files1.keySet().iterator();
+		while (iter.hasNext()) {
+			String path = (String)iter.next();
+			File f2 = (File)files2.remove(path);
+			if (f2 == null) {
+				log("Missing file : " + path);
+				ok = false;
+			} else if (! sameContent((File)files1.get(path), f2)) {
+				log("Different content : " + path);
+				ok = false;
+			}
+		}
+		if (! files2.isEmpty()) {
+			log("Unexpected files : " + files2.keySet());
+			ok = false;
+		}
+		return ok;
+	}
+
+	private static void listFiles(File dir, String path, Map files) {
+		File[] children = dir.listFiles();
+		for (int i=0; children != null && i<children.length; i++) {
+			String child = path.length() == 0 ? children[i].getName() : path + "/" + children[i].getName();
+			if (children[i].isDirectory()) {
+				listFiles(children[i], child, files);
+			} else {
+				files.put(child, children[i]);
+			}
+		}
+	}
+
+	private static boolean sameContent(File f1, File f2) throws IOException {
+		if (f1.length() != f2.length()) {
+			return false;
+		}
+		InputStream i1 = new BufferedInputStream(new FileInputStream(f1));
+		InputStream i2 = new BufferedInputStream(new FileInputStream(f2));
+		try {
+			int b;
+			while ((b = i1.read()) != -1) {
+				if (b != i2.read()) {
+					return false;
+				}
+			}
+			return i2.read() == -1;
+		} finally {
+			i1.close();
+			i2.close();
+		}
+	}
+
+	private static void log(String msg) {
+		System.out.println(msg);
+	}
+}
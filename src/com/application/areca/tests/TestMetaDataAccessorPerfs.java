@@ -0,0 +1,119 @@
+package com.application.areca.tests;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.myJava.file.metadata.FileMetaData;
+import com.myJava.file.metadata.FileMetaDataAccessor;
+import com.myJava.file.metadata.posix.PosixMetaDataImpl;
+import com.myJava.file.metadata.posix.basic.DefaultMetaDataAccessor;
+
+/**
+ * Compares the time needed by the Posix metadata accessors to read the attributes of the files of a directory :
+ * <BR>- DefaultMetaDataAccessor ("ls" process for each file)
+ * <BR>- NIOMetaDataAccessor
+ * <BR>- JNIMetaDataAccessor (if the native library is available)
+ * <BR>Owners, groups and permissions returned by the accessors are also compared.
+ * <BR>
+ * <BR>Arguments : directory [max number of files]
+ * <BR>
+ * @author Olivier PETRUCCI
+ * <BR>
+ *
+ */
+
+ /*
+ Copyright 2005-2015, Olivier PETRUCCI.
+
+This file is part of Areca.
+
+    Areca is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    Areca is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Areca; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+ */
+public class TestMetaDataAccessorPerfs {
+	private static final String[] ACCESSORS = new String[] {
+		"com.myJava.file.metadata.posix.nio.NIOMetaDataAccessor",
+		"com.myJava.file.metadata.posix.jni.JNIMetaDataAccessor"
+	};
+
+	public static void main(String[] args) throws Exception {
+		File root = new File(args[0]);
+		int max = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+
+		List files = new ArrayList();
+		collect(root, files, max);
+		System.out.println("Files : " + files.size());
+
+		FileMetaData[] reference = run(new DefaultMetaDataAccessor(), files, null);
+		for (int i=0; i<ACCESSORS.length; i++) {
+			FileMetaDataAccessor accessor;
+			try {
+				accessor = (FileMetaDataAccessor)Class.forName(ACCESSORS[i]).newInstance();
+			} catch (Throwable e) {
+				System.out.println(ACCESSORS[i] + " : not available (" + e.getMessage() + ")");
+				continue;
+			}
+			if (! accessor.test()) {
+				System.out.println(ACCESSORS[i] + " : not available on this system");
+				continue;
+			}
+			run(accessor, files, reference);
+		}
+	}
+
+	private static FileMetaData[] run(FileMetaDataAccessor accessor, List files, FileMetaData[] reference) throws Exception {
+		FileMetaData[] result = new FileMetaData[files.size()];
+		long start = System.nanoTime();
+		for (int i=0; i<files.size(); i++) {
+			result[i] = accessor.getMetaData((File)files.get(i), false);
+		}
+		long duration = System.nanoTime() - start;
+
+		int differences = 0;
+		if (reference != null) {
+			for (int i=0; i<result.length; i++) {
+				PosixMetaDataImpl r = (PosixMetaDataImpl)reference[i];
+				PosixMetaDataImpl p = (PosixMetaDataImpl)result[i];
+				if (
+						! r.getOwner().equals(p.getOwner())
+						|| ! r.getGroup().equals(p.getGroup())
+						|| (r.getMode() & 0777) != (p.getMode() & 0777)
+				) {
+					differences++;
+					System.out.println("  " + files.get(i) + " : " + r + " / " + p);
+				}
+			}
+		}
+
+		System.out.println(accessor.getClass().getName()
+				+ " : " + (duration / 1000 / Math.max(1, files.size())) + " us/file"
+				+ (reference == null ? "" : " - differences : " + differences));
+		return result;
+	}
+
+	private static void collect(File f, List files, int max) {
+		if (files.size() >= max) {
+			return;
+		}
+		files.add(f);
+		if (f.isDirectory()) {
+			String[] names = f.list();
+			for (int i=0; names != null && i<names.length; i++) {
+				collect(new File(f, names[i]), files, max);
+			}
+		}
+	}
+}
@@ -0,0 +1,109 @@
+package com.application.areca.tests;
+
+import java.util.Random;
+
+import com.application.areca.metadata.MetadataEncoder;
+import com.myJava.util.Util;
+
+/**
+ * Compares the MetadataEncoder with the former multi-pass implementation (one Util.replace call per escape sequence)
+ * on generated file paths. A few paths contain characters that must be escaped.
+ * <BR>
+ * @author Olivier PETRUCCI
+ * <BR>
+ *
+ */
+
+ /*
+ Copyright 2005-2015, Olivier PETRUCCI.
+
+This file is part of Areca.
+
+    Areca is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    Areca is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Areca; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+ */
+public class TestMetadataEncoderPerfs {
+	private static final String[] NAMES = new String[] {"home", "user", "Documents", "Photos 2014", "src", "com", "build.xml", "report;final.doc", "notes@work.txt", "IMG_0042.JPG", "readme.txt", "archive.tar.gz"};
+
+	public static void main(String[] args) {
+		int nbPaths = args.length > 0 ? Integer.parseInt(args[0]) : 200 * 1000;
+		int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+		Random rnd = new Random(0);
+		String[] paths = new String[nbPaths];
+		String[] encoded = new String[nbPaths];
+		for (int i=0; i<nbPaths; i++) {
+			StringBuffer sb = new StringBuffer();
+			int depth = 2 + rnd.nextInt(6);
+			for (int d=0; d<depth; d++) {
+				if (d != 0) {
+					sb.append('/');
+				}
+				sb.append(NAMES[rnd.nextInt(NAMES.length)]);
+			}
+			paths[i] = sb.toString();
+			encoded[i] = MetadataEncoder.getInstance().encode(paths[i]);
+			if (! encodeLegacy(paths[i]).equals(encoded[i]) || ! decodeLegacy(encoded[i]).equals(paths[i])) {
+				throw new IllegalStateException("Inconsistent encoding : " + paths[i]);
+			}
+		}
+
+		System.out.println("Paths : " + nbPaths);
+		MetadataEncoder encoder = MetadataEncoder.getInstance();
+		for (int it=0; it<iterations; it++) {
+			int check = 0;
+
+			long start = System.nanoTime();
+			for (int i=0; i<nbPaths; i++) {
+				check += encodeLegacy(paths[i]).length();
+				check += decodeLegacy(encoded[i]).length();
+			}
+			long legacy = System.nanoTime() - start;
+
+			start = System.nanoTime();
+			for (int i=0; i<nbPaths; i++) {
+				check -= encoder.encode(paths[i]).length();
+				check -= encoder.decode(encoded[i]).length();
+			}
+			long current = System.nanoTime() - start;
+
+			if (check != 0) {
+				throw new IllegalStateException("Inconsistent results");
+			}
+			System.out.println("#" + it
+					+ " - multi-pass : " + (legacy / nbPaths) + " ns/path"
+					+ " - single-pass : " + (current / nbPaths) + " ns/path");
+		}
+	}
+
+	private static String encodeLegacy(String in) {
+		String out = in;
+		out = Util.replace(out, "@", "@@");
+		out = Util.replace(out, ";", "@P");
+		out = Util.replace(out, "\r", "@R");
+		out = Util.replace(out, "\n", "@N");
+		return out;
+	}
+
+	private static String decodeLegacy(String in) {
+		String out = in;
+		out = Util.replace(out, "@@", "@>");
+		out = Util.replace(out, "@P", ";");
+		out = Util.replace(out, "@R", "\r");
+		out = Util.replace(out, "@N", "\n");
+		out = Util.replace(out, "@>", "@");
+		return out;
+	}
+}
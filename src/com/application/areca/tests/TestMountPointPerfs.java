@@ -0,0 +1,141 @@
+package com.application.areca.tests;
+
+import java.io.File;
+import java.util.Random;
+
+import com.myJava.file.FileSystemManager;
+import com.myJava.file.driver.DefaultFileSystemDriver;
+import com.myJava.file.driver.FileSystemDriver;
+
+/**
+ * Multi-threaded benchmark of the driver resolution (FileSystemManager.getDriver) :
+ * <BR>- "locked" : all the resolutions are serialized on the manager's monitor (as the former synchronized getDriver did),
+ * <BR>- "lock-free" : concurrent resolutions through the mount point tree and the resolution cache.
+ * <BR>The resolved drivers are first checked against a lookup on the parent files.
+ * <BR>
+ * <BR>Arguments : [max threads] [resolutions per thread] [distinct files]
+ * <BR>
+ * @author Olivier PETRUCCI
+ * <BR>
+ *
+ */
+
+ /*
+ Copyright 2005-2015, Olivier PETRUCCI.
+
+This file is part of Areca.
+
+    Areca is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    Areca is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Areca; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+ */
+public class TestMountPointPerfs {
+	private static final int MOUNT_POINTS = 20;
+
+	public static void main(String[] args) throws Exception {
+		int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+		int resolutions = args.length > 1 ? Integer.parseInt(args[1]) : 1000000;
+		int nbFiles = args.length > 2 ? Integer.parseInt(args[2]) : 10000;
+
+		Random rnd = new Random(0);
+		FileSystemManager manager = new FileSystemManager();
+		File[] mountPoints = new File[MOUNT_POINTS];
+		FileSystemDriver[] drivers = new FileSystemDriver[MOUNT_POINTS];
+		for (int i=0; i<MOUNT_POINTS; i++) {
+			// Nested mount points : /mnt/m0, /mnt/m0/sub1, ...
+			mountPoints[i] = i % 2 == 0 ? new File("/mnt/m" + i) : new File(mountPoints[i - 1], "sub" + i);
+			drivers[i] = new DefaultFileSystemDriver();
+			manager.registerDriver(mountPoints[i], drivers[i]);
+		}
+
+		final File[] files = new File[nbFiles];
+		for (int i=0; i<nbFiles; i++) {
+			File f = rnd.nextInt(4) == 0 ? new File("/home/user") : mountPoints[rnd.nextInt(MOUNT_POINTS)];
+			int depth = rnd.nextInt(8);
+			for (int d=0; d<depth; d++) {
+				f = new File(f, (d == 0 && rnd.nextBoolean()) ? "sub" + rnd.nextInt(MOUNT_POINTS) : "dir" + rnd.nextInt(50));
+			}
+			files[i] = f;
+		}
+		check(manager, files, mountPoints, drivers);
+
+		for (int r=0; r<2; r++) {	// first round = warm-up
+			for (int t=1; t<=maxThreads; t*=2) {
+				long locked = run(manager, files, t, resolutions, true);
+				long lockFree = run(manager, files, t, resolutions, false);
+				if (r != 0) {
+					System.out.println(t + " thread(s) : locked = " + rate(t, resolutions, locked) + " resolutions/ms - lock-free = " + rate(t, resolutions, lockFree) + " resolutions/ms");
+				}
+			}
+		}
+		System.out.println("Cache hits : " + manager.getCacheHits() + " / " + manager.getResolutions() + " resolutions - " + manager.getMountPointUpdates() + " mount point updates");
+	}
+
+	private static long rate(int threads, int resolutions, long nanos) {
+		return (long)threads * resolutions * 1000000 / Math.max(1, nanos);
+	}
+
+	private static long run(final FileSystemManager manager, final File[] files, int nbThreads, final int resolutions, final boolean locked) throws Exception {
+		Thread[] threads = new Thread[nbThreads];
+		for (int t=0; t<nbThreads; t++) {
+			final int seed = t;
+			threads[t] = new Thread(new Runnable() {
+				public void run() {
+					int index = seed * 7919;
+					for (int i=0; i<resolutions; i++) {
+						index = (index + 31) % files.length;
+						if (locked) {
+							synchronized (manager) {
+								manager.getDriver(files[index]);
+							}
+						} else {
+							manager.getDriver(files[index]);
+						}
+					}
+				}
+			});
+		}
+		long start = System.nanoTime();
+		for (int t=0; t<nbThreads; t++) {
+			threads[t].start();
+		}
+		for (int t=0; t<nbThreads; t++) {
+			threads[t].join();
+		}
+		return System.nanoTime() - start;
+	}
+
+	private static void check(FileSystemManager manager, File[] files, File[] mountPoints, FileSystemDriver[] drivers) {
+		for (int i=0; i<files.length; i++) {
+			FileSystemDriver expected = manager.getDefaultDriver();
+			File f = files[i];
+			search: while (f != null) {
+				for (int m=0; m<mountPoints.length; m++) {
+					if (mountPoints[m].equals(f)) {
+						expected = drivers[m];
+						break search;
+					}
+				}
+				f = f.getParentFile();
+			}
+			// Twice : tree, then cache
+			for (int k=0; k<2; k++) {
+				if (manager.getDriver(files[i]) != expected) {
+					throw new IllegalStateException("Wrong driver for " + files[i]);
+				}
+			}
+		}
+		System.out.println("Consistency check : OK");
+	}
+}
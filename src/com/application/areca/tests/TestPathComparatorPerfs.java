@@ -0,0 +1,165 @@
+package com.application.areca.tests;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import com.myJava.file.iterator.FilePathComparator;
+
+/**
+ * Benchmark of the file path comparator :
+ * <BR>- previous implementation (one substring per path component),
+ * <BR>- in place comparison (FilePathComparator.compare),
+ * <BR>- comparison of pre-encoded sort keys (FilePathComparator.sortKey / compareKeys).
+ * <BR>The three implementations are first checked against each other on random paths.
+ * <BR>
+ * <BR>Arguments : [number of paths] [iterations]
+ * <BR>
+ * @author Olivier PETRUCCI
+ * <BR>
+ *
+ */
+
+ /*
+ Copyright 2005-2015, Olivier PETRUCCI.
+
+This file is part of Areca.
+
+    Areca is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    Areca is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Areca; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+ */
+public class TestPathComparatorPerfs {
+	private static final String CHARS = "abcAB-_. /\u00e9\u00e8\u4e2d0";
+
+	public static void main(String[] args) throws Exception {
+		int nbPaths = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+		int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+		String[] paths = buildPaths(nbPaths, new Random(0));
+		byte[][] keys = new byte[nbPaths][];
+		for (int i=0; i<nbPaths; i++) {
+			keys[i] = FilePathComparator.sortKey(paths[i]);
+		}
+		check(paths, keys);
+
+		// Typical access pattern : comparison of neighbour paths in a sorted list (long common prefixes)
+		String[] sorted = (String[])paths.clone();
+		Arrays.sort(sorted, FilePathComparator.instance());
+		byte[][] sortedKeys = new byte[nbPaths][];
+		for (int i=0; i<nbPaths; i++) {
+			sortedKeys[i] = FilePathComparator.sortKey(sorted[i]);
+		}
+
+		for (int r=0; r<2; r++) {	// first round = warm-up
+			System.out.println(r == 0 ? "Warm-up ..." : "Results (" + nbPaths + " paths, " + iterations + " iterations) :");
+			long legacy = 0, inPlace = 0, encoded = 0;
+			long check = 0;
+			for (int it=0; it<iterations; it++) {
+				long start = System.nanoTime();
+				for (int i=1; i<nbPaths; i++) {
+					check += legacyCompare(sorted[i - 1], sorted[i]);
+				}
+				legacy += System.nanoTime() - start;
+
+				start = System.nanoTime();
+				for (int i=1; i<nbPaths; i++) {
+					check += FilePathComparator.instance().compare(sorted[i - 1], sorted[i]);
+				}
+				inPlace += System.nanoTime() - start;
+
+				start = System.nanoTime();
+				for (int i=1; i<nbPaths; i++) {
+					check += FilePathComparator.compareKeys(sortedKeys[i - 1], sortedKeys[i]);
+				}
+				encoded += System.nanoTime() - start;
+			}
+			if (r != 0) {
+				long n = (long)(nbPaths - 1) * iterations;
+				System.out.println("  substring : " + (legacy / n) + " ns/comparison");
+				System.out.println("  in place  : " + (inPlace / n) + " ns/comparison");
+				System.out.println("  sort keys : " + (encoded / n) + " ns/comparison");
+				System.out.println("  (" + check + ")");
+			}
+		}
+	}
+
+	private static void check(String[] paths, byte[][] keys) {
+		for (int i=1; i<paths.length; i++) {
+			String s0 = paths[i - 1];
+			String s1 = paths[i];
+			int expected = Integer.signum(legacyCompare(s0, s1));
+			int inPlace = Integer.signum(FilePathComparator.instance().compare(s0, s1));
+			int encoded = Integer.signum(FilePathComparator.compareKeys(keys[i - 1], keys[i]));
+			int chars = Integer.signum(FilePathComparator.instance().compare(s0, s1.toCharArray(), s1.length()));
+			if (expected != inPlace || expected != encoded || expected != chars) {
+				throw new IllegalStateException("Inconsistent comparison of [" + s0 + "] and [" + s1 + "] : " + expected + " / " + inPlace + " / " + encoded + " / " + chars);
+			}
+		}
+		System.out.println("Consistency check : OK");
+	}
+
+	private static String[] buildPaths(int nbPaths, Random rnd) {
+		String[] ret = new String[nbPaths];
+		String previous = "dir/file";
+		for (int i=0; i<nbPaths; i++) {
+			// Half of the paths share a prefix with the previous one
+			StringBuffer sb = new StringBuffer();
+			if (rnd.nextBoolean()) {
+				sb.append(previous.substring(0, rnd.nextInt(previous.length() + 1)));
+			}
+			int len = rnd.nextInt(40);
+			for (int c=0; c<len; c++) {
+				sb.append(CHARS.charAt(rnd.nextInt(CHARS.length())));
+			}
+			ret[i] = sb.toString();
+			previous = ret[i];
+		}
+		return ret;
+	}
+
+	/**
+	 * Previous implementation, used as reference
+	 */
+	private static int legacyCompare(String s0, String s1) {
+		int i0 = s0.indexOf('/', 1);
+		int i1 = s1.indexOf('/', 1);
+
+		String ss0 = s0;
+		if (i0 != -1) {
+			ss0 = s0.substring(0, i0);
+		}
+
+		String ss1 = s1;
+		if (i1 != -1) {
+			ss1 = s1.substring(0, i1);
+		}
+
+		int c = ss0.compareTo(ss1);
+		if (c == 0) {
+			if (i0 == -1) {
+				if (i1 == -1) {
+					return 0;
+				} else {
+					return -1;
+				}
+			} else if (i1 == -1) {
+				return 1;
+			} else {
+				return legacyCompare(s0.substring(i0), s1.substring(i1));
+			}
+		} else {
+			return c;
+		}
+	}
+}
@@ -184,6 +184,18 @@ public class FrameworkConfiguration {
      */
     public static String KEY_DEFAULT_LOG_HISTORY = "log.default.history";
     
+    /**
+     * Maximum number of log messages waiting to be processed
+     */
+    public static String KEY_LOG_QUEUE_SIZE = "log.queue.size";
+    
+    /**
+     * Behaviour of the logger when its queue is full : "block" (the caller waits), "drop" (detail messages are dropped)
+     * or "sample" (only one detail message out of log.sampling.rate is kept once the queue is half full)
+     */
+    public static String KEY_LOG_OVERFLOW_POLICY = "log.overflow.policy";
+    public static String KEY_LOG_SAMPLING_RATE = "log.sampling.rate";
+    
     /**
      * Size of the buffer used by the "filediff" classes
      */
@@ -191,6 +203,7 @@ public class FrameworkConfiguration {
     
     /**
      * Size of the hashmap used by the "filediff" classes
+     * <BR>No longer used : HashSequences are sized from the expected number of blocks
      */
     public static String KEY_DELTA_HASHMAP_SIZE = "delta.hashmap.size"; 
 
@@ -209,6 +222,7 @@ public class FrameworkConfiguration {
      * <BR>The current accessors are :
      * <BR>- com.myJava.file.metadata.windows.WindowsMetaDataAccessor on Windows
      * <BR>- com.myJava.file.metadata.posix.basic.DefaultMetaDataAccessor on Posix systems (only handles basic attributes, permissions, owner and group)
+     * <BR>- com.myJava.file.metadata.posix.nio.NIOMetaDataAccessor on Posix systems with a java 7 runtime (permissions, special bits, owner, group and user extended attributes). It is used by default if the configured accessor can't be loaded.
      * <BR>- com.myJava.file.metadata.posix.jni.JNIMetaDataAccessor : This advanced accessor uses JNI and native C code to access permissions, owner, group, ACL and extended attributes. It is only available for the systems the C code has been compiled for. Check Areca's website.
      */
     public static String KEY_FILESYSTEM_ACCESSOR = "filesystem.accessor.impl"; 
@@ -264,6 +278,49 @@ public class FrameworkConfiguration {
      */
     public static String KEY_SFTP_PAUTH_OVERRIDE = "sftp.preferred.auth.override";
     
+    /**
+     * Maximum number of user / group names kept in cache by the metadata accessors
+     */
+    public static String KEY_USERGROUP_CACHE_SIZE = "usergroup.cache.size";
+    
+    /**
+     * Time to live (ms) of the user / group names kept in cache by the metadata accessors - 0 = no expiration
+     */
+    public static String KEY_USERGROUP_CACHE_TTL = "usergroup.cache.ttl";
+    
+    /**
+     * Files (/etc/passwd and /etc/group format) loaded in the user and group caches before any lookup - empty to disable.
+     */
+    public static String KEY_USERGROUP_CACHE_USERS_FILE = "usergroup.cache.users.file";
+    public static String KEY_USERGROUP_CACHE_GROUPS_FILE = "usergroup.cache.groups.file";
+    
+    /**
+     * Size of the blocks compressed independently when parallel deflate is enabled (see CompressionArguments.getThreads())
+     */
+    public static String KEY_ZIP_PARALLEL_BLOCK_SIZE = "zip.parallel.block.size";
+    
+    /**
+     * Run each layer of the file system drivers (compression, encryption, write) in its own thread
+     */
+    public static String KEY_FS_PIPELINE_STAGES = "fs.pipeline.stages";
+    
+    /**
+     * Number and size of the buffers exchanged between two pipeline stages
+     */
+    public static String KEY_FS_PIPELINE_BUFFERS = "fs.pipeline.buffers";
+    public static String KEY_FS_PIPELINE_BUFFER_SIZE = "fs.pipeline.buffer.size";
+    
+    /**
+     * Write the files asynchronously (the final write is done by a dedicated thread)
+     */
+    public static String KEY_FS_ASYNC_OUTPUT = "fs.async.output";
+    
+    /**
+     * Number and size of the buffers waiting to be written asynchronously - bounds the memory used when the target is slow
+     */
+    public static String KEY_FS_ASYNC_BUFFERS = "fs.async.buffers";
+    public static String KEY_FS_ASYNC_BUFFER_SIZE = "fs.async.buffer.size";
+    
     public static boolean DEF_USE_GZIP = true;
     public static int DEF_ENCRYPTION_KG_ITER = 96731;
     public static String DEF_ENCRYPTION_KG_SALT = "%${{]}}[|`$^*!:/..;;,,_?\"\\@@%";
@@ -291,6 +348,9 @@ public class FrameworkConfiguration {
     public static long DEF_MAX_FILEPATH_LENGTH = 256;   
     public static int DEF_FORCE_FILEPATH_LENGTH_CHECK = -1;   // -1 = UNSET, 0 = FORCE DISABLE, 1 = FORCE ENABLE
     public static int DEF_DEFAULT_LOG_HISTORY = 10;  
+    public static int DEF_LOG_QUEUE_SIZE = 10000;
+    public static String DEF_LOG_OVERFLOW_POLICY = "block";
+    public static int DEF_LOG_SAMPLING_RATE = 10;
     //public static int DEF_DELTA_LINKEDLIST_BUFFER_SIZE = 200 * 1024; 
     public static int DEF_DELTA_HASHMAP_SIZE = 10007;
     public static int DEF_DELTA_QUICKHASH_MULTIPLIER = 691 * 13 * 11; 
@@ -310,6 +370,17 @@ public class FrameworkConfiguration {
     public static String DEF_POSIX_MTD_ACCESSOR_COMMAND = "ls";
     public static int DEF_SFTP_TIMEOUT = 5000;
     public static String DEF_SFTP_PAUTH_OVERRIDE = "";
+    public static int DEF_USERGROUP_CACHE_SIZE = 10000;
+    public static long DEF_USERGROUP_CACHE_TTL = 30*60*1000;
+    public static String DEF_USERGROUP_CACHE_USERS_FILE = "/etc/passwd";
+    public static String DEF_USERGROUP_CACHE_GROUPS_FILE = "/etc/group";
+    public static int DEF_ZIP_PARALLEL_BLOCK_SIZE = 128*1024;
+    public static boolean DEF_FS_PIPELINE_STAGES = false;
+    public static int DEF_FS_PIPELINE_BUFFERS = 4;
+    public static int DEF_FS_PIPELINE_BUFFER_SIZE = 64*1024;
+    public static boolean DEF_FS_ASYNC_OUTPUT = false;
+    public static int DEF_FS_ASYNC_BUFFERS = 8;
+    public static int DEF_FS_ASYNC_BUFFER_SIZE = 64*1024;
     
     private static String VM_PROPS_PREFIX = "launcher.d.";
     
@@ -404,6 +475,50 @@ public class FrameworkConfiguration {
         return getProperty(KEY_POSIX_MTD_ACCESSOR_COMMAND, DEF_POSIX_MTD_ACCESSOR_COMMAND);
     }
     
+    public int getUserGroupCacheSize() {
+        return getProperty(KEY_USERGROUP_CACHE_SIZE, DEF_USERGROUP_CACHE_SIZE);
+    }
+    
+    public long getUserGroupCacheTTL() {
+        return getProperty(KEY_USERGROUP_CACHE_TTL, DEF_USERGROUP_CACHE_TTL);
+    }
+    
+    public String getUserGroupCacheUsersFile() {
+        return getProperty(KEY_USERGROUP_CACHE_USERS_FILE, DEF_USERGROUP_CACHE_USERS_FILE);
+    }
+    
+    public String getUserGroupCacheGroupsFile() {
+        return getProperty(KEY_USERGROUP_CACHE_GROUPS_FILE, DEF_USERGROUP_CACHE_GROUPS_FILE);
+    }
+    
+    public int getZipParallelBlockSize() {
+        return getProperty(KEY_ZIP_PARALLEL_BLOCK_SIZE, DEF_ZIP_PARALLEL_BLOCK_SIZE);
+    }
+    
+    public boolean usePipelineStages() {
+        return getProperty(KEY_FS_PIPELINE_STAGES, DEF_FS_PIPELINE_STAGES);
+    }
+    
+    public int getPipelineBuffers() {
+        return getProperty(KEY_FS_PIPELINE_BUFFERS, DEF_FS_PIPELINE_BUFFERS);
+    }
+    
+    public int getPipelineBufferSize() {
+        return getProperty(KEY_FS_PIPELINE_BUFFER_SIZE, DEF_FS_PIPELINE_BUFFER_SIZE);
+    }
+    
+    public boolean useAsyncOutput() {
+        return getProperty(KEY_FS_ASYNC_OUTPUT, DEF_FS_ASYNC_OUTPUT);
+    }
+    
+    public int getAsyncBuffers() {
+        return getProperty(KEY_FS_ASYNC_BUFFERS, DEF_FS_ASYNC_BUFFERS);
+    }
+    
+    public int getAsyncBufferSize() {
+        return getProperty(KEY_FS_ASYNC_BUFFER_SIZE, DEF_FS_ASYNC_BUFFER_SIZE);
+    }
+    
     public String getViewerHandlerImpl() {
     	return getProperty(KEY_VIEWER_HANDLER, DEF_VIEWER_HANDLER);
     }
@@ -488,6 +603,18 @@ public class FrameworkConfiguration {
         return getProperty(KEY_DEFAULT_LOG_HISTORY, DEF_DEFAULT_LOG_HISTORY);
     }
     
+    public int getLogQueueSize() {
+        return getProperty(KEY_LOG_QUEUE_SIZE, DEF_LOG_QUEUE_SIZE);
+    }
+    
+    public String getLogOverflowPolicy() {
+        return getProperty(KEY_LOG_OVERFLOW_POLICY, DEF_LOG_OVERFLOW_POLICY);
+    }
+    
+    public int getLogSamplingRate() {
+        return getProperty(KEY_LOG_SAMPLING_RATE, DEF_LOG_SAMPLING_RATE);
+    }
+    
     public boolean isHashCacheMode() {
         return getProperty(KEY_HASH_USE_CACHE, DEF_HASH_USE_CACHE);
     }
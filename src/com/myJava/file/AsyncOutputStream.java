@@ -2,172 +2,318 @@ package com.myJava.file;
 
 import java.io.IOException;
 import java.io.OutputStream;
-import java.util.ArrayList;
 
+import com.myJava.configuration.FrameworkConfiguration;
 import com.myJava.util.log.Logger;
 
 /**
+ * OutputStream which writes its data asynchronously : the data are handed to a consumer thread which writes them to the underlying stream.
+ * <BR>The data are exchanged through a bounded ring of recycled buffers (single producer / single consumer) :
+ * <BR>- each write is copied once into the current buffer - no allocation per write,
+ * <BR>- the caller blocks when all the buffers are waiting to be written (back-pressure : the memory used is bounded whatever the speed of the target),
+ * <BR>- the ring's positions are volatile sequence numbers, each one being modified by a single thread : the monitor is only used
+ * to sleep when the ring is full (producer) or empty (consumer).
+ * <BR>The consumer thread is only started once the first buffer is full, so small files are written synchronously.
+ * <BR>Errors raised by the consumer thread are thrown to the caller by the next write / flush / close.
  * <BR>
  * @author Olivier PETRUCCI
- * <BR>
- *
- */
-
- /*
- Copyright 2005-2015, Olivier PETRUCCI.
-
-This file is part of Areca.
-
-    Areca is free software; you can redistribute it and/or modify
-    it under the terms of the GNU General Public License as published by
-    the Free Software Foundation; either version 2 of the License, or
-    (at your option) any later version.
-
-    Areca is distributed in the hope that it will be useful,
-    but WITHOUT ANY WARRANTY; without even the implied warranty of
-    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
-    GNU General Public License for more details.
-
-    You should have received a copy of the GNU General Public License
-    along with Areca; if not, write to the Free Software
-    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ * <BR>
+ *
+ */
+
+ /*
+ Copyright 2005-2015, Olivier PETRUCCI.
+
+This file is part of Areca.
+
+    Areca is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    Areca is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Areca; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
 
  */
 public class AsyncOutputStream extends OutputStream {
-	private static int WAIT = 5000;
-	
+	private static final long WAIT = 5000;
+	private static final int BUFFERS = Math.max(2, FrameworkConfiguration.getInstance().getAsyncBuffers());
+	private static final int BUFFER_SIZE = Math.max(1024, FrameworkConfiguration.getInstance().getAsyncBufferSize());
+	private static int CONSUMER_ID = 0;
+
 	private OutputStream out;
-	private ArrayList tasks = new ArrayList();
-	private Object lock = this;
-	private Exception error;
-	private TaskConsumer consumer;
-	private Thread consumerThread;
+	private Object lock = new Object();
+
+	// Ring of buffers : the buffers [consumed, published[ are waiting to be written by the consumer thread.
+	// "published" is only modified by the producer, "consumed" by the consumer.
+	private byte[][] buffers;
+	private int[] lengths;
+	private volatile long published = 0;
+	private volatile long consumed = 0;
+	private volatile boolean producerWaiting = false;
+	private volatile boolean consumerWaiting = false;
+	private volatile boolean finished = false;
+	private volatile Throwable error;
+
+	private byte[] current;
+	private int count;
+	private boolean closed = false;
+	private Thread consumer;
+
+	// Metrics
+	private long written = 0;
+	private int maxQueueDepth = 0;
+	private int stalls = 0;
+	private long stallTime = 0;
 
 	public AsyncOutputStream(OutputStream out) {
+		this(out, BUFFERS, BUFFER_SIZE);
+	}
+
+	public AsyncOutputStream(OutputStream out, int nbBuffers, int bufferSize) {
 		this.out = out;
-		
-		// Create and launch consumer thread
-		consumer = new TaskConsumer(true);
-		consumerThread = new Thread(consumer);
-		consumerThread.setDaemon(false);
-		consumerThread.setName("Write Task Consumer");
-		consumerThread.start();
+		this.buffers = new byte[nbBuffers][];
+		this.lengths = new int[nbBuffers];
+		this.buffers[0] = new byte[bufferSize];
+		this.current = buffers[0];
+	}
+
+	public void write(int b) throws IOException {
+		if (count == current.length) {
+			publish();
+		}
+		current[count++] = (byte)b;
+	}
+
+	public void write(byte[] b, int off, int len) throws IOException {
+		while (len > 0) {
+			if (count == current.length) {
+				publish();
+			}
+			int n = Math.min(len, current.length - count);
+			System.arraycopy(b, off, current, count, n);
+			count += n;
+			off += n;
+			len -= n;
+		}
+	}
+
+	public void flush() throws IOException {
+		drain();
+		out.flush();
 	}
 
 	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
 		try {
-			checkError();
-			this.consumer.setInfiniteLoop(false);
+			drain();
+		} finally {
 			try {
-				consumerThread.join();
-			} catch (InterruptedException e) {
-				throw new IOException(e);
+				stopConsumer();
+			} finally {
+				out.close();
 			}
-			this.flush();
-		} finally {
-			this.out.close();
 		}
 	}
 
-	public void flush() throws IOException {
-		checkError();
-		this.out.flush();
+	/**
+	 * Number of buffers currently waiting to be written
+	 */
+	public int getQueueDepth() {
+		return (int)(published - consumed);
 	}
 
-	public void write(byte[] b, int offset, int length) throws IOException {
-		checkError();
-		addTask(new WriteTask(cloneData(b, offset, length)));
+	public int getMaxQueueDepth() {
+		return maxQueueDepth;
 	}
 
-	public void write(byte[] b) throws IOException {
-		checkError();
-		write(b, 0, b.length);
+	/**
+	 * Number of times the caller was blocked because all the buffers were in use
+	 */
+	public int getStalls() {
+		return stalls;
 	}
 
-	public void write(int b) throws IOException {
-		checkError();
-		Logger.defaultLogger().warn("Caution : Accessing AsyncOutputStream byte by byte - not optimal.");
-		addTask(new WriteTask(b));
+	/**
+	 * Total time (in milliseconds) during which the caller was blocked because all the buffers were in use
+	 */
+	public long getStallTime() {
+		return stallTime / 1000000;
 	}
-	
-	private void addTask(WriteTask task) {
-		synchronized (lock) {
-			tasks.add(task);
-			lock.notify();
-		}
+
+	public long getWritten() {
+		return written;
 	}
-	
-	private byte[] cloneData(byte[] in, int offset, int length) {
-		byte[] out = new byte[length];
-		for (int i=offset; i<offset+length; i++) {
-			out[i-offset] = in[i];
-		}
-		return out;
+
+	protected String getConsumerName() {
+		return "Write Task Consumer";
 	}
-	
-	private static class WriteTask {
-		private byte[] data;
 
-		public WriteTask(byte[] data) {
-			this.data = data;
+	/**
+	 * Hand the current buffer to the consumer thread and acquire the next one - blocks while all the buffers are in use
+	 */
+	private void publish() throws IOException {
+		checkError();
+		lengths[slot(published)] = count;
+		written += count;
+		published++;
+
+		int depth = getQueueDepth();
+		if (depth > maxQueueDepth) {
+			maxQueueDepth = depth;
 		}
-		
-		public WriteTask(int data) {
-			this.data = new byte[] {(byte)data};
+		if (consumer == null) {
+			startConsumer();
+		} else if (consumerWaiting) {
+			signal();
 		}
 
-		public byte[] getData() {
-			return data;
+		if (published - consumed == buffers.length) {
+			long start = System.nanoTime();
+			stalls++;
+			waitForConsumer(buffers.length - 1);
+			stallTime += System.nanoTime() - start;
 		}
+		checkError();
+
+		int s = slot(published);
+		if (buffers[s] == null) {
+			buffers[s] = new byte[current.length];
+		}
+		current = buffers[s];
+		count = 0;
 	}
-	
-	private void checkError() throws IOException {
-		synchronized(lock) {
-			if (error != null) {
-				error = null;
-				throw new IOException(error);
+
+	/**
+	 * Write the pending data and wait until the consumer thread has written all of them
+	 */
+	private void drain() throws IOException {
+		if (consumer == null) {
+			// Nothing has been handed to the consumer thread : write synchronously
+			if (count != 0) {
+				out.write(current, 0, count);
+				written += count;
+				count = 0;
+			}
+		} else {
+			if (count != 0) {
+				publish();
+			}
+			waitForConsumer(0);
+			checkError();
+		}
+	}
+
+	/**
+	 * Wait until the number of pending buffers is lower or equal to "depth" (or until an error is raised)
+	 */
+	private void waitForConsumer(int depth) throws IOException {
+		synchronized (lock) {
+			producerWaiting = true;
+			try {
+				while (published - consumed > depth && error == null) {
+					lock.wait(WAIT);
+				}
+			} catch (InterruptedException e) {
+				throw new IOException("Interrupted while waiting for the asynchronous writer.", e);
+			} finally {
+				producerWaiting = false;
+			}
+		}
+	}
+
+	private void stopConsumer() throws IOException {
+		if (consumer != null) {
+			finished = true;
+			signal();
+			try {
+				consumer.join();
+			} catch (InterruptedException e) {
+				throw new IOException("Interrupted while waiting for the asynchronous writer to complete.", e);
 			}
+			Logger.defaultLogger().fine(getConsumerName() + " : " + written + " bytes written, max queue depth = " + maxQueueDepth + "/" + buffers.length + ", " + stalls + " stalls (" + getStallTime() + " ms)");
+			checkError();
 		}
 	}
-	
-	private class TaskConsumer implements Runnable {	
-		private boolean infiniteLoop = true;
 
-		public TaskConsumer(boolean infiniteLoop) {
-			this.infiniteLoop = infiniteLoop;
+	private void startConsumer() {
+		consumer = new Thread(new Consumer());
+		consumer.setDaemon(true);
+		consumer.setName(getConsumerName() + " #" + nextId());
+		consumer.start();
+	}
+
+	private void signal() {
+		synchronized (lock) {
+			lock.notifyAll();
 		}
+	}
 
-		public void setInfiniteLoop(boolean infiniteLoop) {
-			this.infiniteLoop = infiniteLoop;
+	private int slot(long sequence) {
+		return (int)(sequence % buffers.length);
+	}
+
+	private void checkError() throws IOException {
+		Throwable e = error;
+		if (e != null) {
+			if (e instanceof IOException) {
+				throw new IOException(e.getMessage(), e);
+			} else {
+				throw new IOException("Error during asynchronous write : " + e.getMessage(), e);
+			}
 		}
+	}
 
+	private static synchronized int nextId() {
+		return CONSUMER_ID++;
+	}
+
+	private class Consumer implements Runnable {
 		public void run() {
 			try {
-				while (infiniteLoop || (! tasks.isEmpty())) {
-					WriteTask task = null;
-					synchronized(lock) {
-						if (! tasks.isEmpty()) {
-							task = (WriteTask)tasks.remove(0);
+				while (true) {
+					// "finished" must be read before "published" : the last buffer is published before the stream is finished
+					boolean last = finished;
+					if (consumed == published) {
+						if (last) {
+							return;
 						}
-					}
-
-					if (task != null) {
-						out.write(task.getData());
-					}
-
-					synchronized(lock) {
-						if (infiniteLoop && tasks.isEmpty()) {
-							try {
-								lock.wait(WAIT);
-							} catch (InterruptedException e) {
-								e.printStackTrace();
-							}
+						waitForProducer();
+					} else {
+						int s = slot(consumed);
+						out.write(buffers[s], 0, lengths[s]);
+						consumed++;
+						if (producerWaiting) {
+							signal();
 						}
 					}
 				}
-			} catch (Exception e) {
+			} catch (Throwable e) {
 				Logger.defaultLogger().error(e);
 				error = e;
+				signal();
+			}
+		}
+
+		private void waitForProducer() throws InterruptedException {
+			synchronized (lock) {
+				consumerWaiting = true;
+				try {
+					while (consumed == published && ! finished) {
+						lock.wait(WAIT);
+					}
+				} finally {
+					consumerWaiting = false;
+				}
 			}
 		}
 	}
@@ -45,6 +45,9 @@ public class CompressionArguments implements Duplicable {
     protected boolean useZip64 = false;
     protected boolean addExtension = true;
     protected int level = -1;
+    protected int threads = 1;
+    protected String codec = null;
+    protected String metadataCodec = null;
 
     public int getLevel() {
 		return level;
@@ -54,6 +57,40 @@ public class CompressionArguments implements Duplicable {
 		this.level = level;
 	}
 
+	/**
+	 * Number of threads used to compress the data - 1 (default) for sequential compression
+	 */
+	public int getThreads() {
+		return threads;
+	}
+
+	public void setThreads(int threads) {
+		this.threads = Math.max(1, threads);
+	}
+
+	/**
+	 * Codec used to compress the stored files (see CodecRegistry) - null for zip compression
+	 * <BR>Only used by the storage drivers : archives (zip media) are always zip files.
+	 */
+	public String getCodec() {
+		return codec;
+	}
+
+	public void setCodec(String codec) {
+		this.codec = codec;
+	}
+
+	/**
+	 * Codec used to compress the metadata files (see CodecRegistry) - null for the default codec (see ArecaConfiguration)
+	 */
+	public String getMetadataCodec() {
+		return metadataCodec;
+	}
+
+	public void setMetadataCodec(String metadataCodec) {
+		this.metadataCodec = metadataCodec;
+	}
+
 	public Charset getCharset() {
         return charset;
     }
@@ -125,6 +162,9 @@ public class CompressionArguments implements Duplicable {
                     EqualsHelper.equals(other.addExtension, this.addExtension) 
                     && EqualsHelper.equals(other.isCompressed, this.isCompressed) 
                     && EqualsHelper.equals(other.level, this.level) 
+                    && EqualsHelper.equals(other.threads, this.threads) 
+                    && EqualsHelper.equals(other.codec, this.codec) 
+                    && EqualsHelper.equals(other.metadataCodec, this.metadataCodec) 
                     && EqualsHelper.equals(other.nbDigits, this.nbDigits) 
                     && EqualsHelper.equals(other.useZip64, this.useZip64) 
                     && EqualsHelper.equals(other.volumeSize, this.volumeSize) 
@@ -140,6 +180,9 @@ public class CompressionArguments implements Duplicable {
         h = HashHelper.hash(h, this.addExtension);
 		h = HashHelper.hash(h, this.isCompressed);
 		h = HashHelper.hash(h, this.level);
+		h = HashHelper.hash(h, this.threads);
+		h = HashHelper.hash(h, this.codec);
+		h = HashHelper.hash(h, this.metadataCodec);
 		h = HashHelper.hash(h, this.nbDigits);
 		h = HashHelper.hash(h, this.useZip64);
 		h = HashHelper.hash(h, this.volumeSize);
@@ -153,6 +196,9 @@ public class CompressionArguments implements Duplicable {
         clone.setCharset(charset);
         clone.setComment(comment);
         clone.setLevel(level);
+        clone.setThreads(threads);
+        clone.setCodec(codec);
+        clone.setMetadataCodec(metadataCodec);
         clone.setAddExtension(addExtension);
         clone.setCompressed(isCompressed);
         clone.setUseZip64(useZip64);
@@ -163,6 +209,7 @@ public class CompressionArguments implements Duplicable {
     public String toString() {
         StringBuffer sb = ToStringHelper.init(this);
         ToStringHelper.append("IsCompressed", this.isCompressed, sb);
+        ToStringHelper.append("MetadataCodec", this.metadataCodec, sb);
         if (isCompressed) {
             ToStringHelper.append("Zip64", this.useZip64, sb);
             ToStringHelper.append("Add extension", this.addExtension, sb);
@@ -171,6 +218,8 @@ public class CompressionArguments implements Duplicable {
             ToStringHelper.append("VolumeSize", this.volumeSize, sb);
             ToStringHelper.append("NbDigits", this.nbDigits, sb);
             ToStringHelper.append("Level", this.level, sb);
+            ToStringHelper.append("Threads", this.threads, sb);
+            ToStringHelper.append("Codec", this.codec, sb);
         }
         return ToStringHelper.close(sb);
     }
@@ -57,23 +57,31 @@ This file is part of Areca.
 
  */
 public class FileSystemManager {
-	protected static FileSystemManager instance = new FileSystemManager();
 	protected static int MAX_CACHED_MOUNTPOINTS = FrameworkConfiguration.getInstance().getMaxCachedMountPoints();
+	protected static FileSystemManager instance = new FileSystemManager();
 
 	/**
-	 * Drivers indexed by mount point
+	 * Drivers indexed by mount point. This map is only accessed under the manager's lock ; the mount point tree is built from it.
 	 */
-	protected Map driverCache = new HashMap();
+	protected Map driversReference = new HashMap();
 
 	/**
-	 * Drivers indexed by mount point. This map is used as reference to reset the driver cache when needed.
+	 * Immutable tree of the mount points, rebuilt each time a driver is registered or unregistered.
+	 * <BR>The drivers are resolved without any lock.
 	 */
-	protected Map driversReference = new HashMap();
+	protected volatile MountPointTrie mountPoints = new MountPointTrie(driversReference);
+
+	/**
+	 * Resolution cache (File -> driver), bounded to MAX_CACHED_MOUNTPOINTS entries.
+	 * <BR>Each slot holds an immutable entry which is only valid for the mount point tree it was resolved with : the slots can thus be read
+	 * and overwritten concurrently without any lock.
+	 */
+	protected ResolvedDriver[] resolutionCache = new ResolvedDriver[cacheSize(MAX_CACHED_MOUNTPOINTS)];
 
 	/**
 	 * Default driver
 	 */
-	protected FileSystemDriver defaultDriver = new DefaultFileSystemDriver();
+	protected volatile FileSystemDriver defaultDriver = new DefaultFileSystemDriver();
 
 	/**
 	 * Roots of the filesystem
@@ -83,7 +91,14 @@ public class FileSystemManager {
 	/**
 	 * Optimization : this flag is set to "true" as soon as a first driver is explicitely registered
 	 */
-	protected boolean hasOnlyDefaultDriver = true;
+	protected volatile boolean hasOnlyDefaultDriver = true;
+
+	/**
+	 * Resolution statistics. These counters are not synchronized (to keep the resolution lock-free) and are thus approximate.
+	 */
+	protected long resolutions = 0;
+	protected long cacheHits = 0;
+	protected long mountPointUpdates = 0;
 
 	public static FileSystemManager getInstance() {
 		return instance;
@@ -101,7 +116,7 @@ public class FileSystemManager {
 		return new FileSystemDriversRestorePoint(this.driversReference);
 	}
 	
-	public void applyRestorePoint(FileSystemDriversRestorePoint restorePoint) {
+	public synchronized void applyRestorePoint(FileSystemDriversRestorePoint restorePoint) {
 		restorePoint.apply(driversReference);
 		this.resetDriverCache();
 	}
@@ -143,11 +158,11 @@ public class FileSystemManager {
 	}
 
 	/**
-	 * Clear the driver cache and put all references contained in the "driverReference" map
+	 * Publish a new mount point tree built from the "driverReference" map ; the cached resolutions are invalidated.
 	 */
 	private void resetDriverCache() {
-		this.driverCache.clear();
-		this.driverCache.putAll(this.driversReference);
+		this.mountPoints = new MountPointTrie(this.driversReference);
+		this.mountPointUpdates++;
 	}
 
 	/**
@@ -162,17 +177,17 @@ public class FileSystemManager {
 	 * Retourne le driver approprie pour le fichier specifie. <BR>
 	 * Si aucun driver n'est trouve, le driver par defaut est retourne.
 	 */
-	public synchronized FileSystemDriver getDriver(File file) {
+	public FileSystemDriver getDriver(File file) {
 		// Si aucun driver n'a ete enregistre, on retourne le driver par defaut
 		if (this.hasOnlyDefaultDriver) {
 			return this.defaultDriver;
 		}
 
 		// Sinon, on recherche le Driver
-		return resolveDriver(file, true);
+		return resolveDriver(file);
 	}
 
-	public synchronized FileSystemDriver getDefaultDriver() {
+	public FileSystemDriver getDefaultDriver() {
 		return defaultDriver;
 	}
 
@@ -182,45 +197,75 @@ public class FileSystemManager {
 	 */
 	public synchronized void setDefaultDriver(FileSystemDriver defaultDriver) {
 		this.defaultDriver = defaultDriver;
+		this.resetDriverCache();
 	}
 
 	/**
-	 * Store a driver in the driver cache without any check (for instance that a previous driver exists)
+	 * Resolve the driver for the file passed as argument
+	 * <BR>The resolution cache is looked up first ; the mount point tree is walked if the file is not cached (or if the tree has changed since
+	 * it was cached).
 	 */
-	private Object cacheDriver(File mountPoint, FileSystemDriver driver) {
-		if (this.driverCache.size() >= MAX_CACHED_MOUNTPOINTS) {
-			// Max size reached -> destroy all
-			this.resetDriverCache();
+	private FileSystemDriver resolveDriver(File file) {
+		MountPointTrie mounts = this.mountPoints;
+		ResolvedDriver[] cache = this.resolutionCache;
+		int slot = (file.hashCode() & 0x7FFFFFFF) & (cache.length - 1);
+		this.resolutions++;
+
+		ResolvedDriver cached = cache[slot];
+		if (cached != null && cached.mountPoints == mounts && cached.file.equals(file)) {
+			this.cacheHits++;
+			return cached.driver;
+		}
+
+		FileSystemDriver driver = mounts.resolve(file);
+		if (driver == null) {
+			driver = this.defaultDriver;
 		}
-		return this.driverCache.put(mountPoint, driver);
+		cache[slot] = new ResolvedDriver(file, driver, mounts);
+		return driver;
 	}
 
 	/**
-	 * Resolve the driver for the file passed as argument
-	 * @param file
-	 * @param firstCall
-	 * @return
+	 * Number of driver resolutions (approximate)
 	 */
-	private FileSystemDriver resolveDriver(File file, boolean firstCall) {
-		// lookup in driver map
-		Object driver = this.driverCache.get(file);
-		if (driver == null) {
-			if (this.isRoot(file)) {
-				return this.defaultDriver;
-			} else {
-				// search again - for parent directory
-				File parent = file.getParentFile();
-				FileSystemDriver returned = this.resolveDriver(parent, false);
+	public long getResolutions() {
+		return resolutions;
+	}
 
-				if (!firstCall) {
-					// Register the driver in the driver cache
-					this.cacheDriver(file, returned);
-				}
+	/**
+	 * Number of driver resolutions served by the resolution cache (approximate)
+	 */
+	public long getCacheHits() {
+		return cacheHits;
+	}
 
-				return returned;
-			}
-		} else {
-			return (FileSystemDriver) driver;
+	/**
+	 * Number of times the mount point tree has been rebuilt
+	 */
+	public long getMountPointUpdates() {
+		return mountPointUpdates;
+	}
+
+	private static int cacheSize(int maxEntries) {
+		int size = 16;
+		while (size < maxEntries && size < (1 << 20)) {
+			size <<= 1;
+		}
+		return size;
+	}
+
+	/**
+	 * Immutable entry of the resolution cache
+	 */
+	protected static class ResolvedDriver {
+		private final File file;
+		private final FileSystemDriver driver;
+		private final MountPointTrie mountPoints;
+
+		private ResolvedDriver(File file, FileSystemDriver driver, MountPointTrie mountPoints) {
+			this.file = file;
+			this.driver = driver;
+			this.mountPoints = mountPoints;
 		}
 	}
 
@@ -36,22 +36,22 @@ This file is part of Areca.
 public class MeteredOutputStreamListener implements OutputStreamListener, Externalizable {
 	private long written;
 	
-	public void bytesWritten(byte[] data, int offset, int length) {
+	public synchronized void bytesWritten(byte[] data, int offset, int length) {
 		written += length;
 	}
 
 	public void closed() {
 	}
 
-	public long getWritten() {
+	public synchronized long getWritten() {
 		return this.written;
 	}
 
-	public void byteWritten(int data) {
+	public synchronized void byteWritten(int data) {
 		written += 1;
 	}
 
-	public void reset() {
+	public synchronized void reset() {
 		written = 0;
 	}
 
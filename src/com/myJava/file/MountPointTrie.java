@@ -0,0 +1,159 @@
+package com.myJava.file;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import com.myJava.file.driver.FileSystemDriver;
+import com.myJava.object.ToStringHelper;
+
+/**
+ * Immutable tree of mount points, indexed by path components.
+ * <BR>The tree is never modified once built : a new tree is built each time a driver is registered or unregistered (copy on write),
+ * so it can be read by several threads without any lock.
+ * <BR>The resolution walks the path in place (no File / String is allocated) and returns the driver of the deepest mount point
+ * containing the path, as the former lookup on the parent files did.
+ * <BR>
+ * @author Olivier PETRUCCI
+ * <BR>
+ *
+ */
+
+ /*
+ Copyright 2005-2015, Olivier PETRUCCI.
+
+This file is part of Areca.
+
+    Areca is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    Areca is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Areca; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+ */
+public class MountPointTrie {
+	/**
+	 * Same rule as File.equals()
+	 */
+	private static final boolean IGNORE_CASE = File.separatorChar == '\\';
+	private static final char SEPARATOR = File.separatorChar;
+
+	private final Node root;
+	private final int size;
+
+	/**
+	 * Build the tree of the mount points passed as argument (File -> FileSystemDriver)
+	 */
+	public MountPointTrie(Map mountPoints) {
+		Node r = new Node("", null);
+		Iterator iter = mountPoints.entrySet().iterator();
+		while (iter.hasNext()) {
+			Map.Entry entry = (Map.Entry)iter.next();
+			r.add(((File)entry.getKey()).getPath(), (FileSystemDriver)entry.getValue());
+		}
+		r.freeze();
+		this.root = r;
+		this.size = mountPoints.size();
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Return the driver of the deepest mount point containing the file passed as argument, or null if there is none.
+	 */
+	public FileSystemDriver resolve(File file) {
+		String path = file.getPath();
+		int len = path.length();
+		Node node = root;
+		FileSystemDriver driver = null;
+		int start = 0;
+		while (node != null && start < len) {
+			int end = path.indexOf(SEPARATOR, start);
+			if (end == -1) {
+				end = len;
+			}
+			node = node.getChild(path, start, end - start);
+			if (node != null && node.driver != null) {
+				driver = node.driver;
+			}
+			start = end + 1;
+		}
+		return driver;
+	}
+
+	public String toString() {
+		StringBuffer sb = ToStringHelper.init(this);
+		ToStringHelper.append("Mount points", size, sb);
+		return ToStringHelper.close(sb);
+	}
+
+	private static class Node {
+		private String name;
+		private FileSystemDriver driver;
+		private Node[] children;
+		private List builder = new ArrayList();
+
+		private Node(String name, FileSystemDriver driver) {
+			this.name = name;
+			this.driver = driver;
+		}
+
+		private void add(String path, FileSystemDriver driver) {
+			Node node = this;
+			int len = path.length();
+			int start = 0;
+			while (start < len) {
+				int end = path.indexOf(SEPARATOR, start);
+				if (end == -1) {
+					end = len;
+				}
+				String component = path.substring(start, end);
+				Node child = null;
+				for (int i=0; i<node.builder.size(); i++) {
+					Node n = (Node)node.builder.get(i);
+					if (IGNORE_CASE ? n.name.equalsIgnoreCase(component) : n.name.equals(component)) {
+						child = n;
+						break;
+					}
+				}
+				if (child == null) {
+					child = new Node(component, null);
+					node.builder.add(child);
+				}
+				node = child;
+				start = end + 1;
+			}
+			node.driver = driver;
+		}
+
+		private void freeze() {
+			children = (Node[])builder.toArray(new Node[builder.size()]);
+			builder = null;
+			for (int i=0; i<children.length; i++) {
+				children[i].freeze();
+			}
+		}
+
+		private Node getChild(String path, int offset, int len) {
+			for (int i=0; i<children.length; i++) {
+				Node n = children[i];
+				if (n.name.length() == len && path.regionMatches(IGNORE_CASE, offset, n.name, 0, len)) {
+					return n;
+				}
+			}
+			return null;
+		}
+	}
+}
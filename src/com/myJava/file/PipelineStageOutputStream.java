@@ -0,0 +1,64 @@
+package com.myJava.file;
+
+import java.io.OutputStream;
+
+import com.myJava.configuration.FrameworkConfiguration;
+
+/**
+ * Stage boundary between two layers of a stream pipeline : the data written by the caller are handed
+ * to a dedicated thread which writes them to the underlying stream (see AsyncOutputStream).
+ * <BR>
+ * @author Olivier PETRUCCI
+ * <BR>
+ *
+ */
+
+ /*
+ Copyright 2005-2015, Olivier PETRUCCI.
+
+This file is part of Areca.
+
+    Areca is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    Areca is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Areca; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+ */
+public class PipelineStageOutputStream extends AsyncOutputStream {
+	private static final boolean ENABLED = FrameworkConfiguration.getInstance().usePipelineStages();
+	private static final int BUFFERS = Math.max(2, FrameworkConfiguration.getInstance().getPipelineBuffers());
+	private static final int BUFFER_SIZE = Math.max(1024, FrameworkConfiguration.getInstance().getPipelineBufferSize());
+
+	public PipelineStageOutputStream(OutputStream out) {
+		this(out, BUFFERS, BUFFER_SIZE);
+	}
+
+	public PipelineStageOutputStream(OutputStream out, int nbBuffers, int bufferSize) {
+		super(out, nbBuffers, bufferSize);
+	}
+
+	/**
+	 * Insert a stage boundary in front of the stream passed as argument if pipeline stages are enabled
+	 * (see FrameworkConfiguration.usePipelineStages())
+	 */
+	public static OutputStream wrap(OutputStream out) {
+		return ENABLED ? new PipelineStageOutputStream(out) : out;
+	}
+
+	public static boolean isEnabled() {
+		return ENABLED;
+	}
+
+	protected String getConsumerName() {
+		return "Pipeline Stage";
+	}
+}
@@ -0,0 +1,455 @@
+package com.myJava.file.archive.zip64;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.LinkedList;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Parallel deflate (same principle as "pigz").
+ * <BR>The data is split into blocks that are compressed independently by a pool of worker threads.
+ * <BR>Each block is primed with the last 32 kbytes of the previous one (deflate's window) so that the compression ratio
+ * is almost the same as with a single Deflater. All blocks but the last one are terminated by a SYNC_FLUSH (which aligns
+ * them on a byte boundary) ; the last one is terminated by a FINISH. Their concatenation is thus a standard raw deflate stream,
+ * readable by any inflater.
+ * <BR>The CRC32 of each block is computed by the workers, and the CRCs are combined in the writer's thread.
+ * <BR>
+ * <BR>Compressed blocks are written to the underlying stream in their original order, by the thread that calls write() or finish().
+ * <BR>The number of blocks in progress is limited (2 per thread) to bound the memory usage.
+ * <BR>Data that fit in a single block are compressed by the caller's thread without any dictionary, which gives exactly the
+ * output of a standard Deflater.
+ * <BR>
+ * <BR>The worker threads are shared by all instances ; the pool grows up to the highest number of threads that has been requested.
+ * <BR>
+ * <BR>The SYNC_FLUSH requires Deflater.deflate(byte[], int, int, int), which is only available since Java 7 : callers must check
+ * isSupported() before building a ParallelDeflater.
+ * <BR>
+ * @author Olivier PETRUCCI
+ * <BR>
+ *
+ */
+
+ /*
+ Copyright 2005-2015, Olivier PETRUCCI.
+
+This file is part of Areca.
+
+    Areca is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    Areca is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Areca; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+ */
+public class ParallelDeflater {
+	private static final int DICTIONARY_SIZE = 32 * 1024;
+	private static final int MIN_BLOCK_SIZE = DICTIONARY_SIZE;
+	private static final int PENDING_BY_THREAD = 2;
+	private static final long WAIT = 5000;
+
+	/**
+	 * Blocks waiting for a worker (shared by all instances)
+	 */
+	private static final LinkedList QUEUE = new LinkedList();
+	private static int WORKERS = 0;
+
+	private static final boolean SUPPORTED = checkSupport();
+
+	private OutputStream out;
+	private int level;
+	private int blockSize;
+	private int maxPending;
+
+	/**
+	 * Blocks that have been submitted but not written yet, in their original order
+	 */
+	private LinkedList pending = new LinkedList();
+
+	private byte[] current;
+	private int currentLength;
+	private byte[] previous;
+	private int previousLength;
+	private boolean submitted;
+
+	private Deflater inlineDeflater;
+	private long totalIn;
+	private long totalOut;
+	private long crc;
+
+	/**
+	 * @param out Stream the compressed data are written to
+	 * @param level Compression level (see Deflater)
+	 * @param threads Number of worker threads
+	 * @param blockSize Size of the blocks that are compressed independently
+	 */
+	public ParallelDeflater(OutputStream out, int level, int threads, int blockSize) {
+		this.out = out;
+		this.level = level;
+		this.blockSize = Math.max(MIN_BLOCK_SIZE, blockSize);
+		this.maxPending = Math.max(1, threads) * PENDING_BY_THREAD;
+		ensureWorkers(threads);
+	}
+
+	public void setLevel(int level) {
+		this.level = level;
+	}
+
+	public long getTotalIn() {
+		return totalIn;
+	}
+
+	public long getTotalOut() {
+		return totalOut;
+	}
+
+	/**
+	 * Return the CRC32 of the uncompressed data
+	 */
+	public long getCrc() {
+		return crc;
+	}
+
+	public void write(byte[] b, int off, int len) throws IOException {
+		while (len > 0) {
+			if (current == null) {
+				current = new byte[blockSize];
+			}
+			int n = Math.min(len, blockSize - currentLength);
+			System.arraycopy(b, off, current, currentLength, n);
+			currentLength += n;
+			off += n;
+			len -= n;
+			totalIn += n;
+
+			if (currentLength == blockSize) {
+				submit(false);
+			}
+		}
+	}
+
+	/**
+	 * Compress the remaining data and write all compressed blocks
+	 */
+	public void finish() throws IOException {
+		if (! submitted) {
+			// Single block : no need to use the workers
+			if (inlineDeflater == null) {
+				inlineDeflater = new Deflater(level, true);
+			} else {
+				inlineDeflater.reset();
+				inlineDeflater.setLevel(level);
+			}
+			Block block = new Block(this, current, currentLength, null, 0, true);
+			block.compress(inlineDeflater);
+			writeBlock(block);
+		} else {
+			submit(true);
+			writeCompleted(0);
+		}
+	}
+
+	/**
+	 * Prepare the deflater for a new stream
+	 */
+	public void reset() {
+		discardPending();
+		current = null;
+		currentLength = 0;
+		previous = null;
+		previousLength = 0;
+		submitted = false;
+		totalIn = 0;
+		totalOut = 0;
+		crc = 0;
+	}
+
+	/**
+	 * Release the resources used by the deflater. Pending blocks are discarded.
+	 */
+	public void end() {
+		discardPending();
+		if (inlineDeflater != null) {
+			inlineDeflater.end();
+			inlineDeflater = null;
+		}
+	}
+
+	private synchronized void discardPending() {
+		synchronized (QUEUE) {
+			QUEUE.removeAll(pending);
+		}
+		pending.clear();
+	}
+
+	private void submit(boolean last) throws IOException {
+		byte[] data = current == null ? new byte[0] : current;
+		int dictionaryLength = Math.min(DICTIONARY_SIZE, previousLength);
+		Block block = new Block(this, data, currentLength, previous, previousLength - dictionaryLength, last);
+		block.dictionaryLength = dictionaryLength;
+
+		synchronized (this) {
+			pending.addLast(block);
+		}
+		synchronized (QUEUE) {
+			QUEUE.addLast(block);
+			QUEUE.notify();
+		}
+
+		// The block's buffer is still read by the worker : a new one will be allocated
+		submitted = true;
+		previous = data;
+		previousLength = currentLength;
+		current = null;
+		currentLength = 0;
+
+		writeCompleted(maxPending);
+	}
+
+	/**
+	 * Write the completed blocks in their original order, until at most "max" blocks are pending
+	 */
+	private void writeCompleted(int max) throws IOException {
+		while (true) {
+			Block head;
+			synchronized (this) {
+				if (pending.isEmpty()) {
+					return;
+				}
+				head = (Block)pending.getFirst();
+				if (! head.completed) {
+					if (pending.size() <= max) {
+						return;
+					}
+					try {
+						this.wait(WAIT);
+					} catch (InterruptedException ignored) {
+					}
+					continue;
+				}
+				pending.removeFirst();
+			}
+			writeBlock(head);
+		}
+	}
+
+	private void writeBlock(Block block) throws IOException {
+		if (block.error != null) {
+			if (block.error instanceof IOException) {
+				throw (IOException)block.error;
+			} else if (block.error instanceof RuntimeException) {
+				throw (RuntimeException)block.error;
+			} else if (block.error instanceof Error) {
+				throw (Error)block.error;
+			} else {
+				throw new IOException(block.error.getMessage());
+			}
+		}
+
+		out.write(block.output, 0, block.outputLength);
+		totalOut += block.outputLength;
+		crc = combineCRC32(crc, block.crc, block.length);
+	}
+
+	/**
+	 * Tells whether the JVM supports the parallel compression (Deflater.deflate(byte[], int, int, int) is needed to SYNC_FLUSH the blocks)
+	 */
+	public static boolean isSupported() {
+		return SUPPORTED;
+	}
+
+	private static boolean checkSupport() {
+		try {
+			Deflater.class.getMethod("deflate", new Class[] {byte[].class, Integer.TYPE, Integer.TYPE, Integer.TYPE});
+			return true;
+		} catch (NoSuchMethodException e) {
+			return false;
+		}
+	}
+
+	private static void ensureWorkers(int threads) {
+		synchronized (QUEUE) {
+			while (WORKERS < threads) {
+				Thread th = new Thread(new Worker(), "Deflater-" + WORKERS);
+				th.setDaemon(true);
+				th.start();
+				WORKERS++;
+			}
+		}
+	}
+
+	private static Block nextBlock() {
+		synchronized (QUEUE) {
+			while (QUEUE.isEmpty()) {
+				try {
+					QUEUE.wait(WAIT);
+				} catch (InterruptedException ignored) {
+				}
+			}
+			return (Block)QUEUE.removeFirst();
+		}
+	}
+
+	/**
+	 * Return the CRC32 of the concatenation of two sequences, given their CRC32 and the length of the second one.
+	 * <BR>(port of zlib's crc32_combine)
+	 */
+	public static long combineCRC32(long crc1, long crc2, long len2) {
+		if (len2 <= 0) {
+			return crc1;
+		}
+
+		long[] even = new long[32];		// even-power-of-two zeros operator
+		long[] odd = new long[32];		// odd-power-of-two zeros operator
+
+		// Operator for one zero bit
+		odd[0] = 0xedb88320L;
+		long row = 1;
+		for (int n=1; n<32; n++) {
+			odd[n] = row;
+			row <<= 1;
+		}
+		gf2MatrixSquare(even, odd);		// two zero bits
+		gf2MatrixSquare(odd, even);		// four zero bits
+
+		// Apply len2 zeros to crc1 (the first square puts the operator for one zero byte, eight zero bits, in even)
+		do {
+			gf2MatrixSquare(even, odd);
+			if ((len2 & 1) != 0) {
+				crc1 = gf2MatrixTimes(even, crc1);
+			}
+			len2 >>= 1;
+			if (len2 == 0) {
+				break;
+			}
+
+			gf2MatrixSquare(odd, even);
+			if ((len2 & 1) != 0) {
+				crc1 = gf2MatrixTimes(odd, crc1);
+			}
+			len2 >>= 1;
+		} while (len2 != 0);
+
+		return crc1 ^ crc2;
+	}
+
+	private static long gf2MatrixTimes(long[] mat, long vec) {
+		long sum = 0;
+		for (int i=0; vec != 0; i++, vec >>>= 1) {
+			if ((vec & 1) != 0) {
+				sum ^= mat[i];
+			}
+		}
+		return sum;
+	}
+
+	private static void gf2MatrixSquare(long[] square, long[] mat) {
+		for (int n=0; n<32; n++) {
+			square[n] = gf2MatrixTimes(mat, mat[n]);
+		}
+	}
+
+	private static class Block {
+		private ParallelDeflater owner;
+		private byte[] data;
+		private int length;
+		private byte[] dictionary;
+		private int dictionaryOffset;
+		private int dictionaryLength;
+		private boolean last;
+		private int level;
+
+		private byte[] output;
+		private int outputLength;
+		private long crc;
+		private boolean completed;
+		private Throwable error;
+
+		private Block(ParallelDeflater owner, byte[] data, int length, byte[] dictionary, int dictionaryOffset, boolean last) {
+			this.owner = owner;
+			this.data = data == null ? new byte[0] : data;
+			this.length = length;
+			this.dictionary = dictionary;
+			this.dictionaryOffset = dictionaryOffset;
+			this.last = last;
+			this.level = owner.level;
+		}
+
+		private void compress(Deflater def) {
+			CRC32 checksum = new CRC32();
+			checksum.update(data, 0, length);
+			crc = checksum.getValue();
+
+			if (dictionary != null && dictionaryLength > 0) {
+				def.setDictionary(dictionary, dictionaryOffset, dictionaryLength);
+			}
+			def.setInput(data, 0, length);
+			output = new byte[length + (length >> 3) + 64];
+
+			if (last) {
+				def.finish();
+				while (! def.finished()) {
+					ensureOutputCapacity();
+					outputLength += def.deflate(output, outputLength, output.length - outputLength);
+				}
+			} else {
+				// The flush is complete once the deflater leaves some room in the output buffer
+				while (true) {
+					ensureOutputCapacity();
+					int available = output.length - outputLength;
+					int n = def.deflate(output, outputLength, available, Deflater.SYNC_FLUSH);
+					outputLength += n;
+					if (n < available) {
+						break;
+					}
+				}
+			}
+
+			// The input is no longer needed once compressed
+			data = null;
+			dictionary = null;
+		}
+
+		private void ensureOutputCapacity() {
+			if (outputLength == output.length) {
+				byte[] b = new byte[output.length * 2];
+				System.arraycopy(output, 0, b, 0, outputLength);
+				output = b;
+			}
+		}
+	}
+
+	private static class Worker implements Runnable {
+		private Deflater def;
+
+		public void run() {
+			while (true) {
+				Block block = nextBlock();
+				try {
+					if (def == null) {
+						def = new Deflater(block.level, true);
+					} else {
+						def.reset();
+						def.setLevel(block.level);
+					}
+					block.compress(def);
+				} catch (Throwable e) {
+					block.error = e;
+				} finally {
+					synchronized (block.owner) {
+						block.completed = true;
+						block.owner.notifyAll();
+					}
+				}
+			}
+		}
+	}
+}
@@ -5,10 +5,13 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.charset.Charset;
 
+import com.myJava.file.FileList;
+import com.myJava.file.FileList.FileListIterator;
 import com.myJava.file.archive.AbstractArchiveAdapter;
 import com.myJava.file.archive.ArchiveAdapter;
 import com.myJava.file.multivolumes.VolumeInputStream;
 import com.myJava.file.multivolumes.VolumeStrategy;
+import com.myJava.util.Util;
 
 /**
  * <BR>
@@ -40,6 +43,12 @@ This file is part of Areca.
 public class ZipArchiveAdapter 
 extends AbstractArchiveAdapter
 implements ArchiveAdapter {
+	
+    /**
+     * Random access reader and entries to read (random access mode only)
+     */
+    private ZipRandomAccessReader reader;
+    private FileListIterator filter;
     
     public ZipArchiveAdapter(InputStream in) {
         this(in, 1);
@@ -63,24 +72,43 @@ implements ArchiveAdapter {
         }
     }
 
+    /**
+     * Random access mode : only the entries of the list are read, using the archive's central directory.
+     * <BR>The list must be sorted in the archive's order.
+     */
+    public ZipArchiveAdapter(ZipRandomAccessReader reader, FileList entries) throws IOException {
+        super(ACCESS_READ, 0);
+        this.reader = reader;
+        this.filter = entries.iterator();
+    }
+
     public ZipArchiveAdapter(OutputStream out, boolean useZip64, int level) {
+        this(out, useZip64, level, 1);
+    }
+
+    public ZipArchiveAdapter(OutputStream out, boolean useZip64, int level, int threads) {
         super(ACCESS_WRITE, 0);
         this.zout = new ZipOutputStream(out, useZip64);
-        if (level >= 0) {
-        	((ZipOutputStream)zout).setLevel(level);
-        } else {
-        	((ZipOutputStream)zout).setLevel(9);
-        }
+        init(level, threads);
     }
 
     public ZipArchiveAdapter(VolumeStrategy strategy, long volumeSize, boolean useZip64, int level) {
+        this(strategy, volumeSize, useZip64, level, 1);
+    }
+
+    public ZipArchiveAdapter(VolumeStrategy strategy, long volumeSize, boolean useZip64, int level, int threads) {
         super(ACCESS_WRITE, 0);
         this.zout = new ZipOutputStream(strategy, volumeSize, useZip64);
+        init(level, threads);
+    }
+
+    private void init(int level, int threads) {
         if (level >= 0) {
         	((ZipOutputStream)zout).setLevel(level);
         } else {
         	((ZipOutputStream)zout).setLevel(9);
         }
+        ((ZipOutputStream)zout).setThreads(threads);
     }
 
     public void addEntry(String entryName, long size) throws IOException {       
@@ -89,8 +117,29 @@ implements ArchiveAdapter {
         ((ZipOutputStream)zout).putNextEntry(entry);
     }
 
+    /**
+     * Copy an entry of another zip archive without decompressing / recompressing its data (see ZipOutputStream.copyRawEntry())
+     */
+    public void copyRawEntry(ZipRandomAccessReader source, ZipEntry entry, String entryName) throws IOException {
+        super.addEntry(entryName, entry.getSize());
+        ((ZipOutputStream)zout).copyRawEntry(entry, entryName, source.openRawEntry(entry));
+    }
+
     public void close() throws IOException {
-        super.close();
+        try {
+            super.close();
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } finally {
+                    if (filter != null) {
+                        filter.close();
+                        filter = null;
+                    }
+                }
+            }
+        }
     }
 
     public void setCharset(Charset charset) {
@@ -101,6 +150,10 @@ implements ArchiveAdapter {
         if (zin != null) {
             ((ZipInputStream)zin).setCharset(charset);
         }
+        
+        if (reader != null) {
+            reader.setCharset(charset);
+        }
     }
 
     public void setArchiveComment(String comment) {
@@ -110,7 +163,11 @@ implements ArchiveAdapter {
     }
 
     public void closeEntry() throws IOException {
-        if (zin != null) {
+        if (reader != null) {
+            // The remaining data of the entry don't need to be read
+            reader.closeEntry();
+            zin = null;
+        } else if (zin != null) {
             ((ZipInputStream)zin).closeEntry();
         }
         if (zout != null) {
@@ -119,6 +176,17 @@ implements ArchiveAdapter {
     }
 
     public String getNextEntry() throws IOException {
+        if (reader != null) {
+            ZipEntry entry;
+            while ((entry = reader.nextDirectoryEntry()) != null) {
+                if (Util.passFilter(Util.trimSlashes(entry.getName()), filter)) {
+                    zin = reader.openEntry(entry);
+                    return entry.getName();
+                }
+            }
+            return null;
+        }
+        
         if (zin == null) {
             return null;
         }
@@ -8,6 +8,7 @@
 package com.myJava.file.archive.zip64;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
@@ -17,6 +18,7 @@ import java.util.zip.CRC32;
 import java.util.zip.Deflater;
 import java.util.zip.ZipException;
 
+import com.myJava.configuration.FrameworkConfiguration;
 import com.myJava.file.multivolumes.VolumeOutputStream;
 import com.myJava.file.multivolumes.VolumeStrategy;
 import com.myJava.util.collections.SerializedCollection;
@@ -32,6 +34,7 @@ import com.myJava.util.log.Logger;
  * <BR>- Splitting management
  * <BR>- STORE method was removed
  * <BR>- Use EXT blocks to store data
+ * <BR>- Optional parallel compression (see ParallelDeflater)
  * @author Olivier Petrucci 
  * <BR>
  * <BR>CAUTION :
@@ -55,16 +58,23 @@ implements ZipConstants {
 	private static long ZIP32_OVERALL_SIZE_LIMIT = 4294967295L;
 	private static long ZIP32_MAX_ENTRIES = 65535L;
 
+	private static final int RAW_BUFFER_SIZE = 64 * 1024;
+	private static final int PARALLEL_BLOCK_SIZE = FrameworkConfiguration.getInstance().getZipParallelBlockSize();
+	private static boolean parallelWarningLogged = false;
+
 	private static String ZIP32_OVERALL_SIZE_MESSAGE = "Archive too big : Zip32 archives can't grow over " + (long)(ZIP32_OVERALL_SIZE_LIMIT/1024) + " kbytes. Use Zip64 instead.";
 
 	private ZipEntry entry;
 	private SerializedCollection entries;
 
 	private CRC32 crc = new CRC32();
+	private int level = Deflater.DEFAULT_COMPRESSION;
+	private ParallelDeflater parallelDeflater;
 	private long totalWritten;
 	private String comment;
 	private VolumeStrategy volumeStrategy;
 	private int CENStart = 0;
+	private long CENOffset = 0;
 	private int Z64EODRStart = 0;
 	private boolean useZip64 = false;
 	private List entryCountByDiskNumber = new ArrayList();
@@ -143,7 +153,30 @@ implements ZipConstants {
 	}
 
 	public void setLevel(int level) {
+		this.level = level;
 		def.setLevel(level);
+		if (parallelDeflater != null) {
+			parallelDeflater.setLevel(level);
+		}
+	}
+
+	/**
+	 * Set the number of threads used to compress the entries.
+	 * <BR>If more than one thread is requested, the entries are compressed by a ParallelDeflater ; the output is still a standard
+	 * deflate stream.
+	 * <BR>The entries are compressed sequentially if the JVM doesn't support the parallel compression (see ParallelDeflater.isSupported()).
+	 * <BR>Must be called before the first entry is added.
+	 */
+	public void setThreads(int threads) {
+		if (threads > 1 && ParallelDeflater.isSupported()) {
+			parallelDeflater = new ParallelDeflater(out, level, threads, PARALLEL_BLOCK_SIZE);
+		} else {
+			if (threads > 1 && ! parallelWarningLogged) {
+				parallelWarningLogged = true;
+				Logger.defaultLogger().warn("Parallel compression requires Java 7 or higher (current version : " + System.getProperty("java.version") + "). The entries will be compressed by a single thread.");
+			}
+			parallelDeflater = null;
+		}
 	}
 
 	public Charset getCharset() {
@@ -182,9 +215,13 @@ implements ZipConstants {
 		} else {
 			e.version = ZIPVERSION;
 		}
+		// The LOC header is never split across volumes : reserve its space first, so that the recorded location 
+		// is the one where it is actually written (used for random access)
+		byte[] nameBytes = ZipStringEncoder.encode(e.getName(), charset);
+		ensureCapacity(SIZE_LOC + nameBytes.length);
 		e.offset = volumeStrategy == null ? totalWritten : ((VolumeOutputStream)out).getWrittenInCurrentVolume();
 		e.volumeNumber = volumeStrategy == null ? 0 : volumeStrategy.getCurrentVolumeNumber();
-		writeLOC(e);
+		writeLOC(e, nameBytes);
 		entry = e;
 	}
 
@@ -192,14 +229,22 @@ implements ZipConstants {
 		ensureOpen();
 		ZipEntry e = entry;
 		if (e != null) {
-			def.finish();
-			while (!def.finished()) {
-				deflate();
-			}
+			if (parallelDeflater != null) {
+				parallelDeflater.finish();
+
+				e.setSize(parallelDeflater.getTotalIn());
+				e.csize = parallelDeflater.getTotalOut();
+				e.crc = parallelDeflater.getCrc();
+			} else {
+				def.finish();
+				while (!def.finished()) {
+					deflate();
+				}
 
-			e.setSize(getTotalIn());
-			e.csize = getTotalOut();
-			e.crc = crc.getValue();
+				e.setSize(getTotalIn());
+				e.csize = getTotalOut();
+				e.crc = crc.getValue();
+			}
 
 			if ((!useZip64) && e.getSize() > ZIP32_ENTRY_SIZE_LIMIT) {
 				throw new IOException(e.name + " is too big (" + (long)(e.getSize() / 1024) + " kbytes). Zip32 archives can't store files bigger than " + (long)(ZIP32_ENTRY_SIZE_LIMIT / 1024) + " kbytes.");
@@ -208,6 +253,9 @@ implements ZipConstants {
 			writeEXT(e);
 
 			resetDeflater();
+			if (parallelDeflater != null) {
+				parallelDeflater.reset();
+			}
 			totalWritten += e.csize;
 			crc.reset();
 			entry = null;
@@ -215,6 +263,46 @@ implements ZipConstants {
 		}
 	}
 
+	/**
+	 * Copy an entry read from another archive without decompressing / recompressing its data.
+	 * <BR>"source" must contain the entry's compression method, modification time, sizes and crc (see ZipRandomAccessReader.nextDirectoryEntry()) ;
+	 * "data" is the entry's compressed data (see ZipRandomAccessReader.openRawEntry()).
+	 */
+	public void copyRawEntry(ZipEntry source, String name, InputStream data) throws IOException {
+		ZipEntry e = new ZipEntry(name);
+		e.time = source.time;
+		e.setMethod(source.getMethod());
+		putNextEntry(e);
+
+		byte[] buffer = new byte[RAW_BUFFER_SIZE];
+		long written = 0;
+		int read;
+		while ((read = data.read(buffer)) != -1) {
+			if ((!useZip64) && (totalWritten + written + read) > ZIP32_OVERALL_SIZE_LIMIT) {
+				this.disableSizeCheck = true;
+				throw new IOException(ZIP32_OVERALL_SIZE_MESSAGE);
+			}
+			out.write(buffer, 0, read);
+			written += read;
+		}
+		if (written != source.csize) {
+			throw new ZipException("Invalid compressed size for " + name + " : " + written + " bytes read - " + source.csize + " bytes expected.");
+		}
+
+		e.setSize(source.getSize());
+		e.csize = written;
+		e.crc = source.crc;
+		if ((!useZip64) && e.getSize() > ZIP32_ENTRY_SIZE_LIMIT) {
+			throw new IOException(e.name + " is too big (" + (long)(e.getSize() / 1024) + " kbytes). Zip32 archives can't store files bigger than " + (long)(ZIP32_ENTRY_SIZE_LIMIT / 1024) + " kbytes.");
+		}
+
+		writeEXT(e);
+
+		totalWritten += e.csize;
+		entry = null;
+		entries.add(e);
+	}
+
 	public synchronized void write(byte[] b, int off, int len)
 	throws IOException {
 		if ((!useZip64) && (len+totalWritten) > ZIP32_OVERALL_SIZE_LIMIT) {
@@ -232,8 +320,12 @@ implements ZipConstants {
 		if (entry == null) {
 			throw new ZipException("no current ZIP entry");
 		}
-		super.write(b, off, len);
-		crc.update(b, off, len);
+		if (parallelDeflater != null) {
+			parallelDeflater.write(b, off, len);
+		} else {
+			super.write(b, off, len);
+			crc.update(b, off, len);
+		}
 	}
 
 	public void finish() throws IOException {
@@ -249,13 +341,17 @@ implements ZipConstants {
 			entries.lock();
 
 			// write central directory
-			this.CENStart = volumeStrategy == null ? 0 : volumeStrategy.getCurrentVolumeNumber();
-			long offRelativeToCurrentDisk = volumeStrategy == null ? totalWritten : ((VolumeOutputStream)out).getWrittenInCurrentVolume();
+			// Its location is recorded when the first CEN header is written (it may be moved to the next volume)
+			this.CENStart = -1;
 			long off = totalWritten;
 			Iterator e = entries.iterator();
 			while (e.hasNext()) {
 				writeCEN((ZipEntry)e.next());
 			}
+			if (this.CENStart == -1) {
+				markCENStart();
+			}
+			long offRelativeToCurrentDisk = this.CENOffset;
 
 			long cenSize = totalWritten - off;
 
@@ -281,6 +377,9 @@ implements ZipConstants {
 			try {
 				super.close();
 				closed = true;
+				if (parallelDeflater != null) {
+					parallelDeflater.end();
+				}
 
 				if (this.volumeStrategy != null) {
 					this.volumeStrategy.close();
@@ -310,8 +409,7 @@ implements ZipConstants {
 		}
 	}
 
-	private void writeLOC(ZipEntry e) throws IOException {
-		byte[] nameBytes = ZipStringEncoder.encode(e.getName(), charset);
+	private void writeLOC(ZipEntry e, byte[] nameBytes) throws IOException {
 		int size = SIZE_LOC + nameBytes.length;
 		long mark = ensureCapacity(size);
 
@@ -369,6 +467,9 @@ implements ZipConstants {
 		+ (useZip64 ? 2*SIZE_SHORT + 3*SIZE_LONG + SIZE_INT : 0)
 		+ (commentBytes == null ? 0 : commentBytes.length);
 		long mark = ensureCapacity(size);
+		if (this.CENStart == -1) {
+			markCENStart();
+		}
 
 		writeInt(CENSIG);	    // CEN header signature
 		writeShort(e.version);	    // version made by
@@ -420,6 +521,11 @@ implements ZipConstants {
 		checkWritten(mark, size);
 	}
 
+	private void markCENStart() {
+		this.CENStart = volumeStrategy == null ? 0 : volumeStrategy.getCurrentVolumeNumber();
+		this.CENOffset = volumeStrategy == null ? totalWritten : ((VolumeOutputStream)out).getWrittenInCurrentVolume();
+	}
+
 	private void writeZip64ExtraField(ZipEntry e) throws IOException {
 		writeShort(ZIP64XTRAFIELD);
 		writeShort(ZIP64XTRALENGTH - 4); // 8+8+8+4
@@ -0,0 +1,587 @@
+package com.myJava.file.archive.zip64;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.Charset;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.ZipException;
+
+import com.myJava.file.FileSystemManager;
+import com.myJava.object.ToStringHelper;
+
+/**
+ * Random access to the entries of a zip archive (single file or multivolumes) written by the ZipOutputStream.
+ * <BR>The location of the central directory is read from the end of the archive. The central directory is then read
+ * sequentially (it is never fully loaded in memory) and each entry can be opened at its local header's location, without
+ * reading (and decompressing) the entries located before it.
+ * <BR>Entries are read through a stream which is moved forward (skip) when possible and reopened otherwise : reading the entries in
+ * the central directory's order is the most efficient way to use this class.
+ * <BR>The central directory locations are kept in a cache, so the end of the archive is only read once.
+ * <BR>The central directory can also be loaded in memory (see bufferDirectory) to be read several times.
+ * <BR>
+ * <BR>This class is not thread-safe.
+ * <BR>
+ * @author Olivier PETRUCCI
+ * <BR>
+ *
+ */
+
+ /*
+ Copyright 2005-2015, Olivier PETRUCCI.
+
+This file is part of Areca.
+
+    Areca is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    Areca is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Areca; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+ */
+public class ZipRandomAccessReader implements ZipConstants {
+	private static final int ZIP64_LOCATOR_SIZE = 20;
+	private static final int ZIP64_END_SIZE = 56;
+	private static final int MAX_TAIL_SIZE = ENDHDR + 0xFFFF + ZIP64_LOCATOR_SIZE + ZIP64_END_SIZE;
+	private static final int SKIP_BUFFER_SIZE = 8192;
+	private static final int CEN_BUFFER_SIZE = 64 * 1024;
+	private static final int MAX_CACHED_DIRECTORIES = 50;
+
+	/**
+	 * Central directory locations : archive key -> Directory
+	 */
+	private static final Map DIRECTORIES = new LinkedHashMap(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+		protected boolean removeEldestEntry(Map.Entry eldest) {
+			return size() > MAX_CACHED_DIRECTORIES;
+		}
+	};
+
+	private File file;
+	private ZipVolumeStrategy strategy;
+	private Charset charset = Charset.forName(DEFAULT_CHARSET);
+	private Directory directory;
+
+	private VolumeReader data;
+	private ZipInputStream currentEntryStream;
+
+	private boolean directoryOpened = false;
+	private byte[] cenBuffer;
+	private InputStream cen;
+	private int remainingEntries;
+	private byte[] header = new byte[CENHDR];
+	private byte[] b = new byte[512];
+
+	/**
+	 * Single file archive
+	 */
+	public ZipRandomAccessReader(File file) throws IOException {
+		this.file = file;
+		init();
+	}
+
+	/**
+	 * Multivolumes archive
+	 */
+	public ZipRandomAccessReader(ZipVolumeStrategy strategy) throws IOException {
+		this.strategy = strategy;
+		init();
+	}
+
+	public void setCharset(Charset charset) {
+		if (charset != null) {
+			this.charset = charset;
+		}
+	}
+
+	public Charset getCharset() {
+		return charset;
+	}
+
+	public long getEntryCount() {
+		return directory.entryCount;
+	}
+
+	/**
+	 * Size of the central directory (bytes)
+	 */
+	public long getDirectorySize() {
+		return directory.cenSize;
+	}
+
+	private File getEndFile() {
+		return strategy == null ? file : strategy.getFinalArchive();
+	}
+
+	private File getVolumeFile(int volume) {
+		return strategy == null ? file : strategy.getVolumeFile(volume, directory.lastVolume);
+	}
+
+	private InputStream openFile(File f) throws IOException {
+		return strategy == null ? FileSystemManager.getFileInputStream(f) : strategy.getInputStream(f);
+	}
+
+	private void init() throws IOException {
+		File f = getEndFile();
+		long length = strategy == null ? FileSystemManager.length(f) : strategy.length(f);
+		long lastModified = strategy == null ? FileSystemManager.lastModified(f) : strategy.lastModified(f);
+		String key = FileSystemManager.getAbsolutePath(f) + ";" + length + ";" + lastModified;
+
+		synchronized (DIRECTORIES) {
+			this.directory = (Directory)DIRECTORIES.get(key);
+		}
+		if (this.directory == null) {
+			this.directory = readDirectory(f, length);
+			synchronized (DIRECTORIES) {
+				DIRECTORIES.put(key, this.directory);
+			}
+		}
+	}
+
+	/**
+	 * Read the end of the archive and locate the central directory
+	 */
+	private Directory readDirectory(File f, long length) throws IOException {
+		long tailStart = Math.max(0, length - MAX_TAIL_SIZE);
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		InputStream in = openFile(f);
+		try {
+			skipFully(in, tailStart);
+			byte[] buffer = new byte[SKIP_BUFFER_SIZE];
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				bos.write(buffer, 0, read);
+			}
+		} finally {
+			in.close();
+		}
+		byte[] tail = bos.toByteArray();
+
+		// END header
+		int end = -1;
+		for (int i = tail.length - ENDHDR; i >= 0; i--) {
+			if (get32(tail, i) == ENDSIG && i + ENDHDR + get16(tail, i + ENDCOM) <= tail.length) {
+				end = i;
+				break;
+			}
+		}
+		if (end == -1) {
+			throw new ZipException("End of central directory not found in " + FileSystemManager.getDisplayPath(f));
+		}
+
+		Directory dir = new Directory();
+		dir.lastVolume = get16(tail, end + 4);
+		dir.cenVolume = get16(tail, end + 6);
+		dir.entryCount = get16(tail, end + ENDTOT);
+		dir.cenSize = get32(tail, end + ENDSIZ);
+		dir.cenOffset = get32(tail, end + ENDOFF);
+
+		if (dir.entryCount == 0xFFFF || dir.cenSize == 0xFFFFFFFFL || dir.cenOffset == 0xFFFFFFFFL) {
+			// Zip64 END header
+			int loc = end - ZIP64_LOCATOR_SIZE;
+			if (loc < 0 || get32(tail, loc) != ZIP64ENDLOCSIG) {
+				throw new ZipException("Zip64 end of central directory locator not found in " + FileSystemManager.getDisplayPath(f));
+			}
+			long z64Offset = get64(tail, loc + 8) - tailStart;
+			int z64 = (z64Offset >= 0 && z64Offset <= loc - ZIP64_END_SIZE) ? (int)z64Offset : loc - ZIP64_END_SIZE;
+			if (z64 < 0 || get32(tail, z64) != ZIP64ENDSIG) {
+				throw new ZipException("Zip64 end of central directory not found in " + FileSystemManager.getDisplayPath(f));
+			}
+			dir.cenVolume = (int)get32(tail, z64 + 20);
+			dir.entryCount = get64(tail, z64 + 32);
+			dir.cenSize = get64(tail, z64 + 40);
+			dir.cenOffset = get64(tail, z64 + 48);
+		}
+
+		if (strategy == null) {
+			dir.lastVolume = 0;
+			dir.cenVolume = 0;
+		}
+		return dir;
+	}
+
+	/**
+	 * Return the next entry of the central directory, or null if the end of the central directory has been reached.
+	 * <BR>The entries are returned in the order they were written. The returned entries contain their location, sizes and crc.
+	 */
+	public ZipEntry nextDirectoryEntry() throws IOException {
+		if (cen == null) {
+			if (directoryOpened) {
+				return null; // Already read
+			}
+			directoryOpened = true;
+			if (cenBuffer != null) {
+				cen = new ByteArrayInputStream(cenBuffer);
+			} else {
+				VolumeReader cenReader = new VolumeReader();
+				cenReader.seek(directory.cenVolume, directory.cenOffset);
+				cen = new BufferedInputStream(cenReader, CEN_BUFFER_SIZE);
+			}
+			remainingEntries = (int)Math.min(Integer.MAX_VALUE, directory.entryCount);
+		}
+		if (remainingEntries <= 0) {
+			closeDirectory();
+			return null;
+		}
+
+		readFully(cen, header, 0, CENHDR);
+		if (get32(header, 0) != CENSIG) {
+			throw new ZipException("Invalid central directory header in " + FileSystemManager.getDisplayPath(getEndFile()));
+		}
+		remainingEntries--;
+
+		int nameLength = get16(header, CENNAM);
+		int extraLength = get16(header, CENEXT);
+		int commentLength = get16(header, CENCOM);
+
+		if (nameLength > b.length) {
+			b = new byte[Math.max(nameLength, 2 * b.length)];
+		}
+		readFully(cen, b, 0, nameLength);
+		ZipEntry e = new ZipEntry(ZipStringEncoder.decode(b, 0, nameLength, charset));
+		e.version = get16(header, CENVER);
+		e.flag = get16(header, CENFLG);
+		e.method = get16(header, CENHOW);
+		e.time = get32(header, CENTIM);
+		e.crc = get32(header, CENCRC);
+		e.csize = get32(header, CENSIZ);
+		e.setSize(get32(header, CENLEN));
+		e.volumeNumber = get16(header, CENDSK);
+		e.offset = get32(header, CENOFF);
+
+		byte[] extra = new byte[extraLength];
+		readFully(cen, extra, 0, extraLength);
+		readZip64ExtraField(e, extra);
+		if (commentLength > 0) {
+			skipFully(cen, commentLength);
+		}
+
+		if (strategy == null) {
+			e.volumeNumber = 0;
+		}
+		return e;
+	}
+
+	/**
+	 * Load the whole central directory in memory : it is then read from memory by nextDirectoryEntry, and can be read
+	 * again after rewindDirectory without accessing the archive.
+	 * <BR>Must be called before the central directory is read.
+	 */
+	public void bufferDirectory() throws IOException {
+		if (directory.cenSize > Integer.MAX_VALUE) {
+			throw new ZipException("Central directory too large (" + directory.cenSize + " bytes) : it can't be loaded in memory.");
+		}
+		byte[] buffer = new byte[(int)directory.cenSize];
+		VolumeReader reader = new VolumeReader();
+		try {
+			reader.seek(directory.cenVolume, directory.cenOffset);
+			readFully(reader, buffer, 0, buffer.length);
+		} finally {
+			reader.close();
+		}
+		cenBuffer = buffer;
+	}
+
+	/**
+	 * Read the central directory again from its first entry (it is read from the archive again unless it has been loaded in memory)
+	 */
+	public void rewindDirectory() throws IOException {
+		closeDirectory();
+		directoryOpened = false;
+	}
+
+	private void readZip64ExtraField(ZipEntry e, byte[] extra) {
+		int i = 0;
+		while (i + 4 <= extra.length) {
+			int id = get16(extra, i);
+			int size = get16(extra, i + 2);
+			if (id == ZIP64XTRAFIELD) {
+				int p = i + 4;
+				int limit = Math.min(extra.length, p + size);
+				if (e.getSize() == 0xFFFFFFFFL && p + 8 <= limit) {
+					e.setSize(get64(extra, p));
+					p += 8;
+				}
+				if (e.csize == 0xFFFFFFFFL && p + 8 <= limit) {
+					e.csize = get64(extra, p);
+					p += 8;
+				}
+				if (e.offset == 0xFFFFFFFFL && p + 8 <= limit) {
+					e.offset = get64(extra, p);
+					p += 8;
+				}
+				if (e.volumeNumber == 0xFFFF && p + 4 <= limit) {
+					e.volumeNumber = (int)get32(extra, p);
+				}
+				return;
+			}
+			i += 4 + size;
+		}
+	}
+
+	/**
+	 * Open the entry passed as argument (returned by nextDirectoryEntry()).
+	 * <BR>The returned stream is positioned on the entry's data, and is closed when the next entry is opened or when the reader is closed.
+	 */
+	public ZipInputStream openEntry(ZipEntry e) throws IOException {
+		closeEntry();
+		if (data == null) {
+			data = new VolumeReader();
+		}
+		data.seek(e.volumeNumber, e.offset);
+
+		// Read the local header to get the exact length of the entry, so that the zip stream doesn't read more bytes than necessary
+		byte[] loc = new byte[LOCHDR];
+		readFully(data, loc, 0, LOCHDR);
+		if (get32(loc, 0) != LOCSIG) {
+			throw new ZipException("Invalid local header for " + e.getName() + " in " + FileSystemManager.getDisplayPath(getEndFile()));
+		}
+		int version = get16(loc, LOCVER);
+		int flag = get16(loc, LOCFLG);
+		long length = get16(loc, LOCNAM) + get16(loc, LOCEXT) + e.csize;
+		if ((flag & 8) == 8) {
+			// EXT descriptor (see ZipInputStream.readEnd)
+			length += version >= ZIP64VERSION ? EXTHDR64 : EXTHDR;
+		}
+
+		currentEntryStream = new ZipInputStream(new SequenceInputStream(new ByteArrayInputStream(loc), new BoundedInputStream(data, length)));
+		currentEntryStream.setCharset(charset);
+		if (currentEntryStream.getNextEntry() == null) {
+			throw new ZipException("Unable to read " + e.getName() + " in " + FileSystemManager.getDisplayPath(getEndFile()));
+		}
+		return currentEntryStream;
+	}
+
+	/**
+	 * Open the compressed data of the entry passed as argument (returned by nextDirectoryEntry()), without decompressing them
+	 * (see ZipOutputStream.copyRawEntry()).
+	 * <BR>The returned stream is valid until the next entry is opened or the reader is closed.
+	 */
+	public InputStream openRawEntry(ZipEntry e) throws IOException {
+		closeEntry();
+		if (data == null) {
+			data = new VolumeReader();
+		}
+		data.seek(e.volumeNumber, e.offset);
+
+		byte[] loc = new byte[LOCHDR];
+		readFully(data, loc, 0, LOCHDR);
+		if (get32(loc, 0) != LOCSIG) {
+			throw new ZipException("Invalid local header for " + e.getName() + " in " + FileSystemManager.getDisplayPath(getEndFile()));
+		}
+		skipFully(data, get16(loc, LOCNAM) + get16(loc, LOCEXT));
+		return new BoundedInputStream(data, e.csize);
+	}
+
+	/**
+	 * Close the current entry's stream (the data that have not been read are simply ignored)
+	 */
+	public void closeEntry() throws IOException {
+		if (currentEntryStream != null) {
+			currentEntryStream.close();
+			currentEntryStream = null;
+		}
+	}
+
+	private void closeDirectory() throws IOException {
+		if (cen != null) {
+			cen.close();
+			cen = null;
+		}
+	}
+
+	public void close() throws IOException {
+		try {
+			closeEntry();
+			closeDirectory();
+		} finally {
+			if (data != null) {
+				data.close();
+				data = null;
+			}
+		}
+	}
+
+	public String toString() {
+		StringBuffer sb = ToStringHelper.init(this);
+		ToStringHelper.append("Archive", getEndFile(), sb);
+		ToStringHelper.append("Directory", directory, sb);
+		return ToStringHelper.close(sb);
+	}
+
+	private static void readFully(InputStream in, byte[] b, int off, int len) throws IOException {
+		while (len > 0) {
+			int n = in.read(b, off, len);
+			if (n == -1) {
+				throw new EOFException();
+			}
+			off += n;
+			len -= n;
+		}
+	}
+
+	/**
+	 * Skip the requested number of bytes - some streams (ciphers ...) can't skip data, so they are read if needed.
+	 */
+	private static void skipFully(InputStream in, long n) throws IOException {
+		byte[] buffer = null;
+		while (n > 0) {
+			long skipped = in.skip(n);
+			if (skipped > 0) {
+				n -= skipped;
+			} else {
+				if (buffer == null) {
+					buffer = new byte[SKIP_BUFFER_SIZE];
+				}
+				int read = in.read(buffer, 0, (int)Math.min(n, buffer.length));
+				if (read == -1) {
+					throw new EOFException();
+				}
+				n -= read;
+			}
+		}
+	}
+
+	private static final int get16(byte b[], int off) {
+		return (b[off] & 0xff) | ((b[off+1] & 0xff) << 8);
+	}
+
+	private static final long get32(byte b[], int off) {
+		return get16(b, off) | ((long)get16(b, off+2) << 16);
+	}
+
+	private static final long get64(byte b[], int off) {
+		return get32(b, off) | ((long)get32(b, off+4) << 32);
+	}
+
+	/**
+	 * Location of the central directory
+	 */
+	private static class Directory {
+		private int lastVolume;
+		private int cenVolume;
+		private long cenOffset;
+		private long cenSize;
+		private long entryCount;
+
+		public String toString() {
+			StringBuffer sb = ToStringHelper.init(this);
+			ToStringHelper.append("Volumes", lastVolume + 1, sb);
+			ToStringHelper.append("CEN volume", cenVolume, sb);
+			ToStringHelper.append("CEN offset", cenOffset, sb);
+			ToStringHelper.append("CEN size", cenSize, sb);
+			ToStringHelper.append("Entries", entryCount, sb);
+			return ToStringHelper.close(sb);
+		}
+	}
+
+	/**
+	 * Reads the archive's volumes as a single stream, starting from a given location.
+	 * <BR>The current volume is kept open : moving forward in the same volume doesn't require to reopen it.
+	 */
+	private class VolumeReader extends InputStream {
+		private int volume = -1;
+		private long position;
+		private InputStream in;
+		private byte[] singleByteBuffer = new byte[1];
+
+		private void seek(int volume, long offset) throws IOException {
+			if (in == null || volume != this.volume || offset < position) {
+				closeVolume();
+				this.in = openFile(getVolumeFile(volume));
+				this.volume = volume;
+				this.position = 0;
+			}
+			// The location may be the end of the volume (the data is then located in the next one) : the data is skipped
+			// up to this location, and read() will open the next volume.
+			long n = offset - position;
+			skipFully(in, n);
+			position = offset;
+		}
+
+		public int read(byte[] b, int off, int len) throws IOException {
+			while (in != null) {
+				int read = in.read(b, off, len);
+				if (read != -1) {
+					position += read;
+					return read;
+				}
+				closeVolume();
+				if (volume < directory.lastVolume) {
+					volume++;
+					position = 0;
+					in = openFile(getVolumeFile(volume));
+				}
+			}
+			return -1;
+		}
+
+		public int read() throws IOException {
+			int ret = read(singleByteBuffer, 0, 1);
+			return ret == -1 ? -1 : singleByteBuffer[0] & 0xff;
+		}
+
+		private void closeVolume() throws IOException {
+			if (in != null) {
+				in.close();
+				in = null;
+			}
+		}
+
+		public void close() throws IOException {
+			closeVolume();
+		}
+	}
+
+	/**
+	 * Gives access to a limited number of bytes of the underlying stream, which is not closed by close()
+	 */
+	private static class BoundedInputStream extends InputStream {
+		private InputStream in;
+		private long remaining;
+
+		private BoundedInputStream(InputStream in, long length) {
+			this.in = in;
+			this.remaining = length;
+		}
+
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (remaining <= 0) {
+				return -1;
+			}
+			int read = in.read(b, off, (int)Math.min(len, remaining));
+			if (read != -1) {
+				remaining -= read;
+			}
+			return read;
+		}
+
+		public int read() throws IOException {
+			if (remaining <= 0) {
+				return -1;
+			}
+			int ret = in.read();
+			if (ret != -1) {
+				remaining--;
+			}
+			return ret;
+		}
+
+		public void close() throws IOException {
+		}
+	}
+}
@@ -131,6 +131,24 @@ public class ZipVolumeStrategy implements VolumeStrategy {
         return getVolume(currentVolume);
     }
     
+    /**
+     * Return the file of the requested volume. The last volume is the final archive.
+     */
+    public File getVolumeFile(int vol, int lastVolume) {
+        return vol == lastVolume ? getFinalArchive() : getVolume(vol);
+    }
+    
+    /**
+     * Open the file passed as argument (volume or final archive) - used for random access.
+     */
+    public InputStream getInputStream(File f) throws IOException {
+        if (driver == null) {
+            return FileSystemManager.getFileInputStream(f);
+        } else {
+            return driver.getFileInputStream(f);            
+        }
+    }
+    
     private File getVolume(int vol) {
         String suffix = VOLUME_SUFFIX;
         String nb = "" + (vol+1);
@@ -176,6 +194,22 @@ public class ZipVolumeStrategy implements VolumeStrategy {
         }
     }
     
+    public long length(File f) {
+        if (driver == null) {
+            return FileSystemManager.length(f);
+        } else {
+            return driver.length(f);            
+        }
+    }
+    
+    public long lastModified(File f) {
+        if (driver == null) {
+            return FileSystemManager.lastModified(f);
+        } else {
+            return driver.lastModified(f);            
+        }
+    }
+    
     private boolean exists(File f) {
         if (driver == null) {
             return FileSystemManager.exists(f);
@@ -0,0 +1,95 @@
+package com.myJava.file.codec;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+
+/**
+ * Registry of the available compression codecs.
+ * <BR>Compressed streams are self-describing : getInputStream() reads the first bytes of the stream to select the decoder.
+ * <BR>
+ * @author Olivier PETRUCCI
+ * <BR>
+ *
+ */
+
+ /*
+ Copyright 2005-2015, Olivier PETRUCCI.
+
+This file is part of Areca.
+
+    Areca is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    Areca is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Areca; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+ */
+public class CodecRegistry {
+	public static final CompressionCodec GZIP = new GzipCodec();
+	public static final CompressionCodec LZ4 = new LZ4Codec();
+
+	private static final CompressionCodec[] CODECS = new CompressionCodec[] {GZIP, LZ4};
+
+	/**
+	 * Return the codec registered under the name passed as argument
+	 * @throws IllegalArgumentException if the codec is unknown
+	 */
+	public static CompressionCodec getCodec(String name) {
+		for (int i=0; i<CODECS.length; i++) {
+			if (CODECS[i].getName().equalsIgnoreCase(name)) {
+				return CODECS[i];
+			}
+		}
+		throw new IllegalArgumentException("Unknown compression codec : " + name);
+	}
+
+	public static String[] getCodecNames() {
+		String[] names = new String[CODECS.length];
+		for (int i=0; i<CODECS.length; i++) {
+			names[i] = CODECS[i].getName();
+		}
+		return names;
+	}
+
+	/**
+	 * Return the codec used to compress the data starting with the bytes passed as argument,
+	 * or null if the data are not compressed (or not long enough)
+	 */
+	public static CompressionCodec detect(byte[] header, int length) {
+		if (length >= CompressionCodec.MAGIC_LENGTH) {
+			for (int i=0; i<CODECS.length; i++) {
+				if (CODECS[i].accepts(header)) {
+					return CODECS[i];
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Return a stream that decodes the data read from "in", using the codec identified by the first bytes of the stream.
+	 * <BR>If the data are not compressed, they are returned as is.
+	 */
+	public static InputStream getInputStream(InputStream in) throws IOException {
+		PushbackInputStream pin = new PushbackInputStream(in, CompressionCodec.MAGIC_LENGTH);
+		byte[] header = new byte[CompressionCodec.MAGIC_LENGTH];
+		int length = 0;
+		int r;
+		while (length < header.length && (r = pin.read(header, length, header.length - length)) != -1) {
+			length += r;
+		}
+		pin.unread(header, 0, length);
+
+		CompressionCodec codec = detect(header, length);
+		return codec == null ? (InputStream)pin : codec.getInputStream(pin);
+	}
+}
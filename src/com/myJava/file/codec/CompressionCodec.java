@@ -0,0 +1,66 @@
+package com.myJava.file.codec;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Compression codec used for metadata files and for the data stored by the CodecFileSystemDriver.
+ * <BR>Compressed streams must be self-describing (they start with a magic number, see accepts()) so that the
+ * right decoder can be chosen when reading them.
+ * <BR>Compressed streams must also support concatenation : the concatenation of several compressed streams
+ * must be decoded as the concatenation of their contents.
+ * <BR>
+ * @author Olivier PETRUCCI
+ * <BR>
+ *
+ */
+
+ /*
+ Copyright 2005-2015, Olivier PETRUCCI.
+
+This file is part of Areca.
+
+    Areca is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    Areca is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Areca; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+ */
+public interface CompressionCodec {
+	/**
+	 * Number of bytes needed by accepts()
+	 */
+	public static final int MAGIC_LENGTH = 4;
+
+	/**
+	 * Name of the codec (stored in the configuration and in the manifests)
+	 */
+	public String getName();
+
+	/**
+	 * Return a stream that compresses the data written and writes them into "out".
+	 * <BR>Closing the returned stream closes "out".
+	 */
+	public OutputStream getOutputStream(OutputStream out) throws IOException;
+
+	/**
+	 * Return a stream that decompresses the data read from "in"
+	 */
+	public InputStream getInputStream(InputStream in) throws IOException;
+
+	/**
+	 * Tell whether the data starting with the bytes passed as argument have been compressed by this codec.
+	 * <BR>("header" contains at least MAGIC_LENGTH bytes)
+	 */
+	public boolean accepts(byte[] header);
+}
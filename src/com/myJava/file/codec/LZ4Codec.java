@@ -0,0 +1,260 @@
+package com.myJava.file.codec;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Fast compression codec, based on the LZ4 block format (pure java implementation).
+ * <BR>Its compression ratio is lower than GZIP's, but compression and decompression are several times faster.
+ * <BR>
+ * <BR>Stream layout (see LZ4OutputStream) :
+ * <BR>- MAGIC (4 bytes)
+ * <BR>- blocks : uncompressed length (int), stored length (int - the highest bit is set if the block is not compressed),
+ * CRC32 of the uncompressed data (int), data
+ * <BR>The stream ends with the last block : concatenated streams are thus read as a single stream.
+ * <BR>
+ * <BR>Compressed blocks use the standard LZ4 sequence format (token, literals, offset, match length).
+ * <BR>
+ * @author Olivier PETRUCCI
+ * <BR>
+ *
+ */
+
+ /*
+ Copyright 2005-2015, Olivier PETRUCCI.
+
+This file is part of Areca.
+
+    Areca is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    Areca is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Areca; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+ */
+public class LZ4Codec implements CompressionCodec {
+	public static final String NAME = "lz4";
+
+	static final byte[] MAGIC = new byte[] {'A', 'L', 'Z', 1};
+	static final int BLOCK_SIZE = 64 * 1024;
+	static final int STORED_FLAG = 0x80000000;
+
+	private static final int MIN_MATCH = 4;
+	private static final int LAST_LITERALS = 5;
+	private static final int MF_LIMIT = 12;
+	private static final int MAX_DISTANCE = 65535;
+	private static final int HASH_LOG = 14;
+	private static final int SKIP_TRIGGER = 6;
+
+	public String getName() {
+		return NAME;
+	}
+
+	public OutputStream getOutputStream(OutputStream out) throws IOException {
+		return new LZ4OutputStream(out);
+	}
+
+	public InputStream getInputStream(InputStream in) throws IOException {
+		return new LZ4InputStream(in);
+	}
+
+	public boolean accepts(byte[] header) {
+		for (int i=0; i<MAGIC.length; i++) {
+			if (header[i] != MAGIC[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public String toString() {
+		return NAME;
+	}
+
+	/**
+	 * Maximum size of the compressed data
+	 */
+	static int maxCompressedLength(int length) {
+		return length + length / 255 + 16;
+	}
+
+	private static int readInt(byte[] b, int off) {
+		return (b[off] & 0xff) | ((b[off + 1] & 0xff) << 8) | ((b[off + 2] & 0xff) << 16) | ((b[off + 3] & 0xff) << 24);
+	}
+
+	private static int hash(int sequence) {
+		return (sequence * -1640531535) >>> (32 - HASH_LOG);
+	}
+
+	/**
+	 * Compress "len" bytes of "src" into "dst" (which must contain at least maxCompressedLength(len) bytes)
+	 * <BR>"table" is a working buffer of 2^14 ints.
+	 * @return The number of bytes written in "dst"
+	 */
+	static int compress(byte[] src, int off, int len, byte[] dst, int[] table) {
+		int end = off + len;
+		int mfLimit = end - MF_LIMIT;
+		int matchLimit = end - LAST_LITERALS;
+		int ip = off;
+		int anchor = off;
+		int op = 0;
+
+		if (len > MF_LIMIT) {
+			for (int i=0; i<table.length; i++) {
+				table[i] = -1;
+			}
+			int searchCount = 1 << SKIP_TRIGGER;
+
+			while (ip < mfLimit) {
+				int sequence = readInt(src, ip);
+				int h = hash(sequence);
+				int ref = table[h];
+				table[h] = ip;
+
+				if (ref < 0 || ip - ref > MAX_DISTANCE || readInt(src, ref) != sequence) {
+					// No match : the step grows with the number of failed searches (incompressible data are skipped quickly)
+					ip += searchCount++ >>> SKIP_TRIGGER;
+					continue;
+				}
+				searchCount = 1 << SKIP_TRIGGER;
+
+				// Extend the match backwards
+				while (ip > anchor && ref > off && src[ip - 1] == src[ref - 1]) {
+					ip--;
+					ref--;
+				}
+
+				// Extend the match forwards
+				int matchLength = MIN_MATCH;
+				while (ip + matchLength < matchLimit && src[ref + matchLength] == src[ip + matchLength]) {
+					matchLength++;
+				}
+
+				op = writeSequence(src, anchor, ip - anchor, ip - ref, matchLength, dst, op);
+				ip += matchLength;
+				anchor = ip;
+
+				if (ip < mfLimit) {
+					table[hash(readInt(src, ip - 2))] = ip - 2;
+				}
+			}
+		}
+
+		// Last literals
+		return writeSequence(src, anchor, end - anchor, 0, 0, dst, op);
+	}
+
+	private static int writeSequence(byte[] src, int literalsOffset, int literals, int distance, int matchLength, byte[] dst, int op) {
+		int tokenPos = op++;
+		int token;
+		if (literals >= 15) {
+			token = 15 << 4;
+			op = writeLength(literals - 15, dst, op);
+		} else {
+			token = literals << 4;
+		}
+		System.arraycopy(src, literalsOffset, dst, op, literals);
+		op += literals;
+
+		if (matchLength != 0) {
+			dst[op++] = (byte)distance;
+			dst[op++] = (byte)(distance >>> 8);
+			int ml = matchLength - MIN_MATCH;
+			if (ml >= 15) {
+				token |= 15;
+				op = writeLength(ml - 15, dst, op);
+			} else {
+				token |= ml;
+			}
+		}
+		dst[tokenPos] = (byte)token;
+		return op;
+	}
+
+	private static int writeLength(int length, byte[] dst, int op) {
+		while (length >= 255) {
+			dst[op++] = (byte)255;
+			length -= 255;
+		}
+		dst[op++] = (byte)length;
+		return op;
+	}
+
+	/**
+	 * Decompress "len" bytes of "src" into "dst", which must contain exactly "dstLen" bytes once decompressed.
+	 */
+	static void decompress(byte[] src, int len, byte[] dst, int dstLen) throws IOException {
+		try {
+			int ip = 0;
+			int op = 0;
+			while (true) {
+				int token = src[ip++] & 0xff;
+
+				// Literals
+				int literals = token >>> 4;
+				if (literals == 15) {
+					int b;
+					do {
+						b = src[ip++] & 0xff;
+						literals += b;
+					} while (b == 255);
+				}
+				if (ip + literals > len || op + literals > dstLen) {
+					throw new IOException("Corrupted LZ4 block : invalid literals length.");
+				}
+				System.arraycopy(src, ip, dst, op, literals);
+				ip += literals;
+				op += literals;
+
+				if (ip == len) {
+					break; // last sequence
+				}
+
+				// Match
+				int distance = (src[ip] & 0xff) | ((src[ip + 1] & 0xff) << 8);
+				ip += 2;
+				int ref = op - distance;
+				if (distance == 0 || ref < 0) {
+					throw new IOException("Corrupted LZ4 block : invalid offset.");
+				}
+				int matchLength = token & 0x0f;
+				if (matchLength == 15) {
+					int b;
+					do {
+						b = src[ip++] & 0xff;
+						matchLength += b;
+					} while (b == 255);
+				}
+				matchLength += MIN_MATCH;
+				if (op + matchLength > dstLen) {
+					throw new IOException("Corrupted LZ4 block : invalid match length.");
+				}
+
+				if (distance >= matchLength) {
+					System.arraycopy(dst, ref, dst, op, matchLength);
+					op += matchLength;
+				} else {
+					// Overlapping copy
+					for (int i=0; i<matchLength; i++) {
+						dst[op++] = dst[ref++];
+					}
+				}
+			}
+
+			if (op != dstLen) {
+				throw new IOException("Corrupted LZ4 block : " + op + " bytes decoded instead of " + dstLen + ".");
+			}
+		} catch (ArrayIndexOutOfBoundsException e) {
+			throw new IOException("Corrupted LZ4 block.");
+		}
+	}
+}
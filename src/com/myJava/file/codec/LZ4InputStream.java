@@ -0,0 +1,165 @@
+package com.myJava.file.codec;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.CRC32;
+
+/**
+ * Decompresses data written by LZ4OutputStream.
+ * <BR>Concatenated streams are supported (the magic number is accepted at any block boundary).
+ * <BR>The CRC32 of each block is checked.
+ * <BR>
+ * @author Olivier PETRUCCI
+ * <BR>
+ *
+ */
+
+ /*
+ Copyright 2005-2015, Olivier PETRUCCI.
+
+This file is part of Areca.
+
+    Areca is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    Areca is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Areca; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+ */
+public class LZ4InputStream extends InputStream {
+	private static final int MAGIC_INT = readInt(LZ4Codec.MAGIC, 0);
+
+	private InputStream in;
+	private byte[] buffer = new byte[LZ4Codec.BLOCK_SIZE];
+	private int position = 0;
+	private int count = 0;
+	private byte[] compressed = new byte[LZ4Codec.maxCompressedLength(LZ4Codec.BLOCK_SIZE)];
+	private byte[] header = new byte[12];
+	private CRC32 crc = new CRC32();
+	private boolean eof = false;
+
+	public LZ4InputStream(InputStream in) throws IOException {
+		this.in = in;
+		if (! readHeader(4) || readInt(header, 0) != MAGIC_INT) {
+			throw new IOException("Not in LZ4 format");
+		}
+	}
+
+	public int read() throws IOException {
+		if (position == count && ! readBlock()) {
+			return -1;
+		}
+		return buffer[position++] & 0xff;
+	}
+
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (len == 0) {
+			return 0;
+		}
+		if (position == count && ! readBlock()) {
+			return -1;
+		}
+		int n = Math.min(len, count - position);
+		System.arraycopy(buffer, position, b, off, n);
+		position += n;
+		return n;
+	}
+
+	public long skip(long n) throws IOException {
+		long skipped = 0;
+		while (skipped < n) {
+			if (position == count && ! readBlock()) {
+				break;
+			}
+			int s = (int)Math.min(n - skipped, count - position);
+			position += s;
+			skipped += s;
+		}
+		return skipped;
+	}
+
+	public int available() throws IOException {
+		return count - position;
+	}
+
+	public void close() throws IOException {
+		in.close();
+	}
+
+	private boolean readBlock() throws IOException {
+		if (eof) {
+			return false;
+		}
+
+		int length;
+		do {
+			if (! readHeader(4)) {
+				eof = true;
+				return false;
+			}
+			length = readInt(header, 0);
+		} while (length == MAGIC_INT); // Beginning of a concatenated stream
+
+		readFully(header, 4, 8);
+		int stored = readInt(header, 4);
+		long expectedCrc = readInt(header, 8) & 0xffffffffL;
+		boolean isStored = (stored & LZ4Codec.STORED_FLAG) != 0;
+		stored &= ~LZ4Codec.STORED_FLAG;
+		if (length <= 0 || length > buffer.length || stored > compressed.length) {
+			throw new IOException("Corrupted LZ4 stream : invalid block header.");
+		}
+
+		if (isStored) {
+			readFully(buffer, 0, length);
+		} else {
+			readFully(compressed, 0, stored);
+			LZ4Codec.decompress(compressed, stored, buffer, length);
+		}
+
+		crc.reset();
+		crc.update(buffer, 0, length);
+		if (crc.getValue() != expectedCrc) {
+			throw new IOException("Corrupted LZ4 stream : invalid CRC.");
+		}
+
+		position = 0;
+		count = length;
+		return true;
+	}
+
+	/**
+	 * Read the first bytes of the header - return false if the end of the stream has been reached before any byte was read
+	 */
+	private boolean readHeader(int len) throws IOException {
+		int r = in.read(header, 0, len);
+		if (r == -1) {
+			return false;
+		}
+		readFully(header, r, len - r);
+		return true;
+	}
+
+	private void readFully(byte[] b, int off, int len) throws IOException {
+		while (len > 0) {
+			int r = in.read(b, off, len);
+			if (r == -1) {
+				throw new EOFException("Unexpected end of LZ4 stream.");
+			}
+			off += r;
+			len -= r;
+		}
+	}
+
+	private static int readInt(byte[] b, int off) {
+		return (b[off] & 0xff) | ((b[off + 1] & 0xff) << 8) | ((b[off + 2] & 0xff) << 16) | ((b[off + 3] & 0xff) << 24);
+	}
+}
@@ -0,0 +1,128 @@
+package com.myJava.file.codec;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+
+/**
+ * Compresses the data written with the LZ4Codec format.
+ * <BR>The data are compressed by blocks of 64 kbytes ; blocks that can't be compressed are stored as is.
+ * <BR>
+ * @author Olivier PETRUCCI
+ * <BR>
+ *
+ */
+
+ /*
+ Copyright 2005-2015, Olivier PETRUCCI.
+
+This file is part of Areca.
+
+    Areca is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    Areca is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Areca; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+ */
+public class LZ4OutputStream extends OutputStream {
+	private static final int HEADER_SIZE = 12;
+
+	private OutputStream out;
+	private byte[] buffer = new byte[LZ4Codec.BLOCK_SIZE];
+	private int count = 0;
+	private byte[] compressed = new byte[LZ4Codec.maxCompressedLength(LZ4Codec.BLOCK_SIZE)];
+	private byte[] header = new byte[HEADER_SIZE];
+	private int[] table = new int[1 << 14];
+	private CRC32 crc = new CRC32();
+	private boolean finished = false;
+
+	public LZ4OutputStream(OutputStream out) throws IOException {
+		this.out = out;
+		out.write(LZ4Codec.MAGIC);
+	}
+
+	public void write(int b) throws IOException {
+		if (count == buffer.length) {
+			writeBlock();
+		}
+		buffer[count++] = (byte)b;
+	}
+
+	public void write(byte[] b, int off, int len) throws IOException {
+		if (finished) {
+			throw new IOException("Stream finished");
+		}
+		while (len > 0) {
+			if (count == buffer.length) {
+				writeBlock();
+			}
+			int n = Math.min(len, buffer.length - count);
+			System.arraycopy(b, off, buffer, count, n);
+			count += n;
+			off += n;
+			len -= n;
+		}
+	}
+
+	/**
+	 * Write the pending data without closing the underlying stream
+	 */
+	public void finish() throws IOException {
+		if (! finished) {
+			if (count != 0) {
+				writeBlock();
+			}
+			finished = true;
+		}
+	}
+
+	/**
+	 * Flushes the underlying stream ; as for GZIPOutputStream, the data that have not been compressed yet are not written.
+	 */
+	public void flush() throws IOException {
+		out.flush();
+	}
+
+	public void close() throws IOException {
+		try {
+			finish();
+		} finally {
+			out.close();
+		}
+	}
+
+	private void writeBlock() throws IOException {
+		crc.reset();
+		crc.update(buffer, 0, count);
+
+		int length = LZ4Codec.compress(buffer, 0, count, compressed, table);
+		boolean store = length >= count; // Incompressible data
+
+		putInt(count, header, 0);
+		putInt(store ? count | LZ4Codec.STORED_FLAG : length, header, 4);
+		putInt((int)crc.getValue(), header, 8);
+		out.write(header);
+		if (store) {
+			out.write(buffer, 0, count);
+		} else {
+			out.write(compressed, 0, length);
+		}
+		count = 0;
+	}
+
+	private static void putInt(int v, byte[] b, int off) {
+		b[off] = (byte)v;
+		b[off + 1] = (byte)(v >>> 8);
+		b[off + 2] = (byte)(v >>> 16);
+		b[off + 3] = (byte)(v >>> 24);
+	}
+}
@@ -1,6 +1,5 @@
 package com.myJava.file.delta;
 
-import com.myJava.file.delta.sequence.HashSequenceEntry;
 import com.myJava.file.delta.tools.CircularList;
 
 /**
@@ -46,15 +45,18 @@ public class DefaultDeltaProcessor implements DeltaProcessor {
         }
     }
     
-    public void blockFound(HashSequenceEntry entry, CircularList block) {
+    public void blockFound(long index, int size, CircularList block) {
         flush();
-        System.out.println("Block found : " + entry.getIndex() + " - [" + block.toString().substring(0, entry.getSize()) + "]");
+        System.out.println("Block found : " + index + " - [" + block.toString().substring(0, size) + "]");
     }
 
     public void blockFound(long readFrom, long readTo) throws DeltaProcessorException {
     }
 
     public void newBytes(byte[] data, int offset, int len) throws DeltaProcessorException {
+        for (int i=offset; i<offset+len; i++) {
+            newByte(data[i]);
+        }
     }
 
     public void newByte(byte data) {
@@ -0,0 +1,260 @@
+package com.myJava.file.delta;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.myJava.file.delta.tools.IOHelper;
+import com.myJava.object.ToStringHelper;
+
+/**
+ * Flattened view of a stack of delta layers : each extent maps a range of the final file to the layer (and the position in this layer's stream)
+ * which actually contains the bytes.
+ * <BR>The map is built by reading the buckets' headers of each layer (the new bytes are skipped), the "read previous" buckets being
+ * resolved against the map of the underlying layers.
+ * <BR>Once built, the final file can be read without traversing the layers (see DeltaInputStream.setExtentMap()).
+ * <BR>
+ * @author Olivier PETRUCCI
+ * <BR>
+ *
+ */
+
+ /*
+ Copyright 2005-2015, Olivier PETRUCCI.
+
+This file is part of Areca.
+
+    Areca is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    Areca is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Areca; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+ */
+public class DeltaExtentMap
+implements Constants {
+	static final int SKIP_BUFFER_SIZE = 8 * 1024;
+
+	private int size = 0;
+	private int layers;
+	private long[] from = new long[16];	// Position in the final file
+	private long[] length = new long[16];
+	private int[] layer = new int[16];
+	private long[] offset = new long[16];	// Position in the layer's stream
+
+	private DeltaExtentMap(int layers) {
+		this.layers = layers;
+	}
+
+	/**
+	 * Build the map of the layers passed as argument (from the oldest to the most recent one).
+	 * <BR>The streams are read until their end but are not closed.
+	 * <BR>Returns null if the final file can't be read by consuming each layer's stream sequentially
+	 * (which is the case of the layers written by the delta engine).
+	 */
+	public static DeltaExtentMap build(InputStream[] streams) throws IOException {
+		byte[] header = new byte[16];
+		byte[] skipBuffer = new byte[SKIP_BUFFER_SIZE];
+		DeltaExtentMap previous = null;
+
+		for (int l=0; l<streams.length; l++) {
+			InputStream in = streams[l];
+			DeltaExtentMap current = new DeltaExtentMap(l + 1);
+			long streamPosition = 0;
+			long filePosition = 0;
+
+			int read;
+			while ((read = IOHelper.readFully(in, header, 0, 8)) != -1) {
+				if (read != 8) {
+					throw new DeltaException("Unexpected end of diff-layer #" + l + " at position " + streamPosition);
+				}
+				long sig = IOHelper.get64(header, 0);
+				streamPosition += 8;
+
+				if (sig == SIG_NEW) {
+					readHeader(in, header, 4, l);
+					long len = IOHelper.get32(header, 0);
+					streamPosition += 4;
+
+					current.add(filePosition, len, l, streamPosition);
+					skip(in, len, skipBuffer, l);
+					streamPosition += len;
+					filePosition += len;
+				} else if (sig == SIG_READ) {
+					readHeader(in, header, 16, l);
+					long readFrom = IOHelper.get64(header, 0);
+					long len = IOHelper.get64(header, 8) - readFrom + 1;
+					streamPosition += 16;
+
+					if (previous == null || ! current.addFrom(previous, readFrom, len, filePosition)) {
+						return null;
+					}
+					filePosition += len;
+				} else {
+					throw new DeltaException("Illegal signature in diff-layer #" + l + " at position " + (streamPosition - 8) + " : " + sig);
+				}
+			}
+			previous = current;
+		}
+
+		if (previous != null && previous.isSequential()) {
+			return previous;
+		} else {
+			return null;
+		}
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public int getLayers() {
+		return layers;
+	}
+
+	public long getFrom(int extent) {
+		return from[extent];
+	}
+
+	public long getLength(int extent) {
+		return length[extent];
+	}
+
+	public int getLayer(int extent) {
+		return layer[extent];
+	}
+
+	public long getOffset(int extent) {
+		return offset[extent];
+	}
+
+	public long getTotalLength() {
+		return size == 0 ? 0 : from[size - 1] + length[size - 1];
+	}
+
+	/**
+	 * Return the index of the extent containing the position passed as argument, or -1 if the position is out of the map
+	 */
+	public int find(long position) {
+		int low = 0;
+		int high = size - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			if (position < from[mid]) {
+				high = mid - 1;
+			} else if (position >= from[mid] + length[mid]) {
+				low = mid + 1;
+			} else {
+				return mid;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Map the range [readFrom, readFrom + len[ of the previous map at the position passed as argument
+	 */
+	private boolean addFrom(DeltaExtentMap previous, long readFrom, long len, long position) {
+		int e = previous.find(readFrom);
+		while (len > 0) {
+			if (e == -1 || e == previous.size) {
+				return false; // Bytes which are not available in the underlying layers
+			}
+			long skip = readFrom - previous.from[e];
+			long n = Math.min(len, previous.length[e] - skip);
+			add(position, n, previous.layer[e], previous.offset[e] + skip);
+			position += n;
+			readFrom += n;
+			len -= n;
+			e++;
+		}
+		return true;
+	}
+
+	private void add(long position, long len, int l, long off) {
+		if (len <= 0) {
+			return;
+		}
+		if (size != 0) {
+			int last = size - 1;
+			if (layer[last] == l && offset[last] + length[last] == off && from[last] + length[last] == position) {
+				// Contiguous extents
+				length[last] += len;
+				return;
+			}
+		}
+
+		if (size == from.length) {
+			from = grow(from);
+			length = grow(length);
+			offset = grow(offset);
+			int[] tmp = new int[layer.length * 2];
+			System.arraycopy(layer, 0, tmp, 0, size);
+			layer = tmp;
+		}
+		from[size] = position;
+		length[size] = len;
+		layer[size] = l;
+		offset[size] = off;
+		size++;
+	}
+
+	/**
+	 * Check that each layer is read forward only
+	 */
+	private boolean isSequential() {
+		long[] positions = new long[layers];
+		for (int e=0; e<size; e++) {
+			if (offset[e] < positions[layer[e]]) {
+				return false;
+			}
+			positions[layer[e]] = offset[e] + length[e];
+		}
+		return true;
+	}
+
+	private static long[] grow(long[] data) {
+		long[] ret = new long[data.length * 2];
+		System.arraycopy(data, 0, ret, 0, data.length);
+		return ret;
+	}
+
+	private static void readHeader(InputStream in, byte[] header, int len, int l) throws IOException {
+		if (IOHelper.readFully(in, header, 0, len) != len) {
+			throw new DeltaException("Unexpected end of diff-layer #" + l);
+		}
+	}
+
+	/**
+	 * Skip "len" bytes of the stream.
+	 * <BR>InputStream.skip() is used first (it avoids reading the data of file streams) ; as it may return 0 on some implementations
+	 * (see IOHelper.skipFully), the data are read when it doesn't skip anything.
+	 */
+	static void skip(InputStream in, long len, byte[] buffer, int l) throws IOException {
+		while (len > 0) {
+			long skipped = in.skip(len);
+			if (skipped <= 0) {
+				skipped = in.read(buffer, 0, (int)Math.min(len, buffer.length));
+				if (skipped == -1) {
+					throw new DeltaException("Unexpected end of diff-layer #" + l);
+				}
+			}
+			len -= skipped;
+		}
+	}
+
+	public String toString() {
+		StringBuffer sb = ToStringHelper.init(this);
+		ToStringHelper.append("Layers", layers, sb);
+		ToStringHelper.append("Extents", size, sb);
+		ToStringHelper.append("Length", getTotalLength(), sb);
+		return ToStringHelper.close(sb);
+	}
+}
@@ -44,11 +44,30 @@ extends InputStream
 implements Constants, LayerHandler {    
 	private List layers = new ArrayList();
 	private long position = 0;
+	
+	// Flattened read (see setExtentMap)
+	private DeltaExtentMap extentMap;
+	private int currentExtent = 0;
+	private long[] streamPositions;
+	private byte[] skipBuffer;
 
 	public void addInputStream(InputStream stream, String name) {	
 		layers.add(new DeltaLayer(stream, name));
 	}
 
+	/**
+	 * Read the data through the extent map passed as argument instead of traversing the layers for each read.
+	 * <BR>The map must have been built from the same layers, and this method must be called before the first read.
+	 */
+	public void setExtentMap(DeltaExtentMap extentMap) {
+		if (extentMap != null && extentMap.getLayers() != layers.size()) {
+			throw new IllegalArgumentException("The extent map has been built on " + extentMap.getLayers() + " layers - " + layers.size() + " expected.");
+		}
+		this.extentMap = extentMap;
+		this.streamPositions = new long[layers.size()];
+		this.skipBuffer = new byte[DeltaExtentMap.SKIP_BUFFER_SIZE];
+	}
+
 	public void close() throws IOException {
 		Iterator iter = layers.iterator();
 		while (iter.hasNext()) {
@@ -80,6 +99,10 @@ implements Constants, LayerHandler {
 	}
 
 	public int read(byte[] buffer, int off, int len) throws IOException {
+		if (extentMap != null) {
+			return readFlattened(buffer, off, len);
+		}
+		
 		int read = 0;
 
 		List instructionsToProcess = new ArrayList();
@@ -183,6 +206,37 @@ implements Constants, LayerHandler {
 		return (read == 0 && len != 0) ? -1 : read;
 	}    
 
+	/**
+	 * Read the data from the layers referenced by the extent map : each layer's stream is only read forward.
+	 */
+	private int readFlattened(byte[] buffer, int off, int len) throws IOException {
+		int read = 0;
+		while (read < len && currentExtent < extentMap.size()) {
+			int l = extentMap.getLayer(currentExtent);
+			long inExtent = position - extentMap.getFrom(currentExtent);
+			long extentLength = extentMap.getLength(currentExtent);
+			int toRead = (int)Math.min(len - read, extentLength - inExtent);
+			
+			InputStream in = ((DeltaLayer)layers.get(l)).getStream();
+			long target = extentMap.getOffset(currentExtent) + inExtent;
+			if (target != streamPositions[l]) {
+				DeltaExtentMap.skip(in, target - streamPositions[l], skipBuffer, l);
+			}
+			int readBytes = IOHelper.readFully(in, buffer, off + read, toRead);
+			if (readBytes != toRead) {
+				throw new DeltaException("Incoherent read length : expected " + toRead + ", got " + readBytes + " for diff-layer #" + l);
+			}
+			
+			streamPositions[l] = target + toRead;
+			position += toRead;
+			read += toRead;
+			if (inExtent + toRead == extentLength) {
+				currentExtent++;
+			}
+		}
+		return (read == 0 && len != 0) ? -1 : read;
+	}
+
 	public synchronized void reset() throws IOException {
 		throw new UnsupportedOperationException("Reset is not supported on this implementation");
 	}
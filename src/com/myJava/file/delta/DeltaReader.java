@@ -1,16 +1,12 @@
 package com.myJava.file.delta;
 
-import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.Iterator;
-import java.util.List;
 
 import com.myJava.file.delta.sequence.ByteProcessor;
 import com.myJava.file.delta.sequence.ByteProcessorException;
 import com.myJava.file.delta.sequence.FileSequencerByteProcessor;
 import com.myJava.file.delta.sequence.HashSequence;
-import com.myJava.file.delta.sequence.HashSequenceEntry;
 import com.myJava.file.delta.tools.HashTool;
 import com.myJava.file.delta.tools.CircularList;
 import com.myJava.util.taskmonitor.TaskCancelledException;
@@ -46,6 +42,16 @@ This file is part of Areca.
 public class DeltaReader implements Constants {   
 	public static long SUCCESS_COUNTER = 0;
 	public static long FAILURE_COUNTER = 0;
+	
+	/**
+	 * Size of the chunks read from the source stream
+	 */
+	private static final int READ_BUFFER_SIZE = 64 * 1024;
+	
+	/**
+	 * Maximum number of new bytes that are buffered before being sent to the processors
+	 */
+	private static final int PENDING_BUFFER_SIZE = 64 * 1024;
 
 	private int blockSize;
 	private HashSequence seq;
@@ -53,10 +59,13 @@ public class DeltaReader implements Constants {
 	private String hashAlgorithm = HASH_ALG;
 	private DeltaProcessor[] processors;
 	private FileSequencerByteProcessor bproc;
+	
+	private byte[] pending;
+	private int pendingLength = 0;
 
 	public DeltaReader(int blockSize, InputStream in, DeltaProcessor[] processors, FileSequencerByteProcessor bproc) {
 		this.blockSize = blockSize;
-		this.in = new BufferedInputStream(in, 10000);
+		this.in = in;
 		this.processors = processors;
 		this.bproc = bproc;
 	}
@@ -67,28 +76,33 @@ public class DeltaReader implements Constants {
 		}
 		this.seq = seq;
 		this.blockSize = seq.getBlockSize();
-		this.in = new BufferedInputStream(in, 10000);
+		this.in = in;
 		this.processors = processors;
 		this.bproc = bproc;
 	}
 
-	private long computeSig(long totalRead) {
-		return totalRead%blockSize;
+	private int computeSig(long totalRead) {
+		return (int)(totalRead%blockSize);
 	}
 	
 	public void read(TaskMonitor monitor) throws IOException, DeltaException, DeltaProcessorException, ByteProcessorException, TaskCancelledException {
 		if (seq == null) {
 			readNoSeq(monitor);
-		} else {
+		} else if (! seq.isContentDefined()) {
 			readSeq(monitor);
+		} else if (bproc.isContentDefined() && bproc.getBlockSize() == seq.getBlockSize()) {
+			readContentDefined(monitor);
+		} else {
+			// The chunk boundaries can't be compared with the sequence's (different chunking parameters or fixed-size mode)
+			readNoSeq(monitor);
 		}
 	}
 
+	/**
+	 * No reference sequence : all bytes are new bytes, so they are sent to the processors by chunks
+	 */
 	public void readNoSeq(TaskMonitor monitor) throws IOException, DeltaException, DeltaProcessorException, ByteProcessorException, TaskCancelledException {
-		CircularList currentBlock = new CircularList(blockSize);
-		long totalRead = 0;
-		long breakSize = -1;
-		boolean doRead = true;
+		byte[] buffer = new byte[READ_BUFFER_SIZE];
 
 		for (int x=0; x<processors.length; x++) {
 			processors[x].begin();
@@ -96,32 +110,17 @@ public class DeltaReader implements Constants {
 
 		bproc.open();
 
+		int read;
 		while (true) {
 			monitor.checkTaskState();
 
-			int read = doRead ? in.read() : -1;
-			byte bRead;
+			read = in.read(buffer);
 			if (read == -1) {
-				if (totalRead == 0 || totalRead == breakSize) {
-					break;
-				} else {
-					if (breakSize == -1) {
-						breakSize = totalRead + blockSize -1 ;
-					}
-					bRead = HashSequenceEntry.DEFAULT_BYTE;
-					doRead = false;
-				}
-			} else {
-				bRead = (byte)read;
-				bproc.processByte(bRead);
-			}
-
-			totalRead++;
-			currentBlock.add(bRead);
-
-			if (totalRead >= blockSize) {
+				break;
+			} else if (read != 0) {
+				bproc.processBytes(buffer, 0, read);
 				for (int x=0; x<processors.length; x++) {
-					processors[x].newByte(currentBlock.getFirst());   
+					processors[x].newBytes(buffer, 0, read);
 				}
 			}
 		}
@@ -134,12 +133,21 @@ public class DeltaReader implements Constants {
 
 	public void readSeq(TaskMonitor monitor) throws IOException, DeltaException, DeltaProcessorException, ByteProcessorException, TaskCancelledException {
 		CircularList currentBlock = new CircularList(blockSize);
+		byte[] buffer = new byte[READ_BUFFER_SIZE];
+		int bufferLength = 0;
+		int bufferIndex = 0;
 		long totalRead = 0;
 		int currentQuickHash = 0;
+		int s1 = 0; // Rolling checksum components (see HashTool.combine)
+		int s2 = 0;
+		boolean legacyQuickHash = seq.isLegacyQuickHash();
 		long breakSize = -1;
 		long lastBlockIndex = -1;
-		long significant = blockSize;
-		boolean doRead = true;
+		int significant = blockSize;
+		boolean eof = false;
+		
+		pending = new byte[PENDING_BUFFER_SIZE];
+		pendingLength = 0;
 
 		for (int x=0; x<processors.length; x++) {
 			processors[x].begin();
@@ -148,11 +156,23 @@ public class DeltaReader implements Constants {
 		bproc.open();
 
 		while (true) {
-			monitor.checkTaskState();
-
-			int read = doRead ? in.read() : -1;
 			byte bRead;
-			if (read == -1) {
+			if (bufferIndex < bufferLength) {
+				bRead = buffer[bufferIndex++];
+			} else if (! eof) {
+				// Read the next chunk
+				monitor.checkTaskState();
+				bufferIndex = 0;
+				bufferLength = in.read(buffer);
+				if (bufferLength == -1) {
+					bufferLength = 0;
+					eof = true;
+				} else {
+					bproc.processBytes(buffer, 0, bufferLength);
+				}
+				continue;
+			} else {
+				// End of stream reached : complete the last block with default bytes
 				if (totalRead == 0 || totalRead == breakSize) {
 					break;
 				} else {
@@ -160,73 +180,69 @@ public class DeltaReader implements Constants {
 						breakSize = totalRead + blockSize -1 ;
 						significant = computeSig(totalRead);
 					}
-					bRead = HashSequenceEntry.DEFAULT_BYTE;
-					doRead = false;
+					bRead = HashSequence.DEFAULT_BYTE;
 				}
-			} else {
-				bRead = (byte)read;
-				bproc.processByte(bRead);
 			}
 
 			totalRead++;
 			
 			// Register value and compute hash
-			currentQuickHash = currentBlock.addValueAndUpdateQuickHash(currentQuickHash, bRead);
+			byte removed = currentBlock.add(bRead);
+			if (legacyQuickHash) {
+				currentQuickHash = HashTool.update(currentQuickHash, bRead, removed);
+			} else {
+				int out = removed & 0xff;
+				s1 += (bRead & 0xff) - out;
+				s2 += s1 - blockSize * out;
+				currentQuickHash = HashTool.combine(s1, s2);
+			}
 
 			// Look for
 			boolean found = false;
 			if (totalRead >= blockSize) {
-				int idx = seq.getIndexIfExist(currentQuickHash);
-				if (idx != -1) {
+				if (seq.contains(currentQuickHash)) {
 					byte[] fh = currentBlock.computeHash(hashAlgorithm);
-					List entries = seq.get(currentQuickHash, idx, fh);
-					if (entries != null) {
-
-						HashSequenceEntry candidate = null;
-						for (int e=0; e<entries.size(); e++) {
-							HashSequenceEntry entry = (HashSequenceEntry)entries.get(e);
-							if (entry.getIndex() > lastBlockIndex && (candidate == null || entry.getIndex() < candidate.getIndex())) {
-								candidate = entry;
-							}
-						}
-						if (candidate != null && candidate.getSize() == significant) {
-							// Found !
-							if (candidate.getIndex() <= lastBlockIndex) {
-								throw new DeltaException("Incompatible indexes : current = " + candidate.getIndex() + ", last = " + lastBlockIndex);
-							} else if (candidate.getIndex() > lastBlockIndex + 1) {
-								// Block lost !
-								for (int x=0; x<processors.length; x++) {
-									processors[x].bytesLost((lastBlockIndex + 1) * blockSize, candidate.getIndex() * blockSize - 1);
-								}
-							}
-							lastBlockIndex = candidate.getIndex();
+					int candidate = seq.find(currentQuickHash, fh, 0, lastBlockIndex + 1, significant);
+					if (candidate != -1) {
+						// Found !
+						long candidateIndex = seq.getPosition(candidate);
+						flushPendingBytes();
+						if (candidateIndex > lastBlockIndex + 1) {
+							// Block lost !
 							for (int x=0; x<processors.length; x++) {
-								processors[x].blockFound(candidate, currentBlock);
+								processors[x].bytesLost((lastBlockIndex + 1) * blockSize, candidateIndex * blockSize - 1);
 							}
-
-							// go ahead (and reset all)
-							currentQuickHash = 0;
-							totalRead = 0;
-							currentBlock.reset();
-							found = true;
-							SUCCESS_COUNTER++;
-						} else {
-							//Logger.defaultLogger().fine("Full hash computed but no entry found.");
-							FAILURE_COUNTER++;
 						}
+						lastBlockIndex = candidateIndex;
+						for (int x=0; x<processors.length; x++) {
+							processors[x].blockFound(candidateIndex, significant, currentBlock);
+						}
+
+						// go ahead (and reset all)
+						currentQuickHash = 0;
+						s1 = 0;
+						s2 = 0;
+						totalRead = 0;
+						currentBlock.reset();
+						found = true;
+						SUCCESS_COUNTER++;
 					} else {
-						//Logger.defaultLogger().info("No entries found.");
+						//Logger.defaultLogger().fine("Full hash computed but no entry found.");
 						FAILURE_COUNTER++;
 					}
 				}
 
 				if (! found) {
-					for (int x=0; x<processors.length; x++) {
-						processors[x].newByte(currentBlock.getFirst());   
+					// New byte : buffer it until a block is found
+					pending[pendingLength++] = currentBlock.getFirst();
+					if (pendingLength == pending.length) {
+						flushPendingBytes();
 					}
 				}
 			}
 		}
+		
+		flushPendingBytes();
 
 		if (lastBlockIndex < seq.getSize() - 1) {
 			// Block lost !
@@ -240,4 +256,107 @@ public class DeltaReader implements Constants {
 		}
 		bproc.close();
 	}
+	
+	/**
+	 * Content-defined sequence : the file is split into chunks by the FileSequencerByteProcessor, and each chunk is
+	 * looked up in the sequence by its full hash.
+	 */
+	public void readContentDefined(TaskMonitor monitor) throws IOException, DeltaException, DeltaProcessorException, ByteProcessorException, TaskCancelledException {
+		byte[] buffer = new byte[READ_BUFFER_SIZE];
+		
+		// Bytes of the current chunk that have been read before the current buffer
+		pending = new byte[bproc.getMaxEntrySize()];
+		pendingLength = 0;
+		
+		// The previous layer is read sequentially : blocks can't be read before this position
+		long nextPosition = 0;
+
+		for (int x=0; x<processors.length; x++) {
+			processors[x].begin();
+		}
+
+		bproc.open();
+		HashSequence chunks = bproc.getSequence();
+		int nextChunk = 0;
+
+		int read;
+		while (true) {
+			monitor.checkTaskState();
+
+			read = in.read(buffer);
+			if (read == -1) {
+				break;
+			} else {
+				bproc.processBytes(buffer, 0, read);
+				int offset = 0;
+				for (; nextChunk < chunks.getSize(); nextChunk++) {
+					int fromBuffer = chunks.getSize(nextChunk) - pendingLength;
+					nextPosition = processChunk(chunks, nextChunk, buffer, offset, fromBuffer, nextPosition);
+					offset += fromBuffer;
+				}
+				
+				// Keep the remaining bytes until the end of the chunk is found
+				System.arraycopy(buffer, offset, pending, pendingLength, read - offset);
+				pendingLength += read - offset;
+			}
+		}
+		
+		// Last chunk
+		bproc.close();
+		for (; nextChunk < chunks.getSize(); nextChunk++) {
+			nextPosition = processChunk(chunks, nextChunk, buffer, 0, 0, nextPosition);
+		}
+
+		for (int x=0; x<processors.length; x++) {
+			processors[x].end();
+		}
+	}
+	
+	/**
+	 * Look for the chunk (made of the pending bytes followed by "len" bytes of the buffer) in the sequence and 
+	 * return the next position that can be read in the previous layer.
+	 */
+	private long processChunk(HashSequence chunks, int chunk, byte[] buffer, int offset, int len, long nextPosition) throws DeltaProcessorException {
+		int candidate = -1;
+		int quickHash = chunks.getQuickHash(chunk);
+		boolean exists = seq.contains(quickHash);
+		if (exists) {
+			candidate = seq.find(quickHash, chunks.getFullHashes(), chunk * HASH_ALG_KLENGTH, nextPosition, chunks.getSize(chunk));
+		}
+		
+		if (candidate != -1) {
+			SUCCESS_COUNTER++;
+			long position = seq.getPosition(candidate);
+			int size = seq.getSize(candidate);
+			for (int x=0; x<processors.length; x++) {
+				processors[x].blockFound(position, position + size - 1);
+			}
+			nextPosition = position + size;
+		} else {
+			if (exists) {
+				FAILURE_COUNTER++;
+			}
+			for (int x=0; x<processors.length; x++) {
+				if (pendingLength != 0) {
+					processors[x].newBytes(pending, 0, pendingLength);
+				}
+				processors[x].newBytes(buffer, offset, len);
+			}
+		}
+		
+		pendingLength = 0;
+		return nextPosition;
+	}
+	
+	/**
+	 * Send the buffered new bytes to the processors
+	 */
+	private void flushPendingBytes() throws DeltaProcessorException {
+		if (pendingLength != 0) {
+			for (int x=0; x<processors.length; x++) {
+				processors[x].newBytes(pending, 0, pendingLength);
+			}
+			pendingLength = 0;
+		}
+	}
 }
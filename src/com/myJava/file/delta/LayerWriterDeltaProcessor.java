@@ -4,7 +4,6 @@ import java.io.IOException;
 import java.io.OutputStream;
 
 import com.myJava.configuration.FrameworkConfiguration;
-import com.myJava.file.delta.sequence.HashSequenceEntry;
 import com.myJava.file.delta.tools.IOHelper;
 import com.myJava.file.delta.tools.CircularList;
 import com.myJava.util.log.Logger;
@@ -91,19 +90,23 @@ implements DeltaProcessor, Constants {
         }
     }
     
-    public void blockFound(HashSequenceEntry entry, CircularList block) throws DeltaProcessorException {
+    public void blockFound(long index, int size, CircularList block) throws DeltaProcessorException {
 		if (DEBUG) {
-			Logger.defaultLogger().fine("Bucket found : index=" + entry.getIndex() + ", size=" + entry.getSize() + ", quickHash=" + entry.getQuickHash());
+			Logger.defaultLogger().fine("Bucket found : index=" + index + ", size=" + size);
 		}
         flushNewBytes();
         if (from == -1) {
             from = currentPosition;
         }
-        currentPosition += entry.getSize();
+        currentPosition += size;
     }
     
     public void blockFound(long readFrom, long readTo) throws DeltaProcessorException {
         flushNewBytes();
+        if (from != -1 && readFrom != currentPosition) {
+        	// Not contiguous with the pending read instruction
+        	flushReadBlocks();
+        }
         if (from == -1) {
             from = readFrom;
         }
@@ -111,12 +114,19 @@ implements DeltaProcessor, Constants {
     }
 
     public void newBytes(byte[] data, int offset, int len) throws DeltaProcessorException {
-    	if (len == 0) {
-            flushReadBlocks();
-    	}
+        flushReadBlocks();
     	
-        for (int i=offset; i<offset+len; i++) {
-            newByte(data[i]);
+        int index = offset;
+        int end = offset + len;
+        while (index < end) {
+            if (bufferIndex == buffer.length) {
+                flushNewBytes();
+            }
+            
+            int toCopy = Math.min(end - index, buffer.length - bufferIndex);
+            System.arraycopy(data, index, buffer, bufferIndex, toCopy);
+            bufferIndex += toCopy;
+            index += toCopy;
         }
     }
     
@@ -30,5 +30,6 @@ This file is part of Areca.
 public interface ByteProcessor {
     public void open() throws ByteProcessorException;
     public void processByte(byte data) throws ByteProcessorException;
+    public void processBytes(byte[] data, int offset, int len) throws ByteProcessorException;
     public void close() throws ByteProcessorException;
 }
@@ -31,6 +31,8 @@ This file is part of Areca.
 
  */
 public class FileSequencer {    
+    private static final int BUFFER_SIZE = 64 * 1024;
+    
     private InputStream in;
     private FileSequencerByteProcessor proc;
 
@@ -41,9 +43,10 @@ public class FileSequencer {
 
     public HashSequence getHash() throws IOException, ByteProcessorException {
         proc.open();
+        byte[] buffer = new byte[BUFFER_SIZE];
         int read;
-        while ((read = in.read()) != -1) {
-            proc.processByte((byte)read);
+        while ((read = in.read(buffer)) != -1) {
+            proc.processBytes(buffer, 0, read);
         }
         proc.close();
         return proc.getSequence();
@@ -1,8 +1,11 @@
 package com.myJava.file.delta.sequence;
 
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
 import com.myJava.file.delta.Constants;
+import com.myJava.file.delta.tools.ContentDefinedChunker;
 import com.myJava.file.delta.tools.HashTool;
-import com.myJava.file.delta.tools.CircularList;
 
 /**
  * <BR>
@@ -34,20 +37,67 @@ This file is part of Areca.
 public class FileSequencerByteProcessor
 implements ByteProcessor, Constants {
 
+    /**
+     * Maximum initial size of the sequence (it grows beyond this size if needed)
+     */
+    private static final int MAX_INITIAL_SIZE = 1024 * 1024;
+
     private String hashAlgorithm = HASH_ALG;
     private int blockSize;
-
-    private long position = 0;
-    private int currentQuickHash = 0;
+    
+    /**
+     * Content-defined chunking mode : not null
+     * <BR>Fixed-size blocks mode : null
+     */
+    private ContentDefinedChunker chunker;
+    
+    /**
+     * Expected file length, used to size the sequence (0 if unknown)
+     */
+    private long expectedLength = 0;
+
+    private long position = 0; // Block index or chunk position (content-defined mode)
+    private int s1 = 0; // Quick hash components (see HashTool.combine)
+    private int s2 = 0;
     private HashSequence ret;
-    private CircularList block;
     private boolean closed = false;
     
-    private long totalReadMod = 0;
+    /**
+     * The full hash of the current block is computed on the fly.
+     * <BR>(this avoids buffering the block's bytes)
+     */
+    private MessageDigest digest;
+    private byte[] singleByte = new byte[1];
+    
+    private int totalReadMod = 0;
 
     public FileSequencerByteProcessor(int blockSize) {
         this.blockSize = blockSize;
     }
+    
+    public FileSequencerByteProcessor(ContentDefinedChunker chunker) {
+    	this.chunker = chunker;
+        this.blockSize = chunker.getAverageSize();
+    }
+    
+    public boolean isContentDefined() {
+    	return chunker != null;
+    }
+    
+    public int getBlockSize() {
+		return blockSize;
+	}
+    
+    /**
+     * Maximum size of the entries generated by this processor
+     */
+    public int getMaxEntrySize() {
+    	return isContentDefined() ? chunker.getMaxSize() : blockSize;
+    }
+
+    public void setExpectedLength(long expectedLength) {
+		this.expectedLength = expectedLength;
+	}
 
     public void close() throws ByteProcessorException {
     	if (closed) {
@@ -55,37 +105,97 @@ implements ByteProcessor, Constants {
     	}
     	closed = true;
     	
-        if (totalReadMod != 0) {
-            int d;
-            for (d = 0; d<blockSize; d++) {
-                currentQuickHash = HashTool.hash(currentQuickHash, HashSequenceEntry.DEFAULT_BYTE);
-                block.add(HashSequenceEntry.DEFAULT_BYTE);
-
-                totalReadMod++;
-                if (totalReadMod == blockSize) {
-                	totalReadMod = 0;
-                    ret.add(currentQuickHash, block.computeHash(hashAlgorithm), position++, blockSize - d - 1);
-                    break;
-                }
-            }
+        if (totalReadMod != 0 && isContentDefined()) {
+        	// Last chunk
+        	addChunk();
+        } else if (totalReadMod != 0) {
+        	// Complete the last block with default bytes
+        	int significant = totalReadMod;
+        	byte[] padding = new byte[blockSize - significant];
+        	for (int i=0; i<padding.length; i++) {
+        		padding[i] = HashSequence.DEFAULT_BYTE;
+        	}
+        	updateQuickHash(padding, 0, padding.length);
+        	digest.update(padding);
+        	totalReadMod = 0;
+        	ret.add(HashTool.combine(s1, s2), digest.digest(), position++, significant);
         }
     }
-
-    public void open() {
-        ret = new HashSequence(blockSize);
-        block = new CircularList(blockSize);
+    
+    private void addChunk() {
+    	byte[] fullHash = digest.digest();
+    	ret.add(HashTool.chunkQuickHash(fullHash), fullHash, position, totalReadMod);
+    	position += totalReadMod;
+    	totalReadMod = 0;
+    }
+    
+    public void open() throws ByteProcessorException {
+        ret = new HashSequence(
+        		blockSize, 
+        		isContentDefined() ? HashSequence.FORMAT_CONTENT_DEFINED : HashSequence.FORMAT_FIXED,
+        		(int)Math.min(MAX_INITIAL_SIZE, expectedLength / blockSize + 1)
+        );
+        if (isContentDefined()) {
+        	chunker.reset();
+        }
+        try {
+			digest = MessageDigest.getInstance(hashAlgorithm);
+		} catch (NoSuchAlgorithmException e) {
+			throw new ByteProcessorException(e);
+		}
     }
 
     public void processByte(byte read) {
-        totalReadMod++;
-
-        currentQuickHash = HashTool.hash(currentQuickHash, read);
-        block.add(read);
-        if (totalReadMod == blockSize) {
-            ret.add(currentQuickHash, block.computeHash(hashAlgorithm), position++, blockSize);
-            currentQuickHash = 0;
-            totalReadMod = 0;
-        }
+    	singleByte[0] = read;
+    	processBytes(singleByte, 0, 1);
+    }
+    
+    public void processBytes(byte[] data, int offset, int len) {
+    	if (isContentDefined()) {
+    		processChunks(data, offset, len);
+    		return;
+    	}
+    	
+    	int index = offset;
+    	int end = offset + len;
+    	while (index < end) {
+    		// Process as many bytes as possible in the current block
+    		int toProcess = Math.min(end - index, blockSize - totalReadMod);
+    		updateQuickHash(data, index, toProcess);
+    		digest.update(data, index, toProcess);
+    		totalReadMod += toProcess;
+    		index += toProcess;
+    		
+            if (totalReadMod == blockSize) {
+                ret.add(HashTool.combine(s1, s2), digest.digest(), position++, blockSize);
+                s1 = 0;
+                s2 = 0;
+                totalReadMod = 0;
+            }
+    	}
+    }
+    
+    private void processChunks(byte[] data, int offset, int len) {
+    	int index = offset;
+    	int end = offset + len;
+    	while (index < end) {
+    		int boundary = chunker.nextBoundary(data, index, end - index);
+    		int toProcess = (boundary == -1) ? end - index : boundary;
+    		digest.update(data, index, toProcess);
+    		totalReadMod += toProcess;
+    		index += toProcess;
+    		
+    		if (boundary != -1) {
+    			addChunk();
+    		}
+    	}
+    }
+    
+    private void updateQuickHash(byte[] data, int offset, int len) {
+    	for (int i=offset; i<offset+len; i++) {
+    		s1 += data[i] & 0xff;
+    		s2 += s1;
+    	}
     }
 
     public HashSequence getSequence() {
@@ -1,14 +1,13 @@
 package com.myJava.file.delta.sequence;
 
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.List;
-
-import com.myJava.configuration.FrameworkConfiguration;
+import com.myJava.file.delta.Constants;
 import com.myJava.object.ToStringHelper;
 
 
 /**
+ * Sequence of blocks (quick hash, full hash, position, size) describing a file.
+ * <BR>Entries are stored in parallel primitive arrays (the full hashes are packed in a single array) and are identified
+ * by their rank, in insertion order. They are indexed by quick hash in an open-addressing table (linear probing).
  * <BR>
  * @author Olivier PETRUCCI
  * <BR>
@@ -35,86 +34,211 @@ This file is part of Areca.
     Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
 
  */
-public class HashSequence {
-    private static final int SIZE = FrameworkConfiguration.getInstance().getDeltaHashMapSize();
-    
+public class HashSequence implements Constants {
+	/**
+	 * Byte used to complete the last block of a file
+	 */
+    public static final byte DEFAULT_BYTE = 79;
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    /**
+     * Fixed-size blocks - legacy "sum" quick hash (see HashTool.hash) : sequences written by older versions
+     */
+    public static final short FORMAT_FIXED_LEGACY = 1;
+
+    /**
+     * Fixed-size blocks - rolling checksum quick hash (see HashTool.combine)
+     */
+    public static final short FORMAT_FIXED = 2;
+
+    /**
+     * Content-defined chunks (see ContentDefinedChunker) - the block size is the average chunk size and the entries'
+     * index is their position in the file
+     */
+    public static final short FORMAT_CONTENT_DEFINED = 3;
+
     private int blockSize; // For information purpose;
+    private short format = FORMAT_FIXED;
     private int size = 0;
-    private List retList = new ArrayList();
-    private SimilarEntrySet[] entries = new SimilarEntrySet[SIZE];
+
+    // Entries
+    private int[] quickHashes;
+    private long[] positions;
+    private int[] sizes;
+    private byte[] fullHashes;
+
+    /**
+     * Open-addressing table : rank of the entry + 1 (0 = empty slot)
+     * <BR>Its length is a power of 2, and at least twice the entries' capacity.
+     */
+    private int[] table;
+    private int mask;
 
     public HashSequence(int blockSize) {
+    	this(blockSize, FORMAT_FIXED, DEFAULT_CAPACITY);
+    }
+
+    public HashSequence(int blockSize, short format) {
+    	this(blockSize, format, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param expectedSize Expected number of entries (the sequence grows if needed)
+     */
+    public HashSequence(int blockSize, short format, int expectedSize) {
         this.blockSize = blockSize;
+        this.format = format;
+        allocate(Math.max(expectedSize, 1));
+    }
+
+    private void allocate(int capacity) {
+    	int[] oldQuickHashes = quickHashes;
+    	long[] oldPositions = positions;
+    	int[] oldSizes = sizes;
+    	byte[] oldFullHashes = fullHashes;
+
+    	quickHashes = new int[capacity];
+    	positions = new long[capacity];
+    	sizes = new int[capacity];
+    	fullHashes = new byte[capacity * HASH_ALG_KLENGTH];
+    	if (oldQuickHashes != null) {
+	    	System.arraycopy(oldQuickHashes, 0, quickHashes, 0, size);
+	    	System.arraycopy(oldPositions, 0, positions, 0, size);
+	    	System.arraycopy(oldSizes, 0, sizes, 0, size);
+	    	System.arraycopy(oldFullHashes, 0, fullHashes, 0, size * HASH_ALG_KLENGTH);
+    	}
+
+    	int tableSize = Integer.highestOneBit(capacity) << 2; // in [2*capacity, 4*capacity)
+    	table = new int[tableSize];
+    	mask = tableSize - 1;
+    	for (int e=0; e<size; e++) {
+    		index(e);
+    	}
+    }
+
+    private void index(int entry) {
+    	int slot = slot(quickHashes[entry]);
+    	while (table[slot] != 0) {
+    		slot = (slot + 1) & mask;
+    	}
+    	table[slot] = entry + 1;
     }
 
-    public void add(int quickHash, byte[] fullHash, long bucketPosition, int bucketSize) {
-        int index = computeIndex(quickHash);
-        if (entries[index] == null) {
-            entries[index] = new SimilarEntrySet();
-        }
-        size++;
-        entries[index].add(new HashSequenceEntry(quickHash, fullHash, bucketPosition, bucketSize));
-    }
-    
-    public SimilarEntrySet[] getInternalData() {
-        return entries;
-    }
-    
-    public int getIndexIfExist(int quickHash) {
-        int index = computeIndex(quickHash);
-        if (entries[index] == null) {
-            return -1;
-        } else {
-        	SimilarEntrySet set = entries[index];
-        	for (int i=0; i<set.size(); i++) {
-                HashSequenceEntry entry = (HashSequenceEntry)set.get(i);
-                if (entry.getQuickHash() == quickHash) {
-                    return index;
-                }
-            }
-            return -1;
-        }
+    private int slot(int quickHash) {
+    	// Spread the bits : the quick hash's low bits are not uniformly distributed
+    	int h = quickHash * 0x9E3779B9;
+    	return (h ^ (h >>> 16)) & mask;
+    }
+
+    public short getFormat() {
+		return format;
+	}
+
+	public boolean isLegacyQuickHash() {
+		return format == FORMAT_FIXED_LEGACY;
+	}
+
+    public boolean isContentDefined() {
+		return format == FORMAT_CONTENT_DEFINED;
+	}
+
+	/**
+	 * Add an entry and return its rank
+	 */
+    public int add(int quickHash, byte[] fullHash, long bucketPosition, int bucketSize) {
+    	return add(quickHash, fullHash, 0, bucketPosition, bucketSize);
+    }
+
+	/**
+	 * Add an entry, whose full hash is read from the "fullHash" array at "hashOffset", and return its rank
+	 */
+    public int add(int quickHash, byte[] fullHash, int hashOffset, long bucketPosition, int bucketSize) {
+    	if (size == quickHashes.length) {
+    		allocate(size * 2);
+    	}
+    	int entry = size++;
+    	quickHashes[entry] = quickHash;
+    	positions[entry] = bucketPosition;
+    	sizes[entry] = bucketSize;
+    	System.arraycopy(fullHash, hashOffset, fullHashes, entry * HASH_ALG_KLENGTH, HASH_ALG_KLENGTH);
+    	index(entry);
+    	return entry;
+    }
+
+    /**
+     * Tell whether an entry with this quick hash exists
+     */
+    public boolean contains(int quickHash) {
+    	int slot = slot(quickHash);
+    	int e;
+    	while ((e = table[slot]) != 0) {
+    		if (quickHashes[e - 1] == quickHash) {
+    			return true;
+    		}
+    		slot = (slot + 1) & mask;
+    	}
+    	return false;
+    }
+
+    /**
+     * Return the rank of the entry with the lowest position that matches the quick hash, the full hash and the size,
+     * and whose position is greater or equal to "minPosition" ; -1 if no such entry exists.
+     */
+    public int find(int quickHash, byte[] fullHash, int hashOffset, long minPosition, int bucketSize) {
+    	int candidate = -1;
+    	int slot = slot(quickHash);
+    	int e;
+    	while ((e = table[slot]) != 0) {
+    		e--;
+    		if (
+    				quickHashes[e] == quickHash
+    				&& sizes[e] == bucketSize
+    				&& positions[e] >= minPosition
+    				&& (candidate == -1 || positions[e] < positions[candidate])
+    				&& sameFullHash(e, fullHash, hashOffset)
+    		) {
+    			candidate = e;
+    		}
+    		slot = (slot + 1) & mask;
+    	}
+    	return candidate;
+    }
+
+    private boolean sameFullHash(int entry, byte[] fullHash, int hashOffset) {
+    	int base = entry * HASH_ALG_KLENGTH;
+    	for (int i=0; i<HASH_ALG_KLENGTH; i++) {
+    		if (fullHashes[base + i] != fullHash[hashOffset + i]) {
+    			return false;
+    		}
+    	}
+    	return true;
     }
 
     public int getBlockSize() {
         return blockSize;
     }
 
-    private int computeIndex(int quickHash) {
-        return Math.abs(quickHash)%SIZE;
+    public int getQuickHash(int entry) {
+    	return quickHashes[entry];
+    }
+
+    /**
+     * Block index or chunk position (content-defined sequences)
+     */
+    public long getPosition(int entry) {
+    	return positions[entry];
+    }
+
+    public int getSize(int entry) {
+    	return sizes[entry];
     }
-    
+
     /**
-     * CAUTION : The return list is recycled before each call to this method.
+     * Packed full hashes : the full hash of an entry is stored at rank * HASH_ALG_KLENGTH
      */
-    public List get(int quickHash, int index, byte[] fullHash) {
-        retList.clear();
-        if (entries[index] != null) {
-        	SimilarEntrySet set = entries[index];
-        	for (int e=0; e<set.size(); e++) {
-        		
-        		// Compare quick hash
-                HashSequenceEntry entry = (HashSequenceEntry)set.get(e);
-                if (entry.getQuickHash() == quickHash) {
-                	
-                	// Compare full hash
-                    if (fullHash.length == entry.getFullHash().length) {
-                        boolean eq = true;
-                        for (int i=0; i<fullHash.length; i++) {
-                            if (fullHash[i] != entry.getFullHash()[i]) {
-                                eq = false;
-                                break;
-                            }
-                        }
-                        
-                        if (eq) {
-                            retList.add(entry);
-                        }
-                    }
-                }
-            }
-        }
-        return retList;
+    public byte[] getFullHashes() {
+    	return fullHashes;
     }
 
     public int getSize() {
@@ -123,11 +247,9 @@ public class HashSequence {
 
     public String toString() {
         StringBuffer sb = ToStringHelper.init(this);
-        for (int i=0; i<SIZE; i++) {
-            if (this.entries[i] != null) {
-                ToStringHelper.append("\nBucket" + i, entries[i], sb);
-            }
-        }
+        ToStringHelper.append("Format", format, sb);
+        ToStringHelper.append("BlockSize", blockSize, sb);
+        ToStringHelper.append("Size", size, sb);
         return ToStringHelper.close(sb);
     }
 }
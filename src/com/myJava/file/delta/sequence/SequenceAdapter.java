@@ -5,7 +5,6 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.util.Iterator;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 
@@ -49,7 +48,9 @@ This file is part of Areca.
 
  */
 public class SequenceAdapter implements Constants {
-    private static final short VERSION = 1;
+    /**
+     * The version which is written is the sequence's format (see HashSequence.FORMAT_*)
+     */
 
     private static SequenceAdapter INSTANCE = new SequenceAdapter();
     
@@ -58,35 +59,30 @@ public class SequenceAdapter implements Constants {
     }
     
     public void serialize(OutputStream out, HashSequence sequence) throws IOException {
-        IOHelper.writeShort(VERSION, out);
+        IOHelper.writeShort(sequence.getFormat(), out);
         IOHelper.writeLong(sequence.getBlockSize(), out);
-        SimilarEntrySet[] sets = sequence.getInternalData();
-        for (int i=0; i<sets.length; i++) {
-        	if (sets[i] != null) {
-	            Iterator iter = sets[i].iterator();
-	            while(iter.hasNext()) {
-	                HashSequenceEntry entry = (HashSequenceEntry)iter.next();
-	                IOHelper.writeInt(entry.getQuickHash(), out);
-	                IOHelper.writeLong(entry.getIndex(), out);
-	                IOHelper.writeInt(entry.getSize(), out);
-	                out.write(entry.getFullHash());
-	            }
-        	}
+        byte[] fullHashes = sequence.getFullHashes();
+        for (int e=0; e<sequence.getSize(); e++) {
+            IOHelper.writeInt(sequence.getQuickHash(e), out);
+            IOHelper.writeLong(sequence.getPosition(e), out);
+            IOHelper.writeInt(sequence.getSize(e), out);
+            out.write(fullHashes, e * HASH_ALG_KLENGTH, HASH_ALG_KLENGTH);
         }
     }
     
     public HashSequence deserialize(InputStream in) throws IOException {
         byte[] sig = new byte[2 + 8];
         byte[] entryData = new byte[4 + 8 + 4];
+        byte[] fullHash = new byte[HASH_ALG_KLENGTH];
         int nb = IOHelper.readFully(in, sig);
         long nbBuckets = 0;
         if (nb == -1) {
             return null;
         } else {
+            short version = (short)IOHelper.get16(sig, 0);
             int blockSize = (int)IOHelper.get64(sig, 2);
-            HashSequence seq = new HashSequence(blockSize);
+            HashSequence seq = new HashSequence(blockSize, version);
             while (IOHelper.readFully(in, entryData) != -1) {
-                byte[] fullHash = new byte[HASH_ALG_KLENGTH];
                 IOHelper.readFully(in, fullHash);
                 nbBuckets++;
                 seq.add(
@@ -0,0 +1,346 @@
+package com.myJava.file.delta.sequence;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+import com.myJava.file.delta.Constants;
+import com.myJava.object.ToStringHelper;
+import com.myJava.util.log.Logger;
+
+/**
+ * Binary, read-only store of HashSequences, written by a SequenceStoreWriter.
+ * <BR>The file is memory-mapped : a lookup is a binary search on the key index and doesn't allocate any object.
+ * <BR>
+ * <BR>File layout (little endian, as IOHelper) :
+ * <BR>- header : magic (int), version (short), full hash length (short), source length (long), source last modification date (long),
+ * number of records (int), reserved (int), index offset (long)
+ * <BR>- data : for each key, its chars (2 bytes each) followed by its entries (quick hash (int), position (long), size (int), full hash)
+ * <BR>- index : one fixed-width record per key, sorted by key hash : key hash (long), data offset (long), key length (int),
+ * number of entries (int), block size (int), sequence format (short), reserved (short)
+ * <BR>
+ * <BR>The mapped buffers are released by close() ; the store must not be used once it has been closed.
+ * <BR>This class is not thread-safe.
+ * <BR>
+ * @author Olivier PETRUCCI
+ * <BR>
+ *
+ */
+
+ /*
+ Copyright 2005-2015, Olivier PETRUCCI.
+
+This file is part of Areca.
+
+    Areca is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    Areca is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Areca; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+ */
+public class SequenceStore implements Constants {
+	public static final int MAGIC = 0x51455341; // "ASEQ"
+	public static final short VERSION = 1;
+
+	public static final int HEADER_SIZE = 40;
+	public static final int RECORD_SIZE = 32;
+	public static final int ENTRY_SIZE = 4 + 8 + 4 + HASH_ALG_KLENGTH;
+
+	/**
+	 * Number of entries of a "null" sequence
+	 */
+	public static final int NULL_SEQUENCE = -1;
+
+	/**
+	 * The data section is mapped by windows (lazily) to limit the address space used on 32 bits VMs.
+	 * <BR>Consecutive windows overlap, so any block that is smaller than WINDOW_OVERLAP is entirely contained in one window.
+	 * Larger blocks are read from the file's channel.
+	 */
+	private static final int WINDOW_SHIFT = 26; // 64 MB
+	private static final long WINDOW_SIZE = 1L << WINDOW_SHIFT;
+	private static final int WINDOW_OVERLAP = 8 * 1024 * 1024;
+
+	private File file;
+	private RandomAccessFile raf;
+	private FileChannel channel;
+	private ByteBuffer index;
+	private ByteBuffer[] windows;
+	private long dataLength;
+	private int records;
+
+	/**
+	 * Buffer used to read the blocks that don't fit in a window
+	 */
+	private ByteBuffer overflow;
+
+	/**
+	 * Position of the requested block in the buffer returned by "locate"
+	 */
+	private int base;
+
+	/**
+	 * Buffer used to read the full hashes
+	 */
+	private byte[] fullHash = new byte[HASH_ALG_KLENGTH];
+
+	/**
+	 * Archive the sequences belong to
+	 */
+	private File referenceArchive;
+
+	private SequenceStore(File file) {
+		this.file = file;
+	}
+
+	/**
+	 * Open the store.
+	 * <BR>Return null if it doesn't exist, is incomplete, or if it was not built from the source described by the arguments.
+	 */
+	public static SequenceStore open(File file, long sourceLength, long sourceLastModified) throws IOException {
+		if (! file.exists()) {
+			return null;
+		}
+
+		SequenceStore store = new SequenceStore(file);
+		if (store.init(sourceLength, sourceLastModified)) {
+			return store;
+		} else {
+			store.close();
+			return null;
+		}
+	}
+
+	private boolean init(long sourceLength, long sourceLastModified) throws IOException {
+		raf = new RandomAccessFile(file, "r");
+		channel = raf.getChannel();
+		long length = channel.size();
+		if (length < HEADER_SIZE) {
+			return false;
+		}
+
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		readFully(header, 0);
+		if (
+				header.getInt(0) != MAGIC
+				|| header.getShort(4) != VERSION
+				|| header.getShort(6) != HASH_ALG_KLENGTH
+				|| header.getLong(8) != sourceLength
+				|| header.getLong(16) != sourceLastModified
+		) {
+			return false;
+		}
+
+		records = header.getInt(24);
+		long indexOffset = header.getLong(32);
+		if (records < 0 || indexOffset < HEADER_SIZE || indexOffset + (long)records * RECORD_SIZE != length) {
+			// Truncated or corrupted file
+			return false;
+		}
+
+		dataLength = indexOffset;
+		windows = new ByteBuffer[(int)((dataLength - 1) >>> WINDOW_SHIFT) + 1];
+		index = channel.map(FileChannel.MapMode.READ_ONLY, indexOffset, (long)records * RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		return true;
+	}
+
+	public File getReferenceArchive() {
+		return referenceArchive;
+	}
+
+	public void setReferenceArchive(File referenceArchive) {
+		this.referenceArchive = referenceArchive;
+	}
+
+	public int getSize() {
+		return records;
+	}
+
+	/**
+	 * Hash used to sort the key index
+	 */
+	public static long hashKey(String key) {
+		long h = 0xcbf29ce484222325L;
+		for (int i=0; i<key.length(); i++) {
+			h ^= key.charAt(i);
+			h *= 0x100000001b3L;
+		}
+		return h;
+	}
+
+	/**
+	 * Return the record associated to the key, or -1 if the key is not in the store.
+	 */
+	public int lookup(String key) throws IOException {
+		long h = hashKey(key);
+
+		// Locate the first record whose hash is >= h
+		int low = 0;
+		int high = records;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (index.getLong(mid * RECORD_SIZE) < h) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+
+		// Compare the keys of the records sharing the same hash
+		for (int r = low; r < records && index.getLong(r * RECORD_SIZE) == h; r++) {
+			if (keyEquals(r, key)) {
+				return r;
+			}
+		}
+		return -1;
+	}
+
+	private boolean keyEquals(int record, String key) throws IOException {
+		int len = index.getInt(record * RECORD_SIZE + 16);
+		if (len != key.length()) {
+			return false;
+		}
+		ByteBuffer buf = locate(index.getLong(record * RECORD_SIZE + 8), len * 2);
+		for (int i=0; i<len; i++) {
+			if (buf.getChar(base + 2 * i) != key.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Build the HashSequence stored in the record
+	 */
+	public HashSequence getSequence(int record) throws IOException {
+		int r = record * RECORD_SIZE;
+		int nbEntries = index.getInt(r + 20);
+		if (nbEntries == NULL_SEQUENCE) {
+			return null;
+		}
+
+		HashSequence seq = new HashSequence(index.getInt(r + 24), index.getShort(r + 28), nbEntries);
+		ByteBuffer buf = locate(index.getLong(r + 8) + 2L * index.getInt(r + 16), nbEntries * ENTRY_SIZE);
+		for (int i=0; i<nbEntries; i++) {
+			int p = base + i * ENTRY_SIZE;
+			buf.position(p + 16);
+			buf.get(fullHash);
+			seq.add(
+					buf.getInt(p), 		// quick hash
+					fullHash,
+					buf.getLong(p + 4), // position
+					buf.getInt(p + 12) 	// size
+			);
+		}
+		return seq;
+	}
+
+	/**
+	 * Return a buffer containing the requested block of the data section - the block starts at "base"
+	 */
+	private ByteBuffer locate(long offset, int length) throws IOException {
+		int w = (int)(offset >>> WINDOW_SHIFT);
+		long windowStart = (long)w << WINDOW_SHIFT;
+		if (offset + length <= windowStart + WINDOW_SIZE + WINDOW_OVERLAP) {
+			if (windows[w] == null) {
+				long size = Math.min(WINDOW_SIZE + WINDOW_OVERLAP, dataLength - windowStart);
+				windows[w] = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, size).order(ByteOrder.LITTLE_ENDIAN);
+			}
+			base = (int)(offset - windowStart);
+			return windows[w];
+		} else {
+			if (overflow == null || overflow.capacity() < length) {
+				overflow = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+			}
+			overflow.clear();
+			overflow.limit(length);
+			readFully(overflow, offset);
+			base = 0;
+			return overflow;
+		}
+	}
+
+	private void readFully(ByteBuffer buf, long offset) throws IOException {
+		while (buf.hasRemaining()) {
+			int read = channel.read(buf, offset + buf.position());
+			if (read == -1) {
+				throw new IOException("Unexpected end of file : " + file.getAbsolutePath());
+			}
+		}
+	}
+
+	public void close() throws IOException {
+		// The file stays locked (Windows) as long as it is mapped : the buffers are released explicitly instead of waiting for the GC
+		unmap(index);
+		index = null;
+		for (int w=0; windows != null && w<windows.length; w++) {
+			unmap(windows[w]);
+		}
+		windows = null;
+		overflow = null;
+		channel = null;
+		if (raf != null) {
+			raf.close();
+			raf = null;
+		}
+	}
+
+	/**
+	 * Release the mapped buffer without waiting for the garbage collection.
+	 * <BR>There is no public API for this : sun.misc.Unsafe.invokeCleaner is used on Java 9+, and the buffer's Cleaner on older VMs.
+	 * If none of them is available, the buffer is released by the GC.
+	 */
+	private static void unmap(ByteBuffer buffer) {
+		if (buffer == null || ! buffer.isDirect()) {
+			return;
+		}
+		try {
+			Method invokeCleaner = null;
+			Object unsafe = null;
+			try {
+				Class unsafeClass = Class.forName("sun.misc.Unsafe");
+				invokeCleaner = unsafeClass.getMethod("invokeCleaner", new Class[] {ByteBuffer.class});
+				Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+				theUnsafe.setAccessible(true);
+				unsafe = theUnsafe.get(null);
+			} catch (NoSuchMethodException e) {
+				// Java 8 or lower
+			}
+
+			if (invokeCleaner != null) {
+				invokeCleaner.invoke(unsafe, new Object[] {buffer});
+			} else {
+				Method getCleaner = buffer.getClass().getMethod("cleaner", new Class[0]);
+				getCleaner.setAccessible(true);
+				Object cleaner = getCleaner.invoke(buffer, new Object[0]);
+				if (cleaner != null) {
+					Method clean = cleaner.getClass().getMethod("clean", new Class[0]);
+					clean.setAccessible(true);
+					clean.invoke(cleaner, new Object[0]);
+				}
+			}
+		} catch (Throwable e) {
+			Logger.defaultLogger().fine("Unable to unmap the sequence store buffer : " + e.getMessage());
+		}
+	}
+
+	public String toString() {
+		StringBuffer sb = ToStringHelper.init(this);
+		ToStringHelper.append("File", file, sb);
+		ToStringHelper.append("Records", records, sb);
+		return ToStringHelper.close(sb);
+	}
+}
@@ -0,0 +1,242 @@
+package com.myJava.file.delta.sequence;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+
+import com.myJava.file.delta.Constants;
+import com.myJava.file.delta.tools.IOHelper;
+
+/**
+ * Writes a SequenceStore (see this class for the file layout).
+ * <BR>The data is streamed to a temporary file which replaces the target file once the index has been written ;
+ * only the index records are kept in memory.
+ * <BR>
+ * @author Olivier PETRUCCI
+ * <BR>
+ *
+ */
+
+ /*
+ Copyright 2005-2015, Olivier PETRUCCI.
+
+This file is part of Areca.
+
+    Areca is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    Areca is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Areca; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+ */
+public class SequenceStoreWriter implements Constants {
+	private static final String TMP_SUFFIX = ".tmp";
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * Size of the SequenceAdapter header (version + block size)
+	 */
+	private static final int SEQUENCE_HEADER_SIZE = 2 + 8;
+
+	private File file;
+	private File tmpFile;
+	private OutputStream out;
+	private long sourceLength;
+	private long sourceLastModified;
+	private long offset;
+
+	// Index records
+	private int records = 0;
+	private long[] hashes = new long[1024];
+	private long[] offsets = new long[1024];
+	private int[] keyLengths = new int[1024];
+	private int[] entries = new int[1024];
+	private int[] blockSizes = new int[1024];
+	private short[] formats = new short[1024];
+
+	public SequenceStoreWriter(File file, long sourceLength, long sourceLastModified) throws IOException {
+		this.file = file;
+		this.tmpFile = new File(file.getParentFile(), file.getName() + TMP_SUFFIX);
+		this.sourceLength = sourceLength;
+		this.sourceLastModified = sourceLastModified;
+		this.out = new BufferedOutputStream(new FileOutputStream(tmpFile), BUFFER_SIZE);
+
+		// The header is written on close
+		out.write(new byte[SequenceStore.HEADER_SIZE]);
+		offset = SequenceStore.HEADER_SIZE;
+	}
+
+	/**
+	 * Add a sequence, provided in its (uncompressed) SequenceAdapter serialized form.
+	 * <BR>An empty array stands for a "null" sequence.
+	 */
+	public void add(String key, byte[] data, int length) throws IOException {
+		ensureCapacity();
+		hashes[records] = SequenceStore.hashKey(key);
+		offsets[records] = offset;
+		keyLengths[records] = key.length();
+
+		for (int i=0; i<key.length(); i++) {
+			IOHelper.writeShort(key.charAt(i), out);
+		}
+		offset += 2L * key.length();
+
+		if (length < SEQUENCE_HEADER_SIZE) {
+			entries[records] = SequenceStore.NULL_SEQUENCE;
+		} else {
+			int dataLength = length - SEQUENCE_HEADER_SIZE;
+			if (dataLength % SequenceStore.ENTRY_SIZE != 0) {
+				throw new IOException("Invalid sequence data for " + key + " : " + length + " bytes.");
+			}
+			formats[records] = (short)IOHelper.get16(data, 0);
+			blockSizes[records] = (int)IOHelper.get64(data, 2);
+			entries[records] = dataLength / SequenceStore.ENTRY_SIZE;
+			out.write(data, SEQUENCE_HEADER_SIZE, dataLength);
+			offset += dataLength;
+		}
+		records++;
+	}
+
+	private void ensureCapacity() throws IOException {
+		if (records == hashes.length) {
+			if ((long)records * 2 * SequenceStore.RECORD_SIZE > Integer.MAX_VALUE) {
+				throw new IOException("Too many entries in " + file.getAbsolutePath());
+			}
+			int size = records * 2;
+			hashes = (long[])grow(hashes, new long[size]);
+			offsets = (long[])grow(offsets, new long[size]);
+			keyLengths = (int[])grow(keyLengths, new int[size]);
+			entries = (int[])grow(entries, new int[size]);
+			blockSizes = (int[])grow(blockSizes, new int[size]);
+			formats = (short[])grow(formats, new short[size]);
+		}
+	}
+
+	private Object grow(Object src, Object dest) {
+		System.arraycopy(src, 0, dest, 0, records);
+		return dest;
+	}
+
+	/**
+	 * Write the index and the header, and move the temporary file to its final location
+	 */
+	public void close() throws IOException {
+		try {
+			long indexOffset = offset;
+			int[] order = sortByHash();
+			for (int i=0; i<records; i++) {
+				int r = order[i];
+				IOHelper.writeLong(hashes[r], out);
+				IOHelper.writeLong(offsets[r], out);
+				IOHelper.writeInt(keyLengths[r], out);
+				IOHelper.writeInt(entries[r], out);
+				IOHelper.writeInt(blockSizes[r], out);
+				IOHelper.writeShort(formats[r], out);
+				IOHelper.writeShort(0, out);
+			}
+			out.close();
+			out = null;
+
+			RandomAccessFile raf = new RandomAccessFile(tmpFile, "rw");
+			try {
+				raf.write(buildHeader(indexOffset));
+			} finally {
+				raf.close();
+			}
+		} catch (IOException e) {
+			discard();
+			throw e;
+		}
+
+		if (file.exists() && ! file.delete()) {
+			discard();
+			throw new IOException("Unable to delete " + file.getAbsolutePath());
+		}
+		if (! tmpFile.renameTo(file)) {
+			discard();
+			throw new IOException("Unable to rename " + tmpFile.getAbsolutePath() + " to " + file.getAbsolutePath());
+		}
+	}
+
+	/**
+	 * Close the writer and destroy the temporary file
+	 */
+	public void discard() throws IOException {
+		try {
+			if (out != null) {
+				out.close();
+				out = null;
+			}
+		} finally {
+			tmpFile.delete();
+		}
+	}
+
+	private byte[] buildHeader(long indexOffset) {
+		byte[] header = new byte[SequenceStore.HEADER_SIZE];
+		put(header, 0, SequenceStore.MAGIC, 4);
+		put(header, 4, SequenceStore.VERSION, 2);
+		put(header, 6, HASH_ALG_KLENGTH, 2);
+		put(header, 8, sourceLength, 8);
+		put(header, 16, sourceLastModified, 8);
+		put(header, 24, records, 4);
+		put(header, 32, indexOffset, 8);
+		return header;
+	}
+
+	private static void put(byte[] b, int off, long v, int len) {
+		for (int i=0; i<len; i++) {
+			b[off + i] = (byte)(v >>> (8 * i));
+		}
+	}
+
+	/**
+	 * Heap sort of the records by hash (no boxing)
+	 */
+	private int[] sortByHash() {
+		int[] order = new int[records];
+		for (int i=0; i<records; i++) {
+			order[i] = i;
+		}
+		for (int i = records / 2 - 1; i >= 0; i--) {
+			sift(order, i, records);
+		}
+		for (int end = records - 1; end > 0; end--) {
+			int tmp = order[0];
+			order[0] = order[end];
+			order[end] = tmp;
+			sift(order, 0, end);
+		}
+		return order;
+	}
+
+	private void sift(int[] order, int root, int end) {
+		while (true) {
+			int child = 2 * root + 1;
+			if (child >= end) {
+				return;
+			}
+			if (child + 1 < end && hashes[order[child + 1]] > hashes[order[child]]) {
+				child++;
+			}
+			if (hashes[order[root]] >= hashes[order[child]]) {
+				return;
+			}
+			int tmp = order[root];
+			order[root] = order[child];
+			order[child] = tmp;
+			root = child;
+		}
+	}
+}
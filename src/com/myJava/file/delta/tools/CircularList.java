@@ -42,6 +42,8 @@ public class CircularList {
     private byte[] buffer;
     private int currentIndex = 0;
     private int firstIndex = 0;
+    
+    private MessageDigest digest;	// Recycled between "computeHash" calls
 
     public CircularList(int maxSize) {
         this.maxSize = maxSize;
@@ -80,9 +82,10 @@ public class CircularList {
     }
 
     public byte[] computeHash(String algorithm) {
-        MessageDigest digest;
         try {
-            digest = MessageDigest.getInstance(algorithm);
+            if (digest == null || ! digest.getAlgorithm().equals(algorithm)) {
+                digest = MessageDigest.getInstance(algorithm);
+            }
             if (eof) {
                 digest.update(buffer, firstIndex, maxSize - firstIndex);
                 digest.update(buffer, 0, firstIndex);
@@ -0,0 +1,126 @@
+package com.myJava.file.delta.tools;
+
+import java.util.Random;
+
+/**
+ * Content-defined chunk boundary detector (gear hash with normalized chunking, FastCDC-like).
+ * <BR>Boundaries only depend on the data located just before them : an insertion or a deletion only moves the
+ * boundaries of the chunks it affects, unlike fixed-size blocks.
+ * <BR>Chunk sizes are between averageSize/4 and averageSize*8.
+ * <BR>
+ * @author Olivier PETRUCCI
+ * <BR>
+ *
+ */
+
+ /*
+ Copyright 2005-2015, Olivier PETRUCCI.
+
+This file is part of Areca.
+
+    Areca is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    Areca is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Areca; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+ */
+public class ContentDefinedChunker {
+	/**
+	 * CAUTION : The gear table must never change, otherwise the boundaries would not match those of the stored sequences.
+	 */
+	private static final long GEAR_SEED = 0x41524543L;
+	private static final long[] GEAR = new long[256];
+	
+	static {
+		Random rnd = new Random(GEAR_SEED);
+		for (int i=0; i<GEAR.length; i++) {
+			GEAR[i] = rnd.nextLong();
+		}
+	}
+
+	private int averageSize;
+	private int minSize;
+	private int maxSize;
+	
+	/**
+	 * Masks used below (strict) and above (loose) the average chunk size
+	 */
+	private long strictMask;
+	private long looseMask;
+	
+	private int currentSize = 0;
+	private long fingerprint = 0;
+
+	/**
+	 * The average size is rounded to the lower power of two.
+	 */
+	public ContentDefinedChunker(int averageSize) {
+		int bits = 31 - Integer.numberOfLeadingZeros(Math.max(averageSize, 64));
+		this.averageSize = 1 << bits;
+		this.minSize = this.averageSize / 4;
+		this.maxSize = this.averageSize * 8;
+		this.strictMask = buildMask(bits + 1);
+		this.looseMask = buildMask(bits - 1);
+	}
+	
+	/**
+	 * The most significant bits of the gear hash depend on the last 64 bytes
+	 */
+	private static long buildMask(int bits) {
+		return ((1L << bits) - 1) << (64 - bits);
+	}
+
+	public int getAverageSize() {
+		return averageSize;
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	public void reset() {
+		currentSize = 0;
+		fingerprint = 0;
+	}
+
+	/**
+	 * Process the data until a chunk boundary is found.
+	 * <BR>Return the number of bytes that belong to the current chunk (the chunk ends after them) or -1 if no boundary was found,
+	 * in which case all bytes have been processed.
+	 * <BR>The chunker is reset when a boundary is found.
+	 */
+	public int nextBoundary(byte[] data, int offset, int len) {
+		int index = offset;
+		int end = offset + len;
+		
+		// Cut-point skipping : no boundary can be located before the minimum size
+		if (currentSize < minSize) {
+			int toSkip = Math.min(end - index, minSize - currentSize);
+			index += toSkip;
+			currentSize += toSkip;
+		}
+		
+		long fp = fingerprint;
+		while (index < end) {
+			fp = (fp << 1) + GEAR[data[index++] & 0xff];
+			currentSize++;
+			
+			if ((fp & (currentSize < averageSize ? strictMask : looseMask)) == 0 || currentSize >= maxSize) {
+				reset();
+				return index - offset;
+			}
+		}
+		
+		fingerprint = fp;
+		return -1;
+	}
+}
@@ -34,6 +34,23 @@ public class HashTool {
     private static final int MODULUS = FrameworkConfiguration.getInstance().getDeltaQuickHashModulus();
     private static final int MULTIPLIER = FrameworkConfiguration.getInstance().getDeltaQuickHashMultiplier();
     
+    /**
+     * Contribution of each byte value to the quick hash : (MULTIPLIER * abs(value)) % MODULUS
+     * <BR>Indexed by (value & 0xff)
+     */
+    private static final int[] WEIGHTS = new int[256];
+    
+    /**
+     * The branch-free normalization used by "update" requires (2 * MODULUS) to fit in an int.
+     */
+    private static final boolean FAST_NORMALIZATION = MODULUS <= Integer.MAX_VALUE / 2;
+    
+    static {
+    	for (int i=0; i<WEIGHTS.length; i++) {
+    		WEIGHTS[i] = (int)(((long)MULTIPLIER * Math.abs((byte)i)) % MODULUS);
+    	}
+    }
+    
     public static int hash(int currentHash, byte value) {
         return (currentHash + MULTIPLIER * Math.abs(value)) % MODULUS;
     }
@@ -48,7 +65,41 @@ public class HashTool {
     	return (int)hash;
     }
     
+    /**
+     * Build the quick hash used by the current sequence format (rsync-like rolling checksum) from its two components :
+     * <BR>- s1 : sum of the block's bytes (read as unsigned values)
+     * <BR>- s2 : sum of the successive values of s1
+     * <BR>Both components can be updated in constant time when the block slides by one byte.
+     */
+    public static int combine(int s1, int s2) {
+    	return (s1 & 0xffff) | (s2 << 16);
+    }
+    
+    /**
+     * Quick hash of a content-defined chunk, derived from its full hash.
+     * <BR>The returned values are lower than -2^30 : they can't be produced by the fixed-size quick hashes 
+     * of older versions, which prevents them from using content-defined sequences.
+     */
+    public static int chunkQuickHash(byte[] fullHash) {
+    	int hash = (int)IOHelper.get32(fullHash, 0);
+    	return (hash & 0x3fffffff) | 0x80000000;
+    }
+    
+    /**
+     * Legacy rolling update : add "newValue" and remove "oldValue" from the quick hash.
+     * <BR>Unlike a plain "%" operation, the returned value is always in the [0, MODULUS[ range, which makes it comparable 
+     * with the quick hashes computed by the "hash" methods.
+     */
     public static int update(int currentHash, byte newValue, byte oldValue) {
-        return (currentHash + MULTIPLIER * (Math.abs(newValue) - Math.abs(oldValue))) % MODULUS;
+    	if (FAST_NORMALIZATION) {
+    		int hash = currentHash + WEIGHTS[newValue & 0xff] - WEIGHTS[oldValue & 0xff];
+	    	hash += (hash >> 31) & MODULUS;		// hash < 0 -> hash + MODULUS
+	    	hash -= MODULUS;
+	    	hash += (hash >> 31) & MODULUS;		// hash < MODULUS -> unchanged
+	    	return hash;
+    	} else {
+    		long hash = ((long)currentHash + WEIGHTS[newValue & 0xff] - WEIGHTS[oldValue & 0xff]) % MODULUS;
+    		return (int)(hash < 0 ? hash + MODULUS : hash);
+    	}
     }
 }
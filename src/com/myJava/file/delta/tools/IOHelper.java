@@ -32,6 +32,7 @@ This file is part of Areca.
 
  */
 public class IOHelper {
+    private static final int SKIP_BUFFER_SIZE = 8 * 1024;
     
     public static final int get16(byte b[], int off) {
         return (b[off] & 0xff) | ((b[off+1] & 0xff) << 8);
@@ -89,9 +90,12 @@ public class IOHelper {
     		return 0;
     	}
 
+    	// The data are read instead of skipped (see below)
+    	byte[] buffer = new byte[(int)Math.min(length, SKIP_BUFFER_SIZE)];
     	long nb = 0;
-    	while(nb < length && in.read() != -1) {
-    		nb++;
+    	int read;
+    	while(nb < length && (read = in.read(buffer, 0, (int)Math.min(length - nb, buffer.length))) != -1) {
+    		nb += read;
     	}
     	if (nb == 0) { // no more data to read
     		return -1;
@@ -0,0 +1,423 @@
+package com.myJava.file.driver;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.util.ArrayList;
+
+import com.myJava.file.CompressionArguments;
+import com.myJava.file.OutputStreamListener;
+import com.myJava.file.PipelineStageOutputStream;
+import com.myJava.file.codec.CodecRegistry;
+import com.myJava.file.codec.CompressionCodec;
+import com.myJava.file.metadata.FileMetaData;
+import com.myJava.object.EqualsHelper;
+import com.myJava.object.HashHelper;
+import com.myJava.object.ToStringHelper;
+import com.myJava.util.taskmonitor.TaskCancelledException;
+import com.myJava.util.taskmonitor.TaskMonitor;
+
+/**
+ * Driver that compresses the files' content with a CompressionCodec.
+ * <BR>File names are not modified. When a file is read, the decoder is selected according to the first bytes of the file :
+ * files written with another codec (or not compressed) can thus still be read.
+ * <BR>Files written in the zip format (by a CompressedFileSystemDriver, before a codec was selected) are handled by a
+ * CompressedFileSystemDriver built on the same root directory and compression arguments :
+ * <BR>- if these files were written with the ".zip" extension (which is detected when the driver is mounted), the paths that only exist
+ * with this extension are entirely delegated to it, and the ".zip" extension is removed from the names listed at the root directory.
+ * <BR>- files that start with a zip header are read by it.
+ * <BR>
+ * @author Olivier PETRUCCI
+ * <BR>
+ *
+ */
+
+ /*
+ Copyright 2005-2015, Olivier PETRUCCI.
+
+This file is part of Areca.
+
+    Areca is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    Areca is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Areca; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+ */
+public class CodecFileSystemDriver extends AbstractLinkableFileSystemDriver {
+	private static final byte[] ZIP_MAGIC = new byte[] {'P', 'K', 3, 4};
+
+	private CompressionCodec codec;
+	private File root;
+
+	/**
+	 * Driver used for the files written in the zip format
+	 */
+	private CompressedFileSystemDriver zipDriver;
+	private boolean zipExtension;
+
+	/**
+	 * Set to true when the driver is mounted if files have been written with the ".zip" extension
+	 */
+	private boolean zipNames = false;
+
+	public CodecFileSystemDriver(File root, FileSystemDriver predecessor, CompressionCodec codec, CompressionArguments zipCompression) {
+		super();
+		this.root = root;
+		this.codec = codec;
+		this.zipDriver = new CompressedFileSystemDriver(root, predecessor, zipCompression);
+		this.zipExtension = zipCompression.isAddExtension();
+		setPredecessor(predecessor);
+	}
+
+	public CompressionCodec getCodec() {
+		return codec;
+	}
+
+	public void mount() throws IOException {
+		super.mount();
+		zipNames = false;
+		if (zipExtension) {
+			String[] names = predecessor.list(root);
+			for (int i=0; names != null && i<names.length; i++) {
+				if (names[i].endsWith(CompressionArguments.ZIP_SUFFIX)) {
+					zipNames = true;
+					break;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Tell whether the file passed as argument only exists in the zip format (with the ".zip" extension)
+	 */
+	private boolean isZipPath(File file) {
+		return zipNames && (! predecessor.exists(file)) && zipDriver.exists(file);
+	}
+
+	/**
+	 * Tell whether the file passed as argument must be written in the zip format (because it, or its parent directory, only exists in this format)
+	 */
+	private boolean isZipTarget(File file) {
+		if (! zipNames) {
+			return false;
+		} else if (isZipPath(file)) {
+			return true;
+		} else {
+			File parent = predecessor.getParentFile(file);
+			return parent != null && isZipPath(parent);
+		}
+	}
+
+	private boolean isRoot(File file) {
+		return file.getAbsoluteFile().equals(root);
+	}
+
+	public InputStream getFileInputStream(File file) throws IOException {
+		return getFileInputStream(file, false);
+	}
+
+	public InputStream getCachedFileInputStream(File file) throws IOException {
+		return getFileInputStream(file, true);
+	}
+
+	private InputStream getFileInputStream(File file, boolean cached) throws IOException {
+		if (isZipPath(file)) {
+			return zipDriver.getFileInputStream(file, cached);
+		}
+
+		PushbackInputStream in = new PushbackInputStream(cached ? super.getCachedFileInputStream(file) : super.getFileInputStream(file), ZIP_MAGIC.length);
+		byte[] header = new byte[ZIP_MAGIC.length];
+		int length = 0;
+		int r;
+		while (length < header.length && (r = in.read(header, length, header.length - length)) != -1) {
+			length += r;
+		}
+
+		if (length == ZIP_MAGIC.length && isZipHeader(header)) {
+			in.close();
+			return zipDriver.getFileInputStream(file, cached);
+		} else {
+			in.unread(header, 0, length);
+			return CodecRegistry.getInputStream(in);
+		}
+	}
+
+	private static boolean isZipHeader(byte[] header) {
+		for (int i=0; i<ZIP_MAGIC.length; i++) {
+			if (header[i] != ZIP_MAGIC[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public OutputStream getFileOutputStream(File file) throws IOException {
+		if (isZipTarget(file)) {
+			return zipDriver.getFileOutputStream(file);
+		}
+		return codec.getOutputStream(PipelineStageOutputStream.wrap(super.getFileOutputStream(file)));
+	}
+
+	public OutputStream getFileOutputStream(File file, boolean append, OutputStreamListener listener) throws IOException {
+		checkAppend(append);
+		if (isZipTarget(file)) {
+			return zipDriver.getFileOutputStream(file, append, listener);
+		}
+		return codec.getOutputStream(PipelineStageOutputStream.wrap(super.getFileOutputStream(file, append, listener)));
+	}
+
+	public OutputStream getFileOutputStream(File file, boolean append) throws IOException {
+		checkAppend(append);
+		if (isZipTarget(file)) {
+			return zipDriver.getFileOutputStream(file, append);
+		}
+		return codec.getOutputStream(PipelineStageOutputStream.wrap(super.getFileOutputStream(file, append)));
+	}
+
+	public OutputStream getCachedFileOutputStream(File file) throws IOException {
+		if (isZipTarget(file)) {
+			return zipDriver.getCachedFileOutputStream(file);
+		}
+		return codec.getOutputStream(PipelineStageOutputStream.wrap(super.getCachedFileOutputStream(file)));
+	}
+
+	private void checkAppend(boolean append) {
+		if (append) {
+			throw new IllegalArgumentException("Cannot open an OutputStream in 'append' mode on a compressed FileSystem");
+		}
+	}
+
+	public boolean exists(File file) {
+		return super.exists(file) || (zipNames && zipDriver.exists(file));
+	}
+
+	public boolean canRead(File file) {
+		return isZipPath(file) ? zipDriver.canRead(file) : super.canRead(file);
+	}
+
+	public boolean canWrite(File file) {
+		return isZipPath(file) ? zipDriver.canWrite(file) : super.canWrite(file);
+	}
+
+	public String getPhysicalPath(File file) {
+		return isZipPath(file) ? zipDriver.getPhysicalPath(file) : super.getPhysicalPath(file);
+	}
+
+	public short getType(File file) throws IOException {
+		return isZipPath(file) ? zipDriver.getType(file) : super.getType(file);
+	}
+
+	public boolean isDirectory(File file) {
+		return isZipPath(file) ? zipDriver.isDirectory(file) : super.isDirectory(file);
+	}
+
+	public boolean isFile(File file) {
+		return isZipPath(file) ? zipDriver.isFile(file) : super.isFile(file);
+	}
+
+	public boolean isHidden(File file) {
+		return isZipPath(file) ? zipDriver.isHidden(file) : super.isHidden(file);
+	}
+
+	public long lastModified(File file) {
+		return isZipPath(file) ? zipDriver.lastModified(file) : super.lastModified(file);
+	}
+
+	public long length(File file) {
+		return isZipPath(file) ? zipDriver.length(file) : super.length(file);
+	}
+
+	public FileCacheableInformations getInformations(File file) {
+		return isZipPath(file) ? zipDriver.getInformations(file) : super.getInformations(file);
+	}
+
+	public FileMetaData getMetaData(File file, boolean onlyBasicAttributes) throws IOException {
+		return isZipPath(file) ? zipDriver.getMetaData(file, onlyBasicAttributes) : super.getMetaData(file, onlyBasicAttributes);
+	}
+
+	public void applyMetaData(FileMetaData p, File file) throws IOException {
+		if (isZipPath(file)) {
+			zipDriver.applyMetaData(p, file);
+		} else {
+			super.applyMetaData(p, file);
+		}
+	}
+
+	public boolean setLastModified(File file, long time) {
+		return isZipPath(file) ? zipDriver.setLastModified(file, time) : super.setLastModified(file, time);
+	}
+
+	public boolean setReadOnly(File file) {
+		return isZipPath(file) ? zipDriver.setReadOnly(file) : super.setReadOnly(file);
+	}
+
+	public boolean delete(File file) {
+		return isZipPath(file) ? zipDriver.delete(file) : super.delete(file);
+	}
+
+	public void forceDelete(File file, TaskMonitor monitor) throws IOException, TaskCancelledException {
+		if (isZipPath(file)) {
+			zipDriver.forceDelete(file, monitor);
+		} else {
+			super.forceDelete(file, monitor);
+		}
+	}
+
+	public void deleteOnExit(File file) {
+		if (isZipPath(file)) {
+			zipDriver.deleteOnExit(file);
+		} else {
+			super.deleteOnExit(file);
+		}
+	}
+
+	public boolean renameTo(File source, File dest) {
+		return isZipPath(source) ? zipDriver.renameTo(source, dest) : super.renameTo(source, dest);
+	}
+
+	public boolean createNewFile(File file) throws IOException {
+		return isZipTarget(file) ? zipDriver.createNewFile(file) : super.createNewFile(file);
+	}
+
+	public boolean mkdir(File file) {
+		return isZipTarget(file) ? zipDriver.mkdir(file) : super.mkdir(file);
+	}
+
+	public boolean mkdirs(File file) {
+		return isZipTarget(file) ? zipDriver.mkdirs(file) : super.mkdirs(file);
+	}
+
+	public String[] list(File file) {
+		if (isZipPath(file)) {
+			return zipDriver.list(file);
+		} else if (zipNames && isRoot(file)) {
+			return listRoot(file, null);
+		} else {
+			return super.list(file);
+		}
+	}
+
+	public String[] list(File file, FilenameFilter filter) {
+		if (isZipPath(file)) {
+			return zipDriver.list(file, filter);
+		} else if (zipNames && isRoot(file)) {
+			return listRoot(file, filter);
+		} else {
+			return super.list(file, filter);
+		}
+	}
+
+	public File[] listFiles(File file) {
+		if (isZipPath(file)) {
+			return zipDriver.listFiles(file);
+		} else if (zipNames && isRoot(file)) {
+			return toFiles(file, listRoot(file, null), null);
+		} else {
+			return super.listFiles(file);
+		}
+	}
+
+	public File[] listFiles(File file, FilenameFilter filter) {
+		if (isZipPath(file)) {
+			return zipDriver.listFiles(file, filter);
+		} else if (zipNames && isRoot(file)) {
+			return toFiles(file, listRoot(file, filter), null);
+		} else {
+			return super.listFiles(file, filter);
+		}
+	}
+
+	public File[] listFiles(File file, FileFilter filter) {
+		if (isZipPath(file)) {
+			return zipDriver.listFiles(file, filter);
+		} else if (zipNames && isRoot(file)) {
+			return toFiles(file, listRoot(file, null), filter);
+		} else {
+			return super.listFiles(file, filter);
+		}
+	}
+
+	/**
+	 * List the content of the root directory : the ".zip" extension is removed from the names of the files that were written in the zip format
+	 */
+	private String[] listRoot(File file, FilenameFilter filter) {
+		String[] names = super.list(file);
+		if (names == null) {
+			return null;
+		}
+		ArrayList list = new ArrayList(names.length);
+		for (int i=0; i<names.length; i++) {
+			String name = names[i];
+			if (name.endsWith(CompressionArguments.ZIP_SUFFIX)) {
+				name = name.substring(0, name.length() - CompressionArguments.ZIP_SUFFIX.length());
+			}
+			if (filter == null || filter.accept(file, name)) {
+				list.add(name);
+			}
+		}
+		return (String[])list.toArray(new String[list.size()]);
+	}
+
+	private static File[] toFiles(File parent, String[] names, FileFilter filter) {
+		if (names == null) {
+			return null;
+		}
+		ArrayList list = new ArrayList(names.length);
+		for (int i=0; i<names.length; i++) {
+			File f = new File(parent, names[i]);
+			if (filter == null || filter.accept(f)) {
+				list.add(f);
+			}
+		}
+		return (File[])list.toArray(new File[list.size()]);
+	}
+
+	public boolean directFileAccessSupported() {
+		return false;
+	}
+
+	public int hashCode() {
+		int h = HashHelper.initHash(this);
+		h = HashHelper.hash(h, this.predecessor);
+		h = HashHelper.hash(h, this.root);
+		h = HashHelper.hash(h, this.codec.getName());
+		return h;
+	}
+
+	public boolean equals(Object o) {
+		if (o == null) {
+			return false;
+		} else if (o instanceof CodecFileSystemDriver) {
+			CodecFileSystemDriver other = (CodecFileSystemDriver)o;
+			return (
+					EqualsHelper.equals(other.predecessor, this.predecessor)
+					&& EqualsHelper.equals(other.root, this.root)
+					&& EqualsHelper.equals(other.codec.getName(), this.codec.getName())
+			);
+		} else {
+			return false;
+		}
+	}
+
+	public String toString() {
+		StringBuffer sb = ToStringHelper.init(this);
+		ToStringHelper.append("Codec", this.codec.getName(), sb);
+		ToStringHelper.append("Root", this.root, sb);
+		ToStringHelper.append("Zip names", this.zipNames, sb);
+		ToStringHelper.append("Predecessor", this.predecessor, sb);
+		return ToStringHelper.close(sb);
+	}
+}
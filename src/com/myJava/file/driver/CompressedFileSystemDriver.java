@@ -9,6 +9,7 @@ import java.util.ArrayList;
 
 import com.myJava.file.CompressionArguments;
 import com.myJava.file.OutputStreamListener;
+import com.myJava.file.PipelineStageOutputStream;
 import com.myJava.file.archive.zip64.ZipEntry;
 import com.myJava.file.archive.zip64.ZipInputStream;
 import com.myJava.file.archive.zip64.ZipOutputStream;
@@ -347,13 +348,14 @@ extends AbstractLinkableFileSystemDriver {
 			} else {
 				base = predecessor.getFileOutputStream(encode(file), false, listener);        		
 			}
-			zout = new ZipOutputStream(base, compression.isUseZip64());
+			zout = new ZipOutputStream(PipelineStageOutputStream.wrap(base), compression.isUseZip64());
 		}
 		if (compression.getLevel() >= 0) {
 			zout.setLevel(compression.getLevel());          	
 		} else {
 			zout.setLevel(9);
 		}
+		zout.setThreads(compression.getThreads());
 		if (compression.getCharset() != null) {
 			zout.setCharset(compression.getCharset());
 		}
@@ -15,6 +15,7 @@ import com.myJava.file.AsyncOutputStream;
 import com.myJava.file.EventOutputStream;
 import com.myJava.file.FileSystemManager;
 import com.myJava.file.OutputStreamListener;
+import com.myJava.file.iterator.PrefetchedFile;
 import com.myJava.file.metadata.FileMetaData;
 import com.myJava.file.metadata.FileMetaDataAccessorHelper;
 import com.myJava.object.HashHelper;
@@ -55,7 +56,7 @@ This file is part of Areca.
 public class DefaultFileSystemDriver extends AbstractFileSystemDriver {
 	protected static boolean USE_BUFFER = FrameworkConfiguration.getInstance().useFileSystemBuffer();
 	protected static int BUFFER_SIZE = FrameworkConfiguration.getInstance().getFileSystemBufferSize();
-	protected static boolean ASYNC_OUTPUT = false;
+	protected static boolean ASYNC_OUTPUT = FrameworkConfiguration.getInstance().useAsyncOutput();
 	
 	public boolean canRead(File file) {
 		return file.canRead();
@@ -153,6 +154,9 @@ public class DefaultFileSystemDriver extends AbstractFileSystemDriver {
 	}
 
 	public short getType(File file) throws IOException {
+		if (file instanceof PrefetchedFile && ((PrefetchedFile)file).isTypeSet()) {
+			return ((PrefetchedFile)file).getType();
+		}
 		return FileMetaDataAccessorHelper.getFileSystemAccessor().getType(file);
 	}
 
@@ -21,6 +21,7 @@ import javax.crypto.NoSuchPaddingException;
 
 import com.myJava.encryption.EncryptionUtil;
 import com.myJava.file.OutputStreamListener;
+import com.myJava.file.PipelineStageOutputStream;
 import com.myJava.file.driver.namehash.NameHashFileSystemDriver;
 import com.myJava.file.metadata.FileMetaData;
 import com.myJava.object.EqualsHelper;
@@ -346,7 +347,7 @@ extends AbstractLinkableFileSystemDriver {
 	}
 	
 	private OutputStream buildOutputStream(OutputStream targetStream) {
-		return new CipherOutputStream(targetStream, buildNewCipher(Cipher.ENCRYPT_MODE));
+		return new CipherOutputStream(PipelineStageOutputStream.wrap(targetStream), buildNewCipher(Cipher.ENCRYPT_MODE));
 	}
 
 	private Cipher buildNewCipher(int mode) {
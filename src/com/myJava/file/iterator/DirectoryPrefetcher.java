@@ -0,0 +1,241 @@
+package com.myJava.file.iterator;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import com.myJava.util.log.Logger;
+
+/**
+ * Lists directories and reads their elements' attributes in advance, using a pool of worker threads.
+ * <BR>The number of directories that have been read (or scheduled) but not consumed is bounded : the iterator schedules the
+ * next directories of its walk as long as there is room, and tops the window up as the directories are consumed.
+ * <BR>The workers read the directories in the order of the walk : the deepest level first, and the directories of a level
+ * in the order they have been scheduled.
+ * <BR>Directories that have not been prefetched are simply read by the calling thread.
+ * <BR>
+ * @author Olivier PETRUCCI
+ * <BR>
+ *
+ */
+
+ /*
+ Copyright 2005-2015, Olivier PETRUCCI.
+
+This file is part of Areca.
+
+    Areca is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    Areca is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Areca; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+ */
+public class DirectoryPrefetcher {
+	private static final long WAIT = 5000;
+
+	/**
+	 * Maximum number of prefetched directories per worker
+	 */
+	private static final int DIRECTORIES_BY_WORKER = 16;
+
+	private static final short STATE_QUEUED = 0;
+	private static final short STATE_LOADING = 1;
+	private static final short STATE_LOADED = 2;
+
+	private boolean sorted;
+	private int maxDirectories;
+
+	/**
+	 * Scheduled directories (File -> Task)
+	 */
+	private Map tasks = new HashMap();
+
+	/**
+	 * Directories waiting for a worker, in scheduling order
+	 */
+	private LinkedList queue = new LinkedList();
+
+	private List workers = new ArrayList();
+	private boolean closed = false;
+
+	/**
+	 * Statistics : directories returned by "get" that had been read by a worker / by the calling thread
+	 */
+	private int prefetched = 0;
+	private int readDirectly = 0;
+
+	public DirectoryPrefetcher(int nbWorkers, boolean sorted) {
+		this.sorted = sorted;
+		this.maxDirectories = nbWorkers * DIRECTORIES_BY_WORKER;
+
+		for (int i=0; i<nbWorkers; i++) {
+			Thread th = new Thread(new Worker(), "Directory prefetch #" + i);
+			th.setDaemon(true);
+			workers.add(th);
+			th.start();
+		}
+	}
+
+	/**
+	 * Schedule the directory ; "depth" is the depth of its parent's level in the walk.
+	 * <BR>Return false if the directory can't be scheduled because too many directories are already scheduled (or if the prefetcher is closed).
+	 */
+	public synchronized boolean schedule(File directory, int depth) {
+		if (closed) {
+			return false;
+		} else if (tasks.containsKey(directory)) {
+			return true;
+		} else if (tasks.size() >= maxDirectories) {
+			return false;
+		}
+		Task task = new Task(directory, depth);
+		tasks.put(directory, task);
+		queue.addLast(task);
+		this.notifyAll();
+		return true;
+	}
+
+	/**
+	 * Forget a directory that will not be iterated
+	 */
+	public synchronized void discard(File directory) {
+		Task task = (Task)tasks.remove(directory);
+		if (task != null && task.state == STATE_QUEUED) {
+			queue.remove(task);
+		}
+	}
+
+	/**
+	 * Return the content of the directory ; it is read by the calling thread if it has not been prefetched.
+	 */
+	public PrefetchedDirectory get(File directory) {
+		synchronized (this) {
+			Task task = (Task)tasks.remove(directory);
+			if (task != null) {
+				if (task.state == STATE_QUEUED) {
+					queue.remove(task);
+				} else {
+					while (task.state != STATE_LOADED) {
+						try {
+							this.wait(WAIT);
+						} catch (InterruptedException ignored) {
+						}
+					}
+					if (task.content != null) {
+						prefetched++;
+						return task.content;
+					}
+				}
+			}
+			readDirectly++;
+		}
+
+		// Not prefetched, or an error occurred : read it now (errors are raised in the iterator's thread)
+		PrefetchedDirectory content = new PrefetchedDirectory(directory);
+		content.load(sorted);
+		return content;
+	}
+
+	/**
+	 * Stop the workers
+	 */
+	public void close() {
+		synchronized (this) {
+			closed = true;
+			queue.clear();
+			tasks.clear();
+			this.notifyAll();
+		}
+		for (int i=0; i<workers.size(); i++) {
+			try {
+				((Thread)workers.get(i)).join();
+			} catch (InterruptedException ignored) {
+			}
+		}
+	}
+
+	/**
+	 * Number of directories returned by "get" that had been read by a worker
+	 */
+	public synchronized int getPrefetched() {
+		return prefetched;
+	}
+
+	/**
+	 * Number of directories returned by "get" that have been read by the calling thread
+	 */
+	public synchronized int getReadDirectly() {
+		return readDirectly;
+	}
+
+	/**
+	 * Return the next directory of the walk : the first one that has been scheduled by the deepest level
+	 */
+	private synchronized Task nextTask() {
+		while (! closed) {
+			if (! queue.isEmpty()) {
+				Task task = null;
+				Iterator iter = queue.iterator();
+				while (iter.hasNext()) {
+					Task candidate = (Task)iter.next();
+					if (task == null || candidate.depth > task.depth) {
+						task = candidate;
+					}
+				}
+				queue.remove(task);
+				task.state = STATE_LOADING;
+				return task;
+			}
+			try {
+				this.wait(WAIT);
+			} catch (InterruptedException ignored) {
+			}
+		}
+		return null;
+	}
+
+	private static class Task {
+		private File directory;
+		private int depth;
+		private short state = STATE_QUEUED;
+		private PrefetchedDirectory content;
+
+		private Task(File directory, int depth) {
+			this.directory = directory;
+			this.depth = depth;
+		}
+	}
+
+	private class Worker implements Runnable {
+		public void run() {
+			Task task;
+			while ((task = nextTask()) != null) {
+				PrefetchedDirectory content = new PrefetchedDirectory(task.directory);
+				try {
+					content.load(sorted);
+				} catch (Throwable e) {
+					Logger.defaultLogger().fine("Error while reading " + task.directory + " : " + e.getMessage() + ". It will be read again.");
+					content = null;
+				}
+				synchronized (DirectoryPrefetcher.this) {
+					task.content = content;
+					task.state = STATE_LOADED;
+					DirectoryPrefetcher.this.notifyAll();
+				}
+			}
+		}
+	}
+}
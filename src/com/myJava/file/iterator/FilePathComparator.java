@@ -38,40 +38,172 @@ public class FilePathComparator implements Comparator {
 		return INSTANCE;
 	}
 	
+	/**
+	 * The paths are compared component by component ("/" being the separator, except when it is the first character of the path) :
+	 * <BR>- two components are compared as Strings,
+	 * <BR>- if all the components of a path are the same as the first components of the other path, the shortest path comes first.
+	 * <BR>The paths are walked in place : no String is allocated.
+	 */
 	public int compare(Object arg0, Object arg1) {
-		String s0 = (String)arg0;
-		String s1 = (String)arg1;
+		return compare((String)arg0, (String)arg1);
+	}
 
-		int i0 = s0.indexOf('/', 1);
-		int i1 = s1.indexOf('/', 1);
+	public int compare(String s0, String s1) {
+		int len0 = s0.length();
+		int len1 = s1.length();
+		int p0 = 0;
+		int p1 = 0;
+		while (true) {
+			// Locate the end of the current path components (the first character is never considered as a separator)
+			int e0 = s0.indexOf('/', p0 + 1);
+			if (e0 == -1) {
+				e0 = len0;
+			}
+			int e1 = s1.indexOf('/', p1 + 1);
+			if (e1 == -1) {
+				e1 = len1;
+			}
 
-		String ss0 = s0;
-		if (i0 != -1) {
-			ss0 = s0.substring(0, i0);
-		}
+			// Compare the components
+			int l0 = e0 - p0;
+			int l1 = e1 - p1;
+			int n = Math.min(l0, l1);
+			for (int k=0; k<n; k++) {
+				char c0 = s0.charAt(p0 + k);
+				char c1 = s1.charAt(p1 + k);
+				if (c0 != c1) {
+					return c0 - c1;
+				}
+			}
+			if (l0 != l1) {
+				return l0 - l1;
+			}
 
-		String ss1 = s1;
-		if (i1 != -1) {
-			ss1 = s1.substring(0, i1);
+			// Same components : compare the children
+			if (e0 == len0) {
+				return e1 == len1 ? 0 : -1;
+			} else if (e1 == len1) {
+				return 1;
+			}
+			p0 = e0;
+			p1 = e1;
 		}
+	}
+
+	/**
+	 * Same as compare(s0, new String(s1, 0, len1)), without any allocation
+	 */
+	public int compare(String s0, char[] s1, int len1) {
+		int len0 = s0.length();
+		int p0 = 0;
+		int p1 = 0;
+		while (true) {
+			// Locate the end of the current path components (the first character is never considered as a separator)
+			int e0 = s0.indexOf('/', p0 + 1);
+			if (e0 == -1) {
+				e0 = len0;
+			}
+			int e1 = p1 + 1;
+			while (e1 < len1 && s1[e1] != '/') {
+				e1++;
+			}
+			if (e1 > len1) {
+				e1 = len1;
+			}
 
-		int c = ss0.compareTo(ss1);
-		if (c == 0) {
-			if (i0 == -1) {
-				if (i1 == -1) {
-					return 0;
-				} else {
-					return -1;
+			// Compare the components
+			int l0 = e0 - p0;
+			int l1 = e1 - p1;
+			int n = Math.min(l0, l1);
+			for (int k=0; k<n; k++) {
+				char c0 = s0.charAt(p0 + k);
+				char c1 = s1[p1 + k];
+				if (c0 != c1) {
+					return c0 - c1;
 				}
-			} else if (i1 == -1) {
+			}
+			if (l0 != l1) {
+				return l0 - l1;
+			}
+
+			// Same components : compare the children
+			if (e0 == len0) {
+				return e1 == len1 ? 0 : -1;
+			} else if (e1 == len1) {
 				return 1;
+			}
+			p0 = e0;
+			p1 = e1;
+		}
+	}
+
+	/**
+	 * Encode the path passed as argument as a sort key : comparing two keys byte per byte (unsigned, the shortest key first if one key is
+	 * the beginning of the other one - see compareKeys()) gives the same order as compare().
+	 * <BR>The characters are encoded as in modified UTF-8 (which preserves their order and never produces 0) and each component is
+	 * terminated by 0, so that a component comes before all the components it is the beginning of.
+	 * <BR>The keys can thus be stored and compared without being decoded.
+	 * <BR>The NUL character (which is not allowed in file names) doesn't follow this order.
+	 */
+	public static byte[] sortKey(String path) {
+		int len = path.length();
+		int size = 1;
+		for (int i=0; i<len; i++) {
+			char c = path.charAt(i);
+			if (c == '/' && i != 0) {
+				size++;
+			}
+			size += encodedLength(c);
+		}
+
+		byte[] key = new byte[size];
+		int p = 0;
+		for (int i=0; i<len; i++) {
+			char c = path.charAt(i);
+			if (c == '/' && i != 0) {
+				key[p++] = 0;	// End of the previous component
+			}
+			if (c != 0 && c < 0x80) {
+				key[p++] = (byte)c;
+			} else if (c < 0x800) {
+				key[p++] = (byte)(0xC0 | (c >> 6));
+				key[p++] = (byte)(0x80 | (c & 0x3F));
 			} else {
-				String child0 = s0.substring(i0);
-				String child1 = s1.substring(i1);
-				return compare(child0, child1);
+				key[p++] = (byte)(0xE0 | (c >> 12));
+				key[p++] = (byte)(0x80 | ((c >> 6) & 0x3F));
+				key[p++] = (byte)(0x80 | (c & 0x3F));
 			}
+		}
+		key[p] = 0;
+		return key;
+	}
+
+	/**
+	 * Compare two sort keys (see sortKey())
+	 */
+	public static int compareKeys(byte[] k0, byte[] k1) {
+		return compareKeys(k0, 0, k0.length, k1, 0, k1.length);
+	}
+
+	public static int compareKeys(byte[] k0, int off0, int len0, byte[] k1, int off1, int len1) {
+		int n = Math.min(len0, len1);
+		for (int i=0; i<n; i++) {
+			int b0 = k0[off0 + i] & 0xFF;
+			int b1 = k1[off1 + i] & 0xFF;
+			if (b0 != b1) {
+				return b0 - b1;
+			}
+		}
+		return len0 - len1;
+	}
+
+	private static int encodedLength(char c) {
+		if (c != 0 && c < 0x80) {
+			return 1;
+		} else if (c < 0x800) {
+			return 2;
 		} else {
-			return c;
+			return 3;
 		}
 	}
-}
\ No newline at end of file
+}
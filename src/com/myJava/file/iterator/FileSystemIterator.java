@@ -74,6 +74,7 @@ public class FileSystemIterator implements Iterator, Serializable {
 	protected long sourceCount;
 	protected boolean initialized = false;
 	protected Set pushedRoots;
+	protected transient DirectoryPrefetcher prefetcher;
 
 	public FileSystemIterator(
 			File baseDirectory,
@@ -162,6 +163,42 @@ public class FileSystemIterator implements Iterator, Serializable {
 		return monitor;
 	}
 
+	/**
+	 * Read the directories in advance using "threads" worker threads (0 = disabled).
+	 * <BR>The returned files then cache their attributes (see PrefetchedFile).
+	 * <BR>The prefetch state is not serialized : it must be started again after deserialization.
+	 */
+	public void startPrefetch(int threads) {
+		if (threads > 0 && prefetcher == null) {
+			setPrefetcher(new DirectoryPrefetcher(threads, sorted));
+		}
+	}
+
+	/**
+	 * Stop the prefetch threads
+	 */
+	public void stopPrefetch() {
+		if (prefetcher != null) {
+			prefetcher.close();
+			Logger.defaultLogger().fine("Directory prefetch : " + prefetcher.getPrefetched() + " directories prefetched, " + prefetcher.getReadDirectly() + " directories read directly.");
+			setPrefetcher(null);
+		}
+	}
+
+	/**
+	 * Return the prefetcher - null if the prefetch is not started
+	 */
+	public DirectoryPrefetcher getPrefetcher() {
+		return prefetcher;
+	}
+
+	private void setPrefetcher(DirectoryPrefetcher prefetcher) {
+		this.prefetcher = prefetcher;
+		if (currentFileSystemSubIterator != null) {
+			currentFileSystemSubIterator.setPrefetcher(prefetcher);
+		}
+	}
+
 	public void setFilter(FileSystemIteratorFilter filter) {
 		this.filter = filter;
 	}
@@ -285,6 +322,7 @@ public class FileSystemIterator implements Iterator, Serializable {
 			}
 			this.currentFileSystemSubIterator.setLogProgress(this.logProgress);
 			this.currentFileSystemSubIterator.pushedRoots = pushedRoots;
+			this.currentFileSystemSubIterator.setPrefetcher(prefetcher);
 			return nextFileOrDirectory();
 		} else {
 			while (true) {
@@ -311,7 +349,7 @@ public class FileSystemIterator implements Iterator, Serializable {
 								monitor.getCurrentActiveSubTask().addNewSubTask(currentLevel.getCompletionIncrement(), FileSystemManager.getDisplayPath(f));
 							}
 
-							this.setCurrentLevel(new FileSystemLevel(f, this.currentLevel, sorted));
+							this.setCurrentLevel(new FileSystemLevel(f, this.currentLevel, sorted, prefetcher));
 							if (logProgress) {
 								Logger.defaultLogger().fine("Processing " + FileSystemManager.getDisplayPath(f));
 							}
@@ -319,6 +357,14 @@ public class FileSystemIterator implements Iterator, Serializable {
 						}
 					}
 
+					if (prefetcher != null && isDirectory) {
+						if (! registeredAsDirectory) {
+							// Not iterated : release its slot
+							prefetcher.discard(f);
+						}
+						fillPrefetchWindow();
+					}
+
 					// Progress information
 					if (monitor != null && ! registeredAsDirectory) {
 						monitor.getCurrentActiveSubTask().addCompletion(currentLevel.getCompletionIncrement());
@@ -375,6 +421,47 @@ public class FileSystemIterator implements Iterator, Serializable {
 		}
 	}
 
+	/**
+	 * Schedule the next subdirectories of the walk, as long as the prefetcher accepts them : the subdirectories of the current level first,
+	 * then those of its parents.
+	 * <BR>Called each time a directory is consumed, to top the prefetch window up.
+	 * <BR>Subdirectories that are finally not iterated (filtered) are discarded by "nextFileOrDirectory".
+	 */
+	private void fillPrefetchWindow() {
+		if (prefetcher != null && followSubdirectories && currentLevel != null) {
+			if (prefetchSubdirectories(currentLevel, fileSystemLevels.size())) {
+				for (int i=fileSystemLevels.size()-1; i>=0; i--) {
+					if (! prefetchSubdirectories((FileSystemLevel)fileSystemLevels.get(i), i)) {
+						return;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Schedule the level's subdirectories from its cursor.
+	 * <BR>Return false if the prefetch window is full.
+	 */
+	private boolean prefetchSubdirectories(FileSystemLevel level, int depth) {
+		PrefetchedDirectory content = level.getContent();
+		if (content == null) {
+			return true;
+		}
+		for (int i=level.getPrefetchCursor(); i<content.getSize(); i++) {
+			if (
+					content.isDirectory(i) 
+					&& (followSymLinks || (content.getType(i) != PrefetchedDirectory.TYPE_UNKNOWN && content.getType(i) != FileMetaDataAccessor.TYPE_LINK))
+					&& ! prefetcher.schedule(new File(content.getDirectory(), content.getNames()[i]), depth)
+			) {
+				level.setPrefetchCursor(i);
+				return false;
+			}
+		}
+		level.setPrefetchCursor(content.getSize());
+		return true;
+	}
+
 	private static int isSymbolicLink(File f, int currentValue) {
 		if (currentValue != -1) {
 			return currentValue;
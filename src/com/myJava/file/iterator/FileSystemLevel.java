@@ -45,20 +45,31 @@ public class FileSystemLevel implements Serializable {
     private double completionIncrement = 0;
     private boolean directoryRoot;						// The root can be a file or a directory
     private File referenceDirectory;					// This is most of the time the root itself ... except when the root is a file
+    private transient PrefetchedDirectory content;		// Attributes of the level's files (not serialized : standard files are returned after a resume)
+    private transient int prefetchCursor;				// Index of the next element to schedule for prefetch
     
 	public FileSystemLevel(File root, FileSystemLevel parent, boolean sorted) {
+		this(root, parent, sorted, null);
+	}
+    
+	public FileSystemLevel(File root, FileSystemLevel parent, boolean sorted, DirectoryPrefetcher prefetcher) {
 		this.directoryRoot = FileSystemManager.isDirectory(root);
 		if (directoryRoot) {
 			this.referenceDirectory = root;
-			String[] files = FileSystemManager.list(root);
-
-			if (files == null) {
-				this.levelFiles = new String[0];
+			if (prefetcher != null) {
+				this.content = prefetcher.get(root);
+				this.levelFiles = content.getNames();
 			} else {
-				if (sorted) {
-					Arrays.sort(files, new FileNameComparator());
+				String[] files = FileSystemManager.list(root);
+
+				if (files == null) {
+					this.levelFiles = new String[0];
+				} else {
+					if (sorted) {
+						Arrays.sort(files, new FileNameComparator());
+					}
+					this.levelFiles = files;
 				}
-				this.levelFiles = files;
 			}
 		} else {
 			this.levelFiles = new String[] {FileSystemManager.getName(root)};
@@ -80,7 +91,29 @@ public class FileSystemLevel implements Serializable {
 
 	public File nextElement() {
 		this.index++;
-		return new File(referenceDirectory, this.levelFiles[index-1]);
+		if (content != null) {
+			return content.buildFile(referenceDirectory, index-1);
+		} else {
+			return new File(referenceDirectory, this.levelFiles[index-1]);
+		}
+	}
+
+	/**
+	 * Prefetched content of the level - null if the level has not been prefetched
+	 */
+	public PrefetchedDirectory getContent() {
+		return content;
+	}
+
+	/**
+	 * Index of the next element that may be scheduled for prefetch - the elements that have already been returned are skipped
+	 */
+	public int getPrefetchCursor() {
+		return Math.max(prefetchCursor, index);
+	}
+
+	public void setPrefetchCursor(int prefetchCursor) {
+		this.prefetchCursor = prefetchCursor;
 	}
 
     public FileSystemLevel getParent() {
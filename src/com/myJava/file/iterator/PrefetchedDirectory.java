@@ -0,0 +1,152 @@
+package com.myJava.file.iterator;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import com.myJava.file.FileSystemManager;
+import com.myJava.object.ToStringHelper;
+
+/**
+ * Content of a directory : names of its elements (sorted if requested) and their attributes.
+ * <BR>The attributes are read through the FileSystemManager, so they are exactly those that would have been read
+ * by the iterator or the backup process.
+ * <BR>
+ * @author Olivier PETRUCCI
+ * <BR>
+ *
+ */
+
+ /*
+ Copyright 2005-2015, Olivier PETRUCCI.
+
+This file is part of Areca.
+
+    Areca is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    Areca is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Areca; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+ */
+public class PrefetchedDirectory {
+	/**
+	 * The type could not be read : it will be read again when requested (and the error will be raised at this time)
+	 */
+	public static final short TYPE_UNKNOWN = 0;
+
+	private static final byte DIRECTORY = 1;
+	private static final byte FILE = 2;
+	private static final byte EXISTS = 4;
+
+	private File directory;
+	private String[] names;
+	private byte[] flags;
+	private long[] lengths;
+	private long[] lastModified;
+	private short[] types;
+
+	public PrefetchedDirectory(File directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * List the directory and read its elements' attributes
+	 */
+	public void load(boolean sorted) {
+		String[] files = FileSystemManager.list(directory);
+		if (files == null) {
+			files = new String[0];
+		} else if (sorted) {
+			Arrays.sort(files, new FileNameComparator());
+		}
+
+		byte[] f = new byte[files.length];
+		long[] l = new long[files.length];
+		long[] m = new long[files.length];
+		short[] t = new short[files.length];
+		for (int i=0; i<files.length; i++) {
+			File file = new File(directory, files[i]);
+			if (FileSystemManager.isDirectory(file)) {
+				f[i] |= DIRECTORY;
+			}
+			if (FileSystemManager.isFile(file)) {
+				f[i] |= FILE;
+			}
+			if (FileSystemManager.exists(file)) {
+				f[i] |= EXISTS;
+			}
+			l[i] = FileSystemManager.length(file);
+			m[i] = FileSystemManager.lastModified(file);
+			try {
+				t[i] = FileSystemManager.getType(file);
+			} catch (IOException e) {
+				t[i] = TYPE_UNKNOWN;
+			}
+		}
+
+		this.flags = f;
+		this.lengths = l;
+		this.lastModified = m;
+		this.types = t;
+		this.names = files;
+	}
+
+	public File getDirectory() {
+		return directory;
+	}
+
+	public String[] getNames() {
+		return names;
+	}
+
+	public int getSize() {
+		return names.length;
+	}
+
+	/**
+	 * Build the file located at the requested index ; its attributes are cached.
+	 */
+	public File buildFile(File referenceDirectory, int index) {
+		return new PrefetchedFile(referenceDirectory, names[index], this, index);
+	}
+
+	public boolean isDirectory(int index) {
+		return (flags[index] & DIRECTORY) != 0;
+	}
+
+	public boolean isFile(int index) {
+		return (flags[index] & FILE) != 0;
+	}
+
+	public boolean exists(int index) {
+		return (flags[index] & EXISTS) != 0;
+	}
+
+	public long getLength(int index) {
+		return lengths[index];
+	}
+
+	public long getLastModified(int index) {
+		return lastModified[index];
+	}
+
+	public short getType(int index) {
+		return types[index];
+	}
+
+	public String toString() {
+		StringBuffer sb = ToStringHelper.init(this);
+		ToStringHelper.append("Directory", directory, sb);
+		ToStringHelper.append("Size", names == null ? -1 : names.length, sb);
+		return ToStringHelper.close(sb);
+	}
+}
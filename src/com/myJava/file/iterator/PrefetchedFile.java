@@ -0,0 +1,87 @@
+package com.myJava.file.iterator;
+
+import java.io.File;
+
+/**
+ * File whose attributes have been read in advance by a DirectoryPrefetcher.
+ * <BR>The attributes are returned without accessing the file system again. They are not serialized : once deserialized,
+ * the file behaves as a standard File.
+ * <BR>
+ * @author Olivier PETRUCCI
+ * <BR>
+ *
+ */
+
+ /*
+ Copyright 2005-2015, Olivier PETRUCCI.
+
+This file is part of Areca.
+
+    Areca is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    Areca is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Areca; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+ */
+public class PrefetchedFile extends File {
+	private static final long serialVersionUID = 2390425788226386574L;
+
+	private transient boolean prefetched;
+	private transient boolean directory;
+	private transient boolean file;
+	private transient boolean exists;
+	private transient long length;
+	private transient long lastModified;
+	private transient short type;
+
+	public PrefetchedFile(File parent, String child, PrefetchedDirectory content, int index) {
+		super(parent, child);
+		this.prefetched = true;
+		this.directory = content.isDirectory(index);
+		this.file = content.isFile(index);
+		this.exists = content.exists(index);
+		this.length = content.getLength(index);
+		this.lastModified = content.getLastModified(index);
+		this.type = content.getType(index);
+	}
+
+	public boolean isDirectory() {
+		return prefetched ? directory : super.isDirectory();
+	}
+
+	public boolean isFile() {
+		return prefetched ? file : super.isFile();
+	}
+
+	public boolean exists() {
+		return prefetched ? exists : super.exists();
+	}
+
+	public long length() {
+		return prefetched ? length : super.length();
+	}
+
+	public long lastModified() {
+		return prefetched ? lastModified : super.lastModified();
+	}
+
+	/**
+	 * Tell whether the file's type (see FileMetaDataAccessor) is known
+	 */
+	public boolean isTypeSet() {
+		return prefetched && type != PrefetchedDirectory.TYPE_UNKNOWN;
+	}
+
+	public short getType() {
+		return type;
+	}
+}
@@ -35,6 +35,8 @@ This file is part of Areca.
  */
 public class FileMetaDataAccessorHelper {
 
+	private static final String NIO_ACCESSOR = "com.myJava.file.metadata.posix.nio.NIOMetaDataAccessor";
+
 	private static FileMetaDataAccessor INSTANCE;
 	
 	static {
@@ -67,7 +69,7 @@ public class FileMetaDataAccessorHelper {
 				if (OSTool.isSystemWindows()) {
 					INSTANCE = new WindowsMetaDataAccessor();
 				} else {
-					INSTANCE = new DefaultMetaDataAccessor();			
+					INSTANCE = buildPosixAccessor();
 				}
 				
 				// Test the default accessor
@@ -87,6 +89,24 @@ public class FileMetaDataAccessorHelper {
 		}
 	}
 	
+	/**
+	 * Return the NIO accessor if it can be used on this system (java 7+), the DefaultMetaDataAccessor otherwise.
+	 * <BR>The NIO accessor is loaded by its name to avoid any dependency on the java 7 API.
+	 */
+	private static FileMetaDataAccessor buildPosixAccessor() {
+		try {
+			FileMetaDataAccessor accessor = (FileMetaDataAccessor)Class.forName(NIO_ACCESSOR).newInstance();
+			if (accessor.test()) {
+				return accessor;
+			} else {
+				Logger.defaultLogger().info("[" + NIO_ACCESSOR + "] not validated.");
+			}
+		} catch (Throwable e) {
+			Logger.defaultLogger().info("[" + NIO_ACCESSOR + "] can't be used : " + e.getClass().getName() + " : " + e.getMessage());
+		}
+		return new DefaultMetaDataAccessor();
+	}
+	
 	public static FileMetaDataAccessor getFileSystemAccessor() {
 		return INSTANCE;
 	}
@@ -0,0 +1,415 @@
+package com.myJava.file.metadata.posix;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+
+import com.myJava.object.ToStringHelper;
+
+/**
+ * Bounded cache for user or group names / ids transcoding.
+ * <BR>Lookups don't use any lock : the content of the cache is stored in immutable tables (open addressing, primitive keys)
+ * that are replaced each time an entry is added. Updates are much less frequent than lookups (they only occur on cache misses)
+ * so the cost of the copy is negligible.
+ * <BR>Entries expire after a configurable delay (the name of a user or group may change during a long backup). Once the maximum
+ * number of entries is reached, expired entries are removed ; the cache is cleared if this is not sufficient.
+ * <BR>Unknown ids or names are also cached (null name or -1 id).
+ * <BR>If a Resolver is provided, it is used to resolve the names / ids that are not in the cache.
+ * <BR>
+ * <BR>Hits and misses are counted without any synchronization : they are only indicative.
+ * <BR>
+ * @author Olivier PETRUCCI
+ * <BR>
+ *
+ */
+
+ /*
+ Copyright 2005-2015, Olivier PETRUCCI.
+
+This file is part of Areca.
+
+    Areca is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    Areca is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Areca; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+ */
+public class IdNameCache {
+	public static final int UNKNOWN_ID = -1;
+
+	/**
+	 * Used to resolve the names and ids that are not in the cache
+	 */
+	public static interface Resolver {
+		/**
+		 * Return the name associated to the id, or null if it is unknown
+		 */
+		public String getName(int id);
+
+		/**
+		 * Return the id associated to the name, or UNKNOWN_ID if it is unknown
+		 */
+		public int getId(String name);
+	}
+
+	private String description;
+	private Resolver resolver;
+	private int maxSize;
+	private long ttl;
+
+	private volatile IdTable names;
+	private volatile NameTable ids;
+
+	private long hits;
+	private long misses;
+
+	/**
+	 * @param description Description (used for logging purposes)
+	 * @param resolver Resolver - may be null
+	 * @param maxSize Maximum number of entries in each direction (id -> name and name -> id)
+	 * @param ttl Time to live of the entries (ms) - 0 or less for no expiration
+	 */
+	public IdNameCache(String description, Resolver resolver, int maxSize, long ttl) {
+		this.description = description;
+		this.resolver = resolver;
+		this.maxSize = Math.max(1, maxSize);
+		this.ttl = ttl;
+		this.names = new IdTable(capacity(this.maxSize));
+		this.ids = new NameTable(capacity(this.maxSize));
+	}
+
+	private static int capacity(int size) {
+		int c = 16;
+		while (c < 2 * size) {
+			c <<= 1;
+		}
+		return c;
+	}
+
+	private long now() {
+		return ttl > 0 ? System.currentTimeMillis() : 0;
+	}
+
+	private long expiration() {
+		return ttl > 0 ? System.currentTimeMillis() + ttl : Long.MAX_VALUE;
+	}
+
+	/**
+	 * Return the name associated to the id.
+	 * <BR>If it isn't in the cache, it is resolved by the Resolver (if any). Null is returned if the name is unknown.
+	 */
+	public String getName(int id) {
+		IdTable t = names;
+		int slot = t.find(id, now());
+		if (slot != -1) {
+			hits++;
+			return t.values[slot];
+		}
+
+		misses++;
+		if (resolver == null) {
+			return null;
+		}
+		String name = resolver.getName(id);
+		put(id, name);
+		return name;
+	}
+
+	/**
+	 * Return the id associated to the name.
+	 * <BR>If it isn't in the cache, it is resolved by the Resolver (if any). UNKNOWN_ID is returned if the id is unknown.
+	 */
+	public int getId(String name) {
+		NameTable t = ids;
+		int slot = t.find(name, now());
+		if (slot != -1) {
+			hits++;
+			return t.values[slot];
+		}
+
+		misses++;
+		if (resolver == null) {
+			return UNKNOWN_ID;
+		}
+		int id = resolver.getId(name);
+		put(id, name);
+		if (id == UNKNOWN_ID) {
+			addId(name, UNKNOWN_ID);
+		}
+		return id;
+	}
+
+	/**
+	 * Tell whether the cache contains a valid entry for the id
+	 */
+	public boolean containsId(int id) {
+		return names.find(id, now()) != -1;
+	}
+
+	/**
+	 * Register the name associated to the id (which may be null if the id is unknown)
+	 */
+	public void put(int id, String name) {
+		if (id != UNKNOWN_ID) {
+			addName(id, name);
+		}
+		if (name != null && id != UNKNOWN_ID) {
+			addId(name, id);
+		}
+	}
+
+	private synchronized void addName(int id, String name) {
+		IdTable t = names.copy();
+		if (t.size >= maxSize && t.purge(now()) >= maxSize) {
+			t = new IdTable(t.keys.length);
+		}
+		t.add(id, name, expiration());
+		names = t;
+	}
+
+	private synchronized void addId(String name, int id) {
+		NameTable t = ids.copy();
+		if (t.size >= maxSize && t.purge(now()) >= maxSize) {
+			t = new NameTable(t.keys.length);
+		}
+		t.add(name, id, expiration());
+		ids = t;
+	}
+
+	/**
+	 * Load the entries of a file with the /etc/passwd or /etc/group format ("name:password:id:...")
+	 * <BR>Return the number of loaded entries.
+	 */
+	public synchronized int load(File file) throws IOException {
+		if (! file.exists()) {
+			return 0;
+		}
+
+		// All entries are added at once, with a single copy of the tables
+		IdTable nt = names.copy();
+		NameTable it = ids.copy();
+		long expiration = expiration();
+		int count = 0;
+
+		BufferedReader reader = new BufferedReader(new FileReader(file));
+		try {
+			String line;
+			while ((line = reader.readLine()) != null && nt.size < maxSize && it.size < maxSize) {
+				if (line.length() == 0 || line.charAt(0) == '#' || line.charAt(0) == '+' || line.charAt(0) == '-') {
+					continue; // comments and NIS entries
+				}
+				int i1 = line.indexOf(':');
+				int i2 = i1 == -1 ? -1 : line.indexOf(':', i1 + 1);
+				int i3 = i2 == -1 ? -1 : line.indexOf(':', i2 + 1);
+				if (i1 <= 0 || i2 == -1) {
+					continue;
+				}
+				try {
+					int id = Integer.parseInt(line.substring(i2 + 1, i3 == -1 ? line.length() : i3).trim());
+					String name = line.substring(0, i1);
+					// The first entry wins, as for the system lookups
+					if (nt.find(id, 0) == -1) {
+						nt.add(id, name, expiration);
+					}
+					if (it.find(name, 0) == -1) {
+						it.add(name, id, expiration);
+					}
+					count++;
+				} catch (NumberFormatException ignored) {
+				}
+			}
+		} finally {
+			reader.close();
+		}
+
+		names = nt;
+		ids = it;
+		return count;
+	}
+
+	/**
+	 * Remove all entries
+	 */
+	public synchronized void clear() {
+		names = new IdTable(names.keys.length);
+		ids = new NameTable(ids.keys.length);
+	}
+
+	public int size() {
+		return names.size;
+	}
+
+	public long getHits() {
+		return hits;
+	}
+
+	public long getMisses() {
+		return misses;
+	}
+
+	public String toString() {
+		StringBuffer sb = ToStringHelper.init(this);
+		ToStringHelper.append("Description", description, sb);
+		ToStringHelper.append("Size", names.size, sb);
+		ToStringHelper.append("Hits", hits, sb);
+		ToStringHelper.append("Misses", misses, sb);
+		return ToStringHelper.close(sb);
+	}
+
+	/**
+	 * id -> name table (linear probing). It is never modified once published.
+	 */
+	private static class IdTable {
+		private int[] keys;
+		private String[] values;
+		private long[] expirations;
+		private boolean[] used;
+		private int size;
+
+		private IdTable(int capacity) {
+			keys = new int[capacity];
+			values = new String[capacity];
+			expirations = new long[capacity];
+			used = new boolean[capacity];
+		}
+
+		private IdTable copy() {
+			IdTable t = new IdTable(keys.length);
+			System.arraycopy(keys, 0, t.keys, 0, keys.length);
+			System.arraycopy(values, 0, t.values, 0, keys.length);
+			System.arraycopy(expirations, 0, t.expirations, 0, keys.length);
+			System.arraycopy(used, 0, t.used, 0, keys.length);
+			t.size = size;
+			return t;
+		}
+
+		private static int hash(int id, int mask) {
+			int h = id * 0x9E3779B9;
+			return (h ^ (h >>> 16)) & mask;
+		}
+
+		/**
+		 * Return the slot of the id, or -1 if it is absent or expired
+		 */
+		private int find(int id, long now) {
+			int mask = keys.length - 1;
+			for (int i = hash(id, mask); used[i]; i = (i + 1) & mask) {
+				if (keys[i] == id) {
+					return expirations[i] < now ? -1 : i;
+				}
+			}
+			return -1;
+		}
+
+		private void add(int id, String name, long expiration) {
+			int mask = keys.length - 1;
+			int i = hash(id, mask);
+			while (used[i] && keys[i] != id) {
+				i = (i + 1) & mask;
+			}
+			if (! used[i]) {
+				used[i] = true;
+				keys[i] = id;
+				size++;
+			}
+			values[i] = name;
+			expirations[i] = expiration;
+		}
+
+		/**
+		 * Remove expired entries - return the new size
+		 */
+		private int purge(long now) {
+			IdTable t = new IdTable(keys.length);
+			for (int i=0; i<keys.length; i++) {
+				if (used[i] && expirations[i] >= now) {
+					t.add(keys[i], values[i], expirations[i]);
+				}
+			}
+			keys = t.keys;
+			values = t.values;
+			expirations = t.expirations;
+			used = t.used;
+			size = t.size;
+			return size;
+		}
+	}
+
+	/**
+	 * name -> id table (linear probing). It is never modified once published.
+	 */
+	private static class NameTable {
+		private String[] keys;
+		private int[] values;
+		private long[] expirations;
+		private int size;
+
+		private NameTable(int capacity) {
+			keys = new String[capacity];
+			values = new int[capacity];
+			expirations = new long[capacity];
+		}
+
+		private NameTable copy() {
+			NameTable t = new NameTable(keys.length);
+			System.arraycopy(keys, 0, t.keys, 0, keys.length);
+			System.arraycopy(values, 0, t.values, 0, keys.length);
+			System.arraycopy(expirations, 0, t.expirations, 0, keys.length);
+			t.size = size;
+			return t;
+		}
+
+		private static int hash(String name, int mask) {
+			int h = name.hashCode() * 0x9E3779B9;
+			return (h ^ (h >>> 16)) & mask;
+		}
+
+		private int find(String name, long now) {
+			int mask = keys.length - 1;
+			for (int i = hash(name, mask); keys[i] != null; i = (i + 1) & mask) {
+				if (keys[i].equals(name)) {
+					return expirations[i] < now ? -1 : i;
+				}
+			}
+			return -1;
+		}
+
+		private void add(String name, int id, long expiration) {
+			int mask = keys.length - 1;
+			int i = hash(name, mask);
+			while (keys[i] != null && ! keys[i].equals(name)) {
+				i = (i + 1) & mask;
+			}
+			if (keys[i] == null) {
+				keys[i] = name;
+				size++;
+			}
+			values[i] = id;
+			expirations[i] = expiration;
+		}
+
+		private int purge(long now) {
+			NameTable t = new NameTable(keys.length);
+			for (int i=0; i<keys.length; i++) {
+				if (keys[i] != null && expirations[i] >= now) {
+					t.add(keys[i], values[i], expirations[i]);
+				}
+			}
+			keys = t.keys;
+			values = t.values;
+			expirations = t.expirations;
+			size = t.size;
+			return size;
+		}
+	}
+}
@@ -1,12 +1,17 @@
 package com.myJava.file.metadata.posix.jni;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.io.File;
+import java.io.IOException;
 
+import com.myJava.configuration.FrameworkConfiguration;
+import com.myJava.file.metadata.posix.IdNameCache;
 import com.myJava.file.metadata.posix.jni.wrapper.FileAccessWrapper;
+import com.myJava.util.log.Logger;
 
 /**
  * This class invokes C functions through JNI to handle group and user names/id transcoding.
+ * <BR>Results are kept in bounded, thread-safe caches (see IdNameCache), which are initially loaded from the users and groups files
+ * (/etc/passwd and /etc/group by default) so that most lookups never reach the system (NSS, LDAP ...).
  * <BR>
  * @author Olivier PETRUCCI
  * <BR>
@@ -34,64 +39,61 @@ This file is part of Areca.
 
  */
 public class UserGroupTranscoder {
-	private static Map groupNames = new HashMap();
-	private static Map userNames = new HashMap();
-	private static Map groupIds = new HashMap();
-	private static Map userIds = new HashMap();
+	private static final IdNameCache USERS = new IdNameCache("Users", new IdNameCache.Resolver() {
+		public String getName(int id) {
+			return FileAccessWrapper.getUserName(id);
+		}
+		public int getId(String name) {
+			return FileAccessWrapper.getUserId(name);
+		}
+	}, FrameworkConfiguration.getInstance().getUserGroupCacheSize(), FrameworkConfiguration.getInstance().getUserGroupCacheTTL());
 	
-	public static String getGroupName(int id) {
-		Integer k = new Integer(id);
-		String name = (String)groupNames.get(k);
-		if (name == null) {
-			name = FileAccessWrapper.getGroupName(id);
-
-			groupNames.put(k, name);
-			if (name != null) {
-				groupIds.put(name, k);
-			}
+	private static final IdNameCache GROUPS = new IdNameCache("Groups", new IdNameCache.Resolver() {
+		public String getName(int id) {
+			return FileAccessWrapper.getGroupName(id);
+		}
+		public int getId(String name) {
+			return FileAccessWrapper.getGroupId(name);
 		}
-		return name;
+	}, FrameworkConfiguration.getInstance().getUserGroupCacheSize(), FrameworkConfiguration.getInstance().getUserGroupCacheTTL());
+	
+	static {
+		load(USERS, FrameworkConfiguration.getInstance().getUserGroupCacheUsersFile());
+		load(GROUPS, FrameworkConfiguration.getInstance().getUserGroupCacheGroupsFile());
 	}
 	
-	public static String getUserName(int id) {
-		Integer k = new Integer(id);
-		String name = (String)userNames.get(k);
-		if (name == null) {
-			name = FileAccessWrapper.getUserName(id);
-			
-			userNames.put(k, name);
-			if (name != null) {
-				userIds.put(name, k);
+	private static void load(IdNameCache cache, String file) {
+		if (file != null && file.trim().length() != 0) {
+			try {
+				int count = cache.load(new File(file));
+				Logger.defaultLogger().fine(count + " entries loaded from " + file);
+			} catch (IOException e) {
+				Logger.defaultLogger().warn("Unable to load " + file + " : " + e.getMessage());
 			}
 		}
-		return name;
+	}
+	
+	public static String getGroupName(int id) {
+		return GROUPS.getName(id);
+	}
+	
+	public static String getUserName(int id) {
+		return USERS.getName(id);
 	}
 	
 	public static int getGroupId(String name) {
-		Integer id = (Integer)groupIds.get(name);
-		if (id == null) {
-			int iid = FileAccessWrapper.getGroupId(name);
-			id = new Integer(iid);
-			
-			groupIds.put(name, id);
-			if (iid != -1) {
-				groupNames.put(id, name);
-			}
-		}
-		return id.intValue();
+		return GROUPS.getId(name);
 	}
 	
 	public static int getUserId(String name) {
-		Integer id = (Integer)userIds.get(name);
-		if (id == null) {
-			int iid = FileAccessWrapper.getUserId(name);
-			id = new Integer(iid);
-			
-			userIds.put(name, id);
-			if (iid != -1) {
-				userNames.put(id, name);
-			}
-		}
-		return id.intValue();
+		return USERS.getId(name);
+	}
+	
+	public static IdNameCache getUserCache() {
+		return USERS;
+	}
+	
+	public static IdNameCache getGroupCache() {
+		return GROUPS;
 	}
 }
@@ -0,0 +1,340 @@
+package com.myJava.file.metadata.posix.nio;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.GroupPrincipal;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.UserDefinedFileAttributeView;
+import java.nio.file.attribute.UserPrincipal;
+import java.nio.file.attribute.UserPrincipalLookupService;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.myJava.configuration.FrameworkConfiguration;
+import com.myJava.file.FileSystemManager;
+import com.myJava.file.metadata.FileMetaData;
+import com.myJava.file.metadata.FileMetaDataAccessor;
+import com.myJava.file.metadata.FileMetaDataSerializer;
+import com.myJava.file.metadata.posix.ExtendedAttribute;
+import com.myJava.file.metadata.posix.ExtendedAttributeList;
+import com.myJava.file.metadata.posix.IdNameCache;
+import com.myJava.file.metadata.posix.PosixMetaDataImpl;
+import com.myJava.file.metadata.posix.PosixMetaDataSerializer;
+import com.myJava.system.OSTool;
+import com.myJava.util.log.Logger;
+
+/**
+ * Pure java metadata accessor for Posix systems, based on the java.nio.file API (requires a Java 7 runtime).
+ * <BR>It reads all base attributes (mode, owner, group, last modification date) with a single system call instead of
+ * launching a "ls" process for each file. Owner and group names are resolved once per uid / gid.
+ * <BR>When the "unix" attribute view is available (Linux, Mac OS, Solaris), the mode contains the type and special bits,
+ * as the one produced by com.myJava.file.metadata.posix.jni.JNIMetaDataAccessor. Otherwise, only permissions are read.
+ * <BR>User extended attributes ("user." namespace) are handled ; other namespaces and ACL are not (the java API only provides
+ * NFSv4 ACL, which can't be converted into Posix ACL).
+ * <BR>The metadata is serialized by the PosixMetaDataSerializer, as for the other Posix accessors.
+ * <BR>
+ * @author Olivier PETRUCCI
+ * <BR>
+ *
+ */
+
+ /*
+ Copyright 2005-2015, Olivier PETRUCCI.
+
+This file is part of Areca.
+
+    Areca is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    Areca is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with Areca; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+ */
+public class NIOMetaDataAccessor implements FileMetaDataAccessor {
+	private static final String DESCRIPTION = "Meta data accessor for Posix systems, based on the standard Java 7 file API. It handles owner, group, permissions, special bits and user extended attributes.\nACL are not handled by this accessor.";
+	private static final FileMetaDataSerializer SERIALIZER = new PosixMetaDataSerializer();
+	private static final LinkOption[] NO_FOLLOW = new LinkOption[] {LinkOption.NOFOLLOW_LINKS};
+
+	private static final String UNIX_BASE_ATTRIBUTES = "unix:mode,uid,gid,lastModifiedTime";
+	private static final String UNIX_OWNER_ATTRIBUTES = "unix:uid,gid,owner,group";
+	private static final String UNIX_MODE = "unix:mode";
+	private static final String XATTR_NAMESPACE = "user.";
+
+	private static final int S_IFMT = 0170000;
+	private static final int S_IFSOCK = 0140000;
+	private static final int S_IFLNK = 0120000;
+	private static final int S_IFREG = 0100000;
+	private static final int S_IFBLK = 0060000;
+	private static final int S_IFDIR = 0040000;
+	private static final int S_IFCHR = 0020000;
+	private static final int S_IFIFO = 0010000;
+	private static final int PERMISSION_MASK = 07777;
+
+	private static final PosixFilePermission[] PERMISSIONS = new PosixFilePermission[] {
+		PosixFilePermission.OTHERS_EXECUTE,
+		PosixFilePermission.OTHERS_WRITE,
+		PosixFilePermission.OTHERS_READ,
+		PosixFilePermission.GROUP_EXECUTE,
+		PosixFilePermission.GROUP_WRITE,
+		PosixFilePermission.GROUP_READ,
+		PosixFilePermission.OWNER_EXECUTE,
+		PosixFilePermission.OWNER_WRITE,
+		PosixFilePermission.OWNER_READ
+	};
+
+	private final boolean unixView;
+	private final boolean xattrView;
+
+	/**
+	 * uid -> user name / gid -> group name
+	 */
+	private final IdNameCache users = new IdNameCache("Users", null, FrameworkConfiguration.getInstance().getUserGroupCacheSize(), FrameworkConfiguration.getInstance().getUserGroupCacheTTL());
+	private final IdNameCache groups = new IdNameCache("Groups", null, FrameworkConfiguration.getInstance().getUserGroupCacheSize(), FrameworkConfiguration.getInstance().getUserGroupCacheTTL());
+
+	public NIOMetaDataAccessor() {
+		Set views = FileSystems.getDefault().supportedFileAttributeViews();
+		this.unixView = views.contains("unix");
+		this.xattrView = views.contains("user");
+	}
+
+	public FileMetaData getMetaData(File f, boolean onlyBasicAttributes) throws IOException {
+		PosixMetaDataImpl p = new PosixMetaDataImpl();
+		Path path = f.toPath();
+
+		boolean regular;
+		if (unixView) {
+			Map attrs = Files.readAttributes(path, UNIX_BASE_ATTRIBUTES, NO_FOLLOW);
+			int mode = ((Integer)attrs.get("mode")).intValue();
+			String user = users.getName(((Integer)attrs.get("uid")).intValue());
+			String group = groups.getName(((Integer)attrs.get("gid")).intValue());
+			if (user == null || group == null) {
+				// Unknown uid / gid : resolve the names (the attributes are read again so that names and ids are consistent)
+				Map owners = Files.readAttributes(path, UNIX_OWNER_ATTRIBUTES, NO_FOLLOW);
+				user = ((UserPrincipal)owners.get("owner")).getName();
+				group = ((GroupPrincipal)owners.get("group")).getName();
+				users.put(((Integer)owners.get("uid")).intValue(), user);
+				groups.put(((Integer)owners.get("gid")).intValue(), group);
+			}
+
+			p.setMode(mode);
+			p.setOwner(user);
+			p.setGroup(group);
+			p.setLastmodified(((FileTime)attrs.get("lastModifiedTime")).toMillis());
+			regular = (mode & S_IFMT) == S_IFREG || (mode & S_IFMT) == S_IFDIR;
+		} else {
+			PosixFileAttributes attrs = (PosixFileAttributes)Files.readAttributes(path, PosixFileAttributes.class, NO_FOLLOW);
+			p.setMode(toMode(attrs.permissions()));
+			p.setOwner(attrs.owner().getName());
+			p.setGroup(attrs.group().getName());
+			p.setLastmodified(attrs.lastModifiedTime().toMillis());
+			regular = attrs.isRegularFile() || attrs.isDirectory();
+		}
+
+		// Extended attributes - they are not read on symbolic links and special files (this would require to open them)
+		if (! onlyBasicAttributes && xattrView && regular) {
+			ExtendedAttributeList list = readExtendedAttributes(path);
+			if (list != null && ! list.isEmpty()) {
+				p.setXattrList(list);
+			}
+		}
+
+		return p;
+	}
+
+	private ExtendedAttributeList readExtendedAttributes(Path path) throws IOException {
+		UserDefinedFileAttributeView view = (UserDefinedFileAttributeView)Files.getFileAttributeView(path, UserDefinedFileAttributeView.class, NO_FOLLOW);
+		if (view == null) {
+			return null;
+		}
+
+		List names;
+		try {
+			names = view.list();
+		} catch (AccessDeniedException e) {
+			Logger.defaultLogger().fine("Extended attributes of " + path + " can't be read : " + e.getMessage());
+			return null;
+		}
+
+		ExtendedAttributeList list = new ExtendedAttributeList();
+		for (int i=0; i<names.size(); i++) {
+			String name = (String)names.get(i);
+			ByteBuffer buffer = ByteBuffer.allocate(view.size(name));
+			view.read(name, buffer);
+			byte[] data = new byte[buffer.position()];
+			buffer.flip();
+			buffer.get(data);
+			list.addAttribute(XATTR_NAMESPACE + name, data);
+		}
+		return list;
+	}
+
+	public FileMetaData buildEmptyMetaData() {
+		return new PosixMetaDataImpl();
+	}
+
+	public FileMetaDataSerializer getMetaDataSerializer() {
+		return SERIALIZER;
+	}
+
+	public void setMetaData(File f, FileMetaData abstractAttr) throws IOException {
+		PosixMetaDataImpl attrs = (PosixMetaDataImpl)abstractAttr;
+		Path path = f.toPath();
+		String file = FileSystemManager.getDisplayPath(f);
+
+		// Owner / Group
+		if (attrs.getOwner() != null && attrs.getGroup() != null) {
+			try {
+				UserPrincipalLookupService lookup = FileSystems.getDefault().getUserPrincipalLookupService();
+				PosixFileAttributeView view = (PosixFileAttributeView)Files.getFileAttributeView(path, PosixFileAttributeView.class, NO_FOLLOW);
+				view.setOwner(lookup.lookupPrincipalByName(attrs.getOwner()));
+				view.setGroup(lookup.lookupPrincipalByGroupName(attrs.getGroup()));
+			} catch (IOException e) {
+				Logger.defaultLogger().warn("Unable to set owner/group for " + file + " : " + e.getMessage());
+			}
+		}
+
+		// Last modification date and mode
+		// They are not set on symlinks (not supported). The type of the file is read because the mode may not contain it (legacy archives)
+		if (getType(f) != TYPE_LINK) {
+			if (attrs.getMode() != PosixMetaDataImpl.UNDEF_MODE) {
+				try {
+					if (unixView) {
+						Files.setAttribute(path, UNIX_MODE, new Integer(attrs.getMode() & PERMISSION_MASK), NO_FOLLOW);
+					} else {
+						Files.setPosixFilePermissions(path, toPermissions(attrs.getMode()));
+					}
+				} catch (IOException e) {
+					Logger.defaultLogger().warn("Unable to set mode for " + file + " : " + e.getMessage());
+				}
+			}
+
+			if (attrs.getLastmodified() != PosixMetaDataImpl.UNDEF_DATE) {
+				boolean result = f.setLastModified(attrs.getLastmodified());
+				if (! result) {
+					Logger.defaultLogger().warn("Unable to set last modification date for " + file);
+				}
+			}
+		}
+
+		// Extended attributes
+		if (attrs.getXattrList() != null && ! attrs.getXattrList().isEmpty()) {
+			UserDefinedFileAttributeView view = xattrView ? (UserDefinedFileAttributeView)Files.getFileAttributeView(path, UserDefinedFileAttributeView.class, NO_FOLLOW) : null;
+			Iterator xattrs = attrs.getXattrList().iterator();
+			while (xattrs.hasNext()) {
+				ExtendedAttribute xattr = (ExtendedAttribute)xattrs.next();
+				if (view == null || ! xattr.getName().startsWith(XATTR_NAMESPACE)) {
+					Logger.defaultLogger().warn("Unable to set extended attribute " + xattr.getName() + " / " + xattr.getAsString() + " for " + file + " : not supported by this accessor.");
+				} else {
+					try {
+						view.write(xattr.getName().substring(XATTR_NAMESPACE.length()), ByteBuffer.wrap(xattr.getData()));
+					} catch (IOException e) {
+						Logger.defaultLogger().warn("Unable to set extended attribute " + xattr.getName() + " / " + xattr.getAsString() + " for " + file + " : " + e.getMessage());
+					}
+				}
+			}
+		}
+
+		// ACL
+		if (
+				(attrs.getAccessAcl() != null && ! attrs.getAccessAcl().isEmpty())
+				|| (attrs.getDefaultAcl() != null && ! attrs.getDefaultAcl().isEmpty())
+		) {
+			Logger.defaultLogger().warn("ACL of " + file + " can't be restored : not supported by this accessor.");
+		}
+	}
+
+	public short getType(File f) throws IOException {
+		Path path = f.toPath();
+		if (unixView) {
+			int mode = ((Integer)Files.getAttribute(path, UNIX_MODE, NO_FOLLOW)).intValue();
+			switch (mode & S_IFMT) {
+			case S_IFLNK: return TYPE_LINK;
+			case S_IFBLK: return TYPE_BLOCK_SPEC_FILE;
+			case S_IFCHR: return TYPE_CHAR_SPEC_FILE;
+			case S_IFDIR: return TYPE_DIRECTORY;
+			case S_IFREG: return TYPE_FILE;
+			case S_IFIFO: return TYPE_PIPE;
+			case S_IFSOCK: return TYPE_SOCKET;
+			default: throw new IOException("Type not recognized for file " + FileSystemManager.getDisplayPath(f) + " : " + mode);
+			}
+		} else {
+			PosixFileAttributes attrs = (PosixFileAttributes)Files.readAttributes(path, PosixFileAttributes.class, NO_FOLLOW);
+			if (attrs.isSymbolicLink()) {
+				return TYPE_LINK;
+			} else if (attrs.isDirectory()) {
+				return TYPE_DIRECTORY;
+			} else {
+				return TYPE_FILE;
+			}
+		}
+	}
+
+	public boolean typeSupported(short type) {
+		return unixView || type == TYPE_DIRECTORY || type == TYPE_FILE || type == TYPE_LINK;
+	}
+
+	public boolean ACLSupported() {
+		return false;
+	}
+
+	public boolean extendedAttributesSupported() {
+		return xattrView;
+	}
+
+	public boolean test() {
+		if (OSTool.isSystemWindows() || ! FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+			return false;
+		}
+		try {
+			getMetaData(new File(OSTool.getUserDir()), false);
+			return true;
+		} catch (Throwable e) {
+			Logger.defaultLogger().warn(this.getClass().getName() + " cannot be used on this system. Got the following error : \"" + e.getClass().getName() + " : " + e.getMessage() + "\"");
+			return false;
+		}
+	}
+
+	public String getDescription() {
+		return DESCRIPTION;
+	}
+
+	private static int toMode(Set permissions) {
+		int mode = 0;
+		for (int i=0; i<PERMISSIONS.length; i++) {
+			if (permissions.contains(PERMISSIONS[i])) {
+				mode |= (1 << i);
+			}
+		}
+		return mode;
+	}
+
+	private static Set toPermissions(int mode) {
+		Set permissions = new HashSet();
+		for (int i=0; i<PERMISSIONS.length; i++) {
+			if ((mode & (1 << i)) != 0) {
+				permissions.add(PERMISSIONS[i]);
+			}
+		}
+		return permissions;
+	}
+}
@@ -40,7 +40,7 @@ This file is part of Areca.
 
  */
 public class FileLogProcessor 
-implements LogProcessor {
+implements BatchLogProcessor {
     
     private static SimpleDateFormat DF = new SimpleDateFormat("yy-MM-dd");
     private static int DEFAULT_LOG_HISTORY = FrameworkConfiguration.getInstance().getDefaultLogHistory();
@@ -60,6 +60,13 @@ implements LogProcessor {
      */
     protected LogCleaner cleaner;
     
+    /**
+     * Writer kept open during a batch of messages (see startBatch / endBatch)
+     */
+    private boolean inBatch = false;
+    private Writer batchWriter;
+    private String batchFile;
+    
     private FileLogProcessor() {
         this.enableLogHistory(DEFAULT_LOG_HISTORY);
     }
@@ -121,24 +128,63 @@ implements LogProcessor {
         
         // Ecriture de la log.
         try {
-            String tgFile = getCurrentLogFile();
- 
-            Writer fw = FileSystemManager.getWriter(tgFile, true);
+            Writer fw = getWriter();
             fw.write(OSTool.getLineSeparator());
             fw.write(logCt);
-            fw.flush();
             if (e != null) {
                 fw.write(" - ");
+                fw.flush();
                 e.printStackTrace(new PrintWriter(fw, true));
             }
-            fw.close();
-
+            if (! inBatch) {
+                fw.close();
+            }
         } catch (Exception exc) {
             System.out.println(" ");
             exc.printStackTrace();
         }
     }
     
+    /**
+     * Return the writer on the current log file ; during a batch, the writer is kept open until endBatch() (or until the log file changes)
+     */
+    private Writer getWriter() throws IOException {
+        String tgFile = getCurrentLogFile();
+        if (! inBatch) {
+            return FileSystemManager.getWriter(tgFile, true);
+        }
+        
+        if (batchWriter != null && ! tgFile.equals(batchFile)) {
+            closeBatchWriter();
+        }
+        if (batchWriter == null) {
+            batchWriter = FileSystemManager.getWriter(tgFile, true);
+            batchFile = tgFile;
+        }
+        return batchWriter;
+    }
+    
+    public void startBatch() {
+        inBatch = true;
+    }
+
+    public void endBatch() {
+        inBatch = false;
+        closeBatchWriter();
+    }
+    
+    private void closeBatchWriter() {
+        if (batchWriter != null) {
+            try {
+                batchWriter.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            batchWriter = null;
+            batchFile = null;
+        }
+    }
+    
     
     /**
      * Retourne le nom de base du fichier (sans la date, si on fonctionne en 
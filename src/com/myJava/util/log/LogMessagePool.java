@@ -1,7 +1,9 @@
 package com.myJava.util.log;
 
 /**
- * Pool of log messages.
+ * Pool of log messages, organized as a bounded ring : the messages are allocated once and recycled,
+ * so that no object is created when a message is logged.
+ * <BR>get() returns the message following the last message queued ; the messages are released in the same order by the consumer.
  * <BR>This class is NOT thread safe : we assume that it is handled by the caller
  * <BR>(mainly because locks are already handled in the producer/consumer scheme used by the logger class)
  * <BR>
@@ -31,57 +33,60 @@ This file is part of Areca.
 
  */
 public class LogMessagePool {
-
-	private static final double reallocRatio = 2;
-	private LogMessage[] free;
-	private int nextFreeIndex;
+	private LogMessage[] messages;
+	private int head = 0;
+	private int size = 0;
 	
-	protected LogMessagePool(int initialCapacity) {
-		this.free = new LogMessage[initialCapacity];
-		for (int i=0; i<initialCapacity; i++) {
-			this.free[i] = buildNewInstance();
+	protected LogMessagePool(int capacity) {
+		this.messages = new LogMessage[capacity];
+		for (int i=0; i<capacity; i++) {
+			this.messages[i] = buildNewInstance();
 		}
-		
-		nextFreeIndex = this.free.length - 1;
-	}
-	
-	private void reallocate() {
-		int newSize = (int)(reallocRatio * this.free.length);
-		LogMessage[] newFree = new LogMessage[newSize];
-		
-		for (int i=0; i<=nextFreeIndex; i++) {
-			newFree[i] = free[i];
-		}
-		
-		int nbNew = newFree.length - free.length;
-		
-		for (int i=0; i<nbNew; i++) {
-			newFree[nextFreeIndex + 1 + i] = buildNewInstance();
-		}
-		
-		this.free = newFree;
-		this.nextFreeIndex += nbNew;
 	}
 	
 	protected LogMessage buildNewInstance() {
 		return new LogMessage();
 	}
 	
+	public int capacity() {
+		return messages.length;
+	}
+	
+	/**
+	 * Number of messages currently queued
+	 */
+	public int size() {
+		return size;
+	}
+	
+	public boolean isFull() {
+		return size == messages.length;
+	}
+	
+	/**
+	 * Return the next free message and queue it - the pool must not be full
+	 */
 	public LogMessage get() {
-		if (nextFreeIndex == -1) {
-			reallocate();
-		}
-		
-		LogMessage ret = (LogMessage)free[nextFreeIndex];
-		free[nextFreeIndex] = null;
-		nextFreeIndex--;
+		LogMessage ret = messages[(head + size) % messages.length];
+		size++;
 		return ret;
 	}
 	
-	public void release(LogMessage message) {
-		if (message != null) {
-			nextFreeIndex++;
-			this.free[nextFreeIndex] = message;
+	/**
+	 * Return the i-th queued message
+	 */
+	public LogMessage peek(int i) {
+		return messages[(head + i) % messages.length];
+	}
+	
+	/**
+	 * Release the "count" oldest queued messages
+	 */
+	public void release(int count) {
+		for (int i=0; i<count; i++) {
+			messages[head].init(0, null, null, null);
+			head = (head + 1) % messages.length;
 		}
+		size -= count;
 	}
 }
@@ -38,9 +38,21 @@ public class Logger implements LogLevels {
 			Logger.LOG_LEVEL_WARNING, Logger.LOG_LEVEL_INFO,
 			Logger.LOG_LEVEL_DETAIL, Logger.LOG_LEVEL_FINEST };
 
+	private static final int QUEUE_SIZE = Math.max(16, FrameworkConfiguration.getInstance().getLogQueueSize());
+	private static final int BATCH_SIZE = 256;
+	private static final int POLICY_BLOCK = 0;
+	private static final int POLICY_DROP = 1;
+	private static final int POLICY_SAMPLE = 2;
+
 	private Object lock = this;
-	private ArrayList messages = new ArrayList();
-	private LogMessagePool pool = new LogMessagePool(200);
+	private LogMessagePool pool = new LogMessagePool(QUEUE_SIZE); // Queued messages - protected by "lock"
+	private int overflowPolicy = parsePolicy(FrameworkConfiguration.getInstance().getLogOverflowPolicy());
+	private int samplingRate = Math.max(1, FrameworkConfiguration.getInstance().getLogSamplingRate());
+	private boolean consumerWaiting = false;
+	private long sampled = 0;
+	private long dropped = 0;
+	private long reportedDropped = 0;
+	private Thread consumerThread;
 	private int logLevel;
 	private ArrayList processors = new ArrayList();
 	private static int WAIT = 5000;
@@ -51,46 +63,47 @@ public class Logger implements LogLevels {
 
 	private static Logger defaultLogger = new Logger();
 
+	/**
+	 * Processes the queued messages by batches (the messages are released once they have been processed by all the processors)
+	 */
 	private class LogConsumer implements Runnable {
-		private boolean infiniteLoop = true;
-		private LogMessagePool pool;
-		
-		public LogConsumer(boolean infiniteLoop, LogMessagePool pool) {
-			this.infiniteLoop = infiniteLoop;
-			this.pool = pool;
-		}
-
 		public void run() {
 			try {
-				while (infiniteLoop || (!messages.isEmpty())) {
-					LogMessage msg = null;
+				while (true) {
+					int count;
 					synchronized (lock) {
-						if (!messages.isEmpty()) {
-							msg = (LogMessage)messages.remove(0);
-						}
-					}
-
-					if (msg != null) {
-						for (int i=0; i<processors.size(); i++) {
-							LogProcessor proc = (LogProcessor)processors.get(i);
+						while (pool.size() == 0) {
+							consumerWaiting = true;
 							try {
-								proc.log(msg.getLevel(), msg.getMessage(), msg.getException(), msg.getSource());
-							} catch (Throwable e) {
-								e.printStackTrace();
+								lock.wait(WAIT);
+							} catch (InterruptedException ignored) {
+							} finally {
+								consumerWaiting = false;
 							}
 						}
+						count = Math.min(BATCH_SIZE, pool.size());
 					}
 
+					// The "count" first messages of the pool can't be modified by the producers until they are released
+					ArrayList procs = processors;
+					startBatch(procs);
+					for (int m=0; m<count; m++) {
+						LogMessage msg = pool.peek(m);
+						process(procs, msg.getLevel(), msg.getMessage(), msg.getException(), msg.getSource());
+					}
+					
+					long newlyDropped;
 					synchronized (lock) {
-						//this.pool.release(msg);
-						
-						if (infiniteLoop && messages.isEmpty()) {
-							try {
-								lock.wait(WAIT);
-							} catch (InterruptedException ignored) {
-							}
-						}
+						pool.release(count);
+						newlyDropped = dropped - reportedDropped;
+						reportedDropped = dropped;
+						lock.notifyAll();
+					}
+					
+					if (newlyDropped != 0) {
+						process(procs, LOG_LEVEL_WARNING, newlyDropped + " log messages have been dropped because the log queue was full.", null, "");
 					}
+					endBatch(procs);
 				}
 			} catch (Throwable e) {
 				// Unexpected exception during logging
@@ -111,6 +124,56 @@ public class Logger implements LogLevels {
 				}
 			}
 		}
+		
+		private void process(ArrayList procs, int level, String message, Throwable e, String source) {
+			for (int i=0; i<procs.size(); i++) {
+				LogProcessor proc = (LogProcessor)procs.get(i);
+				try {
+					proc.log(level, message, e, source);
+				} catch (Throwable ex) {
+					ex.printStackTrace();
+				}
+			}
+		}
+		
+		private void startBatch(ArrayList procs) {
+			for (int i=0; i<procs.size(); i++) {
+				if (procs.get(i) instanceof BatchLogProcessor) {
+					((BatchLogProcessor)procs.get(i)).startBatch();
+				}
+			}
+		}
+		
+		private void endBatch(ArrayList procs) {
+			for (int i=0; i<procs.size(); i++) {
+				if (procs.get(i) instanceof BatchLogProcessor) {
+					try {
+						((BatchLogProcessor)procs.get(i)).endBatch();
+					} catch (Throwable ex) {
+						ex.printStackTrace();
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Waits until the queued messages have been processed
+	 */
+	private class ShutdownHook implements Runnable {
+		public void run() {
+			flush(WAIT);
+		}
+	}
+	
+	private static int parsePolicy(String policy) {
+		if ("drop".equalsIgnoreCase(policy)) {
+			return POLICY_DROP;
+		} else if ("sample".equalsIgnoreCase(policy)) {
+			return POLICY_SAMPLE;
+		} else {
+			return POLICY_BLOCK;
+		}
 	}
 
 	public ThreadLocalLogProcessor getTlLogProcessor() {
@@ -126,15 +189,13 @@ public class Logger implements LogLevels {
 		this.addProcessor(new ConsoleLogProcessor(true));
 
 		// Create and launch consumer thread
-		LogConsumer consumer = new LogConsumer(true, this.pool);
-		Thread consumerThread = new Thread(consumer);
+		consumerThread = new Thread(new LogConsumer());
 		consumerThread.setDaemon(true);
 		consumerThread.setName("Logger");
 		consumerThread.start();
 
 		// Create and register shutdown hook
-		LogConsumer hook = new LogConsumer(false, this.pool);
-		Thread shutdownThread = new Thread(hook);
+		Thread shutdownThread = new Thread(new ShutdownHook());
 		shutdownThread.setDaemon(false);
 		shutdownThread.setName("Logger - Shutdown Thread");
 		Runtime.getRuntime().addShutdownHook(shutdownThread);
@@ -228,13 +289,13 @@ public class Logger implements LogLevels {
 
 	protected void log(int level, String message, Throwable e, String source) {
 		if (level <= logLevel) {
-			//LogMessage msg = pool.get();			// This row has to be added in the synchronized block because the messagePool is not thread safe (and we do not want to add another lock)
-			LogMessage msg = new LogMessage();
-			msg.init(level, message, source, e);
-			
 			synchronized (lock) {
-				messages.add(msg);
-				lock.notify();
+				if (acquireSlot(level)) {
+					pool.get().init(level, message, source, e);
+					if (consumerWaiting) {
+						lock.notifyAll();
+					}
+				}
 			}
 		}
 
@@ -243,6 +304,59 @@ public class Logger implements LogLevels {
 		}
 	}
 
+	/**
+	 * Apply the overflow policy - returns false if the message must be dropped.
+	 * <BR>Must be called while holding the lock.
+	 * <BR>The producers may wait for the consumer thread : the log processors must therefore never wait for another thread
+	 * (the GUI log processor, for instance, updates the display asynchronously).
+	 */
+	private boolean acquireSlot(int level) {
+		boolean detail = level >= LOG_LEVEL_DETAIL;
+		if (
+				detail 
+				&& overflowPolicy == POLICY_SAMPLE 
+				&& pool.size() >= pool.capacity() / 2 
+				&& (sampled++ % samplingRate) != 0
+		) {
+			dropped++;
+			return false;
+		}
+		
+		while (pool.isFull()) {
+			if ((detail && overflowPolicy != POLICY_BLOCK) || Thread.currentThread() == consumerThread) {
+				// The consumer thread can't wait for itself
+				dropped++;
+				return false;
+			}
+			try {
+				lock.wait(WAIT);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				dropped++;
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Wait until all the queued messages have been processed (or until the timeout has expired)
+	 */
+	public void flush(long timeout) {
+		long limit = System.currentTimeMillis() + timeout;
+		synchronized (lock) {
+			long remaining;
+			while (pool.size() != 0 && (remaining = limit - System.currentTimeMillis()) > 0) {
+				try {
+					lock.wait(remaining);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+			}
+		}
+	}
+
 	private void log(int level, String message, String source) {
 		log(level, message, null, source);
 	}